@@ -0,0 +1,40 @@
+-- Change tracking for delta synchronization of the list models
+-- Adds a last_modified stamp (kept up to date by MySQL) to each synced table,
+-- a tombstone table that the gateways write to in the same tx as each delete,
+-- and a CHANGE_SEQ row per synced table that every tx writing to the table updates before its first write.
+-- last_modified is the time of the statement, not of the commit: a sync locks the table's CHANGE_SEQ row before
+-- reading the time it will next sync from, so it waits for the txs still writing to the table and can't skip their rows
+-- (writes to the same table commit one at a time as a result). The gateways refuse to write if the row is missing.
+-- Requires MySQL 5.6.5 or later (fractional-second timestamps with default/on update).
+
+alter table WAREHOUSE
+	add column last_modified timestamp(3) not null default current_timestamp(3) on update current_timestamp(3),
+	add index warehouse_last_modified (last_modified);
+
+alter table PART
+	add column last_modified timestamp(3) not null default current_timestamp(3) on update current_timestamp(3),
+	add index part_last_modified (last_modified);
+
+alter table INVENTORY
+	add column last_modified timestamp(3) not null default current_timestamp(3) on update current_timestamp(3),
+	add index inventory_last_modified (last_modified);
+
+create table CHANGE_SEQ (
+	table_name varchar(32) not null,
+	seq bigint not null default 0,
+	primary key (table_name)
+) engine=InnoDB;
+
+insert into CHANGE_SEQ (table_name) values ('WAREHOUSE'), ('PART'), ('INVENTORY');
+
+create table DELETED_ROW (
+	table_name varchar(32) not null,
+	row_id bigint not null,
+	deleted_at timestamp(3) not null default current_timestamp(3),
+	primary key (table_name, row_id),
+	index deleted_row_deleted_at (table_name, deleted_at)
+) engine=InnoDB;
+
+-- tombstones only need to outlive the longest gap between two syncs of a running client;
+-- old ones can be purged periodically, e.g.:
+-- delete from DELETED_ROW where deleted_at < now() - interval 30 day;
@@ -0,0 +1,24 @@
+-- Edit leases: who has a record open in a detail view
+-- Replaces PART.user_access/datetime. A lease is taken when a detail view opens, renewed by the client's
+-- heartbeat while the view stays open and deleted when the view closes. A lease whose client stopped
+-- renewing it (crash, lost connection) runs out at expires_at: anyone may take it over from then on,
+-- and each client's sweeper deletes expired leases a small batch at a time through the expires_at index.
+-- token changes each time a lease is taken, so a view's release (sent in the background) only deletes the lease
+-- it took, not one taken again for a view of the same record opened right after it.
+
+create table EDIT_LEASE (
+	table_name varchar(32) not null,
+	row_id bigint not null,
+	holder varchar(255) not null,
+	token bigint not null default 0,
+	expires_at timestamp(3) not null,
+	primary key (table_name, row_id),
+	index edit_lease_expires_at (expires_at),
+	index edit_lease_holder (holder)
+) engine=InnoDB;
+
+-- tables created before release tokens:
+-- alter table EDIT_LEASE add column token bigint not null default 0;
+
+-- the old part locks are no longer read or written; once every client is upgraded they can go:
+-- alter table PART drop column user_access, drop column datetime;
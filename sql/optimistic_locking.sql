@@ -0,0 +1,17 @@
+-- Optimistic concurrency for the detail views' saves
+-- Adds a version number to each editable table. Every save is a conditional update
+-- (... set ..., version = version + 1 where id = ? and version = ?), so a save made from a stale copy
+-- updates nothing and the gateway reports a conflict instead of overwriting someone else's changes.
+-- Opening a record to edit no longer needs a row lock (select ... for update).
+
+alter table WAREHOUSE
+	add column version bigint not null default 0;
+
+alter table PART
+	add column version bigint not null default 0;
+
+alter table INVENTORY
+	add column version bigint not null default 0;
+
+alter table USER
+	add column version bigint not null default 0;
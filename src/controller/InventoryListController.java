@@ -1,5 +1,6 @@
 package controller;
 
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -7,6 +8,7 @@ import javax.swing.AbstractListModel;
 
 import models.Inventory;
 import models.InventoryList;
+import models.ListChangeEvent;
 
 /**
  * Provides the InventoryList data to be used by InventoryListView JLists
@@ -27,24 +29,43 @@ public class InventoryListController extends AbstractListModel<Inventory> implem
 	 */
 	private MDIChild myListView;
 	
+	/**
+	 * what is registered with the list: queues the list's notifications for this controller in the NotificationDispatcher
+	 */
+	private Observer myObserver;
+	
+	/**
+	 * rows the JList is showing: the list's snapshot as of the last notification handled
+	 * (the list itself may already be further along, e.g. while a background refresh is applied)
+	 */
+	private List<Inventory> shown;
+	
 	public InventoryListController(InventoryList il) {
 		super();
 		myList = il;
 		
-		//register as observer to person list
-		il.addObserver(this);
+		//register as observer to the list; its notifications are delivered on the EDT at most once per frame
+		myObserver = NotificationDispatcher.getInstance().coalesce(this);
+		il.addObserver(myObserver);
+		shown = il.getSnapshot();
 	}
 	
 	@Override
 	public int getSize() {
-		return myList.getList().size();
+		//paged lists report every record in the db, not just the resident pages
+		if(myList.isPaged())
+			return myList.getSize();
+		return shown.size();
 	}
 
 	@Override
 	public Inventory getElementAt(int index) {
 		if(index >= getSize())
 			throw new IndexOutOfBoundsException("Index " + index + " is out of list bounds!");
-		return myList.getList().get(index);
+		//a placeholder while the record's page is fetched on a worker thread (see InventoryList.getElementAt)
+		if(myList.isPaged())
+			return myList.getElementAt(index);
+		return shown.get(index);
 	}
 
 	public MDIChild getMyListView() {
@@ -59,15 +80,43 @@ public class InventoryListController extends AbstractListModel<Inventory> implem
 	 * unregister with person list as observer
 	 */
 	public void unregisterAsObserver() {
-		myList.deleteObserver(this);
+		myList.deleteObserver(myObserver);
+		NotificationDispatcher.getInstance().cancel(this);
 	}
 
-	//model tells this observer that it has changed
-	//so tell JList's view to repaint itself now
+	//model tells this observer what changed
+	//so tell JList's view about only the affected rows (JList repaints those itself)
 	@Override
 	public void update(Observable o, Object arg) {
-		//System.out.println("PersonListController update");
-		fireContentsChanged(this, 0, getSize());
-		myListView.repaint();
+		shown = snapshotOf(arg);
+		if(!(arg instanceof ListChangeEvent)) {
+			fireContentsChanged(this, 0, getSize());
+			myListView.repaint();
+			return;
+		}
+		ListChangeEvent<?> change = (ListChangeEvent<?>) arg;
+		switch(change.getType()) {
+		case ADDED:
+			fireIntervalAdded(this, change.getFirstIndex(), change.getLastIndex());
+			break;
+		case REMOVED:
+			fireIntervalRemoved(this, change.getFirstIndex(), change.getLastIndex());
+			break;
+		case UPDATED:
+			fireContentsChanged(this, change.getFirstIndex(), change.getLastIndex());
+			break;
+		default:
+			fireContentsChanged(this, 0, getSize());
+			myListView.repaint();
+		}
+	}
+	
+	/**
+	 * @return the snapshot the notification was published with, or the list's current one
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Inventory> snapshotOf(Object arg) {
+		List<Inventory> rows = arg instanceof ListChangeEvent ? ((ListChangeEvent<Inventory>) arg).getSnapshot() : null;
+		return rows != null ? rows : myList.getSnapshot();
 	}
 }
@@ -4,15 +4,16 @@ import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
+import database.AsyncExecutor;
 import database.PartTableGateway;
-import database.PartTableGatewayMySQL;
 import database.UserTableGateway;
-import database.UserTableGatewayMySQL;
 import database.WarehouseTableGateway;
-import database.WarehouseTableGatewayMySQL;
+import database.DatabaseConfig;
 import database.GatewayException;
+import database.GatewayFactory;
 import database.InventoryTableGateway;
-import database.InventoryTableGatewayMySQL;
+import models.EditLeaseManager;
+import models.WriteBehindQueue;
 import models.InventoryList;
 import models.PartList;
 import models.UserList;
@@ -35,12 +36,32 @@ public class Launcher {
 		PartTableGateway ptg = null;
 		InventoryTableGateway itg = null;
 		UserTableGateway utg = null;
+		EditLeaseManager leases = null;
+		int inventoryPageSize = 0, inventoryResidentPages = 0;
+		int partCacheSize = 0, warehouseCacheSize = 0;
 		try {
 
-			wtg = new WarehouseTableGatewayMySQL();
-			ptg = new PartTableGatewayMySQL();
-			itg = new InventoryTableGatewayMySQL();
-			utg = new UserTableGatewayMySQL();
+			//JDBC (MySQL/H2) or in-memory gateways depending on DB_BACKEND in db.properties
+			wtg = GatewayFactory.createWarehouseGateway();
+			ptg = GatewayFactory.createPartGateway();
+			itg = GatewayFactory.createInventoryGateway();
+			utg = GatewayFactory.createUserGateway();
+			
+			//edit leases of records open in detail views: renewed while open, expired ones swept in the background
+			leases = new EditLeaseManager(GatewayFactory.createLeaseGateway());
+			leases.start(AsyncExecutor.getInstance());
+			
+			//optional write-behind: saves of edited records are queued and written in batches in the background
+			if(WriteBehindQueue.isEnabled())
+				new WriteBehindQueue(wtg, ptg, itg).start(AsyncExecutor.getInstance());
+			
+			DatabaseConfig config = DatabaseConfig.getInstance();
+			inventoryPageSize = config.getInt("INVENTORY_PAGE_SIZE", 0);
+			inventoryResidentPages = config.getInt("INVENTORY_RESIDENT_PAGES", 5);
+			partCacheSize = config.getInt("LAZY_PART_CACHE", 0);
+			warehouseCacheSize = config.getInt("LAZY_WAREHOUSE_CACHE", 0);
+			//list views get model changes at most once per NOTIFY_INTERVAL_MS (coalesced)
+			NotificationDispatcher.getInstance().setInterval(config.getInt("NOTIFY_INTERVAL_MS", NotificationDispatcher.DEFAULT_INTERVAL_MS));
 
 		} catch (GatewayException e) {
 			JOptionPane.showMessageDialog(null, "Database is not responding. Please reboot your computer and maybe the database will magically appear (not really).", "Database Offline!", JOptionPane.ERROR_MESSAGE);
@@ -50,21 +71,37 @@ public class Launcher {
 		//init model(s); do an initial load from gateways 
 		WarehouseList warehouseList = new WarehouseList();
 		warehouseList.setGateway(wtg);
+		//lazy: only ids, names and capacities are loaded, other columns as records are opened
+		if(warehouseCacheSize > 0)
+			warehouseList.setLazy(warehouseCacheSize);
 		warehouseList.loadFromGateway();
 		
 		PartList partList = new PartList();
 		partList.setGateway(ptg);
+		//lazy: only ids and part numbers are loaded, other columns as parts are opened
+		if(partCacheSize > 0)
+			partList.setLazy(partCacheSize);
 		partList.loadFromGateway();
 		
+		//id <-> name lookups for the inventory views' pickers: built once here, then kept up to date by the lists
+		warehouseList.getNameLookup();
+		partList.getNameLookup();
+		
 		InventoryList inventoryList = new InventoryList();
 		inventoryList.setGateway(itg);
-		inventoryList.loadFromGateway();
+		//per-warehouse totals check quantities against the warehouses' storage capacities
+		inventoryList.getUtilization().trackCapacities(warehouseList);
+		//large inventory tables can be paged instead of loaded whole (INVENTORY_PAGE_SIZE in db.properties)
+		if(inventoryPageSize > 0)
+			inventoryList.setPaged(inventoryPageSize, inventoryResidentPages, null);
+		else
+			inventoryList.loadFromGateway();
 		
 		UserList userList = new UserList();
 		userList.setGateway(utg);
 		userList.loadFromGateway();
 		
-		MDIParent appFrame = new MDIParent("CS 4743 Assignment 5 ", warehouseList, partList, inventoryList, userList);
+		MDIParent appFrame = new MDIParent("CS 4743 Assignment 5 ", warehouseList, partList, inventoryList, userList, leases);
 		
 		//use exit on close if you only want windowClosing to be called (can abort closing here also)
 		//appFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
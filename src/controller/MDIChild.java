@@ -1,10 +1,18 @@
 package controller;
 
+import java.awt.Component;
 import java.awt.Container;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.beans.PropertyVetoException;
 
+import javax.swing.JComboBox;
 import javax.swing.JInternalFrame;
 import javax.swing.JPanel;
+import javax.swing.Timer;
+import javax.swing.text.JTextComponent;
+
+import models.EditLeaseManager;
 
 /**
  * A JPanel super-class that has frame-like properties for MDI children panels
@@ -40,6 +48,26 @@ public class MDIChild extends JPanel {
 	 * true if fields have been modified but not yet saved. Allows prompt if trying to close without saving.
 	 */
 	private boolean changed;
+	
+	/**
+	 * detail views: lease on the record being edited, given back on cleanup
+	 */
+	private EditLeaseManager.Lease editLease;
+
+	/**
+	 * how often a detail view checks whether its lease was lost
+	 */
+	private static final int LEASE_CHECK_MS = 2000;
+
+	/**
+	 * checks the edit lease on the EDT while one is held and not yet lost
+	 */
+	private Timer leaseCheck;
+
+	/**
+	 * true once the edit lease was found lost: the view is read-only and saves are refused
+	 */
+	private boolean leaseLost;
 
 	public MDIChild(String title, MDIParent parent) {
 		this(title);
@@ -129,6 +157,14 @@ public class MDIChild extends JPanel {
 	 */
 	protected void cleanup() {
 		parent.removeFromOpenViews(this);
+		if(leaseCheck != null) {
+			leaseCheck.stop();
+			leaseCheck = null;
+		}
+		if(editLease != null) {
+			editLease.release();
+			editLease = null;
+		}
 		//TEST: this should always print as the MDI Child closes, no matter how the child is closed
 		//e.g., click close on the JInternalFrame, click Quit on menu, kill JVM, click close on MDI Parent
 		System.err.println("MDIChild is closing...");
@@ -153,6 +189,60 @@ public class MDIChild extends JPanel {
 		}
 	}
 	
+	public EditLeaseManager.Lease getEditLease() {
+		return editLease;
+	}
+
+	public void setEditLease(EditLeaseManager.Lease editLease) {
+		this.editLease = editLease;
+		if(leaseCheck != null)
+			leaseCheck.stop();
+		leaseCheck = null;
+		if(editLease == null)
+			return;
+		leaseCheck = new Timer(LEASE_CHECK_MS, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				checkEditLease();
+			}
+		});
+		leaseCheck.start();
+	}
+
+	/**
+	 * if the heartbeat found this view's lease taken over (it ran out, e.g., while the db was unreachable,
+	 * and another user opened the record), warns the user and makes the view read-only
+	 * @return true if the view still holds its lease (or never had one)
+	 */
+	public boolean checkEditLease() {
+		if(leaseLost)
+			return false;
+		if(editLease == null || !editLease.isLost())
+			return true;
+		leaseLost = true;
+		if(leaseCheck != null) {
+			leaseCheck.stop();
+			leaseCheck = null;
+		}
+		setReadOnly(this);
+		//nothing left to save, so closing does not prompt
+		changed = false;
+		parent.displayChildMessage(getTitle() + " was opened for editing by another user after this window's lease ran out: "
+				+ "it is now read-only and its unsaved changes cannot be saved");
+		return false;
+	}
+
+	private static void setReadOnly(Container c) {
+		for(Component child : c.getComponents()) {
+			if(child instanceof JTextComponent)
+				((JTextComponent) child).setEditable(false);
+			else if(child instanceof JComboBox)
+				child.setEnabled(false);
+			else if(child instanceof Container)
+				setReadOnly((Container) child);
+		}
+	}
+	
 	public boolean isChanged() {
 		return changed;
 	}
@@ -10,6 +10,9 @@ import java.awt.event.WindowListener;
 import java.beans.PropertyVetoException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import javax.swing.JButton;
 import javax.swing.JComponent;
@@ -23,7 +26,11 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
+import database.AsyncExecutor;
+import database.ConnectionPool;
 import database.GatewayException;
+import database.GatewayFactory;
+import models.EditLeaseManager;
 import models.Inventory;
 import models.InventoryList;
 import models.Part;
@@ -32,8 +39,11 @@ import models.User;
 import models.UserList;
 import models.Warehouse;
 import models.WarehouseList;
+import models.WriteBehindQueue;
 import reports.ReportException;
-import reports.ReportGatewayMySQL;
+import reports.ReportGateway;
+import reports.ReportGatewayJDBC;
+import reports.ReportGatewayMemory;
 import reports.WarehousePartReportExcel;
 import reports.WarehousePartReportPDF;
 import utilities.UserSession;
@@ -64,13 +74,18 @@ public class MDIParent extends JFrame implements WindowListener {
 	private InventoryList inventoryList;
 	private UserList userList;
 	
+	/**
+	 * edit leases of the records open in detail views
+	 */
+	private EditLeaseManager leases;
+	
 	private UserSession userSession = null;
 	
 	//keep a list of currently open views
 	//useful if the MDIParent needs to act on the open views or see if an instance is already open
 	private List<MDIChild> openViews;
 		
-	public MDIParent(String title, WarehouseList wList, PartList pList, InventoryList iList, UserList uList) {
+	public MDIParent(String title, WarehouseList wList, PartList pList, InventoryList iList, UserList uList, EditLeaseManager leases) {
 		super(title);
 		
 		userSession = new UserSession();
@@ -80,7 +95,7 @@ public class MDIParent extends JFrame implements WindowListener {
 		partList = pList;
 		inventoryList = iList;
 		userList = uList;
-		
+		this.leases = leases;
 		
 		
 		//init the view list
@@ -96,6 +111,17 @@ public class MDIParent extends JFrame implements WindowListener {
 		
 		this.addWindowListener(this);
 
+		//queued saves (write-behind) that fail are rolled back and reported here
+		WriteBehindQueue writeBehind = WriteBehindQueue.getActive();
+		if(writeBehind != null) {
+			writeBehind.setFailureListener(new WriteBehindQueue.FailureListener() {
+				@Override
+				public void saveFailed(String message) {
+					displayChildMessage(message);
+				}
+			});
+		}
+
 		//add shutdown hook to clean up properly even when VM quits (e.g., Command-Q)
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override
@@ -122,7 +148,8 @@ public class MDIParent extends JFrame implements WindowListener {
 			case SHOW_LIST_WAREHOUSES :
 				//sync warehouse list with db contents using id map to avoid duplicating or overwriting exist persons
 				//already in the list (Identity Map)
-				warehouseList.loadFromGateway();
+				//the view opens right away and fills in when the rows arrive from the background load
+				loadInBackground(warehouseList.loadFromGatewayAsync(), "warehouses");
 
 				WarehouseListView w = new WarehouseListView("Warehouse List", new WarehouseListController(warehouseList), this);
 				//v1.setSingleOpenOnly(true);
@@ -132,8 +159,23 @@ public class MDIParent extends JFrame implements WindowListener {
 
 			case SHOW_DETAIL_WAREHOUSE :
 				Warehouse w1 = ((WarehouseListView) caller).getSelectedWarehouse();
-				WarehouseDetailView vWarehouse = new WarehouseDetailView(w1.getWareHouseName(), w1, this);
-				openMDIChild(vWarehouse);
+				//a lazy list may only hold the warehouse's name and capacity so far:
+				//the view opens once the rest is fetched in the background
+				warehouseList.hydrateAsync(w1).whenCompleteAsync(new BiConsumer<Warehouse, Throwable>() {
+					@Override
+					public void accept(Warehouse w, Throwable error) {
+						if(error != null) {
+							displayChildMessage("Error trying to load warehouse: " + AsyncExecutor.describe(error));
+							return;
+						}
+						EditLeaseManager.Lease wLease = leaseForEdit(EditLeaseManager.WAREHOUSE, w.getId(), "Warehouse");
+						if(wLease == null)
+							return;
+						WarehouseDetailView vWarehouse = new WarehouseDetailView(w.getWareHouseName(), w, MDIParent.this);
+						vWarehouse.setEditLease(wLease);
+						openMDIChild(vWarehouse);
+					}
+				}, AsyncExecutor.EDT);
 				break;
 
 			case ADD_WAREHOUSE :
@@ -159,7 +201,7 @@ public class MDIParent extends JFrame implements WindowListener {
 
 			case DELETE_WAREHOUSE :
 				//remove the model from the model list
-				Warehouse wDelete = ((WarehouseListView) caller).getSelectedWarehouse();
+				final Warehouse wDelete = ((WarehouseListView) caller).getSelectedWarehouse();
 				warehouseList.removeWarehouseFromList(wDelete);
 				
 				//close all details that are based on this object
@@ -175,22 +217,19 @@ public class MDIParent extends JFrame implements WindowListener {
 				
 				//lastly, delete the warehouse from the db
 				//NOTE: this will also delete all warehouse/owner relationships
-				try {
-					wDelete.delete();
-					this.displayChildMessage("Warehouse deleted.");
-				} catch (GatewayException e) {
-					System.err.println(e.getMessage());
-					this.displayChildMessage("Error trying to delete warehouse.");
-				}
+				runInBackground(new Callable<Void>() {
+					@Override
+					public Void call() throws GatewayException {
+						wDelete.delete();
+						return null;
+					}
+				}, "Warehouse deleted.", "Error trying to delete warehouse.");
 				break;
 				
 			case SHOW_LIST_PARTS :
 				//sync part list with db contents using id map to avoid duplicating or overwriting exist persons
 				//already in the list (Identity Map)
-				partList.loadFromGateway();
-				
-				// update the datetime
-				partList.getGateway().updateAccessTime(30);
+				loadInBackground(partList.loadFromGatewayAsync(), "parts");
 				
 				PartListView dv1 = new PartListView("Part List", new PartListController(partList), this);
 				//v1.setSingleOpenOnly(true);
@@ -200,8 +239,23 @@ public class MDIParent extends JFrame implements WindowListener {
 
 			case SHOW_DETAIL_PART :
 				Part d = ((PartListView) caller).getSelectedPart();
-		    	PartDetailView vPart = new PartDetailView(d.getPartName(), d, this);
-				openMDIChild(vPart);
+				//a lazy list may only hold the part's number so far:
+				//the view opens once the rest is fetched in the background
+				partList.hydrateAsync(d).whenCompleteAsync(new BiConsumer<Part, Throwable>() {
+					@Override
+					public void accept(Part p, Throwable error) {
+						if(error != null) {
+							displayChildMessage("Error trying to load part: " + AsyncExecutor.describe(error));
+							return;
+						}
+						EditLeaseManager.Lease pLease = leaseForEdit(EditLeaseManager.PART, p.getId(), "Part");
+						if(pLease == null)
+							return;
+						PartDetailView vPart = new PartDetailView(p.getPartName(), p, MDIParent.this);
+						vPart.setEditLease(pLease);
+						openMDIChild(vPart);
+					}
+				}, AsyncExecutor.EDT);
 				break;
 
 			case ADD_PART :
@@ -239,7 +293,7 @@ public class MDIParent extends JFrame implements WindowListener {
 				}
 				
 				//remove the model from the model list
-				Part dDelete = ((PartListView) caller).getSelectedPart();
+				final Part dDelete = ((PartListView) caller).getSelectedPart();
 				partList.removePartFromList(dDelete);
 				
 				//close all details that are based on this object
@@ -255,19 +309,23 @@ public class MDIParent extends JFrame implements WindowListener {
 				
 				//lastly, delete the part from the db
 				//NOTE: this will also delete all part/owner relationships
-				try {
-					dDelete.delete();
-					this.displayChildMessage("Part deleted.");
-				} catch (GatewayException e) {
-					System.err.println(e.getMessage());
-					this.displayChildMessage("Error trying to delete part.");
-				}
+				runInBackground(new Callable<Void>() {
+					@Override
+					public Void call() throws GatewayException {
+						dDelete.delete();
+						return null;
+					}
+				}, "Part deleted.", "Error trying to delete part.");
 				break;
 								
 			case SHOW_LIST_INVENTORY :
 				//sync inventory list with db contents using id map to avoid duplicating or overwriting exist persons
 				//already in the list (Identity Map)
-				inventoryList.loadFromGateway();
+				//a paged list only needs to drop its pages and recount (both off the EDT); pages are fetched as the list is scrolled
+				if(inventoryList.isPaged())
+					inventoryList.refreshPages();
+				else
+					loadInBackground(inventoryList.loadFromGatewayAsync(), "inventory");
 				
 				InventoryListView inv1 = new InventoryListView("Inventory List", new InventoryListController(inventoryList), this);
 				//v1.setSingleOpenOnly(true);
@@ -277,7 +335,11 @@ public class MDIParent extends JFrame implements WindowListener {
 
 			case SHOW_DETAIL_INVENTORY :
 				Inventory inv = ((InventoryListView) caller).getSelectedInventory();
+				EditLeaseManager.Lease iLease = leaseForEdit(EditLeaseManager.INVENTORY, inv.getId(), "Inventory");
+				if(iLease == null)
+					return;
 				InventoryDetailView vinv = new InventoryDetailView(""+inv.getId(), inv, this);
+				vinv.setEditLease(iLease);
 				openMDIChild(vinv);
 				break;
 
@@ -304,7 +366,7 @@ public class MDIParent extends JFrame implements WindowListener {
 
 			case DELETE_INVENTORY :
 				//remove the model from the model list
-				Inventory iDelete = ((InventoryListView) caller).getSelectedInventory();
+				final Inventory iDelete = ((InventoryListView) caller).getSelectedInventory();
 				inventoryList.removeInventoryFromList(iDelete);
 				
 				//close all details that are based on this object
@@ -320,13 +382,13 @@ public class MDIParent extends JFrame implements WindowListener {
 				
 				//lastly, delete the inventory from the db
 				//NOTE: this will also delete all part/owner relationships
-				try {
-					iDelete.delete();
-					this.displayChildMessage("Inventory deleted.");
-				} catch (GatewayException e) {
-					System.err.println(e.getMessage());
-					this.displayChildMessage("Error trying to delete Inventory.");
-				}
+				runInBackground(new Callable<Void>() {
+					@Override
+					public Void call() throws GatewayException {
+						iDelete.delete();
+						return null;
+					}
+				}, "Inventory deleted.", "Error trying to delete Inventory.");
 				break;	
 				
 			case SHOW_LOGOUT:
@@ -350,7 +412,7 @@ public class MDIParent extends JFrame implements WindowListener {
 			case SHOW_LIST_USERS :
 				//sync person list with db contents using id map to avoid duplicating or overwriting exist persons
 				//already in the list (Identity Map)
-				userList.loadFromGateway();
+				loadInBackground(userList.loadFromGatewayAsync(), "users");
 				
 				UserListView user1 = new UserListView("User List", new UserListController(userList), this);
 				//v1.setSingleOpenOnly(true);
@@ -360,7 +422,11 @@ public class MDIParent extends JFrame implements WindowListener {
 	
 			case SHOW_DETAIL_USER :
 				User u = ((UserListView) caller).getSelectedUser();
+				EditLeaseManager.Lease uLease = leaseForEdit(EditLeaseManager.USER, u.getId(), "User");
+				if(uLease == null)
+					return;
 		    	UserDetailView vUser = new UserDetailView(u.getFullname(), u, this);
+		    	vUser.setEditLease(uLease);
 				openMDIChild(vUser);
 				break;
 	
@@ -387,7 +453,7 @@ public class MDIParent extends JFrame implements WindowListener {
 	
 			case DELETE_USER :
 				//remove the model from the model list
-				User uDelete = ((UserListView) caller).getSelectedUser();
+				final User uDelete = ((UserListView) caller).getSelectedUser();
 				userList.removeUserFromList(uDelete);
 				
 				//close all details that are based on this object
@@ -403,42 +469,101 @@ public class MDIParent extends JFrame implements WindowListener {
 				
 				//lastly, delete the user from the db
 				//NOTE: this will also delete all user/owner relationships
-				try {
-					uDelete.delete();
-					this.displayChildMessage("user deleted.");
-				} catch (GatewayException e) {
-					System.err.println(e.getMessage());
-					this.displayChildMessage("Error trying to delete user.");
-				}
+				runInBackground(new Callable<Void>() {
+					@Override
+					public Void call() throws GatewayException {
+						uDelete.delete();
+						return null;
+					}
+				}, "user deleted.", "Error trying to delete user.");
 				break;
 				
 				case PDF_REPORT :
-					try {
-						String fileName_pdf = "report.pdf";
-						
-						WarehousePartReportPDF report = new WarehousePartReportPDF(new ReportGatewayMySQL());
-						report.generateReport();
-						report.outputReportToFile( fileName_pdf );
-						report.close();
-					} catch (GatewayException | ReportException e) {
-						this.displayChildMessage(e.getMessage());
-						return;
-					} 
+					//reports query the whole inventory so they are built in the background
+					runInBackground(new Callable<Void>() {
+						@Override
+						public Void call() throws GatewayException, ReportException {
+							String fileName_pdf = "report.pdf";
+							
+							WarehousePartReportPDF report = new WarehousePartReportPDF(createReportGateway());
+							report.generateReport();
+							report.outputReportToFile( fileName_pdf );
+							report.close();
+							return null;
+						}
+					}, null, null);
 
 				case EXCEL_REPORT :
-					try {
-						
-						String fileName_xls = "report.xls";
-						
-						WarehousePartReportExcel report = new WarehousePartReportExcel(new ReportGatewayMySQL());
-						report.generateReport();
-						report.outputReportToFile( fileName_xls );
-						report.close();
-					} catch (GatewayException | ReportException e) {
-						this.displayChildMessage(e.getMessage());
-						return;
-					} 	
+					runInBackground(new Callable<Void>() {
+						@Override
+						public Void call() throws GatewayException, ReportException {
+							String fileName_xls = "report.xls";
+							
+							WarehousePartReportExcel report = new WarehousePartReportExcel(createReportGateway());
+							report.generateReport();
+							report.outputReportToFile( fileName_xls );
+							report.close();
+							return null;
+						}
+					}, null, null);
+		}
+	}
+	
+	/**
+	 * tells the user if a background list load fails (a load that succeeds updates the list's views itself)
+	 * @param load future returned by a list's loadFromGatewayAsync
+	 * @param what name of the records being loaded, for the message
+	 */
+	private void loadInBackground(CompletableFuture<Void> load, final String what) {
+		load.whenCompleteAsync(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void result, Throwable error) {
+				if(error != null) {
+					System.err.println(error);
+					displayChildMessage("Could not load " + what + ": " + AsyncExecutor.describe(error));
+				}
+			}
+		}, AsyncExecutor.EDT);
+	}
+	
+	/**
+	 * runs gateway work (deletes, reports) on the AsyncExecutor so the EDT is not blocked,
+	 * then shows doneMessage or errorMessage on the EDT
+	 * @param task
+	 * @param doneMessage shown when task succeeds (null for none)
+	 * @param errorMessage shown when task fails (null to show the error itself)
+	 */
+	private void runInBackground(Callable<Void> task, final String doneMessage, final String errorMessage) {
+		CompletableFuture<Void> work;
+		try {
+			work = AsyncExecutor.getInstance().submit(task);
+		} catch (GatewayException e) {
+			this.displayChildMessage(e.getMessage());
+			return;
 		}
+		work.whenCompleteAsync(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void result, Throwable error) {
+				if(error == null) {
+					if(doneMessage != null)
+						displayChildMessage(doneMessage);
+				} else {
+					System.err.println(AsyncExecutor.describe(error));
+					displayChildMessage(errorMessage != null ? errorMessage : AsyncExecutor.describe(error));
+				}
+			}
+		}, AsyncExecutor.EDT);
+	}
+	
+	/**
+	 * report gateway for the backend chosen by DB_BACKEND in db.properties
+	 * @return
+	 * @throws GatewayException
+	 */
+	private ReportGateway createReportGateway() throws GatewayException {
+		if(GatewayFactory.isMemoryBackend())
+			return new ReportGatewayMemory();
+		return new ReportGatewayJDBC();
 	}
 	
 	/**
@@ -462,6 +587,37 @@ public class MDIParent extends JFrame implements WindowListener {
 		//close any model table gateways
 		warehouseList.getGateway().close();
 		partList.getGateway().close();
+		
+		//write the saves still queued (write-behind) before the connections close
+		WriteBehindQueue writeBehind = WriteBehindQueue.getActive();
+		if(writeBehind != null)
+			writeBehind.shutdown();
+		
+		//give back the edit leases the closed views may not have released yet
+		leases.shutdown();
+		
+		//stop background gateway calls, then close the connections shared by all gateways
+		AsyncExecutor.shutdown();
+		ConnectionPool.shutdown();
+	}
+
+	/**
+	 * takes the edit lease on a record before its detail view opens; the view gives it back when it closes (MDIChild.cleanup)
+	 * @param table table name (see EditLeaseManager)
+	 * @param id record's id
+	 * @param what record type shown to the user
+	 * @return the lease, or null (after telling the user) if another user is editing the record or the lease could not be taken
+	 */
+	private EditLeaseManager.Lease leaseForEdit(String table, long id, String what) {
+		try {
+			EditLeaseManager.Lease lease = leases.acquire(table, id, getUserSessionID());
+			if(lease == null)
+				this.displayChildMessage("Sorry !! This " + what + " is blocked because another user is editing it");
+			return lease;
+		} catch (GatewayException e) {
+			this.displayChildMessage("Error trying to open " + what.toLowerCase() + " for editing: " + e.getMessage());
+			return null;
+		}
 	}
 
 	/**
@@ -0,0 +1,111 @@
+package controller;
+
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+
+import models.NameLookup;
+
+/**
+ * Provides the names of a NameLookup to a JComboBox, in the lookup's sorted order after a placeholder item
+ * (e.g., "--UnKnown--" for nothing picked yet)
+ *
+ * Reads the lookup's shared names instead of copying them, so opening a view with a combo box costs nothing
+ * however many records there are. Changes to the names are delivered on the EDT through the NotificationDispatcher.
+ * @author Justin Wilson
+ *
+ */
+public class NameComboModel extends AbstractListModel<String> implements ComboBoxModel<String>, Observer {
+	private NameLookup<?> lookup;
+
+	/**
+	 * item 0, shown when no record is picked
+	 */
+	private String placeholder;
+
+	/**
+	 * names the combo box is showing (the lookup's as of the last notification handled)
+	 */
+	private List<String> shown;
+
+	private Object selected;
+
+	/**
+	 * what is registered with the lookup: queues its notifications for this model in the NotificationDispatcher
+	 */
+	private Observer myObserver;
+
+	public NameComboModel(NameLookup<?> lookup, String placeholder) {
+		super();
+		this.lookup = lookup;
+		this.placeholder = placeholder;
+		selected = placeholder;
+
+		myObserver = NotificationDispatcher.getInstance().coalesce(this);
+		lookup.addObserver(myObserver);
+		shown = lookup.getNames();
+	}
+
+	@Override
+	public int getSize() {
+		return shown.size() + 1;
+	}
+
+	@Override
+	public String getElementAt(int index) {
+		if(index >= getSize())
+			throw new IndexOutOfBoundsException("Index " + index + " is out of list bounds!");
+		return index == 0 ? placeholder : shown.get(index - 1);
+	}
+
+	@Override
+	public void setSelectedItem(Object item) {
+		if(item == null ? selected == null : item.equals(selected))
+			return;
+		selected = item;
+		//same as DefaultComboBoxModel: -1, -1 tells the combo box the selection changed
+		fireContentsChanged(this, -1, -1);
+	}
+
+	@Override
+	public Object getSelectedItem() {
+		return selected;
+	}
+
+	/**
+	 * @return id of the record picked, or INVALID_ID (0) if the placeholder (or an unknown name) is picked
+	 */
+	public long getSelectedId() {
+		return selected instanceof String ? lookup.getId((String) selected) : 0;
+	}
+
+	/**
+	 * picks the record with that id, or the placeholder if there is no such record
+	 * @param id
+	 */
+	public void setSelectedId(long id) {
+		String name = lookup.getName(id);
+		setSelectedItem(name != null ? name : placeholder);
+	}
+
+	/**
+	 * unregister with the lookup as observer
+	 */
+	public void unregisterAsObserver() {
+		lookup.deleteObserver(myObserver);
+		NotificationDispatcher.getInstance().cancel(this);
+	}
+
+	//lookup's names changed
+	@Override
+	public void update(Observable o, Object arg) {
+		List<String> names = lookup.getNames();
+		if(names == shown)
+			return;
+		shown = names;
+		fireContentsChanged(this, 0, getSize() - 1);
+	}
+}
@@ -0,0 +1,247 @@
+package controller;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import models.ListChangeEvent;
+
+/**
+ * Delivers model change notifications to observers on the Event Dispatch Thread at most once per interval
+ *
+ * An observer registered through coalesce() is not called when the model notifies: the notification is queued
+ * (from any thread) and all queued notifications are delivered together on the EDT once the interval is up,
+ * so a burst of changes costs the views one round of updates per interval instead of one per change.
+ *
+ * Queued notifications are coalesced per observer:
+ * 		a refresh-everything notification (arg null or a RESET ListChangeEvent) replaces everything queued before it
+ * 		and absorbs everything after it (taking the newest list snapshot they carry, see ListChangeEvent.getSnapshot)
+ * 		consecutive UPDATED ListChangeEvents are merged into one covering both ranges, and repeats are dropped
+ * 		more than MAX_QUEUED notifications for one observer become a single refresh-everything one
+ * ADDED/REMOVED ListChangeEvents are kept in order otherwise, since each one's indexes depend on the ones before it.
+ * Events are delivered with the snapshots they were published with, so a list that keeps changing on another thread
+ * while a batch waits for the EDT can't make a view's indexes disagree with the rows it shows.
+ * @author Justin Wilson
+ *
+ */
+public class NotificationDispatcher {
+	private static NotificationDispatcher instance = null;
+
+	/**
+	 * default delivery interval: about once per frame at 60 frames per second
+	 */
+	public static final int DEFAULT_INTERVAL_MS = 16;
+
+	/**
+	 * most notifications queued for one observer before they are collapsed into one refresh-everything notification
+	 */
+	public static final int MAX_QUEUED = 32;
+
+	/**
+	 * one observer's queued notifications
+	 */
+	private static class Pending {
+		Observable source;
+		List<Object> args = new ArrayList<Object>();
+		boolean refreshAll;
+		/**
+		 * last UPDATED event made by merging, and its rows (ours to add to, unlike the models' events)
+		 */
+		ListChangeEvent<Object> merged;
+		ArrayList<Object> mergedRows;
+	}
+
+	/**
+	 * queued notifications by observer, in the order observers were first notified
+	 */
+	private LinkedHashMap<Observer, Pending> pending;
+
+	private Timer timer;
+
+	/**
+	 * notifications queued and delivered so far (for measuring)
+	 */
+	private long queued, delivered;
+
+	public NotificationDispatcher(int intervalMs) {
+		pending = new LinkedHashMap<Observer, Pending>();
+		timer = new Timer(intervalMs, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				flush();
+			}
+		});
+		timer.setRepeats(false);
+	}
+
+	/**
+	 * @return the application-wide dispatcher (DEFAULT_INTERVAL_MS until setInterval is called)
+	 */
+	public static synchronized NotificationDispatcher getInstance() {
+		if(instance == null)
+			instance = new NotificationDispatcher(DEFAULT_INTERVAL_MS);
+		return instance;
+	}
+
+	/**
+	 * @param intervalMs how long notifications are collected before being delivered (0 delivers each one right away)
+	 */
+	public void setInterval(int intervalMs) {
+		timer.setInitialDelay(Math.max(0, intervalMs));
+		timer.setDelay(Math.max(0, intervalMs));
+	}
+
+	public int getInterval() {
+		return timer.getInitialDelay();
+	}
+
+	/**
+	 * @param target observer to call on the EDT
+	 * @return observer to register with the model instead of target (keep it to deleteObserver later)
+	 */
+	public Observer coalesce(final Observer target) {
+		return new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				post(target, o, arg);
+			}
+		};
+	}
+
+	/**
+	 * drops notifications queued for target (e.g., its view was closed)
+	 * (a flush already under way on the EDT may still deliver its batch; call this on the EDT to avoid that)
+	 * @param target
+	 */
+	public synchronized void cancel(Observer target) {
+		pending.remove(target);
+	}
+
+	/**
+	 * queues a notification for target; may be called from any thread
+	 */
+	public void post(Observer target, Observable source, Object arg) {
+		synchronized(this) {
+			queued++;
+			Pending p = pending.get(target);
+			if(p == null) {
+				p = new Pending();
+				pending.put(target, p);
+			}
+			p.source = source;
+			if(p.refreshAll) {
+				p.args.set(0, withNewerSnapshot(p.args.get(0), arg));
+				return;
+			}
+			if(isRefreshAll(arg)) {
+				p.args.clear();
+				p.args.add(arg);
+				p.refreshAll = true;
+			} else if(p.args.isEmpty() || !merge(p, arg)) {
+				if(p.args.size() >= MAX_QUEUED) {
+					p.args.clear();
+					p.args.add(arg instanceof ListChangeEvent ? withNewerSnapshot(ListChangeEvent.reset(), arg) : null);
+					p.refreshAll = true;
+				} else {
+					p.args.add(arg);
+				}
+			}
+		}
+		if(getInterval() == 0) {
+			if(SwingUtilities.isEventDispatchThread()) {
+				flush();
+			} else {
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+				});
+			}
+		} else if(!timer.isRunning()) {
+			//Timer.start() may be called from any thread; the flush itself runs on the EDT
+			timer.start();
+		}
+	}
+
+	/**
+	 * delivers everything queued so far; runs on the EDT
+	 */
+	public void flush() {
+		LinkedHashMap<Observer, Pending> batch;
+		synchronized(this) {
+			if(pending.isEmpty())
+				return;
+			batch = pending;
+			pending = new LinkedHashMap<Observer, Pending>();
+		}
+		for(Map.Entry<Observer, Pending> e : batch.entrySet()) {
+			synchronized(this) {
+				delivered += e.getValue().args.size();
+			}
+			for(Object arg : e.getValue().args)
+				e.getKey().update(e.getValue().source, arg);
+		}
+	}
+
+	/**
+	 * @return notifications queued so far
+	 */
+	public synchronized long getQueuedCount() {
+		return queued;
+	}
+
+	/**
+	 * @return notifications actually delivered so far (queued minus those coalesced away)
+	 */
+	public synchronized long getDeliveredCount() {
+		return delivered;
+	}
+
+	private static boolean isRefreshAll(Object arg) {
+		return arg == null || (arg instanceof ListChangeEvent && ((ListChangeEvent<?>) arg).getType() == ListChangeEvent.Type.RESET);
+	}
+
+	/**
+	 * @return the refresh-everything (or merged) notification carrying next's list snapshot, if next has one
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E> E withNewerSnapshot(E refresh, Object next) {
+		if(!(refresh instanceof ListChangeEvent) || !(next instanceof ListChangeEvent) || ((ListChangeEvent<?>) next).getSnapshot() == null)
+			return refresh;
+		return (E) ((ListChangeEvent<Object>) refresh).withSnapshot(((ListChangeEvent<Object>) next).getSnapshot());
+	}
+
+	/**
+	 * merges next into the last notification queued in p if one notification can say what both say
+	 * (next is a repeat, or both are UPDATED ListChangeEvents)
+	 * @return true if merged
+	 */
+	private static boolean merge(Pending p, Object next) {
+		Object last = p.args.get(p.args.size() - 1);
+		if(last == next)
+			return true;
+		if(!(last instanceof ListChangeEvent) || !(next instanceof ListChangeEvent))
+			return false;
+		ListChangeEvent<?> a = (ListChangeEvent<?>) last;
+		ListChangeEvent<?> b = (ListChangeEvent<?>) next;
+		if(a.getType() != ListChangeEvent.Type.UPDATED || b.getType() != ListChangeEvent.Type.UPDATED)
+			return false;
+		//no rows moved in between, so one range can cover both
+		//(the rows are collected in a list of our own so a long burst doesn't copy them over and over)
+		if(last != p.merged)
+			p.mergedRows = new ArrayList<Object>(a.getItems());
+		p.mergedRows.addAll(b.getItems());
+		p.merged = withNewerSnapshot(ListChangeEvent.<Object>updated(Math.min(a.getFirstIndex(), b.getFirstIndex()), Math.max(a.getLastIndex(), b.getLastIndex()), p.mergedRows), b);
+		p.args.set(p.args.size() - 1, p.merged);
+		return true;
+	}
+}
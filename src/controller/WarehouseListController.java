@@ -1,5 +1,6 @@
 package controller;
 
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -7,6 +8,7 @@ import javax.swing.AbstractListModel;
 
 import models.Warehouse;
 import models.WarehouseList;
+import models.ListChangeEvent;
 
 /**
  * Provides the WarehouseList data to be used by WarehouseListView JLists
@@ -27,24 +29,37 @@ public class WarehouseListController extends AbstractListModel<Warehouse> implem
 	 */
 	private MDIChild myListView;
 	
+	/**
+	 * what is registered with the list: queues the list's notifications for this controller in the NotificationDispatcher
+	 */
+	private Observer myObserver;
+	
+	/**
+	 * rows the JList is showing: the list's snapshot as of the last notification handled
+	 * (the list itself may already be further along, e.g. while a background refresh is applied)
+	 */
+	private List<Warehouse> shown;
+	
 	public WarehouseListController(WarehouseList wl) {
 		super();
 		myList = wl;
 		
-		//register as observer to warehouse list
-		wl.addObserver(this);
+		//register as observer to the list; its notifications are delivered on the EDT at most once per frame
+		myObserver = NotificationDispatcher.getInstance().coalesce(this);
+		wl.addObserver(myObserver);
+		shown = wl.getSnapshot();
 	}
 	
 	@Override
 	public int getSize() {
-		return myList.getList().size();
+		return shown.size();
 	}
 
 	@Override
 	public Warehouse getElementAt(int index) {
 		if(index >= getSize())
 			throw new IndexOutOfBoundsException("Index " + index + " is out of list bounds!");
-		return myList.getList().get(index);
+		return shown.get(index);
 	}
 
 	public MDIChild getMyListView() {
@@ -59,15 +74,43 @@ public class WarehouseListController extends AbstractListModel<Warehouse> implem
 	 * unregister with warehouse list as observer
 	 */
 	public void unregisterAsObserver() {
-		myList.deleteObserver(this);
+		myList.deleteObserver(myObserver);
+		NotificationDispatcher.getInstance().cancel(this);
 	}
 
-	//model tells this observer that it has changed
-	//so tell JList's view to repaint itself now
+	//model tells this observer what changed
+	//so tell JList's view about only the affected rows (JList repaints those itself)
 	@Override
 	public void update(Observable o, Object arg) {
-		//System.out.println("PersonListController update");
-		fireContentsChanged(this, 0, getSize());
-		myListView.repaint();
+		shown = snapshotOf(arg);
+		if(!(arg instanceof ListChangeEvent)) {
+			fireContentsChanged(this, 0, getSize());
+			myListView.repaint();
+			return;
+		}
+		ListChangeEvent<?> change = (ListChangeEvent<?>) arg;
+		switch(change.getType()) {
+		case ADDED:
+			fireIntervalAdded(this, change.getFirstIndex(), change.getLastIndex());
+			break;
+		case REMOVED:
+			fireIntervalRemoved(this, change.getFirstIndex(), change.getLastIndex());
+			break;
+		case UPDATED:
+			fireContentsChanged(this, change.getFirstIndex(), change.getLastIndex());
+			break;
+		default:
+			fireContentsChanged(this, 0, getSize());
+			myListView.repaint();
+		}
+	}
+	
+	/**
+	 * @return the snapshot the notification was published with, or the list's current one
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Warehouse> snapshotOf(Object arg) {
+		List<Warehouse> rows = arg instanceof ListChangeEvent ? ((ListChangeEvent<Warehouse>) arg).getSnapshot() : null;
+		return rows != null ? rows : myList.getSnapshot();
 	}
 }
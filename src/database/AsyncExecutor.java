@@ -0,0 +1,318 @@
+package database;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs gateway calls off the Swing Event Dispatch Thread for the *TableGatewayAsync wrappers
+ *
+ * Calls run on a bounded executor: virtual threads when the JVM has them (Java 21+), otherwise a fixed
+ * pool of daemon threads. At most ASYNC_MAX_RUNNING calls run at once (more would only wait for a pooled
+ * connection) and at most ASYNC_QUEUE_SIZE more wait to start; beyond that a call fails right away.
+ *
+ * Every call gets a timeout. Cancelling the returned future, or the timeout firing, interrupts the call.
+ * Full loads of a table (submitLoad) get their own limit, since they can take minutes over a slow link.
+ * Use EDT with the future's *Async methods to get the result back on the Event Dispatch Thread.
+ *
+ * Settings are optional entries in db.properties:
+ * 		ASYNC_MAX_RUNNING 		gateway calls running at once (default 4)
+ * 		ASYNC_QUEUE_SIZE 		calls waiting to run before new ones are refused (default 100)
+ * 		ASYNC_TIMEOUT_MS 		default time limit of a call, 0 for none (default 30000)
+ * 		ASYNC_LOAD_TIMEOUT_MS 	time limit of a full table load, 0 for none (default 0)
+ * 		ASYNC_VIRTUAL_THREADS 	use virtual threads when available (default true)
+ * @author Justin Wilson
+ *
+ */
+public class AsyncExecutor {
+	private static AsyncExecutor instance = null;
+
+	/**
+	 * hands a completion stage's callback to the Swing Event Dispatch Thread
+	 */
+	public static final Executor EDT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			if(SwingUtilities.isEventDispatchThread())
+				command.run();
+			else
+				SwingUtilities.invokeLater(command);
+		}
+	};
+
+	/**
+	 * runs the calls
+	 */
+	private ExecutorService workers;
+
+	/**
+	 * fires the timeouts
+	 */
+	private ScheduledExecutorService timer;
+
+	/**
+	 * virtual threads only: permits to run (ASYNC_MAX_RUNNING) and to be accepted at all (running + queued)
+	 * (a platform thread pool is bounded by its own threads and queue instead)
+	 */
+	private Semaphore running, accepted;
+
+	private long defaultTimeout;
+
+	/**
+	 * time limit of submitLoad calls
+	 */
+	private long loadTimeout;
+
+	private boolean virtualThreads;
+
+	/**
+	 * Constructor: creates the executor with the given settings
+	 * @param config
+	 * @throws GatewayException
+	 */
+	public AsyncExecutor(DatabaseConfig config) throws GatewayException {
+		int maxRunning = Math.max(1, config.getInt("ASYNC_MAX_RUNNING", 4));
+		int queueSize = Math.max(0, config.getInt("ASYNC_QUEUE_SIZE", 100));
+		defaultTimeout = config.getLong("ASYNC_TIMEOUT_MS", 30000);
+		loadTimeout = config.getLong("ASYNC_LOAD_TIMEOUT_MS", 0);
+
+		workers = null;
+		if(!config.getString("ASYNC_VIRTUAL_THREADS", "true").equalsIgnoreCase("false"))
+			workers = createVirtualThreadExecutor();
+		virtualThreads = workers != null;
+		if(virtualThreads) {
+			running = new Semaphore(maxRunning);
+			accepted = new Semaphore(maxRunning + queueSize);
+		} else {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(maxRunning, maxRunning, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new DaemonThreadFactory("gateway-"));
+			pool.allowCoreThreadTimeOut(true);
+			workers = pool;
+		}
+
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("gateway-timeout-"));
+		//a finished call's timeout is dropped instead of sitting in the queue until it would have fired
+		scheduler.setRemoveOnCancelPolicy(true);
+		timer = scheduler;
+	}
+
+	/**
+	 * returns the application-wide executor, creating it from db.properties the first time
+	 * @return
+	 * @throws GatewayException
+	 */
+	public static synchronized AsyncExecutor getInstance() throws GatewayException {
+		if(instance == null)
+			instance = new AsyncExecutor(DatabaseConfig.getInstance());
+		return instance;
+	}
+
+	/**
+	 * stops the application-wide executor if it was ever created; calls still running are interrupted
+	 */
+	public static synchronized void shutdown() {
+		if(instance != null) {
+			instance.workers.shutdownNow();
+			instance.timer.shutdownNow();
+			instance = null;
+		}
+	}
+
+	/**
+	 * runs task with the default timeout (ASYNC_TIMEOUT_MS)
+	 * @param task
+	 * @return
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> task) {
+		return submit(task, defaultTimeout);
+	}
+
+	/**
+	 * runs a full load of a table (every row streamed into a list model) with the load timeout (ASYNC_LOAD_TIMEOUT_MS)
+	 * @param task
+	 * @return
+	 */
+	public <T> CompletableFuture<T> submitLoad(Callable<T> task) {
+		return submit(task, loadTimeout);
+	}
+
+	/**
+	 * runs task on a worker thread
+	 * @param task gateway call(s) to make
+	 * @param timeoutMs how long the call may take before the future fails with a TimeoutException (0 for no limit)
+	 * @return future completed with task's result or exception; cancel(true) or cancel(false) both interrupt the task
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> task, final long timeoutMs) {
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+
+		if(virtualThreads && !accepted.tryAcquire()) {
+			result.completeExceptionally(new GatewayException("Too many database requests are waiting; try again later"));
+			return result;
+		}
+
+		//set by whichever comes first: the worker starting the task or the future ending before it started
+		//(that side then owns giving back the accepted permit)
+		final AtomicBoolean claimed = new AtomicBoolean(false);
+		final Future<?> work;
+		try {
+			work = workers.submit(new Runnable() {
+				@Override
+				public void run() {
+					//cancelled or timed out while queued
+					if(!claimed.compareAndSet(false, true))
+						return;
+					try {
+						if(virtualThreads)
+							running.acquire();
+						try {
+							result.complete(task.call());
+						} finally {
+							if(virtualThreads)
+								running.release();
+						}
+					} catch (InterruptedException e) {
+						result.completeExceptionally(new CancellationException("Database request was interrupted"));
+					} catch (Throwable e) {
+						result.completeExceptionally(e);
+					} finally {
+						if(virtualThreads)
+							accepted.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if(virtualThreads)
+				accepted.release();
+			result.completeExceptionally(new GatewayException("Too many database requests are waiting; try again later"));
+			return result;
+		}
+
+		final Future<?> timeout;
+		if(timeoutMs > 0) {
+			timeout = timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					result.completeExceptionally(new TimeoutException("Database request took longer than " + (timeoutMs / 1000.0) + " seconds"));
+				}
+			}, timeoutMs, TimeUnit.MILLISECONDS);
+		} else {
+			timeout = null;
+		}
+
+		//however the future ends (result, failure, cancel or timeout): stop the task if it is still going
+		result.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T value, Throwable error) {
+				if(timeout != null)
+					timeout.cancel(false);
+				//cancelled or timed out from outside (a failure of the task itself has already stopped it)
+				if(error instanceof CancellationException || error instanceof TimeoutException) {
+					work.cancel(true);
+					if(claimed.compareAndSet(false, true) && virtualThreads)
+						accepted.release();
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * runs task on a worker every periodMs (first after one period) until the returned future is cancelled
+	 * or the executor is shut down
+	 * A run that is due while the previous one is still going is skipped; a failed run is reported on stderr
+	 * and does not stop the later ones. Each run gets the default timeout (ASYNC_TIMEOUT_MS).
+	 * @param task
+	 * @param periodMs
+	 * @return
+	 */
+	public <T> ScheduledFuture<?> scheduleRepeating(final Callable<T> task, long periodMs) {
+		final AtomicBoolean busy = new AtomicBoolean(false);
+		return timer.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				if(!busy.compareAndSet(false, true))
+					return;
+				submit(task).whenComplete(new BiConsumer<T, Throwable>() {
+					@Override
+					public void accept(T value, Throwable error) {
+						busy.set(false);
+						if(error != null)
+							System.err.println("Scheduled database request failed: " + describe(error));
+					}
+				});
+			}
+		}, periodMs, periodMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return true if calls run on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * @param error exception a future failed with (possibly wrapped by a dependent stage)
+	 * @return the message to show the user for it
+	 */
+	public static String describe(Throwable error) {
+		Throwable cause = error;
+		while(cause instanceof CompletionException && cause.getCause() != null)
+			cause = cause.getCause();
+		if(cause instanceof TimeoutException || cause instanceof CancellationException || cause instanceof GatewayException)
+			return cause.getMessage();
+		return cause.toString();
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() is looked up by name so this still runs on Java 8
+	 * @return executor starting a virtual thread per call, or null if this JVM has no virtual threads
+	 */
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			Method m = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) m.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * worker threads must not keep the JVM alive when the app quits
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private String prefix;
+		private AtomicInteger count = new AtomicInteger();
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thrown when a batched gateway call fails
+ * Carries the positions (0-based, in the order the rows were given) of the rows that failed.
+ * The whole batch is rolled back, so rows that are not listed were not saved either.
+ * @author Justin Wilson
+ *
+ */
+public class BatchException extends GatewayException {
+	private List<Integer> failedRows;
+
+	public BatchException(String s, List<Integer> failedRows) {
+		super(s);
+		this.failedRows = new ArrayList<Integer>(failedRows);
+	}
+
+	/**
+	 * @return positions of the rows that failed (may be empty if the db did not say which row failed)
+	 */
+	public List<Integer> getFailedRows() {
+		return failedRows;
+	}
+}
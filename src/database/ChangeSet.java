@@ -0,0 +1,69 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of a table that changed since a given time, as returned by the fetch...ChangedSince gateway methods
+ * Pass getSyncTime() as the since time of the next call to get only what changed after this one
+ * @author Justin Wilson
+ *
+ * @param <T> model type of each row
+ */
+public class ChangeSet<T> {
+	/**
+	 * db server time the change set was read at
+	 */
+	private Timestamp syncTime;
+	
+	/**
+	 * true if this holds every row of the table (since was null) rather than only the changes
+	 */
+	private boolean full;
+	
+	/**
+	 * rows inserted or updated (empty if the rows were streamed to a RowHandler instead)
+	 */
+	private List<T> changed;
+	
+	/**
+	 * ids of rows deleted
+	 */
+	private List<Long> deletedIds;
+	
+	public ChangeSet(Timestamp syncTime, boolean full) {
+		this.syncTime = syncTime;
+		this.full = full;
+		changed = new ArrayList<T>();
+		deletedIds = new ArrayList<Long>();
+	}
+	
+	public void addChanged(T row) {
+		changed.add(row);
+	}
+	
+	public void addDeletedId(long id) {
+		deletedIds.add(id);
+	}
+	
+	/**
+	 * Accessors
+	 * @return
+	 */
+	public Timestamp getSyncTime() {
+		return syncTime;
+	}
+	
+	public boolean isFull() {
+		return full;
+	}
+	
+	public List<T> getChanged() {
+		return changed;
+	}
+	
+	public List<Long> getDeletedIds() {
+		return deletedIds;
+	}
+}
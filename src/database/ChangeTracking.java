@@ -0,0 +1,165 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * SQL shared by the gateways for change tracking (see sql/change_tracking.sql)
+ * Each tracked table has a last_modified column kept up to date by the db,
+ * and deletes leave a tombstone in DELETED_ROW so a later sync can tell the row is gone
+ * 
+ * last_modified is set when a statement runs, not when its tx commits, so a sync could otherwise read its time
+ * while an older write is still uncommitted and never see that row. To rule that out, each tracked table has a row
+ * in CHANGE_SEQ that every writing tx updates before its first write to the table (beginChange), which holds the row's lock
+ * until the tx ends; a sync locks the same row before reading its time (fetchSyncTime), so it waits for the writes in flight,
+ * and any write after it gets a later last_modified. The cost is that writes to the same table commit one at a time.
+ * @author Justin Wilson
+ *
+ */
+class ChangeTracking {
+	/**
+	 * rows whose last_modified is up to this much older than the since time are fetched again,
+	 * in case the db server's clock is set back a little (e.g., by time sync) between two syncs
+	 * (applying a row twice is harmless; uncommitted writes are covered by CHANGE_SEQ, see above)
+	 */
+	static final long SYNC_OVERLAP_MS = 2000;
+	
+	private ChangeTracking() {
+	}
+	
+	/**
+	 * records that a row was deleted; must be called in the same tx as the delete
+	 * @param conn connection with the delete's tx open
+	 * @param dialect dialect of conn's database
+	 * @param table name of the table the row was deleted from
+	 * @param id id of the deleted row
+	 * @throws SQLException
+	 */
+	static void writeTombstone(Connection conn, SqlDialect dialect, String table, long id) throws SQLException {
+		PreparedStatement st = null;
+		try {
+			st = conn.prepareStatement(dialect.tombstoneSql());
+			st.setString(1, table);
+			st.setLong(2, id);
+			st.executeUpdate();
+		} finally {
+			if(st != null)
+				st.close();
+		}
+	}
+	
+	/**
+	 * makes the caller's tx a change to table: must be called in the tx before its first write to table
+	 * and holds the table's CHANGE_SEQ row lock until the tx commits or rolls back (see fetchSyncTime)
+	 * @param conn connection with the tx open (autocommit off)
+	 * @param table name of the tracked table
+	 * @throws SQLException also if CHANGE_SEQ has no row for the table (sql/change_tracking.sql was not run)
+	 */
+	static void beginChange(Connection conn, String table) throws SQLException {
+		PreparedStatement st = null;
+		try {
+			st = conn.prepareStatement("update CHANGE_SEQ set seq = seq + 1 where table_name = ? ");
+			st.setString(1, table);
+			if(st.executeUpdate() == 0)
+				throw new SQLException("CHANGE_SEQ has no row for " + table + " (see sql/change_tracking.sql)");
+		} finally {
+			if(st != null)
+				st.close();
+		}
+	}
+	
+	/**
+	 * reads the time to pass as since to the table's next fetch...ChangedSince: the db server time once every tx
+	 * writing to the table has ended (it waits for them on the table's CHANGE_SEQ row), so a row committed later
+	 * has a later last_modified and is not missed
+	 * @param conn connection in autocommit mode (it is put back in autocommit mode)
+	 * @param dialect dialect of conn's database
+	 * @param table name of the tracked table
+	 * @return
+	 * @throws SQLException
+	 */
+	static Timestamp fetchSyncTime(Connection conn, SqlDialect dialect, String table) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		boolean committed = false;
+		conn.setAutoCommit(false);
+		try {
+			st = conn.prepareStatement("select seq from CHANGE_SEQ where table_name = ? " + dialect.forUpdate());
+			st.setString(1, table);
+			rs = st.executeQuery();
+			if(!rs.next())
+				throw new SQLException("CHANGE_SEQ has no row for " + table + " (see sql/change_tracking.sql)");
+			Timestamp now = fetchServerTime(conn);
+			conn.commit();
+			committed = true;
+			return now;
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+			if(!committed)
+				conn.rollback();
+			conn.setAutoCommit(true);
+		}
+	}
+	
+	/**
+	 * reads the db server clock so sync times never depend on the client's clock
+	 * @param conn
+	 * @return
+	 * @throws SQLException
+	 */
+	private static Timestamp fetchServerTime(Connection conn) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			st = conn.prepareStatement("select current_timestamp(3)");
+			rs = st.executeQuery();
+			rs.next();
+			return rs.getTimestamp(1);
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+		}
+	}
+	
+	/**
+	 * @param since time of the last sync
+	 * @return the time to compare last_modified and deleted_at against
+	 */
+	static Timestamp withOverlap(Timestamp since) {
+		return new Timestamp(since.getTime() - SYNC_OVERLAP_MS);
+	}
+	
+	/**
+	 * adds the ids of the table's rows deleted since the given time to changes
+	 * @param conn
+	 * @param table name of the tracked table
+	 * @param since time of the last sync
+	 * @param changes
+	 * @throws SQLException
+	 */
+	static void fetchDeletedIds(Connection conn, String table, Timestamp since, ChangeSet<?> changes) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			st = conn.prepareStatement("select row_id from DELETED_ROW where table_name = ? and deleted_at >= ? ");
+			st.setString(1, table);
+			st.setTimestamp(2, withOverlap(since));
+			rs = st.executeQuery();
+			while(rs.next())
+				changes.addDeletedId(rs.getLong(1));
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package database;
+
+/**
+ * Thrown when a save loses an optimistic concurrency check: the row was changed (or deleted) by someone else
+ * since the saved copy was read, i.e., its version in the db is no longer the copy's version
+ * Carries the row as it is now in the db so the caller can show it, or merge its own changes into it and save again.
+ * @author Justin Wilson
+ *
+ */
+public class ConflictException extends GatewayException {
+	private Object currentRow;
+
+	/**
+	 * @param s
+	 * @param currentRow the row as it is now in the db (same model type as the one saved), or null if it was deleted
+	 */
+	public ConflictException(String s, Object currentRow) {
+		super(s);
+		this.currentRow = currentRow;
+	}
+
+	/**
+	 * @return the row as it is now in the db, or null if it was deleted
+	 */
+	public Object getCurrentRow() {
+		return currentRow;
+	}
+
+	public boolean isDeleted() {
+		return currentRow == null;
+	}
+}
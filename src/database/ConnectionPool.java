@@ -0,0 +1,432 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.sql.DataSource;
+
+/**
+ * Bounded pool of db connections shared by all table gateways and the report gateway
+ * Gateways borrow a connection for each call and give it back by calling close() on it
+ * The pool's SqlDialect (mysql or h2, from DB_BACKEND) supplies the DataSource and engine-specific SQL
+ *
+ * Pool settings are optional entries in db.properties:
+ * 		POOL_MAX_SIZE 				most connections open at once (default 10)
+ * 		POOL_MIN_IDLE 				connections opened at startup and kept during idle eviction (default 2)
+ * 		POOL_MAX_WAIT_MS 			how long a borrower waits for a free connection before failing (default 5000)
+ * 		POOL_IDLE_TIMEOUT_MS 		idle connections older than this are closed (default 300000)
+ * 		POOL_VALIDATION_TIMEOUT_S 	timeout of the validation ping when a connection is borrowed (default 2)
+ * 		POOL_VALIDATION_INTERVAL_MS connections returned more recently than this are not pinged again (default 500)
+ * 		STATEMENT_CACHE_SIZE 		prepared statements kept open per connection, 0 to turn caching off (default 50)
+ * @author Justin Wilson
+ *
+ */
+public class ConnectionPool {
+	private static final boolean DEBUG = true;
+
+	private static ConnectionPool instance = null;
+
+	/**
+	 * where new physical connections come from
+	 */
+	private DataSource source;
+	
+	/**
+	 * SQL differences of the database engine behind source
+	 */
+	private SqlDialect dialect;
+
+	/**
+	 * pool settings
+	 */
+	private int maxSize, minIdle, validationTimeout, statementCacheSize;
+	private long maxWait, idleTimeout, validationInterval;
+
+	/**
+	 * connections not currently borrowed; most recently returned at the end
+	 */
+	private ArrayDeque<PooledConnection> idle;
+
+	/**
+	 * number of physical connections open or being opened (idle + borrowed)
+	 */
+	private int totalCount;
+
+	private boolean closed;
+
+	/**
+	 * background idle eviction
+	 */
+	private Timer evictor;
+
+	/**
+	 * usage counters
+	 */
+	private long borrowCount, createCount, destroyCount, validationFailures, idleEvictions;
+	private long waitCount, timeoutCount, totalWaitNanos, maxWaitNanos;
+
+	/**
+	 * prepared statement cache counters for all connections of this pool
+	 */
+	private StatementCache.Counters statementCounters;
+
+	/**
+	 * Constructor: creates a pool of MySQL connections
+	 * @param source DataSource to open physical connections with
+	 * @param config pool settings
+	 * @throws GatewayException if the initial connections cannot be opened
+	 */
+	public ConnectionPool(DataSource source, DatabaseConfig config) throws GatewayException {
+		this(source, new MySQLDialect(), config);
+	}
+	
+	/**
+	 * Constructor: creates the pool and opens the minimum number of idle connections
+	 * @param source DataSource to open physical connections with
+	 * @param dialect SQL differences of the database source connects to
+	 * @param config pool settings
+	 * @throws GatewayException if the initial connections cannot be opened
+	 */
+	public ConnectionPool(DataSource source, SqlDialect dialect, DatabaseConfig config) throws GatewayException {
+		this.source = source;
+		this.dialect = dialect;
+		maxSize = Math.max(1, config.getInt("POOL_MAX_SIZE", 10));
+		minIdle = Math.min(maxSize, Math.max(0, config.getInt("POOL_MIN_IDLE", 2)));
+		maxWait = config.getLong("POOL_MAX_WAIT_MS", 5000);
+		idleTimeout = config.getLong("POOL_IDLE_TIMEOUT_MS", 300000);
+		validationTimeout = config.getInt("POOL_VALIDATION_TIMEOUT_S", 2);
+		validationInterval = config.getLong("POOL_VALIDATION_INTERVAL_MS", 500);
+		statementCacheSize = Math.max(0, config.getInt("STATEMENT_CACHE_SIZE", 50));
+		statementCounters = new StatementCache.Counters();
+
+		idle = new ArrayDeque<PooledConnection>();
+		totalCount = 0;
+		closed = false;
+
+		//open the minimum idle connections up front so a dead db is detected at startup
+		try {
+			for(int i = 0; i < minIdle; i++) {
+				PooledConnection pc = createConnection();
+				synchronized(this) {
+					totalCount++;
+					idle.addLast(pc);
+				}
+			}
+		} catch (SQLException e) {
+			close();
+			throw new GatewayException("SQL Error: " + e.getMessage());
+		}
+
+		if(idleTimeout > 0) {
+			evictor = new Timer("ConnectionPool evictor", true);
+			long period = Math.max(1000, idleTimeout / 2);
+			evictor.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					evictIdle();
+				}
+			}, period, period);
+		}
+	}
+
+	/**
+	 * returns the application-wide pool, creating it from db.properties the first time
+	 * @return
+	 * @throws GatewayException
+	 */
+	public static synchronized ConnectionPool getInstance() throws GatewayException {
+		if(instance == null) {
+			DatabaseConfig config = DatabaseConfig.getInstance();
+			SqlDialect dialect = GatewayFactory.createDialect();
+			ConnectionPool pool = new ConnectionPool(dialect.createDataSource(config), dialect, config);
+			pool.bootstrap();
+			instance = pool;
+		}
+		return instance;
+	}
+
+	/**
+	 * closes the application-wide pool if it was ever created
+	 */
+	public static synchronized void shutdown() {
+		if(instance != null) {
+			instance.close();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Borrow a connection from the pool. Caller must close() it to give it back.
+	 * Waits up to POOL_MAX_WAIT_MS if all connections are in use
+	 * @return
+	 * @throws SQLException if the pool is closed, a new connection cannot be opened, or the wait times out
+	 */
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		long deadline = start + maxWait * 1000000L;
+		boolean waited = false;
+
+		while(true) {
+			PooledConnection pc = null;
+			boolean create = false;
+			synchronized(this) {
+				while(pc == null && !create) {
+					if(closed)
+						throw new SQLException("Connection pool is closed");
+					if(!idle.isEmpty()) {
+						//most recently used connection is the one most likely to still be alive
+						pc = idle.pollLast();
+					} else if(totalCount < maxSize) {
+						totalCount++;
+						create = true;
+					} else {
+						long remaining = deadline - System.nanoTime();
+						if(remaining <= 0) {
+							timeoutCount++;
+							throw new SQLException("Timed out waiting for a database connection (pool size " + maxSize + ")");
+						}
+						waited = true;
+						try {
+							wait(remaining / 1000000L + 1);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new SQLException("Interrupted waiting for a database connection");
+						}
+					}
+				}
+			}
+
+			if(create) {
+				try {
+					pc = createConnection();
+				} catch (SQLException e) {
+					synchronized(this) {
+						totalCount--;
+						notifyAll();
+					}
+					throw e;
+				}
+			} else if(System.currentTimeMillis() - pc.getLastReturned() > validationInterval && !pc.isValid(validationTimeout)) {
+				//stale connection (e.g., server closed it): throw it away and try again
+				pc.closePhysical();
+				synchronized(this) {
+					totalCount--;
+					destroyCount++;
+					validationFailures++;
+					notifyAll();
+				}
+				continue;
+			}
+
+			long waitNanos = System.nanoTime() - start;
+			synchronized(this) {
+				borrowCount++;
+				if(waited)
+					waitCount++;
+				totalWaitNanos += waitNanos;
+				if(waitNanos > maxWaitNanos)
+					maxWaitNanos = waitNanos;
+			}
+			return pc.borrow();
+		}
+	}
+
+	/**
+	 * called by PooledConnection when a gateway closes its connection
+	 * @param pc
+	 */
+	void release(PooledConnection pc) {
+		boolean keep = true;
+		try {
+			pc.reset();
+		} catch (SQLException e) {
+			keep = false;
+		}
+		synchronized(this) {
+			if(closed)
+				keep = false;
+			if(keep) {
+				idle.addLast(pc);
+			} else {
+				totalCount--;
+				destroyCount++;
+			}
+			notifyAll();
+		}
+		if(!keep)
+			pc.closePhysical();
+	}
+
+	/**
+	 * closes idle connections that have not been used for POOL_IDLE_TIMEOUT_MS, keeping at least POOL_MIN_IDLE
+	 */
+	void evictIdle() {
+		ArrayDeque<PooledConnection> expired = new ArrayDeque<PooledConnection>();
+		long now = System.currentTimeMillis();
+		synchronized(this) {
+			//oldest connections are at the front of the idle list
+			Iterator<PooledConnection> it = idle.iterator();
+			while(it.hasNext() && idle.size() > minIdle) {
+				PooledConnection pc = it.next();
+				if(now - pc.getLastReturned() < idleTimeout)
+					break;
+				it.remove();
+				expired.add(pc);
+				totalCount--;
+				destroyCount++;
+				idleEvictions++;
+			}
+		}
+		for(PooledConnection pc : expired)
+			pc.closePhysical();
+	}
+
+	/**
+	 * closes all idle connections and refuses new borrows
+	 * borrowed connections are closed as they are given back
+	 */
+	public void close() {
+		ArrayDeque<PooledConnection> toClose;
+		synchronized(this) {
+			if(closed)
+				return;
+			closed = true;
+			toClose = new ArrayDeque<PooledConnection>(idle);
+			totalCount -= idle.size();
+			destroyCount += idle.size();
+			idle.clear();
+			notifyAll();
+		}
+		if(evictor != null)
+			evictor.cancel();
+		if(DEBUG)
+			System.out.println("Closing db connection pool... " + getStatistics());
+		for(PooledConnection pc : toClose)
+			pc.closePhysical();
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	private PooledConnection createConnection() throws SQLException {
+		Connection conn = source.getConnection();
+		//default isolation level of allow Phantom Reads is ok for this application
+		//conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE); //prevent even phantom reads
+		synchronized(this) {
+			createCount++;
+		}
+		return new PooledConnection(conn, this, statementCacheSize, statementCounters);
+	}
+
+	/**
+	 * lets the dialect create any missing tables before the gateways use the pool
+	 * @throws GatewayException
+	 */
+	private void bootstrap() throws GatewayException {
+		Connection conn = null;
+		try {
+			conn = getConnection();
+			dialect.bootstrap(conn);
+		} catch (SQLException e) {
+			close();
+			throw new GatewayException("SQL Error: " + e.getMessage());
+		} finally {
+			try {
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * @return SQL differences of the database this pool connects to
+	 */
+	public SqlDialect getDialect() {
+		return dialect;
+	}
+	
+	/**
+	 * Statistics accessors
+	 */
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int getIdleCount() {
+		return idle.size();
+	}
+
+	public synchronized int getActiveCount() {
+		return totalCount - idle.size();
+	}
+
+	public synchronized long getBorrowCount() {
+		return borrowCount;
+	}
+
+	public synchronized long getCreateCount() {
+		return createCount;
+	}
+
+	public synchronized long getDestroyCount() {
+		return destroyCount;
+	}
+
+	public synchronized long getValidationFailures() {
+		return validationFailures;
+	}
+
+	public synchronized long getIdleEvictions() {
+		return idleEvictions;
+	}
+
+	/**
+	 * @return number of borrows that had to wait for another borrower to give a connection back
+	 */
+	public synchronized long getWaitCount() {
+		return waitCount;
+	}
+
+	public synchronized long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	/**
+	 * @return average time spent in getConnection(), in milliseconds
+	 */
+	public synchronized double getAverageWaitMillis() {
+		if(borrowCount == 0)
+			return 0;
+		return totalWaitNanos / 1000000.0 / borrowCount;
+	}
+
+	public synchronized double getMaxWaitMillis() {
+		return maxWaitNanos / 1000000.0;
+	}
+
+	public long getStatementCacheHits() {
+		return statementCounters.hits.get();
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCounters.misses.get();
+	}
+
+	public long getStatementCacheEvictions() {
+		return statementCounters.evictions.get();
+	}
+
+	public synchronized String getStatistics() {
+		return String.format("active=%d idle=%d max=%d borrowed=%d created=%d destroyed=%d waits=%d timeouts=%d avgWait=%.2fms maxWait=%.2fms validationFailures=%d idleEvictions=%d stmtHits=%d stmtMisses=%d stmtEvictions=%d",
+				getActiveCount(), getIdleCount(), maxSize, borrowCount, createCount, destroyCount,
+				waitCount, timeoutCount, getAverageWaitMillis(), getMaxWaitMillis(), validationFailures, idleEvictions,
+				getStatementCacheHits(), getStatementCacheMisses(), getStatementCacheEvictions());
+	}
+}
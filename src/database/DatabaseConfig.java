@@ -0,0 +1,100 @@
+package database;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Settings read from the db.properties file
+ * The file is read once and shared by everything that needs database settings
+ * (e.g., the connection pool) instead of each gateway reading it on its own
+ * @author Justin Wilson
+ *
+ */
+public class DatabaseConfig {
+	/**
+	 * name of the properties file holding the db credentials and settings
+	 */
+	public static final String CONFIG_FILE = "db.properties";
+
+	private static DatabaseConfig instance = null;
+
+	private Properties props;
+
+	private DatabaseConfig(Properties props) {
+		this.props = props;
+	}
+
+	/**
+	 * returns the shared config, reading db.properties the first time it is called
+	 * @return
+	 * @throws GatewayException if the properties file cannot be read
+	 */
+	public static synchronized DatabaseConfig getInstance() throws GatewayException {
+		if(instance == null) {
+			Properties props = new Properties();
+			FileInputStream fis = null;
+			try {
+				fis = new FileInputStream(CONFIG_FILE);
+				props.load(fis);
+			} catch (IOException e) {
+				throw new GatewayException(e.getMessage());
+			} finally {
+				try {
+					if(fis != null)
+						fis.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			instance = new DatabaseConfig(props);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param key property name
+	 * @return property value or null if not set
+	 */
+	public String getString(String key) {
+		return props.getProperty(key);
+	}
+
+	/**
+	 * @param key property name
+	 * @param def value to use if the property is missing or blank
+	 * @return
+	 */
+	public String getString(String key, String def) {
+		String value = props.getProperty(key);
+		if(value == null || value.trim().length() == 0)
+			return def;
+		return value.trim();
+	}
+
+	/**
+	 * @param key property name
+	 * @param def value to use if the property is missing or not a number
+	 * @return
+	 */
+	public int getInt(String key, int def) {
+		try {
+			return Integer.parseInt(getString(key, "" + def));
+		} catch(NumberFormatException e) {
+			return def;
+		}
+	}
+
+	/**
+	 * @param key property name
+	 * @param def value to use if the property is missing or not a number
+	 * @return
+	 */
+	public long getLong(String key, long def) {
+		try {
+			return Long.parseLong(getString(key, "" + def));
+		} catch(NumberFormatException e) {
+			return def;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package database;
+
+/**
+ * Creates the table gateways for the backend chosen by DB_BACKEND in db.properties:
+ * 		mysql 	(default) the MySQL database in MYSQL_DB_URL
+ * 		h2 		embedded H2 database in the file H2_DB_FILE (no server needed)
+ * 		memory 	MemoryDatabase, nothing is saved (demos and load testing)
+ * mysql and h2 share the JDBC gateways; SqlDialect holds the SQL that differs between them
+ * @author Justin Wilson
+ *
+ */
+public class GatewayFactory {
+	public static final String BACKEND_MYSQL = "mysql";
+	public static final String BACKEND_H2 = "h2";
+	public static final String BACKEND_MEMORY = "memory";
+	
+	private GatewayFactory() {
+	}
+	
+	/**
+	 * @return true if DB_BACKEND is memory
+	 * @throws GatewayException if db.properties cannot be read
+	 */
+	public static boolean isMemoryBackend() throws GatewayException {
+		return getBackend().equals(BACKEND_MEMORY);
+	}
+	
+	/**
+	 * @return DB_BACKEND in lower case (mysql if not set)
+	 * @throws GatewayException if db.properties cannot be read
+	 */
+	public static String getBackend() throws GatewayException {
+		return DatabaseConfig.getInstance().getString("DB_BACKEND", BACKEND_MYSQL).trim().toLowerCase();
+	}
+	
+	/**
+	 * @return SQL dialect of the JDBC backend named by DB_BACKEND
+	 * @throws GatewayException if DB_BACKEND does not name a JDBC backend
+	 */
+	public static SqlDialect createDialect() throws GatewayException {
+		String backend = getBackend();
+		if(backend.equals(BACKEND_MYSQL))
+			return new MySQLDialect();
+		if(backend.equals(BACKEND_H2))
+			return new H2Dialect();
+		throw new GatewayException("DB_BACKEND " + backend + " is not a JDBC database (expected " + BACKEND_MYSQL + " or " + BACKEND_H2 + ")");
+	}
+	
+	public static WarehouseTableGateway createWarehouseGateway() throws GatewayException {
+		if(isMemoryBackend())
+			return new WarehouseTableGatewayMemory();
+		return new WarehouseTableGatewayJDBC();
+	}
+	
+	public static PartTableGateway createPartGateway() throws GatewayException {
+		if(isMemoryBackend())
+			return new PartTableGatewayMemory();
+		return new PartTableGatewayJDBC();
+	}
+	
+	public static InventoryTableGateway createInventoryGateway() throws GatewayException {
+		if(isMemoryBackend())
+			return new InventoryTableGatewayMemory();
+		return new InventoryTableGatewayJDBC();
+	}
+	
+	public static UserTableGateway createUserGateway() throws GatewayException {
+		if(isMemoryBackend())
+			return new UserTableGatewayMemory();
+		return new UserTableGatewayJDBC();
+	}
+	
+	public static LeaseGateway createLeaseGateway() throws GatewayException {
+		if(isMemoryBackend())
+			return new LeaseGatewayMemory();
+		return new LeaseGatewayJDBC();
+	}
+}
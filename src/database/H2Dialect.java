@@ -0,0 +1,196 @@
+package database;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * Embedded, file-backed H2 database running inside the application (no server needed)
+ * Settings in db.properties:
+ * 		H2_DB_FILE 		path of the database file, without extension (default data/inventory)
+ * 		H2_DB_USERNAME 	(default sa)
+ * 		H2_DB_PASSWORD 	(default empty)
+ * The H2 jar (2.x) only needs to be on the runtime classpath; the tables are created on first use
+ * @author Justin Wilson
+ *
+ */
+public class H2Dialect implements SqlDialect {
+	public static final String NAME = "h2";
+	
+	/**
+	 * rows per round trip when the caller lets the dialect choose (H2 has no row-by-row streaming mode)
+	 */
+	private static final int DEFAULT_FETCH_SIZE = 500;
+	
+	/**
+	 * tables and indexes, in dependency order; every statement is safe to run again
+	 */
+	private static final String[] SCHEMA = {
+		"create table if not exists WAREHOUSE ("
+			+ " id bigint auto_increment primary key,"
+			+ " warehouse_name varchar(255) not null,"
+			+ " address varchar(255) not null,"
+			+ " city varchar(100) not null,"
+			+ " state varchar(50) not null,"
+			+ " zip varchar(5) not null,"
+			+ " storage_cap bigint not null default 0,"
+			+ " version bigint default 0 not null,"
+			+ " last_modified timestamp(3) default current_timestamp(3) on update current_timestamp(3) not null)",
+		"create index if not exists warehouse_last_modified on WAREHOUSE (last_modified)",
+		"create table if not exists PART ("
+			+ " id bigint auto_increment primary key,"
+			+ " part_number varchar(20) not null,"
+			+ " part_name varchar(255) not null,"
+			+ " vendor_name varchar(255) not null,"
+			+ " unit_of_qty varchar(20) not null,"
+			+ " vendor_part_id varchar(255),"
+			+ " user_access varchar(255),"
+			+ " datetime timestamp,"
+			+ " version bigint default 0 not null,"
+			+ " last_modified timestamp(3) default current_timestamp(3) on update current_timestamp(3) not null)",
+		"create index if not exists part_last_modified on PART (last_modified)",
+		"create table if not exists INVENTORY ("
+			+ " id bigint auto_increment primary key,"
+			+ " warehouse_id bigint not null references WAREHOUSE (id),"
+			+ " part_id bigint not null references PART (id),"
+			+ " quantity double not null default 0,"
+			+ " version bigint default 0 not null,"
+			+ " last_modified timestamp(3) default current_timestamp(3) on update current_timestamp(3) not null)",
+		"create index if not exists inventory_warehouse_part on INVENTORY (warehouse_id, part_id)",
+		"create index if not exists inventory_part on INVENTORY (part_id)",
+		"create index if not exists inventory_last_modified on INVENTORY (last_modified)",
+		"create table if not exists USER ("
+			+ " id bigint auto_increment primary key,"
+			+ " user varchar(255) not null,"
+			+ " password varchar(255) not null,"
+			+ " fullName varchar(255),"
+			+ " add_user varchar(3) not null default 'no',"
+			+ " edit_user varchar(3) not null default 'no',"
+			+ " delete_user varchar(3) not null default 'no',"
+			+ " version bigint default 0 not null)",
+		"create index if not exists user_user on USER (user)",
+		"create table if not exists DELETED_ROW ("
+			+ " table_name varchar(32) not null,"
+			+ " row_id bigint not null,"
+			+ " deleted_at timestamp(3) default current_timestamp(3) not null,"
+			+ " primary key (table_name, row_id))",
+		"create index if not exists deleted_row_deleted_at on DELETED_ROW (table_name, deleted_at)",
+		"create table if not exists CHANGE_SEQ ("
+			+ " table_name varchar(32) not null primary key,"
+			+ " seq bigint default 0 not null)",
+		"insert into CHANGE_SEQ (table_name) select 'WAREHOUSE' where not exists (select 1 from CHANGE_SEQ where table_name = 'WAREHOUSE')",
+		"insert into CHANGE_SEQ (table_name) select 'PART' where not exists (select 1 from CHANGE_SEQ where table_name = 'PART')",
+		"insert into CHANGE_SEQ (table_name) select 'INVENTORY' where not exists (select 1 from CHANGE_SEQ where table_name = 'INVENTORY')",
+		"create table if not exists EDIT_LEASE ("
+			+ " table_name varchar(32) not null,"
+			+ " row_id bigint not null,"
+			+ " holder varchar(255) not null,"
+			+ " token bigint default 0 not null,"
+			+ " expires_at timestamp(3) not null,"
+			+ " primary key (table_name, row_id))",
+		"create index if not exists edit_lease_expires_at on EDIT_LEASE (expires_at)",
+		"create index if not exists edit_lease_holder on EDIT_LEASE (holder)",
+		//files created before optimistic concurrency (sql/optimistic_locking.sql) get the version columns
+		"alter table WAREHOUSE add column if not exists version bigint default 0 not null",
+		"alter table PART add column if not exists version bigint default 0 not null",
+		"alter table INVENTORY add column if not exists version bigint default 0 not null",
+		"alter table USER add column if not exists version bigint default 0 not null",
+		//and files created before release tokens (sql/edit_leases.sql) get the token column
+		"alter table EDIT_LEASE add column if not exists token bigint default 0 not null",
+	};
+	
+	/**
+	 * a new database gets the users named on the login screen so someone can log in
+	 */
+	private static final String[] DEMO_USERS = {
+		"insert into USER (user, password, fullName, add_user, edit_user, delete_user) values ('Bob', 'bob', 'Bob', 'yes', 'yes', 'yes')",
+		"insert into USER (user, password, fullName, add_user, edit_user, delete_user) values ('Sue', 'sue', 'Sue', 'yes', 'yes', 'no')",
+		"insert into USER (user, password, fullName, add_user, edit_user, delete_user) values ('Ragnar', 'ragnar', 'Ragnar', 'no', 'no', 'no')",
+	};
+	
+	@Override
+	public String getName() {
+		return NAME;
+	}
+	
+	/**
+	 * H2's JdbcDataSource is loaded by name so the H2 jar is only needed when this backend is used
+	 */
+	@Override
+	public DataSource createDataSource(DatabaseConfig config) throws GatewayException {
+		//USER is a keyword in H2 2.x but is the name of a table and a column here
+		String url = "jdbc:h2:file:" + config.getString("H2_DB_FILE", "data/inventory") + ";NON_KEYWORDS=USER";
+		try {
+			Class<?> dsClass = Class.forName("org.h2.jdbcx.JdbcDataSource");
+			DataSource ds = (DataSource) dsClass.newInstance();
+			invoke(dsClass, ds, "setURL", url);
+			invoke(dsClass, ds, "setUser", config.getString("H2_DB_USERNAME", "sa"));
+			invoke(dsClass, ds, "setPassword", config.getString("H2_DB_PASSWORD", ""));
+			return ds;
+		} catch (ClassNotFoundException e) {
+			throw new GatewayException("H2 database driver (org.h2.jdbcx.JdbcDataSource) is not on the classpath");
+		} catch (ReflectiveOperationException e) {
+			throw new GatewayException("Could not set up the H2 data source: " + e.getMessage());
+		}
+	}
+	
+	private static void invoke(Class<?> dsClass, DataSource ds, String setter, String value) throws ReflectiveOperationException {
+		Method m = dsClass.getMethod(setter, String.class);
+		m.invoke(ds, value);
+	}
+	
+	@Override
+	public void bootstrap(Connection conn) throws SQLException {
+		Statement st = null;
+		ResultSet rs = null;
+		try {
+			st = conn.createStatement();
+			for(String sql : SCHEMA)
+				st.executeUpdate(sql);
+			rs = st.executeQuery("select count(*) from USER");
+			rs.next();
+			boolean empty = rs.getLong(1) == 0;
+			rs.close();
+			rs = null;
+			if(empty) {
+				for(String sql : DEMO_USERS)
+					st.executeUpdate(sql);
+			}
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+		}
+	}
+	
+	@Override
+	public int streamingFetchSize(int requested) {
+		return requested > 0 ? requested : DEFAULT_FETCH_SIZE;
+	}
+	
+	@Override
+	public String forUpdate() {
+		return " for update";
+	}
+	
+	@Override
+	public String secondsFromNow() {
+		return "dateadd(second, cast(? as int), current_timestamp(3))";
+	}
+	
+	@Override
+	public String tombstoneSql() {
+		return "merge into DELETED_ROW (table_name, row_id, deleted_at) key (table_name, row_id) "
+				+ " values (?, ?, current_timestamp(3)) ";
+	}
+	
+	@Override
+	public String expireLeasesSql() {
+		return "delete from EDIT_LEASE where expires_at < current_timestamp(3) fetch first ? rows only ";
+	}
+}
@@ -0,0 +1,74 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SQL shared by the gateways to fetch many rows by id: select ... where id in (?, ?, ...)
+ *
+ * The ids go out in batches of at most MAX_IDS ids per query. Each batch is padded (by repeating its last id)
+ * to one of a few fixed sizes, so the pooled connections' statement caches only ever see a few distinct queries.
+ * @author Justin Wilson
+ *
+ */
+class IdBatch {
+	/**
+	 * sizes of the in-lists sent; the largest is the most ids per query
+	 */
+	private static final int[] SIZES = {1, 8, 64, 512};
+
+	static final int MAX_IDS = SIZES[SIZES.length - 1];
+
+	private IdBatch() {
+	}
+
+	/**
+	 * fetches the rows with the given ids (ids of rows that don't exist are skipped; rows come back in no particular order)
+	 * @param conn
+	 * @param table
+	 * @param columns what mapper reads, in order
+	 * @param ids
+	 * @param mapper
+	 * @param out fetched rows are added here
+	 * @throws SQLException
+	 */
+	static <T> void fetch(Connection conn, String table, String columns, long[] ids, RowMapper<T> mapper, List<T> out) throws SQLException {
+		for(int from = 0; from < ids.length; from += MAX_IDS) {
+			int count = Math.min(MAX_IDS, ids.length - from);
+			int size = sizeFor(count);
+			PreparedStatement st = null;
+			ResultSet rs = null;
+			try {
+				st = conn.prepareStatement("select " + columns + " from " + table + " where id in (" + placeholders(size) + ")");
+				for(int i = 0; i < size; i++)
+					st.setLong(i + 1, ids[from + Math.min(i, count - 1)]);
+				rs = st.executeQuery();
+				while(rs.next())
+					out.add(mapper.mapRow(rs));
+			} finally {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+			}
+		}
+	}
+
+	private static int sizeFor(int count) {
+		for(int size : SIZES) {
+			if(size >= count)
+				return size;
+		}
+		return MAX_IDS;
+	}
+
+	private static String placeholders(int size) {
+		StringBuilder sb = new StringBuilder(size * 3);
+		for(int i = 0; i < size; i++)
+			sb.append(i == 0 ? "?" : ", ?");
+		return sb.toString();
+	}
+}
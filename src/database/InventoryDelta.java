@@ -0,0 +1,148 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import models.Inventory;
+
+/**
+ * Net quantity change of one warehouse/part pair over a batch of transfers or quantity adjustments
+ * The gateways write each pair once, however many requests touch it (see InventoryTableGatewayJDBC.applyDeltas)
+ * @author Justin Wilson
+ *
+ */
+class InventoryDelta {
+	/**
+	 * order the pairs' rows are written in, so concurrent batches lock rows in the same order
+	 */
+	static final Comparator<InventoryDelta> ORDER = new Comparator<InventoryDelta>() {
+		@Override
+		public int compare(InventoryDelta a, InventoryDelta b) {
+			if(a.warehouseId != b.warehouseId)
+				return Long.compare(a.warehouseId, b.warehouseId);
+			return Long.compare(a.partId, b.partId);
+		}
+	};
+
+	final long warehouseId;
+	final long partId;
+	double delta;
+
+	/**
+	 * positions of the requests taking from / adding to this pair (the ones at fault if the pair is short / the warehouse is full)
+	 */
+	final ArrayList<Integer> takers;
+	final ArrayList<Integer> givers;
+
+	/**
+	 * the pair's record after the batch, once written
+	 */
+	Inventory row;
+
+	/**
+	 * id of the record that requests given by id were looked up as (0 if none): the pair's record must still be that one
+	 */
+	long inventoryId;
+
+	private InventoryDelta(long warehouseId, long partId) {
+		this.warehouseId = warehouseId;
+		this.partId = partId;
+		takers = new ArrayList<Integer>();
+		givers = new ArrayList<Integer>();
+	}
+
+	/**
+	 * adds a request's change to its pair's delta
+	 * @param deltas "warehouse id/part id" -> delta
+	 * @param position request's position in the batch
+	 * @return the pair's delta
+	 */
+	static InventoryDelta add(Map<String, InventoryDelta> deltas, long warehouseId, long partId, double delta, int position) {
+		String key = warehouseId + "/" + partId;
+		InventoryDelta d = deltas.get(key);
+		if(d == null) {
+			d = new InventoryDelta(warehouseId, partId);
+			deltas.put(key, d);
+		}
+		d.delta += delta;
+		if(delta < 0)
+			d.takers.add(position);
+		else
+			d.givers.add(position);
+		return d;
+	}
+
+	/**
+	 * @return deltas in ORDER
+	 */
+	static List<InventoryDelta> sorted(Collection<InventoryDelta> deltas) {
+		ArrayList<InventoryDelta> ret = new ArrayList<InventoryDelta>(deltas);
+		Collections.sort(ret, ORDER);
+		return ret;
+	}
+
+	/**
+	 * @return ids of the warehouses some pair's quantity goes up in (the ones whose capacity must be checked), in id order
+	 */
+	static TreeSet<Long> receivingWarehouses(List<InventoryDelta> deltas) {
+		TreeSet<Long> ids = new TreeSet<Long>();
+		for(InventoryDelta d : deltas) {
+			if(d.delta > 0)
+				ids.add(d.warehouseId);
+		}
+		return ids;
+	}
+
+	/**
+	 * adds the positions of the requests adding to the warehouse
+	 */
+	static void addGivers(List<InventoryDelta> deltas, long warehouseId, List<Integer> failed) {
+		for(InventoryDelta d : deltas) {
+			if(d.warehouseId == warehouseId && d.delta > 0)
+				failed.addAll(d.givers);
+		}
+	}
+
+	/**
+	 * adds the positions of every request changing this pair
+	 */
+	void addAll(List<Integer> failed) {
+		failed.addAll(takers);
+		failed.addAll(givers);
+	}
+
+	String moved() {
+		return "Inventory record " + inventoryId + " was moved or deleted by another user";
+	}
+
+	String shortfall() {
+		return "Warehouse " + warehouseId + " does not have " + format(-delta) + " of part " + partId;
+	}
+
+	static String overCapacity(long warehouseId, long cap, double total) {
+		return "Warehouse " + warehouseId + "'s storage capacity (" + cap + ") would be exceeded by " + format(total - cap);
+	}
+
+	/**
+	 * @param what plural of what the requests are (e.g., "transfers")
+	 * @return the exception for a failed batch: just error for a single request, otherwise with the failed positions
+	 */
+	static BatchException failure(String error, List<Integer> failed, int count, String what) {
+		ArrayList<Integer> positions = new ArrayList<Integer>(new TreeSet<Integer>(failed));
+		if(count == 1)
+			return new BatchException(error, positions);
+		return new BatchException(positions.size() + " of " + count + " " + what + " could not be made: " + error, positions);
+	}
+
+	/**
+	 * @return qty without a trailing .0 if it is a whole number
+	 */
+	static String format(double qty) {
+		return qty == Math.rint(qty) ? String.valueOf((long) qty) : String.valueOf(qty);
+	}
+}
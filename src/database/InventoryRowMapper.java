@@ -0,0 +1,26 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import models.Inventory;
+
+/**
+ * Maps a row of the INVENTORY table to a Inventory
+ * Queries must select COLUMNS first (in that order) since columns are read by position
+ * @author Justin Wilson
+ *
+ */
+public class InventoryRowMapper implements RowMapper<Inventory> {
+	/**
+	 * columns a Inventory is built from, in the order mapRow reads them
+	 */
+	public static final String COLUMNS = "id, warehouse_id, part_id, quantity, version";
+	
+	@Override
+	public Inventory mapRow(ResultSet rs) throws SQLException {
+		Inventory i = new Inventory(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+		i.setVersion(rs.getLong(5));
+		return i;
+	}
+}
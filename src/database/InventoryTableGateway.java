@@ -1,5 +1,6 @@
 package database;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import models.Inventory;
@@ -16,6 +17,24 @@ public interface InventoryTableGateway {
 	public abstract long insertInventory(Inventory p) throws GatewayException;
 	public abstract void saveInventory(Inventory p) throws GatewayException;
 	public abstract List<Inventory> fetchInventorys() throws GatewayException;
+	public abstract void fetchInventorys(RowHandler<Inventory> handler, int fetchSize) throws GatewayException;
 	public abstract List<Inventory> fetchWarehouseInventorys(Long wId) throws GatewayException;
+	public abstract List<Inventory> fetchInventorys(long afterId, int limit) throws GatewayException;
+	public abstract List<Inventory> fetchWarehouseInventorys(Long wId, long afterId, int limit) throws GatewayException;
+	public abstract long countInventorys(Long wId) throws GatewayException;
+	public abstract long countPartInventorys(long partId) throws GatewayException;
+	public abstract long fetchInventoryIdAt(long warehouseId, long partId) throws GatewayException;
+	public abstract double sumWarehouseQuantity(long warehouseId, long exceptId) throws GatewayException;
+	public abstract long fetchInventoryIdAfter(Long wId, long afterId, int offset) throws GatewayException;
+	public abstract long[] insertInventorys(List<Inventory> inventorys) throws GatewayException;
+	public abstract void saveInventorys(List<Inventory> inventorys) throws GatewayException;
+	public abstract void deleteInventorys(long[] ids) throws GatewayException;
+	public abstract ChangeSet<Inventory> fetchInventorysChangedSince(Timestamp since) throws GatewayException;
+	public abstract ChangeSet<Inventory> fetchInventorysChangedSince(Timestamp since, RowHandler<Inventory> handler, int fetchSize) throws GatewayException;
+	public abstract List<Inventory> transferInventory(long partId, long fromWarehouseId, long toWarehouseId, double qty) throws GatewayException;
+	public abstract List<Inventory> transferInventorys(List<InventoryTransfer> transfers) throws GatewayException;
+	public abstract Inventory adjustQuantity(long inventoryId, double delta) throws GatewayException;
+	public abstract Inventory adjustQuantity(long warehouseId, long partId, double delta) throws GatewayException;
+	public abstract List<Inventory> adjustQuantities(List<QuantityAdjustment> adjustments) throws GatewayException;
 	public abstract void close();
 }
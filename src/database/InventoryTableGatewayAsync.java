@@ -0,0 +1,252 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import models.Inventory;
+import models.InventorySnapshot;
+
+/**
+ * Asynchronous counterpart of InventoryTableGateway: each call runs on the shared AsyncExecutor
+ * and returns a CompletableFuture instead of blocking the caller (e.g., the Event Dispatch Thread)
+ * Results come back on a worker thread; chain with thenAcceptAsync(..., AsyncExecutor.EDT) etc. to touch models or views
+ * @author Justin Wilson
+ *
+ */
+public class InventoryTableGatewayAsync {
+	/**
+	 * blocking gateway that does the work
+	 */
+	private InventoryTableGateway gateway;
+	
+	private AsyncExecutor executor;
+	
+	/**
+	 * Constructor: wraps gateway (JDBC or memory) and uses the shared executor
+	 * @param gateway
+	 * @throws GatewayException if the executor settings cannot be read
+	 */
+	public InventoryTableGatewayAsync(InventoryTableGateway gateway) throws GatewayException {
+		this.gateway = gateway;
+		executor = AsyncExecutor.getInstance();
+	}
+	
+	public InventoryTableGateway getGateway() {
+		return gateway;
+	}
+	
+	public CompletableFuture<Inventory> fetchInventoryAsync(final long id) {
+		return executor.submit(new Callable<Inventory>() {
+			@Override
+			public Inventory call() throws GatewayException {
+				return gateway.fetchInventory(id);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Inventory>> fetchInventorysAsync() {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.fetchInventorys();
+			}
+		});
+	}
+	
+	/**
+	 * streams the whole table into a column-oriented snapshot (see InventorySnapshot.fetch)
+	 * @param fetchSize rows per round trip
+	 * @return
+	 */
+	public CompletableFuture<InventorySnapshot> fetchSnapshotAsync(final int fetchSize) {
+		return executor.submit(new Callable<InventorySnapshot>() {
+			@Override
+			public InventorySnapshot call() throws GatewayException {
+				return InventorySnapshot.fetch(gateway, fetchSize);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Inventory>> fetchWarehouseInventorysAsync(final Long wId) {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.fetchWarehouseInventorys(wId);
+			}
+		});
+	}
+	
+	/**
+	 * keyset page of the whole table (see InventoryTableGateway.fetchInventorys(long, int))
+	 */
+	public CompletableFuture<List<Inventory>> fetchInventorysAsync(final long afterId, final int limit) {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.fetchInventorys(afterId, limit);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Inventory>> fetchWarehouseInventorysAsync(final Long wId, final long afterId, final int limit) {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.fetchWarehouseInventorys(wId, afterId, limit);
+			}
+		});
+	}
+	
+	/**
+	 * id offset rows past afterId, to jump to a page (see InventoryTableGateway.fetchInventoryIdAfter)
+	 */
+	public CompletableFuture<Long> fetchInventoryIdAfterAsync(final Long wId, final long afterId, final int offset) {
+		return executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws GatewayException {
+				return gateway.fetchInventoryIdAfter(wId, afterId, offset);
+			}
+		});
+	}
+	
+	public CompletableFuture<Long> countInventorysAsync(final Long wId) {
+		return executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws GatewayException {
+				return gateway.countInventorys(wId);
+			}
+		});
+	}
+	
+	/**
+	 * streams the rows to handler on the worker (see InventoryTableGateway.fetchInventorysChangedSince(Timestamp, RowHandler, int));
+	 * a full load (since null) gets the load timeout instead of the default one
+	 * @return the ChangeSet, with no rows in it (they went to handler)
+	 */
+	public CompletableFuture<ChangeSet<Inventory>> fetchInventorysChangedSinceAsync(final Timestamp since, final RowHandler<Inventory> handler, final int fetchSize) {
+		Callable<ChangeSet<Inventory>> task = new Callable<ChangeSet<Inventory>>() {
+			@Override
+			public ChangeSet<Inventory> call() throws GatewayException {
+				return gateway.fetchInventorysChangedSince(since, handler, fetchSize);
+			}
+		};
+		return since == null ? executor.submitLoad(task) : executor.submit(task);
+	}
+	
+	/**
+	 * rows are collected in the ChangeSet; apply it to the list on the EDT
+	 */
+	public CompletableFuture<ChangeSet<Inventory>> fetchInventorysChangedSinceAsync(final Timestamp since) {
+		return executor.submit(new Callable<ChangeSet<Inventory>>() {
+			@Override
+			public ChangeSet<Inventory> call() throws GatewayException {
+				return gateway.fetchInventorysChangedSince(since);
+			}
+		});
+	}
+	
+	public CompletableFuture<Long> insertInventoryAsync(final Inventory i) {
+		return executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws GatewayException {
+				return gateway.insertInventory(i);
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> saveInventoryAsync(final Inventory i) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.saveInventory(i);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> deleteInventoryAsync(final long id) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.deleteInventory(id);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<long[]> insertInventorysAsync(final List<Inventory> inventorys) {
+		return executor.submit(new Callable<long[]>() {
+			@Override
+			public long[] call() throws GatewayException {
+				return gateway.insertInventorys(inventorys);
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> saveInventorysAsync(final List<Inventory> inventorys) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.saveInventorys(inventorys);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> deleteInventorysAsync(final long[] ids) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.deleteInventorys(ids);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Inventory>> transferInventoryAsync(final long partId, final long fromWarehouseId, final long toWarehouseId, final double qty) {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.transferInventory(partId, fromWarehouseId, toWarehouseId, qty);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Inventory>> transferInventorysAsync(final List<InventoryTransfer> transfers) {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.transferInventorys(transfers);
+			}
+		});
+	}
+	
+	public CompletableFuture<Inventory> adjustQuantityAsync(final long inventoryId, final double delta) {
+		return executor.submit(new Callable<Inventory>() {
+			@Override
+			public Inventory call() throws GatewayException {
+				return gateway.adjustQuantity(inventoryId, delta);
+			}
+		});
+	}
+	
+	public CompletableFuture<Inventory> adjustQuantityAsync(final long warehouseId, final long partId, final double delta) {
+		return executor.submit(new Callable<Inventory>() {
+			@Override
+			public Inventory call() throws GatewayException {
+				return gateway.adjustQuantity(warehouseId, partId, delta);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Inventory>> adjustQuantitiesAsync(final List<QuantityAdjustment> adjustments) {
+		return executor.submit(new Callable<List<Inventory>>() {
+			@Override
+			public List<Inventory> call() throws GatewayException {
+				return gateway.adjustQuantities(adjustments);
+			}
+		});
+	}
+}
@@ -0,0 +1,1119 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.Inventory;
+
+/**
+ * JDBC implementation of InventoryTableGateway (MySQL or H2; engine-specific SQL comes from the pool's SqlDialect)
+ * @author Justin Wilson
+ * 
+ *
+ */
+public class InventoryTableGatewayJDBC implements InventoryTableGateway {
+	private static final boolean DEBUG = true;
+
+	/**
+	 * most rows sent to the db in one executeBatch() call by the bulk methods
+	 */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * shared pool that db connections are borrowed from for each call
+	 */
+	private ConnectionPool pool;
+	
+	/**
+	 * SQL differences of the pool's database
+	 */
+	private SqlDialect dialect;
+	
+	/**
+	 * builds model objects from the projected columns of each row
+	 */
+	private InventoryRowMapper mapper;
+	
+	/**
+	 * Constructor: uses the shared connection pool
+	 * @throws GatewayException
+	 */
+	public InventoryTableGatewayJDBC() throws GatewayException {
+		pool = ConnectionPool.getInstance();
+		dialect = pool.getDialect();
+		mapper = new InventoryRowMapper();
+	}
+
+	@Override
+	public Inventory fetchInventory(long id) throws GatewayException {
+		Inventory p = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch person
+			st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY where id = ? ");
+			st.setLong(1, id);
+			rs = st.executeQuery();
+			//should only be 1
+			rs.next();
+			p = mapper.mapRow(rs);
+		} catch (SQLException e) {
+			//e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return p;
+	}
+
+	@Override
+	public void deleteInventory(long id) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			
+			st = conn.prepareStatement("delete from INVENTORY where id = ? ");
+			st.setLong(1, id);
+			//leave a tombstone so other clients' next sync removes the row from their lists
+			if(st.executeUpdate() > 0)
+				ChangeTracking.writeTombstone(conn, dialect, "INVENTORY", id);
+			
+			//if we get here, everything worked without exception so commit the changes
+			conn.commit();
+
+		} catch (SQLException e) {
+			//roll the tx back
+			try {
+				if(conn != null)
+					conn.rollback();
+			} catch (SQLException e1) {
+				throw new GatewayException(e1.getMessage());
+			}
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(st != null)
+					st.close();
+				//turn autocommit on again regardless if commit or rollback
+				if(conn != null) {
+					conn.setAutoCommit(true);
+					conn.close();
+				}
+			} catch (SQLException e) {
+				throw new GatewayException(e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public long insertInventory(Inventory p) throws GatewayException {
+		//init new id to invalid
+		long newId = Inventory.INVALID_ID;
+		Connection conn = null;
+		PreparedStatement st = null;
+		boolean committed = false;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//a tx so a sync can't read its time before this write commits (see ChangeTracking)
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			
+			st = conn.prepareStatement("INSERT INTO INVENTORY ( "
+					+ " warehouse_id, part_id, quantity )"
+					+ " VALUES ( ?, ?, ? )", PreparedStatement.RETURN_GENERATED_KEYS);
+			
+			st.setLong(1, p.getWarehouseId());
+			st.setLong(2, p.getPartId());
+			st.setDouble(3, p.getQuantity());
+			
+			st.executeUpdate();
+			//get the generated key
+			rs = st.getGeneratedKeys();
+			if(rs != null && rs.next()) {
+			    newId = rs.getLong(1);
+			} else {
+				throw new GatewayException("Could not fetch new record Id");
+			}
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+//			System.out.println("testing");
+			e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, rs, committed);
+		}
+		return newId;
+	}
+
+	/**
+	 * Saves p only if the record is still at p's version (optimistic concurrency: nothing is locked while it is edited)
+	 * On success the record's version, and p's, go up by one
+	 * @throws ConflictException if the record was changed or deleted since p was read (carries the record as it is now)
+	 */
+	@Override
+	public void saveInventory(Inventory p) throws GatewayException {
+		//execute the update and throw exception if any problem
+		Connection conn = null;
+		PreparedStatement st = null;
+		boolean committed = false;
+		try {
+			conn = pool.getConnection();
+			//a tx so a sync can't read its time before this write commits (see ChangeTracking)
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			st = conn.prepareStatement("update INVENTORY "
+					+ " set warehouse_id = ?, part_id = ?, quantity = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
+			st.setLong(1, p.getWarehouseId());
+			st.setLong(2, p.getPartId());
+			st.setDouble(3, p.getQuantity());
+			st.setLong(4, p.getId());
+			st.setLong(5, p.getVersion());
+			if(st.executeUpdate() == 0)
+				throw VersionCheck.conflict(conn, "INVENTORY", InventoryRowMapper.COLUMNS, p.getId(), mapper);
+			conn.commit();
+			committed = true;
+			p.setVersion(p.getVersion() + 1);
+			
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+	}
+
+	/**
+	 * Inserts all given records in a single transaction using JDBC batching
+	 * @param inventorys records to insert (their ids are ignored)
+	 * @return generated ids, in the same order as inventorys
+	 * @throws BatchException if any row fails; nothing is inserted in that case
+	 */
+	@Override
+	public long[] insertInventorys(List<Inventory> inventorys) throws GatewayException {
+		long[] newIds = new long[inventorys.size()];
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = null;
+		boolean committed = false;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			
+			st = conn.prepareStatement("INSERT INTO INVENTORY ( "
+					+ " warehouse_id, part_id, quantity )"
+					+ " VALUES ( ?, ?, ? )", PreparedStatement.RETURN_GENERATED_KEYS);
+			
+			//send the rows in chunks so a huge manifest doesn't build one enormous packet
+			for(int start = 0; start < inventorys.size(); start += BATCH_SIZE) {
+				int end = Math.min(start + BATCH_SIZE, inventorys.size());
+				for(int i = start; i < end; i++) {
+					Inventory p = inventorys.get(i);
+					st.setLong(1, p.getWarehouseId());
+					st.setLong(2, p.getPartId());
+					st.setDouble(3, p.getQuantity());
+					st.addBatch();
+				}
+				String chunkError = JdbcBatch.execute(st, start, false, failed);
+				if(chunkError != null) {
+					if(error == null)
+						error = chunkError;
+					continue;
+				}
+				//generated keys come back in the order the rows were added to the batch
+				rs = st.getGeneratedKeys();
+				int i = start;
+				while(i < end && rs.next())
+					newIds[i++] = rs.getLong(1);
+				rs.close();
+				rs = null;
+				if(i < end)
+					throw new SQLException("Could not fetch new record Ids");
+			}
+			
+			if(failed.isEmpty()) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, rs, committed);
+		}
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + inventorys.size() + " inventory records could not be inserted: " + error, failed);
+		return newIds;
+	}
+
+	/**
+	 * Saves all given records in a single transaction using JDBC batching
+	 * Each row is only saved if it is still at its record's version (see saveInventory); on success every record's version goes up by one
+	 * @param inventorys records to save (must already have ids)
+	 * @throws BatchException if any row fails, no longer exists or was changed since it was read; nothing is saved in that case
+	 */
+	@Override
+	public void saveInventorys(List<Inventory> inventorys) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = null;
+		boolean committed = false;
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			
+			st = conn.prepareStatement("update INVENTORY "
+					+ " set warehouse_id = ?, part_id = ?, quantity = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
+			for(int start = 0; start < inventorys.size(); start += BATCH_SIZE) {
+				int end = Math.min(start + BATCH_SIZE, inventorys.size());
+				for(int i = start; i < end; i++) {
+					Inventory p = inventorys.get(i);
+					st.setLong(1, p.getWarehouseId());
+					st.setLong(2, p.getPartId());
+					st.setDouble(3, p.getQuantity());
+					st.setLong(4, p.getId());
+					st.setLong(5, p.getVersion());
+					st.addBatch();
+				}
+				String chunkError = JdbcBatch.execute(st, start, true, failed);
+				if(error == null)
+					error = chunkError;
+			}
+			
+			if(failed.isEmpty()) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + inventorys.size() + " inventory records could not be saved: " + error, failed);
+		for(Inventory p : inventorys)
+			p.setVersion(p.getVersion() + 1);
+	}
+
+	/**
+	 * Deletes all given records in a single transaction using JDBC batching
+	 * Ids that are not in the table are ignored (same as deleteInventory)
+	 * @param ids ids of the records to delete
+	 * @throws BatchException if any row fails; nothing is deleted in that case
+	 */
+	@Override
+	public void deleteInventorys(long[] ids) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = null;
+		boolean committed = false;
+		Connection conn = null;
+		PreparedStatement st = null;
+		PreparedStatement tombstones = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			
+			st = conn.prepareStatement("delete from INVENTORY where id = ? ");
+			tombstones = conn.prepareStatement(dialect.tombstoneSql());
+			for(int start = 0; start < ids.length; start += BATCH_SIZE) {
+				int end = Math.min(start + BATCH_SIZE, ids.length);
+				for(int i = start; i < end; i++) {
+					st.setLong(1, ids[i]);
+					st.addBatch();
+					//leave a tombstone so other clients' next sync removes the row from their lists
+					tombstones.setString(1, "INVENTORY");
+					tombstones.setLong(2, ids[i]);
+					tombstones.addBatch();
+				}
+				String chunkError = JdbcBatch.execute(st, start, false, failed);
+				if(error == null)
+					error = chunkError;
+				if(failed.isEmpty())
+					tombstones.executeBatch();
+				else
+					tombstones.clearBatch();
+			}
+			
+			if(failed.isEmpty()) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			try {
+				if(tombstones != null)
+					tombstones.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + ids.length + " inventory records could not be deleted: " + error, failed);
+	}
+
+	/**
+	 * Moves qty of a part from one warehouse to another in one transaction (see transferInventorys)
+	 * @return the source and destination records as they are after the transfer
+	 * @throws GatewayException if the source doesn't have qty of the part, or the destination warehouse
+	 * would go over its storage capacity; nothing is changed in that case
+	 */
+	@Override
+	public List<Inventory> transferInventory(long partId, long fromWarehouseId, long toWarehouseId, double qty) throws GatewayException {
+		ArrayList<InventoryTransfer> one = new ArrayList<InventoryTransfer>(1);
+		one.add(new InventoryTransfer(partId, fromWarehouseId, toWarehouseId, qty));
+		return transferInventorys(one);
+	}
+
+	/**
+	 * Makes all given transfers in a single transaction, checked in SQL so clients with stale lists can't overfill
+	 * a warehouse (see applyDeltas). Transfers of the same part between the same warehouses are netted,
+	 * so each record is written once.
+	 * @param transfers
+	 * @return every record changed, as it is after the transfers
+	 * @throws BatchException if any transfer fails (failed rows are the transfers at fault); nothing is changed in that case
+	 */
+	@Override
+	public List<Inventory> transferInventorys(List<InventoryTransfer> transfers) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = InventoryTransfer.validate(transfers, failed);
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, transfers.size(), "transfers");
+		LinkedHashMap<String, InventoryDelta> deltas = new LinkedHashMap<String, InventoryDelta>();
+		for(int i = 0; i < transfers.size(); i++) {
+			InventoryTransfer t = transfers.get(i);
+			InventoryDelta.add(deltas, t.getFromWarehouseId(), t.getPartId(), -t.getQuantity(), i);
+			InventoryDelta.add(deltas, t.getToWarehouseId(), t.getPartId(), t.getQuantity(), i);
+		}
+		List<InventoryDelta> sorted = InventoryDelta.sorted(deltas.values());
+		
+		boolean committed = false;
+		Connection conn = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			error = applyDeltas(conn, sorted, failed);
+			if(error == null) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, null, null, committed);
+		}
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, transfers.size(), "transfers");
+		ArrayList<Inventory> changed = new ArrayList<Inventory>(sorted.size());
+		for(InventoryDelta d : sorted) {
+			if(d.delta != 0 && d.row != null)
+				changed.add(d.row);
+		}
+		return changed;
+	}
+
+	/**
+	 * Adds delta to the record's quantity in the db (see adjustQuantities)
+	 * @return the record as it is afterwards (new quantity and version)
+	 * @throws GatewayException if the record does not exist, would go below 0 or its warehouse would go over capacity
+	 */
+	@Override
+	public Inventory adjustQuantity(long inventoryId, double delta) throws GatewayException {
+		ArrayList<QuantityAdjustment> one = new ArrayList<QuantityAdjustment>(1);
+		one.add(new QuantityAdjustment(inventoryId, delta));
+		return adjustQuantities(one).get(0);
+	}
+
+	/**
+	 * Adds delta to the quantity of the warehouse's record of the part (see adjustQuantities)
+	 * @return the record as it is afterwards (new quantity and version)
+	 * @throws GatewayException if the record would go below 0 (or doesn't exist and delta is below 0) or the warehouse would go over capacity
+	 */
+	@Override
+	public Inventory adjustQuantity(long warehouseId, long partId, double delta) throws GatewayException {
+		ArrayList<QuantityAdjustment> one = new ArrayList<QuantityAdjustment>(1);
+		one.add(new QuantityAdjustment(warehouseId, partId, delta));
+		return adjustQuantities(one).get(0);
+	}
+
+	/**
+	 * Makes all given quantity changes in a single transaction as quantity = quantity + delta, guarded in SQL (see applyDeltas),
+	 * so concurrent changes to the same record all count and no client needs a fresh copy of it first.
+	 * Changes to the same record are netted so it is written once; a record given by warehouse and part
+	 * that doesn't exist yet is created by a change above 0.
+	 * @param adjustments
+	 * @return each adjustment's record as it is afterwards (new quantity and version), in the same order as adjustments
+	 * (null for a change of 0 to a warehouse/part record that doesn't exist)
+	 * @throws BatchException if any adjustment fails (failed rows are the adjustments at fault), including a record given by id
+	 * that another user moved to another warehouse or part, or deleted, while the batch ran; nothing is changed in that case
+	 */
+	@Override
+	public List<Inventory> adjustQuantities(List<QuantityAdjustment> adjustments) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = QuantityAdjustment.validate(adjustments, failed);
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, adjustments.size(), "adjustments");
+		InventoryDelta[] deltaOf = new InventoryDelta[adjustments.size()];
+		
+		boolean committed = false;
+		Connection conn = null;
+		try {
+			conn = pool.getConnection();
+			
+			//records given by id: look up their warehouse and part before the tx starts, so the tx's first read is the
+			//warehouse lock (see applyDeltas); applyDeltas checks the records are still where they were found
+			ArrayList<Long> idList = new ArrayList<Long>();
+			for(QuantityAdjustment a : adjustments) {
+				if(a.isById())
+					idList.add(a.getInventoryId());
+			}
+			HashMap<Long, Inventory> byId = new HashMap<Long, Inventory>();
+			if(!idList.isEmpty()) {
+				long[] ids = new long[idList.size()];
+				for(int i = 0; i < ids.length; i++)
+					ids[i] = idList.get(i);
+				ArrayList<Inventory> rows = new ArrayList<Inventory>(ids.length);
+				IdBatch.fetch(conn, "INVENTORY", InventoryRowMapper.COLUMNS, ids, mapper, rows);
+				for(Inventory row : rows)
+					byId.put(row.getId(), row);
+			}
+			
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			
+			LinkedHashMap<String, InventoryDelta> deltas = new LinkedHashMap<String, InventoryDelta>();
+			for(int i = 0; i < adjustments.size(); i++) {
+				QuantityAdjustment a = adjustments.get(i);
+				long wId = a.getWarehouseId();
+				long pId = a.getPartId();
+				if(a.isById()) {
+					Inventory row = byId.get(a.getInventoryId());
+					if(row == null) {
+						failed.add(i);
+						if(error == null)
+							error = "Inventory record " + a.getInventoryId() + " does not exist";
+						continue;
+					}
+					wId = row.getWarehouseId();
+					pId = row.getPartId();
+				}
+				deltaOf[i] = InventoryDelta.add(deltas, wId, pId, a.getDelta(), i);
+				if(a.isById())
+					deltaOf[i].inventoryId = a.getInventoryId();
+			}
+			
+			if(error == null)
+				error = applyDeltas(conn, InventoryDelta.sorted(deltas.values()), failed);
+			if(error == null) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, null, null, committed);
+		}
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, adjustments.size(), "adjustments");
+		ArrayList<Inventory> ret = new ArrayList<Inventory>(deltaOf.length);
+		for(InventoryDelta d : deltaOf)
+			ret.add(d.row);
+		return ret;
+	}
+
+	/**
+	 * Writes the net change of each warehouse/part pair inside the caller's transaction
+	 * 		- the warehouses whose quantities go up are locked first (select ... for update, in id order), which serializes
+	 * 		  their capacity checks; a batch that only takes stock away (e.g., picks) doesn't lock any warehouse
+	 * 		- then INVENTORY's CHANGE_SEQ row is locked (see ChangeTracking.beginChange)
+	 * 		- each record changes as quantity = quantity + ?, guarded by quantity + ? >= 0, in InventoryDelta.ORDER
+	 * 		  so concurrent batches lock records in the same order and can't deadlock
+	 * 		- a pair whose quantity goes up but that has no record yet gets one inserted
+	 * 		- then each receiving warehouse's total must be within its storage_cap
+	 * 		- a pair with an inventoryId must still be that record (it was looked up before the tx), else it fails as moved
+	 * Afterwards each delta's row is the pair's record as it is now (also for pairs that came out even)
+	 * The tx must not have made a plain (non-locking) read before this: under REPEATABLE READ (MySQL's default) the first
+	 * plain read fixes the tx's snapshot, and the capacity totals must be read after the warehouse locks are held
+	 * so they include what other batches added to those warehouses while this one waited for the locks
+	 * @param conn connection with the tx open, nothing read in it yet
+	 * @param deltas in InventoryDelta.ORDER
+	 * @param failed positions of the requests at fault are added here
+	 * @return error message if anything failed (the caller must not commit), else null
+	 * @throws SQLException
+	 */
+	private String applyDeltas(Connection conn, List<InventoryDelta> deltas, List<Integer> failed) throws SQLException {
+		String error = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			HashMap<Long, Long> caps = new HashMap<Long, Long>();
+			st = conn.prepareStatement("select storage_cap from WAREHOUSE where id = ? " + dialect.forUpdate());
+			for(long wId : InventoryDelta.receivingWarehouses(deltas)) {
+				st.setLong(1, wId);
+				rs = st.executeQuery();
+				if(rs.next()) {
+					caps.put(wId, rs.getLong(1));
+				} else {
+					InventoryDelta.addGivers(deltas, wId, failed);
+					if(error == null)
+						error = "Warehouse " + wId + " does not exist";
+				}
+				rs.close();
+				rs = null;
+			}
+			st.close();
+			st = null;
+			if(error != null)
+				return error;
+			
+			//after the warehouse locks, so batches waiting for those don't hold up every other write to INVENTORY
+			//(an update, so it doesn't fix the snapshot either)
+			ChangeTracking.beginChange(conn, "INVENTORY");
+			
+			//the guard leaves a record alone if it doesn't have enough
+			ArrayList<InventoryDelta> written = new ArrayList<InventoryDelta>(deltas.size());
+			//and a record looked up by id that has moved since
+			st = conn.prepareStatement("update INVENTORY set quantity = quantity + ?, version = version + 1 "
+					+ " where warehouse_id = ? and part_id = ? and quantity + ? >= 0 and (? = 0 or id = ?) ");
+			for(InventoryDelta d : deltas) {
+				if(d.delta != 0) {
+					st.setDouble(1, d.delta);
+					st.setLong(2, d.warehouseId);
+					st.setLong(3, d.partId);
+					st.setDouble(4, d.delta);
+					st.setLong(5, d.inventoryId);
+					st.setLong(6, d.inventoryId);
+					st.addBatch();
+					written.add(d);
+				}
+			}
+			int[] counts = written.isEmpty() ? new int[0] : st.executeBatch();
+			st.close();
+			st = null;
+			ArrayList<InventoryDelta> inserts = new ArrayList<InventoryDelta>();
+			for(int i = 0; i < counts.length; i++) {
+				if(counts[i] != 0)
+					continue;
+				InventoryDelta d = written.get(i);
+				if(d.inventoryId != 0 && !isAt(conn, d)) {
+					d.addAll(failed);
+					if(error == null)
+						error = d.moved();
+				} else if(d.delta > 0) {
+					inserts.add(d);
+				} else {
+					failed.addAll(d.takers);
+					if(error == null)
+						error = d.shortfall();
+				}
+			}
+			if(error != null)
+				return error;
+			
+			//pairs the warehouse has none of yet
+			if(!inserts.isEmpty()) {
+				st = conn.prepareStatement("insert into INVENTORY (warehouse_id, part_id, quantity) values (?, ?, ?) ");
+				for(InventoryDelta d : inserts) {
+					st.setLong(1, d.warehouseId);
+					st.setLong(2, d.partId);
+					st.setDouble(3, d.delta);
+					st.addBatch();
+				}
+				st.executeBatch();
+				st.close();
+				st = null;
+			}
+			
+			//each receiving warehouse's new total, read under its lock
+			st = conn.prepareStatement("select coalesce(sum(quantity), 0) from INVENTORY where warehouse_id = ? ");
+			for(Map.Entry<Long, Long> e : caps.entrySet()) {
+				st.setLong(1, e.getKey());
+				rs = st.executeQuery();
+				rs.next();
+				double total = rs.getDouble(1);
+				rs.close();
+				rs = null;
+				if(total > e.getValue()) {
+					InventoryDelta.addGivers(deltas, e.getKey(), failed);
+					if(error == null)
+						error = InventoryDelta.overCapacity(e.getKey(), e.getValue(), total);
+				}
+			}
+			st.close();
+			st = null;
+			if(error != null)
+				return error;
+			
+			st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY where warehouse_id = ? and part_id = ? ");
+			for(InventoryDelta d : deltas) {
+				st.setLong(1, d.warehouseId);
+				st.setLong(2, d.partId);
+				rs = st.executeQuery();
+				d.row = rs.next() ? mapper.mapRow(rs) : null;
+				rs.close();
+				rs = null;
+				//a pair that came out even was not written, so its record was not checked yet
+				if(d.inventoryId != 0 && (d.row == null || d.row.getId() != d.inventoryId)) {
+					d.addAll(failed);
+					if(error == null)
+						error = d.moved();
+				}
+			}
+			return error;
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+		}
+	}
+
+	/**
+	 * @return true if the record the delta's requests were looked up as is still the pair's record
+	 * (only asked after an update of the pair matched nothing, before the tx is rolled back)
+	 */
+	private boolean isAt(Connection conn, InventoryDelta d) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			st = conn.prepareStatement("select warehouse_id, part_id from INVENTORY where id = ? ");
+			st.setLong(1, d.inventoryId);
+			rs = st.executeQuery();
+			return rs.next() && rs.getLong(1) == d.warehouseId && rs.getLong(2) == d.partId;
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+		}
+	}
+
+	@Override
+	public List<Inventory> fetchInventorys() throws GatewayException {
+		ArrayList<Inventory> ret = new ArrayList<Inventory>();
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch INVENTORYs
+			st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY");
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Inventory p = mapper.mapRow(rs);
+				ret.add(p);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		
+		return ret;
+	}
+
+	/**
+	 * Streams every row of the INVENTORY table to handler without building a List
+	 * @param handler called once per row while the result set is open
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public void fetchInventorys(RowHandler<Inventory> handler, int fetchSize) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//forward-only, read-only result set so the driver can stream instead of buffering every row
+			//(this prepareStatement form is not cached since the fetch size is set per call)
+			st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Inventory p = mapper.mapRow(rs);
+				handler.handleRow(p);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+	}
+	
+	@Override
+	public List<Inventory> fetchWarehouseInventorys(Long wId) throws GatewayException {
+		ArrayList<Inventory> ret = new ArrayList<Inventory>();
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch INVENTORYs
+			st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY WHERE warehouse_id = ?");
+			st.setLong(1, wId);
+			rs = st.executeQuery();
+			//add each to list of dogs to return
+			while(rs.next()) {
+				Inventory p = mapper.mapRow(rs);
+				ret.add(p);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Keyset paging: fetches up to limit records with id > afterId, in id order
+	 * Pass the id of the last record of the previous page as afterId (0 for the first page)
+	 */
+	@Override
+	public List<Inventory> fetchInventorys(long afterId, int limit) throws GatewayException {
+		return fetchInventoryPage(null, afterId, limit);
+	}
+	
+	/**
+	 * Keyset paging of one warehouse's inventory: up to limit records with id > afterId, in id order
+	 */
+	@Override
+	public List<Inventory> fetchWarehouseInventorys(Long wId, long afterId, int limit) throws GatewayException {
+		return fetchInventoryPage(wId, afterId, limit);
+	}
+	
+	private List<Inventory> fetchInventoryPage(Long wId, long afterId, int limit) throws GatewayException {
+		ArrayList<Inventory> ret = new ArrayList<Inventory>();
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//range scan on the primary key (or warehouse_id index) starting right after the previous page
+			if(wId == null) {
+				st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY where id > ? order by id limit ?");
+				st.setLong(1, afterId);
+				st.setInt(2, limit);
+			} else {
+				st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY where warehouse_id = ? and id > ? order by id limit ?");
+				st.setLong(1, wId);
+				st.setLong(2, afterId);
+				st.setInt(3, limit);
+			}
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Inventory p = mapper.mapRow(rs);
+				ret.add(p);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * @param wId warehouse to count, or null to count the whole table
+	 * @return number of inventory records
+	 */
+	@Override
+	public long countInventorys(Long wId) throws GatewayException {
+		long count = 0;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			if(wId == null) {
+				st = conn.prepareStatement("select count(*) from INVENTORY");
+			} else {
+				st = conn.prepareStatement("select count(*) from INVENTORY where warehouse_id = ?");
+				st.setLong(1, wId);
+			}
+			rs = st.executeQuery();
+			if(rs.next())
+				count = rs.getLong(1);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of inventory records of the part (in any warehouse)
+	 */
+	@Override
+	public long countPartInventorys(long partId) throws GatewayException {
+		return (long) queryNumber("select count(*) from INVENTORY where part_id = ?", partId);
+	}
+
+	/**
+	 * @return id of the warehouse's record of the part, or 0 (Inventory.INVALID_ID) if there is none
+	 */
+	@Override
+	public long fetchInventoryIdAt(long warehouseId, long partId) throws GatewayException {
+		return (long) queryNumber("select coalesce(max(id), 0) from INVENTORY where warehouse_id = ? and part_id = ?", warehouseId, partId);
+	}
+
+	/**
+	 * @param exceptId record to leave out (e.g., the one being edited), or 0 to sum them all
+	 * @return total quantity in the warehouse
+	 */
+	@Override
+	public double sumWarehouseQuantity(long warehouseId, long exceptId) throws GatewayException {
+		return queryNumber("select coalesce(sum(quantity), 0) from INVENTORY where warehouse_id = ? and id <> ?", warehouseId, exceptId);
+	}
+
+	/**
+	 * runs a query whose result is a single number
+	 * @param sql
+	 * @param params values of the query's ? placeholders, in order
+	 * @return the number (0 if the query returns no row)
+	 */
+	private double queryNumber(String sql, long... params) throws GatewayException {
+		double ret = 0;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			st = conn.prepareStatement(sql);
+			for(int i = 0; i < params.length; i++)
+				st.setLong(i + 1, params[i]);
+			rs = st.executeQuery();
+			if(rs.next())
+				ret = rs.getDouble(1);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Finds the id of the record offset positions past afterId (in id order) using only the index
+	 * Lets a pager jump to a far page without fetching the rows in between
+	 * @param wId warehouse to page through, or null for the whole table
+	 * @return the id, or Inventory.INVALID_ID if there are not that many records after afterId
+	 */
+	@Override
+	public long fetchInventoryIdAfter(Long wId, long afterId, int offset) throws GatewayException {
+		long id = Inventory.INVALID_ID;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			if(wId == null) {
+				st = conn.prepareStatement("select id from INVENTORY where id > ? order by id limit 1 offset ?");
+				st.setLong(1, afterId);
+				st.setInt(2, offset);
+			} else {
+				st = conn.prepareStatement("select id from INVENTORY where warehouse_id = ? and id > ? order by id limit 1 offset ?");
+				st.setLong(1, wId);
+				st.setLong(2, afterId);
+				st.setInt(3, offset);
+			}
+			rs = st.executeQuery();
+			if(rs.next())
+				id = rs.getLong(1);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * Fetches the INVENTORY rows inserted, updated or deleted since the given time
+	 * @param since sync time of the last ChangeSet, or null to fetch every row
+	 * @return changed rows, deleted ids and the time to pass as since next time
+	 */
+	@Override
+	public ChangeSet<Inventory> fetchInventorysChangedSince(Timestamp since) throws GatewayException {
+		return fetchInventorysChangedSince(since, null, 0);
+	}
+	
+	/**
+	 * Same as fetchInventorysChangedSince(since) but streams the changed rows to handler instead of
+	 * collecting them in the ChangeSet, so a full fetch (since null) never holds the whole table in a List
+	 * @param since sync time of the last ChangeSet, or null to fetch every row
+	 * @param handler called once per inserted or updated row (null to collect the rows in the ChangeSet)
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public ChangeSet<Inventory> fetchInventorysChangedSince(Timestamp since, RowHandler<Inventory> handler, int fetchSize) throws GatewayException {
+		ChangeSet<Inventory> changes = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//read the sync time (once the writes in flight have committed) before the rows, so anything committed while reading is picked up by the next sync
+			changes = new ChangeSet<Inventory>(ChangeTracking.fetchSyncTime(conn, dialect, "INVENTORY"), since == null);
+			
+			//last_modified is indexed so a delta is a range scan
+			if(since == null) {
+				st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			} else {
+				st = conn.prepareStatement("select " + InventoryRowMapper.COLUMNS + " from INVENTORY where last_modified >= ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				st.setTimestamp(1, ChangeTracking.withOverlap(since));
+			}
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Inventory invt = mapper.mapRow(rs);
+				if(handler != null)
+					handler.handleRow(invt);
+				else
+					changes.addChanged(invt);
+			}
+			rs.close();
+			rs = null;
+			
+			if(since != null)
+				ChangeTracking.fetchDeletedIds(conn, "INVENTORY", since, changes);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return changes;
+	}
+	
+	/**
+	 * connections are borrowed per call and go back to the shared pool, so there is nothing to close here
+	 * (the pool itself is closed by ConnectionPool.shutdown() when the app quits)
+	 */
+	public void close() {
+		if(DEBUG)
+			System.out.println("Releasing gateway...");
+	}
+	
+	
+	
+}
@@ -0,0 +1,329 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.Inventory;
+
+/**
+ * In-memory implementation of InventoryTableGateway (see MemoryDatabase)
+ * Behaves like InventoryTableGatewayJDBC: generated ids, missing ids ignored on delete,
+ * saves conditional on the record's version, all-or-nothing batches
+ * @author Justin Wilson
+ *
+ */
+public class InventoryTableGatewayMemory implements InventoryTableGateway {
+	private MemoryDatabase db;
+	
+	public InventoryTableGatewayMemory() {
+		db = MemoryDatabase.getInstance();
+	}
+	
+	@Override
+	public Inventory fetchInventory(long id) throws GatewayException {
+		Inventory i = db.inventorys.get(id);
+		if(i == null)
+			throw new GatewayException("Inventory record " + id + " does not exist");
+		return i;
+	}
+
+	@Override
+	public void deleteInventory(long id) throws GatewayException {
+		db.inventorys.delete(id);
+	}
+
+	@Override
+	public long insertInventory(Inventory p) throws GatewayException {
+		return db.inventorys.insert(p);
+	}
+
+	@Override
+	public void saveInventory(Inventory p) throws GatewayException {
+		p.setVersion(db.inventorys.update(p.getId(), p));
+	}
+
+	@Override
+	public List<Inventory> fetchInventorys() throws GatewayException {
+		return db.inventorys.list();
+	}
+
+	@Override
+	public void fetchInventorys(RowHandler<Inventory> handler, int fetchSize) throws GatewayException {
+		db.inventorys.forEach(handler);
+	}
+
+	@Override
+	public List<Inventory> fetchWarehouseInventorys(Long wId) throws GatewayException {
+		return db.inventorys.list(db.inventoryWarehouses.get(wId));
+	}
+
+	@Override
+	public List<Inventory> fetchInventorys(long afterId, int limit) throws GatewayException {
+		return db.inventorys.page(afterId, limit);
+	}
+
+	@Override
+	public List<Inventory> fetchWarehouseInventorys(Long wId, long afterId, int limit) throws GatewayException {
+		return db.inventorys.page(db.inventoryWarehouses.get(wId), afterId, limit);
+	}
+
+	@Override
+	public long countInventorys(Long wId) throws GatewayException {
+		if(wId == null)
+			return db.inventorys.count();
+		return db.inventoryWarehouses.count(wId);
+	}
+
+	@Override
+	public long countPartInventorys(long partId) throws GatewayException {
+		return db.inventoryParts.count(partId);
+	}
+
+	@Override
+	public long fetchInventoryIdAt(long warehouseId, long partId) throws GatewayException {
+		synchronized(db.inventorys) {
+			Inventory row = findPair(warehouseId, partId);
+			return row == null ? Inventory.INVALID_ID : row.getId();
+		}
+	}
+
+	@Override
+	public double sumWarehouseQuantity(long warehouseId, long exceptId) throws GatewayException {
+		synchronized(db.inventorys) {
+			Inventory except = db.inventorys.get(exceptId);
+			double total = totalQuantity(warehouseId);
+			if(except != null && except.getWarehouseId() == warehouseId)
+				total -= except.getQuantity();
+			return total;
+		}
+	}
+
+	@Override
+	public long fetchInventoryIdAfter(Long wId, long afterId, int offset) throws GatewayException {
+		return db.inventorys.idAfter(wId == null ? null : db.inventoryWarehouses.get(wId), afterId, offset);
+	}
+
+	@Override
+	public long[] insertInventorys(List<Inventory> inventorys) throws GatewayException {
+		return db.inventorys.insertAll(inventorys);
+	}
+
+	@Override
+	public void saveInventorys(List<Inventory> inventorys) throws GatewayException {
+		long[] ids = new long[inventorys.size()];
+		for(int i = 0; i < ids.length; i++)
+			ids[i] = inventorys.get(i).getId();
+		List<Integer> failed = db.inventorys.updateAll(ids, inventorys);
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + inventorys.size() + " inventory records could not be saved: Record was changed or deleted by another user", failed);
+		for(Inventory p : inventorys)
+			p.setVersion(p.getVersion() + 1);
+	}
+
+	@Override
+	public void deleteInventorys(long[] ids) throws GatewayException {
+		db.inventorys.deleteAll(ids);
+	}
+
+	@Override
+	public ChangeSet<Inventory> fetchInventorysChangedSince(Timestamp since) throws GatewayException {
+		return db.inventorys.changedSince(since, null);
+	}
+
+	@Override
+	public ChangeSet<Inventory> fetchInventorysChangedSince(Timestamp since, RowHandler<Inventory> handler, int fetchSize) throws GatewayException {
+		return db.inventorys.changedSince(since, handler);
+	}
+
+	@Override
+	public List<Inventory> transferInventory(long partId, long fromWarehouseId, long toWarehouseId, double qty) throws GatewayException {
+		ArrayList<InventoryTransfer> one = new ArrayList<InventoryTransfer>(1);
+		one.add(new InventoryTransfer(partId, fromWarehouseId, toWarehouseId, qty));
+		return transferInventorys(one);
+	}
+
+	/**
+	 * Same rules as InventoryTableGatewayJDBC.transferInventorys (see applyDeltas)
+	 */
+	@Override
+	public List<Inventory> transferInventorys(List<InventoryTransfer> transfers) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = InventoryTransfer.validate(transfers, failed);
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, transfers.size(), "transfers");
+		LinkedHashMap<String, InventoryDelta> deltas = new LinkedHashMap<String, InventoryDelta>();
+		for(int i = 0; i < transfers.size(); i++) {
+			InventoryTransfer t = transfers.get(i);
+			InventoryDelta.add(deltas, t.getFromWarehouseId(), t.getPartId(), -t.getQuantity(), i);
+			InventoryDelta.add(deltas, t.getToWarehouseId(), t.getPartId(), t.getQuantity(), i);
+		}
+		List<InventoryDelta> sorted = InventoryDelta.sorted(deltas.values());
+		synchronized(db.inventorys) {
+			error = applyDeltas(sorted, failed);
+		}
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, transfers.size(), "transfers");
+		ArrayList<Inventory> changed = new ArrayList<Inventory>(sorted.size());
+		for(InventoryDelta d : sorted) {
+			if(d.delta != 0 && d.row != null)
+				changed.add(d.row);
+		}
+		return changed;
+	}
+
+	@Override
+	public Inventory adjustQuantity(long inventoryId, double delta) throws GatewayException {
+		ArrayList<QuantityAdjustment> one = new ArrayList<QuantityAdjustment>(1);
+		one.add(new QuantityAdjustment(inventoryId, delta));
+		return adjustQuantities(one).get(0);
+	}
+
+	@Override
+	public Inventory adjustQuantity(long warehouseId, long partId, double delta) throws GatewayException {
+		ArrayList<QuantityAdjustment> one = new ArrayList<QuantityAdjustment>(1);
+		one.add(new QuantityAdjustment(warehouseId, partId, delta));
+		return adjustQuantities(one).get(0);
+	}
+
+	/**
+	 * Same rules as InventoryTableGatewayJDBC.adjustQuantities (see applyDeltas)
+	 */
+	@Override
+	public List<Inventory> adjustQuantities(List<QuantityAdjustment> adjustments) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = QuantityAdjustment.validate(adjustments, failed);
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, adjustments.size(), "adjustments");
+		InventoryDelta[] deltaOf = new InventoryDelta[adjustments.size()];
+		synchronized(db.inventorys) {
+			LinkedHashMap<String, InventoryDelta> deltas = new LinkedHashMap<String, InventoryDelta>();
+			for(int i = 0; i < adjustments.size(); i++) {
+				QuantityAdjustment a = adjustments.get(i);
+				long wId = a.getWarehouseId();
+				long pId = a.getPartId();
+				if(a.isById()) {
+					Inventory row = db.inventorys.get(a.getInventoryId());
+					if(row == null) {
+						failed.add(i);
+						if(error == null)
+							error = "Inventory record " + a.getInventoryId() + " does not exist";
+						continue;
+					}
+					wId = row.getWarehouseId();
+					pId = row.getPartId();
+				}
+				deltaOf[i] = InventoryDelta.add(deltas, wId, pId, a.getDelta(), i);
+			}
+			if(error == null)
+				error = applyDeltas(InventoryDelta.sorted(deltas.values()), failed);
+		}
+		if(error != null)
+			throw InventoryDelta.failure(error, failed, adjustments.size(), "adjustments");
+		ArrayList<Inventory> ret = new ArrayList<Inventory>(deltaOf.length);
+		for(InventoryDelta d : deltaOf)
+			ret.add(d.row);
+		return ret;
+	}
+
+	/**
+	 * Same checks as InventoryTableGatewayJDBC.applyDeltas, all made before anything is changed;
+	 * the caller's lock on the table stands in for the row locks. Caller must hold the lock on db.inventorys.
+	 * @return error message if anything failed (nothing is changed), else null
+	 */
+	private String applyDeltas(List<InventoryDelta> deltas, List<Integer> failed) throws GatewayException {
+		String error = null;
+		for(long wId : InventoryDelta.receivingWarehouses(deltas)) {
+			if(!db.warehouses.contains(wId)) {
+				InventoryDelta.addGivers(deltas, wId, failed);
+				if(error == null)
+					error = "Warehouse " + wId + " does not exist";
+			}
+		}
+		if(error != null)
+			return error;
+		
+		//current record of each pair (null if none yet) and the receiving warehouses' new totals
+		ArrayList<Inventory> rows = new ArrayList<Inventory>(deltas.size());
+		LinkedHashMap<Long, Double> totals = new LinkedHashMap<Long, Double>();
+		for(InventoryDelta d : deltas) {
+			Inventory row = findPair(d.warehouseId, d.partId);
+			rows.add(row);
+			if(d.delta < 0 && (row == null || row.getQuantity() + d.delta < 0)) {
+				failed.addAll(d.takers);
+				if(error == null)
+					error = d.shortfall();
+			} else if(d.delta > 0 && !totals.containsKey(d.warehouseId)) {
+				totals.put(d.warehouseId, totalQuantity(d.warehouseId));
+			}
+		}
+		for(InventoryDelta d : deltas) {
+			if(totals.containsKey(d.warehouseId))
+				totals.put(d.warehouseId, totals.get(d.warehouseId) + d.delta);
+		}
+		for(Map.Entry<Long, Double> e : totals.entrySet()) {
+			long cap = db.warehouses.get(e.getKey()).getStorageCapacity();
+			if(e.getValue() > cap) {
+				InventoryDelta.addGivers(deltas, e.getKey(), failed);
+				if(error == null)
+					error = InventoryDelta.overCapacity(e.getKey(), cap, e.getValue());
+			}
+		}
+		if(error != null)
+			return error;
+		
+		for(int i = 0; i < deltas.size(); i++) {
+			InventoryDelta d = deltas.get(i);
+			Inventory row = rows.get(i);
+			if(d.delta == 0) {
+				d.row = row;
+				continue;
+			}
+			long id;
+			if(row == null) {
+				row = new Inventory(d.warehouseId, d.partId, 0);
+				row.setQuantity(d.delta);
+				id = db.inventorys.insert(row);
+			} else {
+				id = row.getId();
+				row.setQuantity(row.getQuantity() + d.delta);
+				db.inventorys.update(id, row);
+			}
+			d.row = db.inventorys.get(id);
+		}
+		return null;
+	}
+
+	/**
+	 * @return a copy of the warehouse's record of the part, or null if there is none
+	 */
+	private Inventory findPair(long warehouseId, long partId) {
+		//walk the shorter of the two index entries
+		boolean byPart = db.inventoryParts.count(partId) < db.inventoryWarehouses.count(warehouseId);
+		for(long id : byPart ? db.inventoryParts.get(partId) : db.inventoryWarehouses.get(warehouseId)) {
+			Inventory row = db.inventorys.get(id);
+			if(row != null && row.getWarehouseId() == warehouseId && row.getPartId() == partId)
+				return row;
+		}
+		return null;
+	}
+
+	private double totalQuantity(long warehouseId) {
+		double total = 0;
+		for(long id : db.inventoryWarehouses.get(warehouseId)) {
+			Inventory row = db.inventorys.get(id);
+			if(row != null)
+				total += row.getQuantity();
+		}
+		return total;
+	}
+
+	/**
+	 * nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
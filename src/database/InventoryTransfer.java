@@ -0,0 +1,68 @@
+package database;
+
+import java.util.List;
+
+/**
+ * A quantity of one part to move from one warehouse to another (see InventoryTableGateway.transferInventorys)
+ * @author Justin Wilson
+ *
+ */
+public class InventoryTransfer {
+	private long partId;
+	private long fromWarehouseId;
+	private long toWarehouseId;
+	private double quantity;
+
+	public InventoryTransfer(long partId, long fromWarehouseId, long toWarehouseId, double quantity) {
+		this.partId = partId;
+		this.fromWarehouseId = fromWarehouseId;
+		this.toWarehouseId = toWarehouseId;
+		this.quantity = quantity;
+	}
+
+	public long getPartId() {
+		return partId;
+	}
+
+	public long getFromWarehouseId() {
+		return fromWarehouseId;
+	}
+
+	public long getToWarehouseId() {
+		return toWarehouseId;
+	}
+
+	public double getQuantity() {
+		return quantity;
+	}
+
+	/**
+	 * checks what can be checked without the db: ids set, different warehouses, quantity above 0
+	 * @param failed positions of bad transfers are added here
+	 * @return error message for the first bad transfer, or null if all are fine
+	 */
+	static String validate(List<InventoryTransfer> transfers, List<Integer> failed) {
+		String error = null;
+		for(int i = 0; i < transfers.size(); i++) {
+			InventoryTransfer t = transfers.get(i);
+			String e = null;
+			if(t.partId <= 0 || t.fromWarehouseId <= 0 || t.toWarehouseId <= 0)
+				e = "Part and warehouses must be saved records";
+			else if(t.fromWarehouseId == t.toWarehouseId)
+				e = "Cannot transfer part " + t.partId + " to the warehouse it is in";
+			else if(!(t.quantity > 0))
+				e = "Quantity to transfer must be more than 0";
+			if(e != null) {
+				failed.add(i);
+				if(error == null)
+					error = e;
+			}
+		}
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return InventoryDelta.format(quantity) + " of part " + partId + " from warehouse " + fromWarehouseId + " to warehouse " + toWarehouseId;
+	}
+}
@@ -0,0 +1,83 @@
+package database;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * JDBC shared by the gateways' all-or-nothing batches: the batch runs inside one transaction
+ * (autocommit off), execute() records which rows failed, and endTransaction() rolls back unless committed
+ * @author Justin Wilson
+ *
+ */
+class JdbcBatch {
+	private JdbcBatch() {
+	}
+
+	/**
+	 * runs the statement's batch and records which rows failed
+	 * @param st statement with rows added to its batch
+	 * @param offset position of the batch's first row in the caller's list
+	 * @param mustUpdate if true, a row that updates nothing (record was deleted or changed since it was read) counts as failed
+	 * @param failed failed row positions are added here
+	 * @return error message if any row failed, else null
+	 * @throws SQLException
+	 */
+	static String execute(PreparedStatement st, int offset, boolean mustUpdate, List<Integer> failed) throws SQLException {
+		int[] counts;
+		try {
+			counts = st.executeBatch();
+		} catch (BatchUpdateException e) {
+			int before = failed.size();
+			counts = e.getUpdateCounts();
+			if(counts != null) {
+				for(int i = 0; i < counts.length; i++) {
+					if(counts[i] == Statement.EXECUTE_FAILED)
+						failed.add(offset + i);
+				}
+				//driver stopped at the first error: that row is the one after the last count
+				if(failed.size() == before)
+					failed.add(offset + counts.length);
+			} else {
+				failed.add(offset);
+			}
+			return e.getMessage();
+		}
+		String error = null;
+		if(mustUpdate) {
+			for(int i = 0; i < counts.length; i++) {
+				if(counts[i] == 0) {
+					failed.add(offset + i);
+					error = "Record was changed or deleted by another user";
+				}
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * rolls back if the tx (a batch or a single write, see ChangeTracking.beginChange) was not committed, then cleans up
+	 */
+	static void endTransaction(Connection conn, PreparedStatement st, ResultSet rs, boolean committed) throws GatewayException {
+		try {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+			if(conn != null) {
+				//roll the tx back (setAutoCommit(true) would otherwise commit the partial batch)
+				if(!committed)
+					conn.rollback();
+				//turn autocommit on again regardless if commit or rollback
+				conn.setAutoCommit(true);
+				conn.close();
+			}
+		} catch (SQLException e) {
+			throw new GatewayException("SQL Error: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package database;
+
+/**
+ * Interface for Edit Lease Gateways (EDIT_LEASE in the db)
+ * An edit lease marks a record (table name + row id) as open for editing by one holder until it expires.
+ * Expiry uses the database's clock, so the clients' clocks don't need to agree.
+ * @author Justin Wilson
+ *
+ */
+public interface LeaseGateway {
+	/**
+	 * takes the lease on a record if nobody holds it, its lease has expired or holder already has it
+	 * (which pushes the expiry back)
+	 * @param token identifies this taking of the lease (see releaseLease); replaces the one it had if holder already has it
+	 * @param ttlSeconds lease runs out this many seconds from now unless renewed
+	 * @return true if holder now has the lease, false if someone else does
+	 */
+	public abstract boolean acquireLease(String table, long rowId, String holder, long token, int ttlSeconds) throws GatewayException;
+
+	/**
+	 * pushes back the expiry of every lease holder has (one statement however many records are open)
+	 * @return number of leases renewed
+	 */
+	public abstract int renewLeases(String holder, int ttlSeconds) throws GatewayException;
+
+	/**
+	 * gives up the lease on a record (does nothing if holder doesn't have it, or has taken it again since under another token,
+	 * so a late release can't delete the lease of a view opened after it)
+	 */
+	public abstract void releaseLease(String table, long rowId, String holder, long token) throws GatewayException;
+
+	/**
+	 * gives up every lease holder has
+	 * @return number of leases released
+	 */
+	public abstract int releaseLeases(String holder) throws GatewayException;
+
+	/**
+	 * deletes at most batchSize expired leases, soonest expired first
+	 * @return number deleted (batchSize means there may be more)
+	 */
+	public abstract int expireLeases(int batchSize) throws GatewayException;
+}
@@ -0,0 +1,125 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * JDBC implementation of LeaseGateway (MySQL or H2; engine-specific SQL comes from the pool's SqlDialect)
+ * Every call is a single statement on the EDIT_LEASE table's primary key, holder index or expires_at index,
+ * so nothing scans PART or holds a row lock between calls.
+ * @author Justin Wilson
+ *
+ */
+public class LeaseGatewayJDBC implements LeaseGateway {
+	/**
+	 * shared pool that db connections are borrowed from for each call
+	 */
+	private ConnectionPool pool;
+	
+	/**
+	 * SQL differences of the pool's database
+	 */
+	private SqlDialect dialect;
+	
+	/**
+	 * Constructor: uses the shared connection pool
+	 * @throws GatewayException
+	 */
+	public LeaseGatewayJDBC() throws GatewayException {
+		pool = ConnectionPool.getInstance();
+		dialect = pool.getDialect();
+	}
+	
+	/**
+	 * Takes over the row if it is ours or expired, otherwise inserts it; the primary key turns away
+	 * an insert racing someone else's, so no select ... for update is needed
+	 */
+	@Override
+	public boolean acquireLease(String table, long rowId, String holder, long token, int ttlSeconds) throws GatewayException {
+		try {
+			int updated = executeUpdate("update EDIT_LEASE set holder = ?, token = ?, expires_at = " + dialect.secondsFromNow()
+					+ " where table_name = ? and row_id = ? and (holder = ? or expires_at < current_timestamp(3)) ",
+					holder, token, ttlSeconds, table, rowId, holder);
+			if(updated > 0)
+				return true;
+			try {
+				executeUpdate("insert into EDIT_LEASE (table_name, row_id, holder, token, expires_at) values (?, ?, ?, ?, " + dialect.secondsFromNow() + ") ",
+						table, rowId, holder, token, ttlSeconds);
+				return true;
+			} catch (SQLException e) {
+				//integrity constraint violation (SQLState class 23): someone else has the lease
+				if(e.getSQLState() != null && e.getSQLState().startsWith("23"))
+					return false;
+				throw e;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		}
+	}
+	
+	@Override
+	public int renewLeases(String holder, int ttlSeconds) throws GatewayException {
+		try {
+			return executeUpdate("update EDIT_LEASE set expires_at = " + dialect.secondsFromNow() + " where holder = ? ", ttlSeconds, holder);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		}
+	}
+	
+	@Override
+	public void releaseLease(String table, long rowId, String holder, long token) throws GatewayException {
+		try {
+			executeUpdate("delete from EDIT_LEASE where table_name = ? and row_id = ? and holder = ? and token = ? ", table, rowId, holder, token);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		}
+	}
+	
+	@Override
+	public int releaseLeases(String holder) throws GatewayException {
+		try {
+			return executeUpdate("delete from EDIT_LEASE where holder = ? ", holder);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		}
+	}
+	
+	@Override
+	public int expireLeases(int batchSize) throws GatewayException {
+		try {
+			return executeUpdate(dialect.expireLeasesSql(), batchSize);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * runs one insert/update/delete (autocommit) with the given parameters (String, Integer or Long)
+	 * @return rows changed
+	 * @throws SQLException
+	 */
+	private int executeUpdate(String sql, Object... params) throws SQLException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			st = conn.prepareStatement(sql);
+			for(int i = 0; i < params.length; i++) {
+				if(params[i] instanceof String)
+					st.setString(i + 1, (String) params[i]);
+				else if(params[i] instanceof Integer)
+					st.setInt(i + 1, (Integer) params[i]);
+				else
+					st.setLong(i + 1, (Long) params[i]);
+			}
+			return st.executeUpdate();
+		} finally {
+			//clean up
+			if(st != null)
+				st.close();
+			if(conn != null)
+				conn.close();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package database;
+
+import java.util.Iterator;
+
+/**
+ * In-memory implementation of LeaseGateway (see MemoryDatabase)
+ * Uses this JVM's clock in place of the database's
+ * @author Justin Wilson
+ *
+ */
+public class LeaseGatewayMemory implements LeaseGateway {
+	private MemoryDatabase db;
+	
+	public LeaseGatewayMemory() {
+		db = MemoryDatabase.getInstance();
+	}
+
+	private static String key(String table, long rowId) {
+		return table + "/" + rowId;
+	}
+
+	@Override
+	public boolean acquireLease(String table, long rowId, String holder, long token, int ttlSeconds) throws GatewayException {
+		long now = System.currentTimeMillis();
+		synchronized(db.leases) {
+			MemoryDatabase.EditLease lease = db.leases.get(key(table, rowId));
+			if(lease == null) {
+				lease = new MemoryDatabase.EditLease(table, rowId, holder, token, now + ttlSeconds * 1000L);
+				db.leases.put(key(table, rowId), lease);
+				db.leaseExpiry.add(lease);
+				return true;
+			}
+			//same rule as LeaseGatewayJDBC's conditional update: ours or expired
+			if(!lease.holder.equals(holder) && lease.expiresAt >= now)
+				return false;
+			db.leaseExpiry.remove(lease);
+			lease.holder = holder;
+			lease.token = token;
+			lease.expiresAt = now + ttlSeconds * 1000L;
+			db.leaseExpiry.add(lease);
+			return true;
+		}
+	}
+
+	/**
+	 * there is no holder index: a scan of the leases, of which there are only as many as open detail views
+	 */
+	@Override
+	public int renewLeases(String holder, int ttlSeconds) throws GatewayException {
+		long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000L;
+		int renewed = 0;
+		synchronized(db.leases) {
+			for(MemoryDatabase.EditLease lease : db.leases.values()) {
+				if(lease.holder.equals(holder)) {
+					db.leaseExpiry.remove(lease);
+					lease.expiresAt = expiresAt;
+					db.leaseExpiry.add(lease);
+					renewed++;
+				}
+			}
+		}
+		return renewed;
+	}
+
+	@Override
+	public void releaseLease(String table, long rowId, String holder, long token) throws GatewayException {
+		synchronized(db.leases) {
+			MemoryDatabase.EditLease lease = db.leases.get(key(table, rowId));
+			if(lease != null && lease.holder.equals(holder) && lease.token == token) {
+				db.leases.remove(key(table, rowId));
+				db.leaseExpiry.remove(lease);
+			}
+		}
+	}
+
+	@Override
+	public int releaseLeases(String holder) throws GatewayException {
+		int released = 0;
+		synchronized(db.leases) {
+			Iterator<MemoryDatabase.EditLease> it = db.leases.values().iterator();
+			while(it.hasNext()) {
+				MemoryDatabase.EditLease lease = it.next();
+				if(lease.holder.equals(holder)) {
+					it.remove();
+					db.leaseExpiry.remove(lease);
+					released++;
+				}
+			}
+		}
+		return released;
+	}
+
+	@Override
+	public int expireLeases(int batchSize) throws GatewayException {
+		long now = System.currentTimeMillis();
+		int expired = 0;
+		synchronized(db.leases) {
+			Iterator<MemoryDatabase.EditLease> it = db.leaseExpiry.iterator();
+			while(expired < batchSize && it.hasNext()) {
+				MemoryDatabase.EditLease lease = it.next();
+				if(lease.expiresAt >= now)
+					break;
+				it.remove();
+				db.leases.remove(key(lease.table, lease.rowId));
+				expired++;
+			}
+		}
+		return expired;
+	}
+}
@@ -0,0 +1,259 @@
+package database;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.TreeSet;
+
+import models.Inventory;
+import models.Part;
+import models.User;
+import models.Warehouse;
+
+/**
+ * In-memory stand-in for the MySQL database, shared by all the *TableGatewayMemory gateways
+ * Used for load testing the models and views without MySQL and as a local backend for demos
+ * (DB_BACKEND=memory in db.properties). Nothing is saved when the app quits.
+ * @author Justin Wilson
+ *
+ */
+public class MemoryDatabase {
+	private static MemoryDatabase instance = null;
+
+	/**
+	 * tables
+	 */
+	MemoryTable<Warehouse> warehouses;
+	MemoryTable<Part> parts;
+	MemoryTable<Inventory> inventorys;
+	MemoryTable<User> users;
+
+	/**
+	 * secondary indexes
+	 */
+	MemoryTable.Index<Warehouse> warehouseNames;
+	MemoryTable.Index<Inventory> inventoryWarehouses;
+	MemoryTable.Index<Inventory> inventoryParts;
+	MemoryTable.Index<User> userNames;
+
+	/**
+	 * EDIT_LEASE: "table/row id" -> lease, and the same leases ordered by expiry (the expires_at index)
+	 * guarded by leases' lock
+	 */
+	HashMap<String, EditLease> leases;
+	TreeSet<EditLease> leaseExpiry;
+
+	/**
+	 * who has a record open for editing and until when (System.currentTimeMillis() time)
+	 * expiresAt must only change while the lease is out of leaseExpiry
+	 */
+	static class EditLease {
+		final String table;
+		final long rowId;
+		String holder;
+		long token;
+		long expiresAt;
+
+		EditLease(String table, long rowId, String holder, long token, long expiresAt) {
+			this.table = table;
+			this.rowId = rowId;
+			this.holder = holder;
+			this.token = token;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	public MemoryDatabase() {
+		warehouses = new MemoryTable<Warehouse>("WAREHOUSE", new MemoryTable.Copier<Warehouse>() {
+			@Override
+			public Warehouse copy(Warehouse row, long id) {
+				Warehouse w = new Warehouse();
+				w.setId(id);
+				w.refreshFrom(row);
+				return w;
+			}
+		}, new MemoryTable.Versioning<Warehouse>() {
+			@Override
+			public long getVersion(Warehouse row) {
+				return row.getVersion();
+			}
+
+			@Override
+			public void setVersion(Warehouse row, long version) {
+				row.setVersion(version);
+			}
+		});
+		parts = new MemoryTable<Part>("PART", new MemoryTable.Copier<Part>() {
+			@Override
+			public Part copy(Part row, long id) {
+				Part p = new Part();
+				p.setId(id);
+				p.refreshFrom(row);
+				return p;
+			}
+		}, new MemoryTable.Versioning<Part>() {
+			@Override
+			public long getVersion(Part row) {
+				return row.getVersion();
+			}
+
+			@Override
+			public void setVersion(Part row, long version) {
+				row.setVersion(version);
+			}
+		});
+		inventorys = new MemoryTable<Inventory>("INVENTORY", new MemoryTable.Copier<Inventory>() {
+			@Override
+			public Inventory copy(Inventory row, long id) {
+				Inventory i = new Inventory();
+				i.setId(id);
+				i.refreshFrom(row);
+				return i;
+			}
+		}, new MemoryTable.Versioning<Inventory>() {
+			@Override
+			public long getVersion(Inventory row) {
+				return row.getVersion();
+			}
+
+			@Override
+			public void setVersion(Inventory row, long version) {
+				row.setVersion(version);
+			}
+		});
+		users = new MemoryTable<User>("USER", new MemoryTable.Copier<User>() {
+			@Override
+			public User copy(User row, long id) {
+				User u = new User(id, row.getUser(), row.getPassword(), row.getFullname(), row.getAdd(), row.getEdit(), row.getDelete());
+				u.setVersion(row.getVersion());
+				return u;
+			}
+		}, new MemoryTable.Versioning<User>() {
+			@Override
+			public long getVersion(User row) {
+				return row.getVersion();
+			}
+
+			@Override
+			public void setVersion(User row, long version) {
+				row.setVersion(version);
+			}
+		});
+
+		//MySQL compares names case-insensitively (default collation) so these indexes do too
+		warehouseNames = warehouses.addIndex(new MemoryTable.KeyFunction<Warehouse>() {
+			@Override
+			public Object key(Warehouse row) {
+				return nameKey(row.getWareHouseName());
+			}
+		});
+		userNames = users.addIndex(new MemoryTable.KeyFunction<User>() {
+			@Override
+			public Object key(User row) {
+				return nameKey(row.getUser());
+			}
+		});
+		inventoryWarehouses = inventorys.addIndex(new MemoryTable.KeyFunction<Inventory>() {
+			@Override
+			public Object key(Inventory row) {
+				return row.getWarehouseId();
+			}
+		});
+		inventoryParts = inventorys.addIndex(new MemoryTable.KeyFunction<Inventory>() {
+			@Override
+			public Object key(Inventory row) {
+				return row.getPartId();
+			}
+		});
+
+		leases = new HashMap<String, EditLease>();
+		leaseExpiry = new TreeSet<EditLease>(new Comparator<EditLease>() {
+			@Override
+			public int compare(EditLease a, EditLease b) {
+				if(a.expiresAt != b.expiresAt)
+					return a.expiresAt < b.expiresAt ? -1 : 1;
+				int c = a.table.compareTo(b.table);
+				if(c != 0)
+					return c;
+				return Long.compare(a.rowId, b.rowId);
+			}
+		});
+	}
+
+	/**
+	 * returns the application-wide in-memory database, creating it (with the demo users) the first time
+	 * @return
+	 */
+	public static synchronized MemoryDatabase getInstance() {
+		if(instance == null) {
+			instance = new MemoryDatabase();
+			try {
+				instance.addDemoUsers();
+				DatabaseConfig config = DatabaseConfig.getInstance();
+				int sampleInventory = config.getInt("MEMORY_SAMPLE_INVENTORY", 0);
+				if(sampleInventory > 0)
+					instance.populate(config.getInt("MEMORY_SAMPLE_WAREHOUSES", 50), config.getInt("MEMORY_SAMPLE_PARTS", 1000), sampleInventory);
+			} catch (GatewayException e) {
+				e.printStackTrace();
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * throws away the application-wide in-memory database (the next getInstance() starts empty again)
+	 */
+	public static synchronized void reset() {
+		instance = null;
+	}
+
+	/**
+	 * adds the users named on the login screen
+	 * @throws GatewayException
+	 */
+	public void addDemoUsers() throws GatewayException {
+		users.insert(new User("Bob", "bob", "Bob", "yes", "yes", "yes"));
+		users.insert(new User("Sue", "sue", "Sue", "yes", "yes", "no"));
+		users.insert(new User("Ragnar", "ragnar", "Ragnar", "no", "no", "no"));
+	}
+
+	/**
+	 * fills the tables with synthetic rows for load testing
+	 * each inventory record is a distinct warehouse/part pair
+	 * @param warehouseCount
+	 * @param partCount
+	 * @param inventoryCount at most warehouseCount * partCount
+	 * @throws GatewayException
+	 */
+	public void populate(int warehouseCount, int partCount, long inventoryCount) throws GatewayException {
+		long[] wIds = new long[warehouseCount];
+		for(int i = 0; i < warehouseCount; i++)
+			wIds[i] = warehouses.insert(new Warehouse("Warehouse " + (i + 1), (i + 1) + " Main St", "San Antonio", "TX", "78249", 1000000000L));
+		long[] pIds = new long[partCount];
+		for(int i = 0; i < partCount; i++)
+			pIds[i] = parts.insert(new Part("P" + (i + 1), "Part " + (i + 1), i % 2 == 0 ? "Pieces" : "Linear Ft.", "V" + (i + 1), "Vendor " + (i % 100)));
+
+		Random random = new Random(4743);
+		inventoryCount = Math.min(inventoryCount, (long) warehouseCount * partCount);
+		for(long n = 0; n < inventoryCount; n++) {
+			//walk the warehouse/part grid so no pair is repeated
+			long w = wIds[(int) (n % warehouseCount)];
+			long p = pIds[(int) (n / warehouseCount)];
+			inventorys.insert(new Inventory(w, p, random.nextInt(1000)));
+		}
+	}
+
+	/**
+	 * key used for case-insensitive name lookups (MySQL also ignores trailing spaces)
+	 * @param name
+	 * @return
+	 */
+	static String nameKey(String name) {
+		if(name == null)
+			return null;
+		int end = name.length();
+		while(end > 0 && name.charAt(end - 1) == ' ')
+			end--;
+		return name.substring(0, end).toLowerCase();
+	}
+}
@@ -0,0 +1,431 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One table of the MemoryDatabase: rows by primary key (in id order) plus any secondary indexes
+ *
+ * Reads go straight to the concurrent maps without locking. Writes are serialized on the table
+ * so a row, its index entries and its change stamp always change together.
+ * Rows are kept as private copies and copied again on the way out, the same as rows read from MySQL.
+ * Each row has a version number; updates are conditional on it, like the JDBC gateways' saves.
+ * @author Justin Wilson
+ *
+ * @param <T> model type of each row
+ */
+class MemoryTable<T> {
+	/**
+	 * makes a copy of a row with the given id
+	 */
+	interface Copier<T> {
+		public abstract T copy(T row, long id);
+	}
+
+	/**
+	 * reads and sets a row's version number (optimistic concurrency, see update)
+	 */
+	interface Versioning<T> {
+		public abstract long getVersion(T row);
+		public abstract void setVersion(T row, long version);
+	}
+
+	/**
+	 * value a secondary index groups rows by (null = row is not indexed)
+	 */
+	interface KeyFunction<T> {
+		public abstract Object key(T row);
+	}
+
+	/**
+	 * Secondary index: key -> ids of the rows with that key, in id order
+	 */
+	static class Index<T> {
+		private KeyFunction<T> keyFunction;
+		private ConcurrentHashMap<Object, ConcurrentSkipListSet<Long>> ids;
+		private ConcurrentHashMap<Object, AtomicLong> counts;
+
+		Index(KeyFunction<T> keyFunction) {
+			this.keyFunction = keyFunction;
+			ids = new ConcurrentHashMap<Object, ConcurrentSkipListSet<Long>>();
+			counts = new ConcurrentHashMap<Object, AtomicLong>();
+		}
+
+		private void add(T row, long id) {
+			Object key = keyFunction.key(row);
+			if(key == null)
+				return;
+			ConcurrentSkipListSet<Long> set = ids.get(key);
+			if(set == null) {
+				set = new ConcurrentSkipListSet<Long>();
+				ids.put(key, set);
+				counts.put(key, new AtomicLong());
+			}
+			set.add(id);
+			counts.get(key).incrementAndGet();
+		}
+
+		private void remove(T row, long id) {
+			Object key = keyFunction.key(row);
+			if(key == null)
+				return;
+			ConcurrentSkipListSet<Long> set = ids.get(key);
+			if(set == null || !set.remove(id))
+				return;
+			if(counts.get(key).decrementAndGet() == 0) {
+				ids.remove(key);
+				counts.remove(key);
+			}
+		}
+
+		/**
+		 * @return ids of the rows with this key (empty if none); a live view, not a copy
+		 */
+		NavigableSet<Long> get(Object key) {
+			ConcurrentSkipListSet<Long> set = ids.get(key);
+			if(set == null)
+				return Collections.emptyNavigableSet();
+			return set;
+		}
+
+		long count(Object key) {
+			AtomicLong count = counts.get(key);
+			return count == null ? 0 : count.get();
+		}
+	}
+
+	/**
+	 * last change stamp handed out (shared by all tables so stamps are comparable)
+	 */
+	private static long lastStamp = 0;
+
+	private String name;
+	private Copier<T> copier;
+	private Versioning<T> versioning;
+
+	/**
+	 * primary key index: id -> row
+	 */
+	private ConcurrentSkipListMap<Long, T> rows;
+
+	/**
+	 * change tracking: id -> stamp of the row's last insert/update, and stamp -> id for range scans
+	 */
+	private ConcurrentHashMap<Long, Long> rowStamps;
+	private ConcurrentSkipListMap<Long, Long> changes;
+
+	/**
+	 * delete stamp -> id of the deleted row
+	 */
+	private ConcurrentSkipListMap<Long, Long> tombstones;
+
+	private AtomicLong rowCount;
+
+	/**
+	 * last generated id (auto increment)
+	 */
+	private long lastId;
+
+	private ArrayList<Index<T>> indexes;
+
+	MemoryTable(String name, Copier<T> copier, Versioning<T> versioning) {
+		this.name = name;
+		this.copier = copier;
+		this.versioning = versioning;
+		rows = new ConcurrentSkipListMap<Long, T>();
+		rowStamps = new ConcurrentHashMap<Long, Long>();
+		changes = new ConcurrentSkipListMap<Long, Long>();
+		tombstones = new ConcurrentSkipListMap<Long, Long>();
+		rowCount = new AtomicLong();
+		lastId = 0;
+		indexes = new ArrayList<Index<T>>();
+	}
+
+	/**
+	 * adds a secondary index (must be called before any rows are added)
+	 * @param keyFunction
+	 * @return
+	 */
+	Index<T> addIndex(KeyFunction<T> keyFunction) {
+		Index<T> index = new Index<T>(keyFunction);
+		indexes.add(index);
+		return index;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return a copy of the row, or null if there is no row with that id
+	 */
+	T get(long id) {
+		T row = rows.get(id);
+		return row == null ? null : copier.copy(row, id);
+	}
+
+	boolean contains(long id) {
+		return rows.containsKey(id);
+	}
+
+	long count() {
+		return rowCount.get();
+	}
+
+	/**
+	 * inserts a copy of row with the next generated id (at version 0)
+	 * @return the new id
+	 */
+	synchronized long insert(T row) throws GatewayException {
+		long id = lastId + 1;
+		T copy = copy(row, id);
+		versioning.setVersion(copy, 0);
+		store(id, copy);
+		lastId = id;
+		return id;
+	}
+
+	/**
+	 * inserts copies of all rows; all or nothing
+	 * @return new ids in the same order as rows
+	 */
+	synchronized long[] insertAll(List<T> newRows) throws GatewayException {
+		//copy first so a bad row fails the batch before anything is stored
+		ArrayList<T> copies = new ArrayList<T>(newRows.size());
+		for(int i = 0; i < newRows.size(); i++) {
+			T copy = copy(newRows.get(i), lastId + 1 + i);
+			versioning.setVersion(copy, 0);
+			copies.add(copy);
+		}
+		long[] ids = new long[copies.size()];
+		for(int i = 0; i < copies.size(); i++) {
+			ids[i] = lastId + 1 + i;
+			store(ids[i], copies.get(i));
+		}
+		lastId += copies.size();
+		return ids;
+	}
+
+	/**
+	 * replaces the row with a copy of row if the row is still at row's version (same as the JDBC gateways'
+	 * update ... where id = ? and version = ?)
+	 * @return the row's new version
+	 * @throws ConflictException if the row was changed or deleted since row was read (nothing is changed)
+	 */
+	synchronized long update(long id, T row) throws GatewayException {
+		T stored = rows.get(id);
+		if(stored == null)
+			throw new ConflictException(name + " record " + id + " was deleted by another user", null);
+		long version = versioning.getVersion(stored);
+		if(version != versioning.getVersion(row))
+			throw new ConflictException(name + " record " + id + " was changed by another user", copier.copy(stored, id));
+		T copy = copy(row, id);
+		versioning.setVersion(copy, version + 1);
+		store(id, copy);
+		return version + 1;
+	}
+
+	/**
+	 * replaces every row given if each is still at its given version; all or nothing
+	 * (the stored rows' versions go up by one; the caller's rows are left as they are)
+	 * @param ids ids of the rows, in the same order as newRows
+	 * @return positions (in newRows) of rows that no longer exist or were changed since they were read;
+	 * if not empty nothing was changed
+	 */
+	synchronized List<Integer> updateAll(long[] ids, List<T> newRows) throws GatewayException {
+		ArrayList<Integer> stale = new ArrayList<Integer>();
+		ArrayList<T> copies = new ArrayList<T>(newRows.size());
+		for(int i = 0; i < newRows.size(); i++) {
+			T stored = rows.get(ids[i]);
+			if(stored == null || versioning.getVersion(stored) != versioning.getVersion(newRows.get(i))) {
+				stale.add(i);
+			} else {
+				T copy = copy(newRows.get(i), ids[i]);
+				versioning.setVersion(copy, versioning.getVersion(stored) + 1);
+				copies.add(copy);
+			}
+		}
+		if(!stale.isEmpty())
+			return stale;
+		for(int i = 0; i < copies.size(); i++)
+			store(ids[i], copies.get(i));
+		return stale;
+	}
+
+	/**
+	 * deletes the row (no error if it does not exist) and leaves a tombstone for change tracking
+	 * @return true if a row was deleted
+	 */
+	synchronized boolean delete(long id) {
+		T old = rows.remove(id);
+		if(old == null)
+			return false;
+		for(Index<T> index : indexes)
+			index.remove(old, id);
+		Long stamp = rowStamps.remove(id);
+		if(stamp != null)
+			changes.remove(stamp);
+		tombstones.put(nextStamp(), id);
+		rowCount.decrementAndGet();
+		return true;
+	}
+
+	synchronized void deleteAll(long[] ids) {
+		for(long id : ids)
+			delete(id);
+	}
+
+	/**
+	 * streams copies of every row, in id order, to handler
+	 */
+	void forEach(RowHandler<T> handler) throws GatewayException {
+		for(Map.Entry<Long, T> e : rows.entrySet())
+			handler.handleRow(copier.copy(e.getValue(), e.getKey()));
+	}
+
+	/**
+	 * @return copies of every row in id order
+	 */
+	List<T> list() {
+		ArrayList<T> ret = new ArrayList<T>();
+		for(Map.Entry<Long, T> e : rows.entrySet())
+			ret.add(copier.copy(e.getValue(), e.getKey()));
+		return ret;
+	}
+
+	/**
+	 * @return copies of the rows whose ids are in ids (e.g., from a secondary index), in id order
+	 */
+	List<T> list(Iterable<Long> ids) {
+		ArrayList<T> ret = new ArrayList<T>();
+		for(Long id : ids) {
+			T row = get(id);
+			if(row != null)
+				ret.add(row);
+		}
+		return ret;
+	}
+
+	/**
+	 * keyset page of the whole table
+	 * @return copies of up to limit rows with id > afterId, in id order
+	 */
+	List<T> page(long afterId, int limit) {
+		ArrayList<T> ret = new ArrayList<T>();
+		Iterator<Map.Entry<Long, T>> it = rows.tailMap(afterId, false).entrySet().iterator();
+		while(ret.size() < limit && it.hasNext()) {
+			Map.Entry<Long, T> e = it.next();
+			ret.add(copier.copy(e.getValue(), e.getKey()));
+		}
+		return ret;
+	}
+
+	/**
+	 * keyset page of the rows whose ids are in ids (e.g., from a secondary index)
+	 * @return copies of up to limit rows with id > afterId, in id order
+	 */
+	List<T> page(NavigableSet<Long> ids, long afterId, int limit) {
+		ArrayList<T> ret = new ArrayList<T>();
+		Iterator<Long> it = ids.tailSet(afterId, false).iterator();
+		while(ret.size() < limit && it.hasNext()) {
+			T row = get(it.next());
+			if(row != null)
+				ret.add(row);
+		}
+		return ret;
+	}
+
+	/**
+	 * @param ids ids to step through (the whole table if null)
+	 * @return the id offset positions past afterId, or 0 if there are not that many
+	 */
+	long idAfter(NavigableSet<Long> ids, long afterId, int offset) {
+		NavigableSet<Long> tail = ids == null ? rows.navigableKeySet().tailSet(afterId, false) : ids.tailSet(afterId, false);
+		Iterator<Long> it = tail.iterator();
+		for(int i = 0; i < offset && it.hasNext(); i++)
+			it.next();
+		return it.hasNext() ? it.next() : 0;
+	}
+
+	/**
+	 * same contract as the MySQL fetch...ChangedSince methods
+	 * @param since sync time of the last ChangeSet, or null for every row
+	 * @param handler gets each changed row (null to collect them in the ChangeSet)
+	 */
+	ChangeSet<T> changedSince(Timestamp since, RowHandler<T> handler) throws GatewayException {
+		//read the time while no write is half done (writes hold the table lock), so every row stamped before it is in place
+		//and every later write gets a later stamp (see nextStamp)
+		Timestamp syncTime;
+		synchronized(this) {
+			syncTime = new Timestamp(System.currentTimeMillis());
+		}
+		ChangeSet<T> changeSet = new ChangeSet<T>(syncTime, since == null);
+		if(since == null) {
+			for(Map.Entry<Long, T> e : rows.entrySet())
+				addChanged(changeSet, handler, copier.copy(e.getValue(), e.getKey()));
+			return changeSet;
+		}
+		long from = ChangeTracking.withOverlap(since).getTime() * 1000;
+		for(Long id : changes.tailMap(from).values()) {
+			T row = get(id);
+			if(row != null)
+				addChanged(changeSet, handler, row);
+		}
+		for(Long id : tombstones.tailMap(from).values())
+			changeSet.addDeletedId(id);
+		return changeSet;
+	}
+
+	private void addChanged(ChangeSet<T> changeSet, RowHandler<T> handler, T row) throws GatewayException {
+		if(handler != null)
+			handler.handleRow(row);
+		else
+			changeSet.addChanged(row);
+	}
+
+	/**
+	 * puts a row (already copied) in place of the old one, keeping indexes and change stamps in step
+	 * caller holds the table lock
+	 */
+	private void store(long id, T row) {
+		T old = rows.put(id, row);
+		if(old != null) {
+			for(Index<T> index : indexes)
+				index.remove(old, id);
+		} else {
+			rowCount.incrementAndGet();
+		}
+		for(Index<T> index : indexes)
+			index.add(row, id);
+		long stamp = nextStamp();
+		Long oldStamp = rowStamps.put(id, stamp);
+		if(oldStamp != null)
+			changes.remove(oldStamp);
+		changes.put(stamp, id);
+	}
+
+	private T copy(T row, long id) throws GatewayException {
+		try {
+			return copier.copy(row, id);
+		} catch(IllegalArgumentException e) {
+			throw new GatewayException(name + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return a unique, increasing stamp in microseconds since the epoch
+	 */
+	private static synchronized long nextStamp() {
+		lastStamp = Math.max(System.currentTimeMillis() * 1000, lastStamp + 1);
+		return lastStamp;
+	}
+}
@@ -0,0 +1,76 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
+
+/**
+ * MySQL server (MYSQL_DB_URL, MYSQL_DB_USERNAME and MYSQL_DB_PASSWORD in db.properties)
+ * Schema is managed with the scripts in sql/
+ * @author Justin Wilson
+ *
+ */
+public class MySQLDialect implements SqlDialect {
+	public static final String NAME = "mysql";
+	
+	@Override
+	public String getName() {
+		return NAME;
+	}
+	
+	/**
+	 * create a MySQL datasource with credentials and DB URL in db.properties file
+	 */
+	@Override
+	public DataSource createDataSource(DatabaseConfig config) throws GatewayException {
+		//create the datasource
+		MysqlDataSource mysqlDS = new MysqlDataSource();
+		mysqlDS.setURL(config.getString("MYSQL_DB_URL"));
+		mysqlDS.setUser(config.getString("MYSQL_DB_USERNAME"));
+		mysqlDS.setPassword(config.getString("MYSQL_DB_PASSWORD"));
+		//prepare on the server so a cached statement is parsed and planned only once
+		mysqlDS.setUseServerPrepStmts(true);
+		//send batched inserts as multi-row statements
+		mysqlDS.setRewriteBatchedStatements(true);
+		//lets a positive fetch size read large tables through a server-side cursor instead of all at once
+		mysqlDS.setUseCursorFetch(true);
+		return mysqlDS;
+	}
+	
+	@Override
+	public void bootstrap(Connection conn) throws SQLException {
+		//schema lives on the server (see sql/)
+	}
+	
+	/**
+	 * Connector/J only streams row by row when the fetch size is Integer.MIN_VALUE
+	 */
+	@Override
+	public int streamingFetchSize(int requested) {
+		return requested > 0 ? requested : Integer.MIN_VALUE;
+	}
+	
+	@Override
+	public String forUpdate() {
+		return " for update";
+	}
+	
+	@Override
+	public String secondsFromNow() {
+		return "current_timestamp(3) + interval ? second";
+	}
+	
+	@Override
+	public String tombstoneSql() {
+		return "insert into DELETED_ROW (table_name, row_id, deleted_at) values (?, ?, current_timestamp(3)) "
+				+ " on duplicate key update deleted_at = current_timestamp(3) ";
+	}
+	
+	@Override
+	public String expireLeasesSql() {
+		return "delete from EDIT_LEASE where expires_at < current_timestamp(3) order by expires_at limit ? ";
+	}
+}
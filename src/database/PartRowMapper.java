@@ -0,0 +1,35 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import models.Part;
+
+/**
+ * Maps a row of the PART table to a Part
+ * Queries must select COLUMNS first (in that order) since columns are read by position
+ * @author Justin Wilson
+ *
+ */
+public class PartRowMapper implements RowMapper<Part> {
+	/**
+	 * columns a Part is built from, in the order mapRow reads them
+	 */
+	public static final String COLUMNS = "id, part_number, part_name, unit_of_qty, vendor_part_id, vendor_name, version";
+	
+	/**
+	 * columns of a keys-only Part (see Part.keysOnly), in the order mapKeys reads them
+	 */
+	public static final String KEY_COLUMNS = "id, part_number";
+	
+	@Override
+	public Part mapRow(ResultSet rs) throws SQLException {
+		Part p = new Part(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6));
+		p.setVersion(rs.getLong(7));
+		return p;
+	}
+	
+	public Part mapKeys(ResultSet rs) throws SQLException {
+		return Part.keysOnly(rs.getLong(1), rs.getString(2));
+	}
+}
@@ -1,5 +1,6 @@
 package database;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import models.Part;
@@ -15,8 +16,12 @@ public interface PartTableGateway {
 	public abstract void deletePart(long id) throws GatewayException;
 	public abstract long insertPart(Part p) throws GatewayException;
 	public abstract void savePart(Part p) throws GatewayException;
+	public abstract void saveParts(List<Part> parts) throws GatewayException;
 	public abstract List<Part> fetchParts() throws GatewayException;
+	public abstract void fetchParts(RowHandler<Part> handler, int fetchSize) throws GatewayException;
+	public abstract ChangeSet<Part> fetchPartsChangedSince(Timestamp since) throws GatewayException;
+	public abstract ChangeSet<Part> fetchPartsChangedSince(Timestamp since, RowHandler<Part> handler, int fetchSize) throws GatewayException;
+	public abstract List<Part> fetchParts(long[] ids) throws GatewayException;
+	public abstract ChangeSet<Part> fetchPartKeys(RowHandler<Part> handler, int fetchSize) throws GatewayException;
 	public abstract void close();
-	boolean blockPart(long id, String userName) throws GatewayException;
-	public abstract void updateAccessTime(int i);
 }
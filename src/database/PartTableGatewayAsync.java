@@ -0,0 +1,149 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import models.Part;
+
+/**
+ * Asynchronous counterpart of PartTableGateway: each call runs on the shared AsyncExecutor
+ * and returns a CompletableFuture instead of blocking the caller (e.g., the Event Dispatch Thread)
+ * Results come back on a worker thread; chain with thenAcceptAsync(..., AsyncExecutor.EDT) etc. to touch models or views
+ * @author Justin Wilson
+ *
+ */
+public class PartTableGatewayAsync {
+	/**
+	 * blocking gateway that does the work
+	 */
+	private PartTableGateway gateway;
+	
+	private AsyncExecutor executor;
+	
+	/**
+	 * Constructor: wraps gateway (JDBC or memory) and uses the shared executor
+	 * @param gateway
+	 * @throws GatewayException if the executor settings cannot be read
+	 */
+	public PartTableGatewayAsync(PartTableGateway gateway) throws GatewayException {
+		this.gateway = gateway;
+		executor = AsyncExecutor.getInstance();
+	}
+	
+	public PartTableGateway getGateway() {
+		return gateway;
+	}
+	
+	public CompletableFuture<Part> fetchPartAsync(final long id) {
+		return executor.submit(new Callable<Part>() {
+			@Override
+			public Part call() throws GatewayException {
+				return gateway.fetchPart(id);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Part>> fetchPartsAsync() {
+		return executor.submit(new Callable<List<Part>>() {
+			@Override
+			public List<Part> call() throws GatewayException {
+				return gateway.fetchParts();
+			}
+		});
+	}
+	
+	/**
+	 * rows with the given ids, fetched in batches (see PartTableGateway.fetchParts(long[]))
+	 */
+	public CompletableFuture<List<Part>> fetchPartsAsync(final long[] ids) {
+		return executor.submit(new Callable<List<Part>>() {
+			@Override
+			public List<Part> call() throws GatewayException {
+				return gateway.fetchParts(ids);
+			}
+		});
+	}
+	
+	/**
+	 * keys-only rows of the whole table, collected in the ChangeSet (see PartTableGateway.fetchPartKeys)
+	 */
+	public CompletableFuture<ChangeSet<Part>> fetchPartKeysAsync() {
+		return executor.submit(new Callable<ChangeSet<Part>>() {
+			@Override
+			public ChangeSet<Part> call() throws GatewayException {
+				return gateway.fetchPartKeys(null, 0);
+			}
+		});
+	}
+	
+	/**
+	 * streams keys-only rows of the whole table to handler on the worker, with the load timeout
+	 * @return the ChangeSet, with no rows in it (they went to handler)
+	 */
+	public CompletableFuture<ChangeSet<Part>> fetchPartKeysAsync(final RowHandler<Part> handler, final int fetchSize) {
+		return executor.submitLoad(new Callable<ChangeSet<Part>>() {
+			@Override
+			public ChangeSet<Part> call() throws GatewayException {
+				return gateway.fetchPartKeys(handler, fetchSize);
+			}
+		});
+	}
+	
+	/**
+	 * streams the rows to handler on the worker (see PartTableGateway.fetchPartsChangedSince(Timestamp, RowHandler, int));
+	 * a full load (since null) gets the load timeout instead of the default one
+	 * @return the ChangeSet, with no rows in it (they went to handler)
+	 */
+	public CompletableFuture<ChangeSet<Part>> fetchPartsChangedSinceAsync(final Timestamp since, final RowHandler<Part> handler, final int fetchSize) {
+		Callable<ChangeSet<Part>> task = new Callable<ChangeSet<Part>>() {
+			@Override
+			public ChangeSet<Part> call() throws GatewayException {
+				return gateway.fetchPartsChangedSince(since, handler, fetchSize);
+			}
+		};
+		return since == null ? executor.submitLoad(task) : executor.submit(task);
+	}
+	
+	/**
+	 * rows are collected in the ChangeSet; apply it to the list on the EDT
+	 */
+	public CompletableFuture<ChangeSet<Part>> fetchPartsChangedSinceAsync(final Timestamp since) {
+		return executor.submit(new Callable<ChangeSet<Part>>() {
+			@Override
+			public ChangeSet<Part> call() throws GatewayException {
+				return gateway.fetchPartsChangedSince(since);
+			}
+		});
+	}
+	
+	public CompletableFuture<Long> insertPartAsync(final Part p) {
+		return executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws GatewayException {
+				return gateway.insertPart(p);
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> savePartAsync(final Part p) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.savePart(p);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> deletePartAsync(final long id) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.deletePart(id);
+				return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,491 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Part;
+
+/**
+ * JDBC implementation of PartTableGateway (MySQL or H2; engine-specific SQL comes from the pool's SqlDialect)
+ * @author Justin Wilson
+ * 
+ *
+ */
+public class PartTableGatewayJDBC implements PartTableGateway {
+	private static final boolean DEBUG = true;
+
+	/**
+	 * most rows sent to the db in one executeBatch() call by saveParts
+	 */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * shared pool that db connections are borrowed from for each call
+	 */
+	private ConnectionPool pool;
+	
+	/**
+	 * SQL differences of the pool's database
+	 */
+	private SqlDialect dialect;
+	
+	/**
+	 * builds model objects from the projected columns of each row
+	 */
+	private PartRowMapper mapper;
+	
+	/**
+	 * Constructor: uses the shared connection pool
+	 * @throws GatewayException
+	 */
+	public PartTableGatewayJDBC() throws GatewayException {
+		pool = ConnectionPool.getInstance();
+		dialect = pool.getDialect();
+		mapper = new PartRowMapper();
+	}
+
+	@Override
+	public Part fetchPart(long id) throws GatewayException {
+		Part p = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch person
+			st = conn.prepareStatement("select " + PartRowMapper.COLUMNS + " from PART where id = ? ");
+			st.setLong(1, id);
+			rs = st.executeQuery();
+			//should only be 1
+			rs.next();
+			p = mapper.mapRow(rs);
+		} catch (SQLException e) {
+			//e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return p;
+	}
+	
+	
+	@Override
+	public void deletePart(long id) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "PART");
+			
+			//st = conn.prepareStatement("delete from PARTs where id = ? ");
+			st = conn.prepareStatement("delete from PART where id = ? ");
+			st.setLong(1, id);
+			//leave a tombstone so other clients' next sync removes the row from their lists
+			if(st.executeUpdate() > 0)
+				ChangeTracking.writeTombstone(conn, dialect, "PART", id);
+			
+			//if we get here, everything worked without exception so commit the changes
+			conn.commit();
+
+		} catch (SQLException e) {
+			//roll the tx back
+			try {
+				if(conn != null)
+					conn.rollback();
+			} catch (SQLException e1) {
+				throw new GatewayException(e1.getMessage());
+			}
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(st != null)
+					st.close();
+				//turn autocommit on again regardless if commit or rollback
+				if(conn != null) {
+					conn.setAutoCommit(true);
+					conn.close();
+				}
+			} catch (SQLException e) {
+				throw new GatewayException(e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public long insertPart(Part p) throws GatewayException {
+		//init new id to invalid
+		long newId = Part.INVALID_ID;
+		Connection conn = null;
+		PreparedStatement st = null;
+		boolean committed = false;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//a tx so a sync can't read its time before this write commits (see ChangeTracking)
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "PART");
+			
+			st = conn.prepareStatement("INSERT INTO PART ( "
+					+ " part_number, part_name, vendor_name, unit_of_qty, vendor_part_id )"
+					+ " VALUES ( ?, ?, ?, ?, ? )", PreparedStatement.RETURN_GENERATED_KEYS);
+			
+			st.setString(1, p.getPartNumber());
+			st.setString(2,  p.getPartName());
+			st.setString(3, p.getVendor());
+			st.setString(4, p.getUnitOfQuantity());
+			st.setString(5, p.getVendorsPartNumber());	
+			
+			st.executeUpdate();
+			//get the generated key
+			rs = st.getGeneratedKeys();
+			if(rs != null && rs.next()) {
+			    newId = rs.getLong(1);
+			} else {
+				throw new GatewayException("Could not fetch new record Id");
+			}
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, rs, committed);
+		}
+		return newId;
+	}
+
+	/**
+	 * Saves p only if the record is still at p's version (optimistic concurrency: nothing is locked while it is edited)
+	 * On success the record's version, and p's, go up by one
+	 * @throws ConflictException if the record was changed or deleted since p was read (carries the record as it is now)
+	 */
+	@Override
+	public void savePart(Part p) throws GatewayException {
+		//execute the update and throw exception if any problem
+		Connection conn = null;
+		PreparedStatement st = null;
+		boolean committed = false;
+		try {
+			conn = pool.getConnection();
+			//a tx so a sync can't read its time before this write commits (see ChangeTracking)
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "PART");
+			st = conn.prepareStatement("update PART "
+					+ " set part_number = ?, part_name = ?, vendor_name = ?, unit_of_qty = ?, vendor_part_id = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
+			
+			st.setString(1, p.getPartNumber());
+			st.setString(2,  p.getPartName());
+			st.setString(3, p.getVendor());
+			st.setString(4, p.getUnitOfQuantity());
+			st.setString(5, p.getVendorsPartNumber());
+			st.setLong(6, p.getId());
+			st.setLong(7, p.getVersion());
+			if(st.executeUpdate() == 0)
+				throw VersionCheck.conflict(conn, "PART", PartRowMapper.COLUMNS, p.getId(), mapper);
+			conn.commit();
+			committed = true;
+			p.setVersion(p.getVersion() + 1);
+			
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+	}
+
+	/**
+	 * Saves all given records in a single transaction using JDBC batching
+	 * Each row is only saved if it is still at its record's version (see savePart); on success every record's version goes up by one
+	 * @param parts records to save (must already have ids)
+	 * @throws BatchException if any row fails, no longer exists or was changed since it was read; nothing is saved in that case
+	 */
+	@Override
+	public void saveParts(List<Part> parts) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = null;
+		boolean committed = false;
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "PART");
+			
+			st = conn.prepareStatement("update PART "
+					+ " set part_number = ?, part_name = ?, vendor_name = ?, unit_of_qty = ?, vendor_part_id = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
+			for(int start = 0; start < parts.size(); start += BATCH_SIZE) {
+				int end = Math.min(start + BATCH_SIZE, parts.size());
+				for(int i = start; i < end; i++) {
+					Part p = parts.get(i);
+					st.setString(1, p.getPartNumber());
+					st.setString(2,  p.getPartName());
+					st.setString(3, p.getVendor());
+					st.setString(4, p.getUnitOfQuantity());
+					st.setString(5, p.getVendorsPartNumber());
+					st.setLong(6, p.getId());
+					st.setLong(7, p.getVersion());
+					st.addBatch();
+				}
+				String chunkError = JdbcBatch.execute(st, start, true, failed);
+				if(error == null)
+					error = chunkError;
+			}
+			
+			if(failed.isEmpty()) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + parts.size() + " parts could not be saved: " + error, failed);
+		for(Part p : parts)
+			p.setVersion(p.getVersion() + 1);
+	}
+
+	@Override
+	public List<Part> fetchParts() throws GatewayException {
+		ArrayList<Part> ret = new ArrayList<Part>();
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch PARTs
+			st = conn.prepareStatement("select " + PartRowMapper.COLUMNS + " from PART");
+			rs = st.executeQuery();
+			//add each to list of dogs to return
+			while(rs.next()) {
+				Part p = mapper.mapRow(rs);
+				ret.add(p);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		
+		return ret;
+	}
+
+	/**
+	 * Streams every row of the PART table to handler without building a List
+	 * @param handler called once per row while the result set is open
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public void fetchParts(RowHandler<Part> handler, int fetchSize) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//forward-only, read-only result set so the driver can stream instead of buffering every row
+			//(this prepareStatement form is not cached since the fetch size is set per call)
+			st = conn.prepareStatement("select " + PartRowMapper.COLUMNS + " from PART", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Part p = mapper.mapRow(rs);
+				handler.handleRow(p);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Fetches the PART rows inserted, updated or deleted since the given time
+	 * @param since sync time of the last ChangeSet, or null to fetch every row
+	 * @return changed rows, deleted ids and the time to pass as since next time
+	 */
+	@Override
+	public ChangeSet<Part> fetchPartsChangedSince(Timestamp since) throws GatewayException {
+		return fetchPartsChangedSince(since, null, 0);
+	}
+	
+	/**
+	 * Same as fetchPartsChangedSince(since) but streams the changed rows to handler instead of
+	 * collecting them in the ChangeSet, so a full fetch (since null) never holds the whole table in a List
+	 * @param since sync time of the last ChangeSet, or null to fetch every row
+	 * @param handler called once per inserted or updated row (null to collect the rows in the ChangeSet)
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public ChangeSet<Part> fetchPartsChangedSince(Timestamp since, RowHandler<Part> handler, int fetchSize) throws GatewayException {
+		ChangeSet<Part> changes = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//read the sync time (once the writes in flight have committed) before the rows, so anything committed while reading is picked up by the next sync
+			changes = new ChangeSet<Part>(ChangeTracking.fetchSyncTime(conn, dialect, "PART"), since == null);
+			
+			//last_modified is indexed so a delta is a range scan
+			if(since == null) {
+				st = conn.prepareStatement("select " + PartRowMapper.COLUMNS + " from PART", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			} else {
+				st = conn.prepareStatement("select " + PartRowMapper.COLUMNS + " from PART where last_modified >= ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				st.setTimestamp(1, ChangeTracking.withOverlap(since));
+			}
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Part p = mapper.mapRow(rs);
+				if(handler != null)
+					handler.handleRow(p);
+				else
+					changes.addChanged(p);
+			}
+			rs.close();
+			rs = null;
+			
+			if(since != null)
+				ChangeTracking.fetchDeletedIds(conn, "PART", since, changes);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return changes;
+	}
+	
+	/**
+	 * Fetches the rows with the given ids in as few round trips as possible (up to IdBatch.MAX_IDS ids per query)
+	 * @param ids ids of rows that no longer exist are skipped
+	 * @return the rows found, in no particular order
+	 */
+	@Override
+	public List<Part> fetchParts(long[] ids) throws GatewayException {
+		ArrayList<Part> ret = new ArrayList<Part>(ids.length);
+		Connection conn = null;
+		try {
+			conn = pool.getConnection();
+			IdBatch.fetch(conn, "PART", PartRowMapper.COLUMNS, ids, mapper, ret);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Same as a full fetchPartsChangedSince(null, ...) but only reads the key columns (see Part.keysOnly),
+	 * so a lazy PartList can list every record without holding every column of every record
+	 * @param handler called once per row (null to collect the rows in the ChangeSet)
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 * @return full ChangeSet (the time to pass as since to the next fetchPartsChangedSince)
+	 */
+	@Override
+	public ChangeSet<Part> fetchPartKeys(RowHandler<Part> handler, int fetchSize) throws GatewayException {
+		ChangeSet<Part> changes = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//read the sync time (once the writes in flight have committed) before the rows, so anything committed while reading is picked up by the next sync
+			changes = new ChangeSet<Part>(ChangeTracking.fetchSyncTime(conn, dialect, "PART"), true);
+			st = conn.prepareStatement("select " + PartRowMapper.KEY_COLUMNS + " from PART", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Part row = mapper.mapKeys(rs);
+				if(handler != null)
+					handler.handleRow(row);
+				else
+					changes.addChanged(row);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return changes;
+	}
+	
+	/**
+	 * connections are borrowed per call and go back to the shared pool, so there is nothing to close here
+	 * (the pool itself is closed by ConnectionPool.shutdown() when the app quits)
+	 */
+	public void close() {
+		if(DEBUG)
+			System.out.println("Releasing gateway...");
+	}
+
+	
+}
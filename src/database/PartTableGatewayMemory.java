@@ -0,0 +1,115 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Part;
+
+/**
+ * In-memory implementation of PartTableGateway (see MemoryDatabase)
+ * 
+ * @author Justin Wilson
+ *
+ */
+public class PartTableGatewayMemory implements PartTableGateway {
+	private MemoryDatabase db;
+	
+	public PartTableGatewayMemory() {
+		db = MemoryDatabase.getInstance();
+	}
+
+	@Override
+	public Part fetchPart(long id) throws GatewayException {
+		Part p = db.parts.get(id);
+		if(p == null)
+			throw new GatewayException("Part " + id + " does not exist");
+		return p;
+	}
+
+	@Override
+	public void deletePart(long id) throws GatewayException {
+		db.parts.delete(id);
+	}
+
+	@Override
+	public long insertPart(Part p) throws GatewayException {
+		return db.parts.insert(p);
+	}
+
+	/**
+	 * saves p if the record is still at p's version (see MemoryTable.update); p gets the new version
+	 */
+	@Override
+	public void savePart(Part p) throws GatewayException {
+		p.setVersion(db.parts.update(p.getId(), p));
+	}
+
+	@Override
+	public void saveParts(List<Part> parts) throws GatewayException {
+		long[] ids = new long[parts.size()];
+		for(int i = 0; i < ids.length; i++)
+			ids[i] = parts.get(i).getId();
+		List<Integer> failed = db.parts.updateAll(ids, parts);
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + parts.size() + " parts could not be saved: Record was changed or deleted by another user", failed);
+		for(Part p : parts)
+			p.setVersion(p.getVersion() + 1);
+	}
+
+	@Override
+	public List<Part> fetchParts() throws GatewayException {
+		return db.parts.list();
+	}
+
+	@Override
+	public void fetchParts(RowHandler<Part> handler, int fetchSize) throws GatewayException {
+		db.parts.forEach(handler);
+	}
+
+	@Override
+	public ChangeSet<Part> fetchPartsChangedSince(Timestamp since) throws GatewayException {
+		return db.parts.changedSince(since, null);
+	}
+
+	@Override
+	public ChangeSet<Part> fetchPartsChangedSince(Timestamp since, RowHandler<Part> handler, int fetchSize) throws GatewayException {
+		return db.parts.changedSince(since, handler);
+	}
+
+	@Override
+	public List<Part> fetchParts(long[] ids) throws GatewayException {
+		ArrayList<Part> ret = new ArrayList<Part>(ids.length);
+		for(long id : ids) {
+			Part row = db.parts.get(id);
+			if(row != null)
+				ret.add(row);
+		}
+		return ret;
+	}
+
+	@Override
+	public ChangeSet<Part> fetchPartKeys(final RowHandler<Part> handler, int fetchSize) throws GatewayException {
+		final ArrayList<Part> collected = new ArrayList<Part>();
+		ChangeSet<Part> changes = db.parts.changedSince(null, new RowHandler<Part>() {
+			@Override
+			public void handleRow(Part row) throws GatewayException {
+				Part keys = Part.keysOnly(row.getId(), row.getPartNumber());
+				if(handler != null)
+					handler.handleRow(keys);
+				else
+					collected.add(keys);
+			}
+		});
+		for(Part keys : collected)
+			changes.addChanged(keys);
+		return changes;
+	}
+
+	/**
+	 * nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,144 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A physical db connection owned by the ConnectionPool
+ * Gateways only ever see a proxy handed out by borrow(); calling close() on that proxy
+ * gives the connection back to the pool instead of closing the socket
+ * @author Justin Wilson
+ *
+ */
+class PooledConnection {
+	/**
+	 * the real connection to the database
+	 */
+	private Connection physical;
+
+	/**
+	 * pool to give this connection back to on close()
+	 */
+	private ConnectionPool pool;
+
+	/**
+	 * prepared statements kept open on this connection (null if statement caching is off)
+	 */
+	private StatementCache statements;
+
+	/**
+	 * when this connection was last handed back to the pool (System.currentTimeMillis)
+	 */
+	private volatile long lastReturned;
+
+	PooledConnection(Connection physical, ConnectionPool pool, int statementCacheSize, StatementCache.Counters counters) {
+		this.physical = physical;
+		this.pool = pool;
+		if(statementCacheSize > 0)
+			statements = new StatementCache(physical, statementCacheSize, counters);
+		this.lastReturned = System.currentTimeMillis();
+	}
+
+	/**
+	 * returns a new proxy for the gateway to use until it calls close()
+	 * @return
+	 */
+	Connection borrow() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Handle());
+	}
+
+	long getLastReturned() {
+		return lastReturned;
+	}
+
+	/**
+	 * checks the physical connection with a round trip to the server
+	 * @param timeoutSeconds
+	 * @return true if the connection is still usable
+	 */
+	boolean isValid(int timeoutSeconds) {
+		try {
+			return !physical.isClosed() && physical.isValid(timeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * puts the connection back into its default state before it goes back to the idle list
+	 * a gateway that failed half way through a tx may have left autocommit off
+	 * @throws SQLException
+	 */
+	void reset() throws SQLException {
+		if(!physical.getAutoCommit()) {
+			physical.rollback();
+			physical.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * really closes the db connection (pool shutdown, eviction or failed validation)
+	 */
+	void closePhysical() {
+		if(statements != null)
+			statements.closeAll();
+		try {
+			physical.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Proxy handed out for a single borrow
+	 * Each borrow gets its own handle so a gateway that keeps a reference after close()
+	 * cannot use the connection while someone else has borrowed it
+	 */
+	private class Handle implements InvocationHandler {
+		private boolean returned = false;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if(method.getDeclaringClass() == Object.class) {
+				if(name.equals("equals"))
+					return proxy == args[0];
+				if(name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				return "Pooled " + physical.toString();
+			}
+			if(name.equals("close")) {
+				//give it back to the pool instead of closing it; closing twice is harmless
+				boolean giveBack;
+				synchronized(this) {
+					giveBack = !returned;
+					returned = true;
+				}
+				if(giveBack) {
+					lastReturned = System.currentTimeMillis();
+					pool.release(PooledConnection.this);
+				}
+				return null;
+			}
+			synchronized(this) {
+				if(name.equals("isClosed"))
+					return returned || physical.isClosed();
+				if(returned)
+					throw new SQLException("Connection has already been returned to the pool");
+			}
+			//prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the statement cache
+			if(statements != null && StatementCache.isCacheable(method))
+				return statements.prepare((String) args[0], args.length == 1 ? -1 : (Integer) args[1]);
+			try {
+				return method.invoke(physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
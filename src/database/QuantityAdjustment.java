@@ -0,0 +1,88 @@
+package database;
+
+import java.util.List;
+
+/**
+ * A change to the quantity of one inventory record, given by the record's id or by its warehouse and part
+ * (see InventoryTableGateway.adjustQuantities)
+ * @author Justin Wilson
+ *
+ */
+public class QuantityAdjustment {
+	private long inventoryId;
+	private long warehouseId;
+	private long partId;
+	private double delta;
+
+	/**
+	 * @param inventoryId record to change
+	 * @param delta amount added (negative to take away)
+	 */
+	public QuantityAdjustment(long inventoryId, double delta) {
+		this.inventoryId = inventoryId;
+		this.delta = delta;
+	}
+
+	/**
+	 * @param warehouseId
+	 * @param partId
+	 * @param delta amount added (negative to take away); adding creates the record if the warehouse has none of the part yet
+	 */
+	public QuantityAdjustment(long warehouseId, long partId, double delta) {
+		this.warehouseId = warehouseId;
+		this.partId = partId;
+		this.delta = delta;
+	}
+
+	/**
+	 * @return true if the record is given by its id (getWarehouseId and getPartId are then 0)
+	 */
+	public boolean isById() {
+		return inventoryId != 0;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public long getPartId() {
+		return partId;
+	}
+
+	public double getDelta() {
+		return delta;
+	}
+
+	/**
+	 * checks what can be checked without the db: record given, delta a number
+	 * @param failed positions of bad adjustments are added here
+	 * @return error message for the first bad adjustment, or null if all are fine
+	 */
+	static String validate(List<QuantityAdjustment> adjustments, List<Integer> failed) {
+		String error = null;
+		for(int i = 0; i < adjustments.size(); i++) {
+			QuantityAdjustment a = adjustments.get(i);
+			String e = null;
+			if(a.inventoryId < 0 || (!a.isById() && (a.warehouseId <= 0 || a.partId <= 0)))
+				e = "Inventory record, or its warehouse and part, must be saved records";
+			else if(Double.isNaN(a.delta) || Double.isInfinite(a.delta))
+				e = "Invalid Quantity!";
+			if(e != null) {
+				failed.add(i);
+				if(error == null)
+					error = e;
+			}
+		}
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		String what = isById() ? "inventory record " + inventoryId : "part " + partId + " in warehouse " + warehouseId;
+		return (delta < 0 ? "" : "+") + InventoryDelta.format(delta) + " " + what;
+	}
+}
@@ -0,0 +1,12 @@
+package database;
+
+/**
+ * Callback for gateway methods that stream rows instead of returning a List
+ * handleRow is called once per row, in result set order, while the result set is still open
+ * @author Justin Wilson
+ *
+ * @param <T> model type of each row
+ */
+public interface RowHandler<T> {
+	public abstract void handleRow(T row) throws GatewayException;
+}
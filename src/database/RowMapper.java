@@ -0,0 +1,16 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Turns the current row of a result set into a model object
+ * Each mapper has a fixed COLUMNS list; queries select those columns first, in that order,
+ * and the mapper reads them by position instead of looking each one up by name
+ * @author Justin Wilson
+ *
+ * @param <T> model type of each row
+ */
+public interface RowMapper<T> {
+	public abstract T mapRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,60 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * The parts of the gateways' SQL and connection setup that differ between database engines
+ * The JDBC gateways ask the pool's dialect for these instead of hard-wiring one engine's syntax
+ * @author Justin Wilson
+ *
+ */
+public interface SqlDialect {
+	/**
+	 * @return DB_BACKEND value that selects this dialect
+	 */
+	public abstract String getName();
+	
+	/**
+	 * @param config db.properties settings
+	 * @return DataSource the connection pool opens its connections with
+	 * @throws GatewayException if settings are missing or the driver is not on the classpath
+	 */
+	public abstract DataSource createDataSource(DatabaseConfig config) throws GatewayException;
+	
+	/**
+	 * creates any missing tables and indexes; called once with the pool's first connection
+	 * (server databases are set up with the scripts in sql/ instead, so this may do nothing)
+	 * @param conn
+	 * @throws SQLException
+	 */
+	public abstract void bootstrap(Connection conn) throws SQLException;
+	
+	/**
+	 * @param requested fetch size asked for by the caller (0 or less = stream one row at a time)
+	 * @return fetch size to give the driver so a large result set is streamed instead of buffered
+	 */
+	public abstract int streamingFetchSize(int requested);
+	
+	/**
+	 * @return clause appended to a select to lock the selected rows until the tx ends
+	 */
+	public abstract String forUpdate();
+	
+	/**
+	 * @return SQL expression for the current time plus a number of seconds given as a ? parameter
+	 */
+	public abstract String secondsFromNow();
+	
+	/**
+	 * @return statement that records (or refreshes) a tombstone in DELETED_ROW; parameters are table name, row id
+	 */
+	public abstract String tombstoneSql();
+	
+	/**
+	 * @return statement that deletes at most ? expired rows from EDIT_LEASE, soonest expired first (through the expires_at index)
+	 */
+	public abstract String expireLeasesSql();
+}
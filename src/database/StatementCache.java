@@ -0,0 +1,195 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of prepared statements keyed by SQL text, least recently used evicted first
+ *
+ * A cached statement is checked out while a gateway is using it so it can never be handed to two callers.
+ * Calling close() on the statement clears its parameters and puts it back in the cache instead of closing it.
+ * @author Justin Wilson
+ *
+ */
+class StatementCache {
+	/**
+	 * hit/miss counters shared by all the caches of a pool
+	 */
+	static class Counters {
+		final AtomicLong hits = new AtomicLong();
+		final AtomicLong misses = new AtomicLong();
+		final AtomicLong evictions = new AtomicLong();
+	}
+
+	/**
+	 * physical connection the statements belong to
+	 */
+	private Connection physical;
+
+	/**
+	 * most statements kept open on this connection
+	 */
+	private int maxSize;
+
+	/**
+	 * idle statements in access order (eldest first)
+	 */
+	private LinkedHashMap<String, PreparedStatement> idle;
+
+	private Counters counters;
+
+	StatementCache(Connection physical, int maxSize, Counters counters) {
+		this.physical = physical;
+		this.maxSize = maxSize;
+		this.counters = counters;
+		idle = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+	}
+
+	/**
+	 * returns a cached statement for sql if there is one, otherwise prepares a new one
+	 * @param sql SQL text
+	 * @param autoGeneratedKeys -1 if not given, else Statement.RETURN_GENERATED_KEYS or NO_GENERATED_KEYS
+	 * @return statement whose close() gives it back to this cache
+	 * @throws SQLException
+	 */
+	PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys < 0 ? sql : autoGeneratedKeys + ":" + sql;
+		PreparedStatement st;
+		synchronized(this) {
+			st = idle.remove(key);
+		}
+		if(st != null) {
+			counters.hits.incrementAndGet();
+		} else {
+			counters.misses.incrementAndGet();
+			if(autoGeneratedKeys < 0)
+				st = physical.prepareStatement(sql);
+			else
+				st = physical.prepareStatement(sql, autoGeneratedKeys);
+		}
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new Handle(key, st));
+	}
+
+	/**
+	 * puts a statement back in the cache, closing the least recently used one if the cache is full
+	 * @param key
+	 * @param st
+	 */
+	private void checkIn(String key, PreparedStatement st) {
+		ArrayList<PreparedStatement> evicted = new ArrayList<PreparedStatement>();
+		try {
+			st.clearParameters();
+			st.clearBatch();
+		} catch (SQLException e) {
+			//statement is no good any more so don't keep it
+			evicted.add(st);
+			st = null;
+		}
+		synchronized(this) {
+			if(st != null) {
+				PreparedStatement old = idle.put(key, st);
+				if(old != null)
+					evicted.add(old);
+			}
+			Iterator<PreparedStatement> it = idle.values().iterator();
+			while(idle.size() > maxSize && it.hasNext()) {
+				evicted.add(it.next());
+				it.remove();
+				counters.evictions.incrementAndGet();
+			}
+		}
+		for(PreparedStatement e : evicted)
+			closeQuietly(e);
+	}
+
+	/**
+	 * closes every idle statement (called before the physical connection is closed)
+	 */
+	void closeAll() {
+		ArrayList<PreparedStatement> all;
+		synchronized(this) {
+			all = new ArrayList<PreparedStatement>(idle.values());
+			idle.clear();
+		}
+		for(PreparedStatement st : all)
+			closeQuietly(st);
+	}
+
+	private static void closeQuietly(PreparedStatement st) {
+		try {
+			st.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Proxy handed out for one use of a cached statement
+	 */
+	private class Handle implements InvocationHandler {
+		private String key;
+		private PreparedStatement st;
+		private boolean returned = false;
+
+		Handle(String key, PreparedStatement st) {
+			this.key = key;
+			this.st = st;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if(method.getDeclaringClass() == Object.class) {
+				if(name.equals("equals"))
+					return proxy == args[0];
+				if(name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				return "Cached " + st.toString();
+			}
+			if(name.equals("close")) {
+				boolean giveBack;
+				synchronized(this) {
+					giveBack = !returned;
+					returned = true;
+				}
+				if(giveBack)
+					checkIn(key, st);
+				return null;
+			}
+			synchronized(this) {
+				if(name.equals("isClosed"))
+					return returned || st.isClosed();
+				if(returned)
+					throw new SQLException("Statement has already been closed");
+			}
+			try {
+				return method.invoke(st, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * @return true if the Connection method called is one of the prepareStatement forms this cache handles
+	 * (other forms, e.g., with result set type and concurrency, are passed straight to the connection)
+	 */
+	static boolean isCacheable(Method method) {
+		if(!method.getName().equals("prepareStatement"))
+			return false;
+		Class<?>[] types = method.getParameterTypes();
+		if(types.length == 1)
+			return true;
+		return types.length == 2 && types[1] == int.class;
+	}
+}
@@ -0,0 +1,26 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import models.User;
+
+/**
+ * Maps a row of the USER table to a User
+ * Queries must select COLUMNS first (in that order) since columns are read by position
+ * @author Justin Wilson
+ *
+ */
+public class UserRowMapper implements RowMapper<User> {
+	/**
+	 * columns a User is built from, in the order mapRow reads them
+	 */
+	public static final String COLUMNS = "id, user, password, fullName, add_user, edit_user, delete_user, version";
+	
+	@Override
+	public User mapRow(ResultSet rs) throws SQLException {
+		User u = new User(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7));
+		u.setVersion(rs.getLong(8));
+		return u;
+	}
+}
@@ -17,5 +17,6 @@ public interface UserTableGateway {
 	public abstract long insertUser(User u) throws GatewayException;
 	public abstract void saveUser(User u) throws GatewayException;
 	public abstract List<User> fetchUsers() throws GatewayException;
+	public abstract void fetchUsers(RowHandler<User> handler, int fetchSize) throws GatewayException;
 	public abstract void close();
 }
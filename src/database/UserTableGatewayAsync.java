@@ -0,0 +1,106 @@
+package database;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import models.User;
+
+/**
+ * Asynchronous counterpart of UserTableGateway: each call runs on the shared AsyncExecutor
+ * and returns a CompletableFuture instead of blocking the caller (e.g., the Event Dispatch Thread)
+ * Results come back on a worker thread; chain with thenAcceptAsync(..., AsyncExecutor.EDT) etc. to touch models or views
+ * @author Justin Wilson
+ *
+ */
+public class UserTableGatewayAsync {
+	/**
+	 * blocking gateway that does the work
+	 */
+	private UserTableGateway gateway;
+	
+	private AsyncExecutor executor;
+	
+	/**
+	 * Constructor: wraps gateway (JDBC or memory) and uses the shared executor
+	 * @param gateway
+	 * @throws GatewayException if the executor settings cannot be read
+	 */
+	public UserTableGatewayAsync(UserTableGateway gateway) throws GatewayException {
+		this.gateway = gateway;
+		executor = AsyncExecutor.getInstance();
+	}
+	
+	public UserTableGateway getGateway() {
+		return gateway;
+	}
+	
+	public CompletableFuture<User> fetchUserAsync(final long id) {
+		return executor.submit(new Callable<User>() {
+			@Override
+			public User call() throws GatewayException {
+				return gateway.fetchUser(id);
+			}
+		});
+	}
+	
+	public CompletableFuture<User> fetchLoginAsync(final User u) {
+		return executor.submit(new Callable<User>() {
+			@Override
+			public User call() throws GatewayException {
+				return gateway.fetchLogin(u);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<User>> fetchUsersAsync() {
+		return executor.submit(new Callable<List<User>>() {
+			@Override
+			public List<User> call() throws GatewayException {
+				return gateway.fetchUsers();
+			}
+		});
+	}
+	
+	/**
+	 * streams every row to handler on the worker, with the load timeout
+	 */
+	public CompletableFuture<Void> fetchUsersAsync(final RowHandler<User> handler, final int fetchSize) {
+		return executor.submitLoad(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.fetchUsers(handler, fetchSize);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<Long> insertUserAsync(final User u) {
+		return executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws GatewayException {
+				return gateway.insertUser(u);
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> saveUserAsync(final User u) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.saveUser(u);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> deleteUserAsync(final long id) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.deleteUser(id);
+				return null;
+			}
+		});
+	}
+}
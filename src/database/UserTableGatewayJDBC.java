@@ -1,76 +1,66 @@
 package database;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Properties;
-
-import javax.sql.DataSource;
-
-import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
 
 import models.User;
 
 
 /**
- * MySQL implementation of UserTableGateway
+ * JDBC implementation of UserTableGateway (MySQL or H2; engine-specific SQL comes from the pool's SqlDialect)
  * 
  * @author Justin Wilson
  *
  */
-public class UserTableGatewayMySQL implements UserTableGateway {
+public class UserTableGatewayJDBC implements UserTableGateway {
 	private static final boolean DEBUG = true;
 
 	/**
-	 * external DB connection
+	 * shared pool that db connections are borrowed from for each call
+	 */
+	private ConnectionPool pool;
+	
+	/**
+	 * SQL differences of the pool's database
 	 */
-	private Connection conn = null;
+	private SqlDialect dialect;
 	
 	/**
-	 * Constructor: creates database connection
+	 * builds model objects from the projected columns of each row
+	 */
+	private UserRowMapper mapper;
+	
+	/**
+	 * Constructor: uses the shared connection pool
 	 * @throws GatewayException
 	 */
-	public UserTableGatewayMySQL() throws GatewayException {
-		//read the properties file to establish the db connection
-		DataSource ds = null;
-		try {
-			ds = getDataSource();
-		} catch (RuntimeException | IOException e1) {
-			throw new GatewayException(e1.getMessage());
-		}
-		if(ds == null) {
-        	throw new GatewayException("Datasource is null!");
-        }
-		try {
-        	conn = ds.getConnection();
-			//default isolation level of allow Phantom Reads is ok for this application
-			//conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE); //prevent even phantom reads
-		} catch (SQLException e) {
-			throw new GatewayException("SQL Error: " + e.getMessage());
-		}
+	public UserTableGatewayJDBC() throws GatewayException {
+		pool = ConnectionPool.getInstance();
+		dialect = pool.getDialect();
+		mapper = new UserRowMapper();
 	}
 		
 
 	@Override
 	public User fetchUser(long id) throws GatewayException {
 		User d = null;
+		Connection conn = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		try {
+			conn = pool.getConnection();
 			//fetch person
-			st = conn.prepareStatement("select * from USER where id = ? ");
+			st = conn.prepareStatement("select " + UserRowMapper.COLUMNS + " from USER where id = ? ");
 			st.setLong(1, id);
 			rs = st.executeQuery();
 			//should only be 1
 			rs.next();
 			
-			d = new User(rs.getLong("id"), rs.getString("user"), rs.getString("password"),rs.getString("fullName"),rs.getString("add_user"),rs.getString("edit_user"),rs.getString("delete_user"));
+			d = mapper.mapRow(rs);
 			
 		} catch (SQLException e) {
 			//e.printStackTrace();
@@ -82,6 +72,8 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 					rs.close();
 				if(st != null)
 					st.close();
+				if(conn != null)
+					conn.close();
 			} catch (SQLException e) {
 				throw new GatewayException("SQL Error: " + e.getMessage());
 			}
@@ -92,11 +84,13 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 	
 	public User fetchLogin(User u) throws GatewayException {
 		User d = null;
+		Connection conn = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		try {
+			conn = pool.getConnection();
 			//fetch person
-			st = conn.prepareStatement("select * from USER where user = ? and password=? ");
+			st = conn.prepareStatement("select " + UserRowMapper.COLUMNS + " from USER where user = ? and password=? ");
 			st.setString(1, u.getUser());
 			st.setString(2, u.getPassword());
 			
@@ -104,7 +98,7 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 			
 			//should only be 1
 			if(rs.next()){
-				d = new User(rs.getLong("id"), rs.getString("user"), rs.getString("password"),rs.getString("fullName"),rs.getString("add_user"),rs.getString("edit_user"),rs.getString("delete_user"));
+				d = mapper.mapRow(rs);
 			}
 			
 		} catch (SQLException e) {
@@ -117,6 +111,8 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 					rs.close();
 				if(st != null)
 					st.close();
+				if(conn != null)
+					conn.close();
 			} catch (SQLException e) {
 				throw new GatewayException("SQL Error: " + e.getMessage());
 			}
@@ -126,8 +122,10 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 
 	@Override
 	public void deleteUser(long id) throws GatewayException {
+		Connection conn = null;
 		PreparedStatement st = null;
 		try {
+			conn = pool.getConnection();
 			//turn off autocommit to start the tx
 			conn.setAutoCommit(false);
 			
@@ -142,7 +140,8 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 		} catch (SQLException e) {
 			//roll the tx back
 			try {
-				conn.rollback();
+				if(conn != null)
+					conn.rollback();
 			} catch (SQLException e1) {
 				throw new GatewayException(e1.getMessage());
 			}
@@ -153,7 +152,10 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 				if(st != null)
 					st.close();
 				//turn autocommit on again regardless if commit or rollback
-				conn.setAutoCommit(true);
+				if(conn != null) {
+					conn.setAutoCommit(true);
+					conn.close();
+				}
 			} catch (SQLException e) {
 				throw new GatewayException(e.getMessage());
 			}
@@ -164,10 +166,12 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 	public long insertUser(User u) throws GatewayException {
 		//init new id to invalid
 		long newId = User.INVALID_ID;
+		Connection conn = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		try {
-			st = conn.prepareStatement("insert USER (user, password, fullName, add_user, edit_user, delete_user) "
+			conn = pool.getConnection();
+			st = conn.prepareStatement("insert into USER (user, password, fullName, add_user, edit_user, delete_user) "
 					+ " values ( ?, ?, ?, ?, ?, ? ) ", PreparedStatement.RETURN_GENERATED_KEYS);
 			
 			st.setString(1, u.getUser());
@@ -194,6 +198,8 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 			try {
 				if(st != null)
 					st.close();
+				if(conn != null)
+					conn.close();
 			} catch (SQLException e) {
 				throw new GatewayException("SQL Error: " + e.getMessage());
 			}
@@ -201,14 +207,21 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 		return newId;
 	}
 
+	/**
+	 * Saves u only if the record is still at u's version (optimistic concurrency: nothing is locked while it is edited)
+	 * On success the record's version, and u's, go up by one
+	 * @throws ConflictException if the record was changed or deleted since u was read (carries the record as it is now)
+	 */
 	@Override
 	public void saveUser(User u) throws GatewayException {
 		//execute the update and throw exception if any problem
+		Connection conn = null;
 		PreparedStatement st = null;
 		try {
+			conn = pool.getConnection();
 			st = conn.prepareStatement("update USER "
-					+ " set user = ?, password = ?, fullName = ?, add_user = ?, edit_user = ?, delete_user = ? "
-					+ " where id = ? ");
+					+ " set user = ?, password = ?, fullName = ?, add_user = ?, edit_user = ?, delete_user = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
 			
 			st.setString(1, u.getUser() );
 			st.setString(2, u.getPassword() );
@@ -217,7 +230,10 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 			st.setString(5, u.getEdit() );
 			st.setString(6, u.getDelete() );					
 			st.setLong(7, u.getId());
-			st.executeUpdate();
+			st.setLong(8, u.getVersion());
+			if(st.executeUpdate() == 0)
+				throw VersionCheck.conflict(conn, "USER", UserRowMapper.COLUMNS, u.getId(), mapper);
+			u.setVersion(u.getVersion() + 1);
 			
 		} catch (SQLException e) {
 			throw new GatewayException(e.getMessage());
@@ -226,6 +242,8 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 			try {
 				if(st != null)
 					st.close();
+				if(conn != null)
+					conn.close();
 			} catch (SQLException e) {
 				throw new GatewayException("SQL Error: " + e.getMessage());
 			}
@@ -235,15 +253,17 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 	@Override
 	public List<User> fetchUsers() throws GatewayException {
 		ArrayList<User> ret = new ArrayList<User>();
+		Connection conn = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		try {
+			conn = pool.getConnection();
 			//fetch USERs
-			st = conn.prepareStatement("select * from USER");
+			st = conn.prepareStatement("select " + UserRowMapper.COLUMNS + " from USER");
 			rs = st.executeQuery();
 			//add each to list of USERs to return
 			while(rs.next()) {
-				User u = new User(rs.getLong("id"), rs.getString("user"), rs.getString("password"),rs.getString("fullName"),rs.getString("add_user"),rs.getString("edit_user"),rs.getString("delete_user"));
+				User u = mapper.mapRow(rs);
 				
 				ret.add(u);
 			}
@@ -256,6 +276,8 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 					rs.close();
 				if(st != null)
 					st.close();
+				if(conn != null)
+					conn.close();
 			} catch (SQLException e) {
 				throw new GatewayException("SQL Error: " + e.getMessage());
 			}
@@ -263,38 +285,54 @@ public class UserTableGatewayMySQL implements UserTableGateway {
 		
 		return ret;
 	}
-	
-	public void close() {
-		if(DEBUG)
-			System.out.println("Closing db connection...");
+
+	/**
+	 * Streams every row of the USER table to handler without building a List
+	 * @param handler called once per row while the result set is open
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public void fetchUsers(RowHandler<User> handler, int fetchSize) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
 		try {
-			conn.close();
+			conn = pool.getConnection();
+			//forward-only, read-only result set so the driver can stream instead of buffering every row
+			//(this prepareStatement form is not cached since the fetch size is set per call)
+			st = conn.prepareStatement("select " + UserRowMapper.COLUMNS + " from USER", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				User u = mapper.mapRow(rs);
+				handler.handleRow(u);
+			}
 		} catch (SQLException e) {
-			e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
 		}
 	}
 	
-	
 	/**
-	 * create a MySQL datasource with credentials and DB URL in db.properties file
-	 * @return
-	 * @throws RuntimeException
-	 * @throws IOException
+	 * connections are borrowed per call and go back to the shared pool, so there is nothing to close here
+	 * (the pool itself is closed by ConnectionPool.shutdown() when the app quits)
 	 */
-	private DataSource getDataSource() throws RuntimeException, IOException {
-		//read db credentials from properties file
-		Properties props = new Properties();
-		FileInputStream fis = null;
-        fis = new FileInputStream("db.properties");
-        props.load(fis);
-        fis.close();
-        
-        //create the datasource
-        MysqlDataSource mysqlDS = new MysqlDataSource();
-        mysqlDS.setURL(props.getProperty("MYSQL_DB_URL"));
-        mysqlDS.setUser(props.getProperty("MYSQL_DB_USERNAME"));
-        mysqlDS.setPassword(props.getProperty("MYSQL_DB_PASSWORD"));
-        return mysqlDS;
+	public void close() {
+		if(DEBUG)
+			System.out.println("Releasing gateway...");
 	}
+	
+	
 
 }
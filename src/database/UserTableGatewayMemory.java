@@ -0,0 +1,72 @@
+package database;
+
+import java.util.List;
+
+import models.User;
+
+/**
+ * In-memory implementation of UserTableGateway (see MemoryDatabase)
+ * 
+ * @author Justin Wilson
+ *
+ */
+public class UserTableGatewayMemory implements UserTableGateway {
+	private MemoryDatabase db;
+	
+	public UserTableGatewayMemory() {
+		db = MemoryDatabase.getInstance();
+	}
+
+	@Override
+	public User fetchUser(long id) throws GatewayException {
+		User u = db.users.get(id);
+		if(u == null)
+			throw new GatewayException("User " + id + " does not exist");
+		return u;
+	}
+
+	/**
+	 * @return the user with u's user name (case-insensitive, like MySQL) and password, or null if none
+	 */
+	@Override
+	public User fetchLogin(User u) throws GatewayException {
+		for(Long id : db.userNames.get(MemoryDatabase.nameKey(u.getUser()))) {
+			User d = db.users.get(id);
+			if(d != null && d.getPassword() != null && d.getPassword().equals(u.getPassword()))
+				return d;
+		}
+		return null;
+	}
+
+	@Override
+	public void deleteUser(long id) throws GatewayException {
+		db.users.delete(id);
+	}
+
+	@Override
+	public long insertUser(User u) throws GatewayException {
+		return db.users.insert(u);
+	}
+
+	@Override
+	public void saveUser(User u) throws GatewayException {
+		u.setVersion(db.users.update(u.getId(), u));
+	}
+
+	@Override
+	public List<User> fetchUsers() throws GatewayException {
+		return db.users.list();
+	}
+
+	@Override
+	public void fetchUsers(RowHandler<User> handler, int fetchSize) throws GatewayException {
+		db.users.forEach(handler);
+	}
+
+	/**
+	 * nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
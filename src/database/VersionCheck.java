@@ -0,0 +1,45 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * SQL shared by the gateways for optimistic concurrency (see sql/optimistic_locking.sql)
+ * Saves are conditional updates (... set ..., version = version + 1 where id = ? and version = ?);
+ * when one updates nothing, conflict() reads the row as it is now for the ConflictException
+ * @author Justin Wilson
+ *
+ */
+class VersionCheck {
+	private VersionCheck() {
+	}
+
+	/**
+	 * @param conn
+	 * @param table table the save updated nothing in
+	 * @param columns what mapper reads, in order
+	 * @param id id of the row saved
+	 * @param mapper
+	 * @return exception to throw, carrying the row as it is now (null if it was deleted)
+	 * @throws SQLException
+	 */
+	static <T> ConflictException conflict(Connection conn, String table, String columns, long id, RowMapper<T> mapper) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			st = conn.prepareStatement("select " + columns + " from " + table + " where id = ? ");
+			st.setLong(1, id);
+			rs = st.executeQuery();
+			if(!rs.next())
+				return new ConflictException(table + " record " + id + " was deleted by another user", null);
+			return new ConflictException(table + " record " + id + " was changed by another user", mapper.mapRow(rs));
+		} finally {
+			if(rs != null)
+				rs.close();
+			if(st != null)
+				st.close();
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import models.Warehouse;
+
+/**
+ * Maps a row of the WAREHOUSE table to a Warehouse
+ * Queries must select COLUMNS first (in that order) since columns are read by position
+ * @author Justin Wilson
+ *
+ */
+public class WarehouseRowMapper implements RowMapper<Warehouse> {
+	/**
+	 * columns a Warehouse is built from, in the order mapRow reads them
+	 */
+	public static final String COLUMNS = "id, warehouse_name, address, city, state, zip, storage_cap, version";
+	
+	/**
+	 * columns of a keys-only Warehouse (see Warehouse.keysOnly), in the order mapKeys reads them
+	 */
+	public static final String KEY_COLUMNS = "id, warehouse_name, storage_cap";
+	
+	@Override
+	public Warehouse mapRow(ResultSet rs) throws SQLException {
+		Warehouse w = new Warehouse(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getLong(7));
+		w.setVersion(rs.getLong(8));
+		return w;
+	}
+	
+	public Warehouse mapKeys(ResultSet rs) throws SQLException {
+		return Warehouse.keysOnly(rs.getLong(1), rs.getString(2), rs.getLong(3));
+	}
+}
@@ -1,5 +1,6 @@
 package database;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 import models.Warehouse;
@@ -16,6 +17,12 @@ public interface WarehouseTableGateway {
 	public abstract void deleteWarehouse(long id) throws GatewayException;
 	public abstract long insertWarehouse(Warehouse w) throws GatewayException;
 	public abstract void saveWarehouse(Warehouse w) throws GatewayException;
+	public abstract void saveWarehouses(List<Warehouse> warehouses) throws GatewayException;
 	public abstract List<Warehouse> fetchWarehouses() throws GatewayException;
+	public abstract void fetchWarehouses(RowHandler<Warehouse> handler, int fetchSize) throws GatewayException;
+	public abstract ChangeSet<Warehouse> fetchWarehousesChangedSince(Timestamp since) throws GatewayException;
+	public abstract ChangeSet<Warehouse> fetchWarehousesChangedSince(Timestamp since, RowHandler<Warehouse> handler, int fetchSize) throws GatewayException;
+	public abstract List<Warehouse> fetchWarehouses(long[] ids) throws GatewayException;
+	public abstract ChangeSet<Warehouse> fetchWarehouseKeys(RowHandler<Warehouse> handler, int fetchSize) throws GatewayException;
 	public abstract void close();
 }
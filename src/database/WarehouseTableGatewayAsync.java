@@ -0,0 +1,158 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import models.Warehouse;
+
+/**
+ * Asynchronous counterpart of WarehouseTableGateway: each call runs on the shared AsyncExecutor
+ * and returns a CompletableFuture instead of blocking the caller (e.g., the Event Dispatch Thread)
+ * Results come back on a worker thread; chain with thenAcceptAsync(..., AsyncExecutor.EDT) etc. to touch models or views
+ * @author Justin Wilson
+ *
+ */
+public class WarehouseTableGatewayAsync {
+	/**
+	 * blocking gateway that does the work
+	 */
+	private WarehouseTableGateway gateway;
+	
+	private AsyncExecutor executor;
+	
+	/**
+	 * Constructor: wraps gateway (JDBC or memory) and uses the shared executor
+	 * @param gateway
+	 * @throws GatewayException if the executor settings cannot be read
+	 */
+	public WarehouseTableGatewayAsync(WarehouseTableGateway gateway) throws GatewayException {
+		this.gateway = gateway;
+		executor = AsyncExecutor.getInstance();
+	}
+	
+	public WarehouseTableGateway getGateway() {
+		return gateway;
+	}
+	
+	public CompletableFuture<Warehouse> fetchWarehouseAsync(final long id) {
+		return executor.submit(new Callable<Warehouse>() {
+			@Override
+			public Warehouse call() throws GatewayException {
+				return gateway.fetchWarehouse(id);
+			}
+		});
+	}
+	
+	public CompletableFuture<List<Warehouse>> fetchWarehousesAsync() {
+		return executor.submit(new Callable<List<Warehouse>>() {
+			@Override
+			public List<Warehouse> call() throws GatewayException {
+				return gateway.fetchWarehouses();
+			}
+		});
+	}
+	
+	/**
+	 * rows with the given ids, fetched in batches (see WarehouseTableGateway.fetchWarehouses(long[]))
+	 */
+	public CompletableFuture<List<Warehouse>> fetchWarehousesAsync(final long[] ids) {
+		return executor.submit(new Callable<List<Warehouse>>() {
+			@Override
+			public List<Warehouse> call() throws GatewayException {
+				return gateway.fetchWarehouses(ids);
+			}
+		});
+	}
+	
+	/**
+	 * keys-only rows of the whole table, collected in the ChangeSet (see WarehouseTableGateway.fetchWarehouseKeys)
+	 */
+	public CompletableFuture<ChangeSet<Warehouse>> fetchWarehouseKeysAsync() {
+		return executor.submit(new Callable<ChangeSet<Warehouse>>() {
+			@Override
+			public ChangeSet<Warehouse> call() throws GatewayException {
+				return gateway.fetchWarehouseKeys(null, 0);
+			}
+		});
+	}
+	
+	/**
+	 * streams keys-only rows of the whole table to handler on the worker, with the load timeout
+	 * @return the ChangeSet, with no rows in it (they went to handler)
+	 */
+	public CompletableFuture<ChangeSet<Warehouse>> fetchWarehouseKeysAsync(final RowHandler<Warehouse> handler, final int fetchSize) {
+		return executor.submitLoad(new Callable<ChangeSet<Warehouse>>() {
+			@Override
+			public ChangeSet<Warehouse> call() throws GatewayException {
+				return gateway.fetchWarehouseKeys(handler, fetchSize);
+			}
+		});
+	}
+	
+	/**
+	 * streams the rows to handler on the worker (see WarehouseTableGateway.fetchWarehousesChangedSince(Timestamp, RowHandler, int));
+	 * a full load (since null) gets the load timeout instead of the default one
+	 * @return the ChangeSet, with no rows in it (they went to handler)
+	 */
+	public CompletableFuture<ChangeSet<Warehouse>> fetchWarehousesChangedSinceAsync(final Timestamp since, final RowHandler<Warehouse> handler, final int fetchSize) {
+		Callable<ChangeSet<Warehouse>> task = new Callable<ChangeSet<Warehouse>>() {
+			@Override
+			public ChangeSet<Warehouse> call() throws GatewayException {
+				return gateway.fetchWarehousesChangedSince(since, handler, fetchSize);
+			}
+		};
+		return since == null ? executor.submitLoad(task) : executor.submit(task);
+	}
+	
+	/**
+	 * rows are collected in the ChangeSet; apply it to the list on the EDT
+	 */
+	public CompletableFuture<ChangeSet<Warehouse>> fetchWarehousesChangedSinceAsync(final Timestamp since) {
+		return executor.submit(new Callable<ChangeSet<Warehouse>>() {
+			@Override
+			public ChangeSet<Warehouse> call() throws GatewayException {
+				return gateway.fetchWarehousesChangedSince(since);
+			}
+		});
+	}
+	
+	public CompletableFuture<Boolean> warehouseAlreadyExistsAsync(final long id, final String wn) {
+		return executor.submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws GatewayException {
+				return gateway.warehouseAlreadyExists(id, wn);
+			}
+		});
+	}
+	
+	public CompletableFuture<Long> insertWarehouseAsync(final Warehouse w) {
+		return executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws GatewayException {
+				return gateway.insertWarehouse(w);
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> saveWarehouseAsync(final Warehouse w) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.saveWarehouse(w);
+				return null;
+			}
+		});
+	}
+	
+	public CompletableFuture<Void> deleteWarehouseAsync(final long id) {
+		return executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				gateway.deleteWarehouse(id);
+				return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,542 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Warehouse;
+
+
+/**
+ * JDBC implementation of WarehouseTableGateway (MySQL or H2; engine-specific SQL comes from the pool's SqlDialect)
+ * 
+ * @author Justin Wilson
+ *
+ */
+public class WarehouseTableGatewayJDBC implements WarehouseTableGateway {
+	private static final boolean DEBUG = true;
+
+	/**
+	 * most rows sent to the db in one executeBatch() call by saveWarehouses
+	 */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * shared pool that db connections are borrowed from for each call
+	 */
+	private ConnectionPool pool;
+	
+	/**
+	 * SQL differences of the pool's database
+	 */
+	private SqlDialect dialect;
+	
+	/**
+	 * builds model objects from the projected columns of each row
+	 */
+	private WarehouseRowMapper mapper;
+	
+	/**
+	 * Constructor: uses the shared connection pool
+	 * @throws GatewayException
+	 */
+	public WarehouseTableGatewayJDBC() throws GatewayException {
+		pool = ConnectionPool.getInstance();
+		dialect = pool.getDialect();
+		mapper = new WarehouseRowMapper();
+	}
+
+	@Override
+	public Warehouse fetchWarehouse(long id) throws GatewayException {
+		Warehouse d = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch person
+			st = conn.prepareStatement("select " + WarehouseRowMapper.COLUMNS + " from WAREHOUSE where id = ? ");
+			st.setLong(1, id);
+			rs = st.executeQuery();
+			//should only be 1
+			rs.next();
+			d = mapper.mapRow(rs);
+			
+		} catch (SQLException e) {
+			//e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return d;
+	}
+	
+	/**
+	 * determines if given first and last name already exist in the warehouse table
+	 * @param wn warehouse's  name
+	 * @return true if warehouse exists in database, else false
+	 */
+	public boolean warehouseAlreadyExists(long id, String wn) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch warehouse
+			st = conn.prepareStatement("select count(id) as num_records "
+					+ " from WAREHOUSE where warehouse_name = ? and id <> ? ");
+			st.setString(1, wn);
+			st.setLong(2, id);
+			rs = st.executeQuery();
+			//should only be 1
+			rs.next();
+			if(rs.getInt("num_records") > 0)
+				return true;
+			//give warehouse object a reference to this gateway
+			//NOTE: this is now the responsibility of the WarehouseList
+			//p.setGateway(this);
+		} catch (SQLException e) {
+			//e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Deletes warehouse from the database
+	 * Note: uses a transaction to perform deletion since it involves multiple tables
+	 * @param id Id of the warehouse in the db to fetch
+	 */
+	@Override
+	public void deleteWarehouse(long id) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "WAREHOUSE");
+			
+			//use this statement to force tx exception to see rollback
+			st = conn.prepareStatement("delete from WAREHOUSE where id = ? ");
+			st.setLong(1, id);
+			//leave a tombstone so other clients' next sync removes the row from their lists
+			if(st.executeUpdate() > 0)
+				ChangeTracking.writeTombstone(conn, dialect, "WAREHOUSE", id);
+			
+			//if we get here, everything worked without exception so commit the changes
+			conn.commit();
+
+		} catch (SQLException e) {
+			//roll the tx back
+			try {
+				if(conn != null)
+					conn.rollback();
+			} catch (SQLException e1) {
+				throw new GatewayException(e1.getMessage());
+			}
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(st != null)
+					st.close();
+				//turn autocommit on again regardless if commit or rollback
+				if(conn != null) {
+					conn.setAutoCommit(true);
+					conn.close();
+				}
+			} catch (SQLException e) {
+				throw new GatewayException(e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public long insertWarehouse(Warehouse w) throws GatewayException {
+		//init new id to invalid
+		long newId = Warehouse.INVALID_ID;
+		Connection conn = null;
+		PreparedStatement st = null;
+		boolean committed = false;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//a tx so a sync can't read its time before this write commits (see ChangeTracking)
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "WAREHOUSE");
+			st = conn.prepareStatement("insert into WAREHOUSE (warehouse_name, address, city, state, zip, storage_cap) "
+					+ " values ( ?, ?, ?, ?, ?, ? ) ", PreparedStatement.RETURN_GENERATED_KEYS);
+			
+			st.setString(1, w.getWareHouseName());
+			st.setString(2, w.getAddress());
+			st.setString(3, w.getCity());
+			st.setString(4, w.getState());
+			st.setString(5, w.getZip());
+			st.setLong(6, w.getStorageCapacity());
+			
+			
+			st.executeUpdate();
+			//get the generated key
+			rs = st.getGeneratedKeys();
+			if(rs != null && rs.next()) {
+			    newId = rs.getLong(1);
+			} else {
+				throw new GatewayException("Could not fetch new record Id");
+			}
+			conn.commit();
+			committed = true;
+		} catch (SQLException e) {
+			System.out.print(e.getMessage());
+			//e.printStackTrace();
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, rs, committed);
+		}
+		return newId;
+	}
+
+	/**
+	 * Saves w only if the record is still at w's version (optimistic concurrency: nothing is locked while it is edited)
+	 * On success the record's version, and w's, go up by one
+	 * @throws ConflictException if the record was changed or deleted since w was read (carries the record as it is now)
+	 */
+	@Override
+	public void saveWarehouse(Warehouse w) throws GatewayException {
+		//execute the update and throw exception if any problem
+		Connection conn = null;
+		PreparedStatement st = null;
+		boolean committed = false;
+		try {
+			conn = pool.getConnection();
+			//a tx so a sync can't read its time before this write commits (see ChangeTracking)
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "WAREHOUSE");
+			st = conn.prepareStatement("update WAREHOUSE "
+					+ " set warehouse_name = ?, address = ?, city = ?, state = ?, zip = ?, storage_cap = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
+			
+			st.setString(1, w.getWareHouseName());
+			st.setString(2, w.getAddress());
+			st.setString(3, w.getCity());
+			st.setString(4, w.getState());
+			st.setString(5, w.getZip());
+			st.setLong(6, w.getStorageCapacity());
+			st.setLong(7, w.getId());
+			st.setLong(8, w.getVersion());
+			if(st.executeUpdate() == 0)
+				throw VersionCheck.conflict(conn, "WAREHOUSE", WarehouseRowMapper.COLUMNS, w.getId(), mapper);
+			conn.commit();
+			committed = true;
+			w.setVersion(w.getVersion() + 1);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+	}
+
+	/**
+	 * Saves all given records in a single transaction using JDBC batching
+	 * Each row is only saved if it is still at its record's version (see saveWarehouse); on success every record's version goes up by one
+	 * @param warehouses records to save (must already have ids)
+	 * @throws BatchException if any row fails, no longer exists or was changed since it was read; nothing is saved in that case
+	 */
+	@Override
+	public void saveWarehouses(List<Warehouse> warehouses) throws GatewayException {
+		ArrayList<Integer> failed = new ArrayList<Integer>();
+		String error = null;
+		boolean committed = false;
+		Connection conn = null;
+		PreparedStatement st = null;
+		try {
+			conn = pool.getConnection();
+			//turn off autocommit to start the tx
+			conn.setAutoCommit(false);
+			ChangeTracking.beginChange(conn, "WAREHOUSE");
+			
+			st = conn.prepareStatement("update WAREHOUSE "
+					+ " set warehouse_name = ?, address = ?, city = ?, state = ?, zip = ?, storage_cap = ?, version = version + 1 "
+					+ " where id = ? and version = ? ");
+			for(int start = 0; start < warehouses.size(); start += BATCH_SIZE) {
+				int end = Math.min(start + BATCH_SIZE, warehouses.size());
+				for(int i = start; i < end; i++) {
+					Warehouse w = warehouses.get(i);
+					st.setString(1, w.getWareHouseName());
+					st.setString(2, w.getAddress());
+					st.setString(3, w.getCity());
+					st.setString(4, w.getState());
+					st.setString(5, w.getZip());
+					st.setLong(6, w.getStorageCapacity());
+					st.setLong(7, w.getId());
+					st.setLong(8, w.getVersion());
+					st.addBatch();
+				}
+				String chunkError = JdbcBatch.execute(st, start, true, failed);
+				if(error == null)
+					error = chunkError;
+			}
+			
+			if(failed.isEmpty()) {
+				conn.commit();
+				committed = true;
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			JdbcBatch.endTransaction(conn, st, null, committed);
+		}
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + warehouses.size() + " warehouses could not be saved: " + error, failed);
+		for(Warehouse w : warehouses)
+			w.setVersion(w.getVersion() + 1);
+	}
+
+	@Override
+	public List<Warehouse> fetchWarehouses() throws GatewayException {
+		ArrayList<Warehouse> ret = new ArrayList<Warehouse>();
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//fetch WAREHOUSEs
+			st = conn.prepareStatement("select " + WarehouseRowMapper.COLUMNS + " from WAREHOUSE");
+			rs = st.executeQuery();
+			//add each to list of WAREHOUSEs to return
+			while(rs.next()) {
+				Warehouse w = mapper.mapRow(rs);
+				ret.add(w);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		
+		return ret;
+	}
+
+	/**
+	 * Streams every row of the WAREHOUSE table to handler without building a List
+	 * @param handler called once per row while the result set is open
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public void fetchWarehouses(RowHandler<Warehouse> handler, int fetchSize) throws GatewayException {
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//forward-only, read-only result set so the driver can stream instead of buffering every row
+			//(this prepareStatement form is not cached since the fetch size is set per call)
+			st = conn.prepareStatement("select " + WarehouseRowMapper.COLUMNS + " from WAREHOUSE", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Warehouse w = mapper.mapRow(rs);
+				handler.handleRow(w);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Fetches the WAREHOUSE rows inserted, updated or deleted since the given time
+	 * @param since sync time of the last ChangeSet, or null to fetch every row
+	 * @return changed rows, deleted ids and the time to pass as since next time
+	 */
+	@Override
+	public ChangeSet<Warehouse> fetchWarehousesChangedSince(Timestamp since) throws GatewayException {
+		return fetchWarehousesChangedSince(since, null, 0);
+	}
+	
+	/**
+	 * Same as fetchWarehousesChangedSince(since) but streams the changed rows to handler instead of
+	 * collecting them in the ChangeSet, so a full fetch (since null) never holds the whole table in a List
+	 * @param since sync time of the last ChangeSet, or null to fetch every row
+	 * @param handler called once per inserted or updated row (null to collect the rows in the ChangeSet)
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 */
+	@Override
+	public ChangeSet<Warehouse> fetchWarehousesChangedSince(Timestamp since, RowHandler<Warehouse> handler, int fetchSize) throws GatewayException {
+		ChangeSet<Warehouse> changes = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//read the sync time (once the writes in flight have committed) before the rows, so anything committed while reading is picked up by the next sync
+			changes = new ChangeSet<Warehouse>(ChangeTracking.fetchSyncTime(conn, dialect, "WAREHOUSE"), since == null);
+			
+			//last_modified is indexed so a delta is a range scan
+			if(since == null) {
+				st = conn.prepareStatement("select " + WarehouseRowMapper.COLUMNS + " from WAREHOUSE", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			} else {
+				st = conn.prepareStatement("select " + WarehouseRowMapper.COLUMNS + " from WAREHOUSE where last_modified >= ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				st.setTimestamp(1, ChangeTracking.withOverlap(since));
+			}
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Warehouse w = mapper.mapRow(rs);
+				if(handler != null)
+					handler.handleRow(w);
+				else
+					changes.addChanged(w);
+			}
+			rs.close();
+			rs = null;
+			
+			if(since != null)
+				ChangeTracking.fetchDeletedIds(conn, "WAREHOUSE", since, changes);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return changes;
+	}
+	
+	/**
+	 * Fetches the rows with the given ids in as few round trips as possible (up to IdBatch.MAX_IDS ids per query)
+	 * @param ids ids of rows that no longer exist are skipped
+	 * @return the rows found, in no particular order
+	 */
+	@Override
+	public List<Warehouse> fetchWarehouses(long[] ids) throws GatewayException {
+		ArrayList<Warehouse> ret = new ArrayList<Warehouse>(ids.length);
+		Connection conn = null;
+		try {
+			conn = pool.getConnection();
+			IdBatch.fetch(conn, "WAREHOUSE", WarehouseRowMapper.COLUMNS, ids, mapper, ret);
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Same as a full fetchWarehousesChangedSince(null, ...) but only reads the key columns (see Warehouse.keysOnly),
+	 * so a lazy WarehouseList can list every record without holding every column of every record
+	 * @param handler called once per row (null to collect the rows in the ChangeSet)
+	 * @param fetchSize rows fetched per round trip; 0 or less streams one row at a time
+	 * @return full ChangeSet (the time to pass as since to the next fetchWarehousesChangedSince)
+	 */
+	@Override
+	public ChangeSet<Warehouse> fetchWarehouseKeys(RowHandler<Warehouse> handler, int fetchSize) throws GatewayException {
+		ChangeSet<Warehouse> changes = null;
+		Connection conn = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			conn = pool.getConnection();
+			//read the sync time (once the writes in flight have committed) before the rows, so anything committed while reading is picked up by the next sync
+			changes = new ChangeSet<Warehouse>(ChangeTracking.fetchSyncTime(conn, dialect, "WAREHOUSE"), true);
+			st = conn.prepareStatement("select " + WarehouseRowMapper.KEY_COLUMNS + " from WAREHOUSE", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(dialect.streamingFetchSize(fetchSize));
+			rs = st.executeQuery();
+			while(rs.next()) {
+				Warehouse row = mapper.mapKeys(rs);
+				if(handler != null)
+					handler.handleRow(row);
+				else
+					changes.addChanged(row);
+			}
+		} catch (SQLException e) {
+			throw new GatewayException(e.getMessage());
+		} finally {
+			//clean up
+			try {
+				if(rs != null)
+					rs.close();
+				if(st != null)
+					st.close();
+				if(conn != null)
+					conn.close();
+			} catch (SQLException e) {
+				throw new GatewayException("SQL Error: " + e.getMessage());
+			}
+		}
+		return changes;
+	}
+	
+	/**
+	 * connections are borrowed per call and go back to the shared pool, so there is nothing to close here
+	 * (the pool itself is closed by ConnectionPool.shutdown() when the app quits)
+	 */
+	public void close() {
+		if(DEBUG)
+			System.out.println("Releasing gateway...");
+	}
+
+	
+}
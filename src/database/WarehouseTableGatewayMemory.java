@@ -0,0 +1,127 @@
+package database;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Warehouse;
+
+/**
+ * In-memory implementation of WarehouseTableGateway (see MemoryDatabase)
+ * 
+ * @author Justin Wilson
+ *
+ */
+public class WarehouseTableGatewayMemory implements WarehouseTableGateway {
+	private MemoryDatabase db;
+	
+	public WarehouseTableGatewayMemory() {
+		db = MemoryDatabase.getInstance();
+	}
+
+	@Override
+	public Warehouse fetchWarehouse(long id) throws GatewayException {
+		Warehouse w = db.warehouses.get(id);
+		if(w == null)
+			throw new GatewayException("Warehouse " + id + " does not exist");
+		return w;
+	}
+
+	/**
+	 * determines if another warehouse already has the given name (compared case-insensitively, like MySQL)
+	 * @param id id of the warehouse being checked (ignored in the comparison)
+	 * @param wn warehouse's name
+	 * @return true if the name is taken
+	 */
+	@Override
+	public boolean warehouseAlreadyExists(long id, String wn) throws GatewayException {
+		for(Long other : db.warehouseNames.get(MemoryDatabase.nameKey(wn))) {
+			if(other != id)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void deleteWarehouse(long id) throws GatewayException {
+		db.warehouses.delete(id);
+	}
+
+	@Override
+	public long insertWarehouse(Warehouse w) throws GatewayException {
+		return db.warehouses.insert(w);
+	}
+
+	@Override
+	public void saveWarehouse(Warehouse w) throws GatewayException {
+		w.setVersion(db.warehouses.update(w.getId(), w));
+	}
+
+	@Override
+	public void saveWarehouses(List<Warehouse> warehouses) throws GatewayException {
+		long[] ids = new long[warehouses.size()];
+		for(int i = 0; i < ids.length; i++)
+			ids[i] = warehouses.get(i).getId();
+		List<Integer> failed = db.warehouses.updateAll(ids, warehouses);
+		if(!failed.isEmpty())
+			throw new BatchException(failed.size() + " of " + warehouses.size() + " warehouses could not be saved: Record was changed or deleted by another user", failed);
+		for(Warehouse w : warehouses)
+			w.setVersion(w.getVersion() + 1);
+	}
+
+	@Override
+	public List<Warehouse> fetchWarehouses() throws GatewayException {
+		return db.warehouses.list();
+	}
+
+	@Override
+	public void fetchWarehouses(RowHandler<Warehouse> handler, int fetchSize) throws GatewayException {
+		db.warehouses.forEach(handler);
+	}
+
+	@Override
+	public ChangeSet<Warehouse> fetchWarehousesChangedSince(Timestamp since) throws GatewayException {
+		return db.warehouses.changedSince(since, null);
+	}
+
+	@Override
+	public ChangeSet<Warehouse> fetchWarehousesChangedSince(Timestamp since, RowHandler<Warehouse> handler, int fetchSize) throws GatewayException {
+		return db.warehouses.changedSince(since, handler);
+	}
+
+	@Override
+	public List<Warehouse> fetchWarehouses(long[] ids) throws GatewayException {
+		ArrayList<Warehouse> ret = new ArrayList<Warehouse>(ids.length);
+		for(long id : ids) {
+			Warehouse row = db.warehouses.get(id);
+			if(row != null)
+				ret.add(row);
+		}
+		return ret;
+	}
+
+	@Override
+	public ChangeSet<Warehouse> fetchWarehouseKeys(final RowHandler<Warehouse> handler, int fetchSize) throws GatewayException {
+		final ArrayList<Warehouse> collected = new ArrayList<Warehouse>();
+		ChangeSet<Warehouse> changes = db.warehouses.changedSince(null, new RowHandler<Warehouse>() {
+			@Override
+			public void handleRow(Warehouse row) throws GatewayException {
+				Warehouse keys = Warehouse.keysOnly(row.getId(), row.getWareHouseName(), row.getStorageCapacity());
+				if(handler != null)
+					handler.handleRow(keys);
+				else
+					collected.add(keys);
+			}
+		});
+		for(Warehouse keys : collected)
+			changes.addChanged(keys);
+		return changes;
+	}
+
+	/**
+	 * nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,374 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+
+import database.AsyncExecutor;
+import database.DatabaseConfig;
+import database.GatewayException;
+import database.LeaseGateway;
+
+/**
+ * Keeps this client's edit leases: a record open in a detail view is leased to the user who opened it,
+ * so nobody else can open it for editing until the view closes or the lease runs out
+ *
+ * A detail view takes its lease (acquire) before it opens and gives it back (Lease.release) when it closes.
+ * While leases are held, a heartbeat renews them all with one statement per holder every third of the lease time,
+ * so a lease only runs out if this client stops (crash, lost connection). A sweeper deletes leases that ran out,
+ * a small batch at a time, so the lease table stays small; an expired lease that has not been swept yet
+ * can already be taken over. Records opened more than once by this client share one lease.
+ * Leases are held as user@client (the user's name plus an id this client picked at random), so two clients
+ * logged in as the same user never renew, release or take over each other's leases.
+ * Each acquire also writes a new token, and a release only deletes the lease if its token is still there, so a release
+ * that is still queued when the record is opened again here does not delete the new lease.
+ *
+ * Settings are optional entries in db.properties:
+ * 		LEASE_TTL_S 			seconds a lease lasts without a heartbeat (default 120)
+ * 		LEASE_SWEEP_INTERVAL_S 	seconds between sweeps (default 60)
+ * 		LEASE_SWEEP_BATCH 		expired leases deleted per statement (default 100)
+ * Thread safe.
+ * @author Justin Wilson
+ *
+ */
+public class EditLeaseManager {
+	/**
+	 * table names of the leased records
+	 */
+	public static final String WAREHOUSE = "WAREHOUSE";
+	public static final String PART = "PART";
+	public static final String INVENTORY = "INVENTORY";
+	public static final String USER = "USER";
+
+	/**
+	 * most statements one sweep runs, so a backlog of expired leases is worked off over several sweeps
+	 */
+	private static final int MAX_SWEEP_BATCHES = 10;
+
+	/**
+	 * a record's lease as handed to one detail view
+	 */
+	public class Lease {
+		private final String key;
+		private final String table;
+		private final long rowId;
+		private boolean released;
+
+		private Lease(String key, String table, long rowId) {
+			this.key = key;
+			this.table = table;
+			this.rowId = rowId;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public long getRowId() {
+			return rowId;
+		}
+
+		/**
+		 * @return true if the heartbeat found that someone else took the lease over after it ran out
+		 */
+		public boolean isLost() {
+			return key != null && EditLeaseManager.this.isLost(key);
+		}
+
+		/**
+		 * gives the lease back (once the last view sharing it is done); safe to call more than once
+		 */
+		public void release() {
+			synchronized(this) {
+				if(released)
+					return;
+				released = true;
+			}
+			if(key != null)
+				EditLeaseManager.this.release(key);
+		}
+	}
+
+	/**
+	 * a lease this client has in the db
+	 */
+	private static class Held {
+		final String table;
+		final long rowId;
+		final String holder;
+		/**
+		 * written by the acquire that took the lease
+		 */
+		final long token;
+		/**
+		 * Lease objects not yet released
+		 */
+		int count;
+		boolean lost;
+
+		Held(String table, long rowId, String holder, long token) {
+			this.table = table;
+			this.rowId = rowId;
+			this.holder = holder;
+			this.token = token;
+		}
+	}
+
+	private LeaseGateway gateway;
+
+	private int ttlSeconds;
+	private long sweepIntervalMs;
+	private int sweepBatch;
+
+	/**
+	 * this client's part of its holders (see holderFor)
+	 */
+	private String clientId;
+
+	/**
+	 * "table/row id" -> lease held
+	 */
+	private HashMap<String, Held> held;
+
+	/**
+	 * every holder this client has taken leases as (released all at once on shutdown)
+	 */
+	private HashSet<String> holders;
+
+	/**
+	 * last token handed out (0 is the token of leases written before tokens were used)
+	 */
+	private long lastToken;
+
+	/**
+	 * held by acquire and heartbeat while they write a lease, so the token in the db is always the one in held
+	 */
+	private final Object acquireLock = new Object();
+
+	private ScheduledFuture<?> heartbeat, sweeper;
+
+	/**
+	 * Constructor: settings from db.properties
+	 * @param gateway
+	 * @throws GatewayException if db.properties cannot be read
+	 */
+	public EditLeaseManager(LeaseGateway gateway) throws GatewayException {
+		this(gateway, DatabaseConfig.getInstance().getInt("LEASE_TTL_S", 120),
+				DatabaseConfig.getInstance().getInt("LEASE_SWEEP_INTERVAL_S", 60) * 1000L,
+				DatabaseConfig.getInstance().getInt("LEASE_SWEEP_BATCH", 100));
+	}
+
+	/**
+	 * @param gateway
+	 * @param ttlSeconds seconds a lease lasts without a heartbeat (at least 3)
+	 * @param sweepIntervalMs time between sweeps
+	 * @param sweepBatch expired leases deleted per statement
+	 */
+	public EditLeaseManager(LeaseGateway gateway, int ttlSeconds, long sweepIntervalMs, int sweepBatch) {
+		this.gateway = gateway;
+		this.ttlSeconds = Math.max(3, ttlSeconds);
+		this.sweepIntervalMs = Math.max(1000, sweepIntervalMs);
+		this.sweepBatch = Math.max(1, sweepBatch);
+		clientId = UUID.randomUUID().toString();
+		held = new HashMap<String, Held>();
+		holders = new HashSet<String>();
+	}
+
+	/**
+	 * starts the heartbeat and the sweeper on the executor's timer
+	 * @param executor
+	 */
+	public synchronized void start(AsyncExecutor executor) {
+		if(heartbeat != null)
+			return;
+		heartbeat = executor.scheduleRepeating(new Callable<Void>() {
+			@Override
+			public Void call() throws GatewayException {
+				heartbeat();
+				return null;
+			}
+		}, ttlSeconds * 1000L / 3);
+		sweeper = executor.scheduleRepeating(new Callable<Integer>() {
+			@Override
+			public Integer call() throws GatewayException {
+				return sweep();
+			}
+		}, sweepIntervalMs);
+	}
+
+	/**
+	 * stops the heartbeat and the sweeper and gives back every lease this client still has
+	 */
+	public void shutdown() {
+		List<String> all;
+		synchronized(this) {
+			if(heartbeat != null) {
+				heartbeat.cancel(false);
+				sweeper.cancel(false);
+				heartbeat = sweeper = null;
+			}
+			held.clear();
+			all = new ArrayList<String>(holders);
+		}
+		for(String holder : all) {
+			try {
+				gateway.releaseLeases(holder);
+			} catch (GatewayException e) {
+				//they run out on their own
+				System.err.println("Could not release edit leases: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * takes the lease on a record for the user on this client
+	 * @param table one of WAREHOUSE, PART, INVENTORY, USER
+	 * @param rowId record's id; an unsaved record (INVALID_ID) gets a lease that holds nothing
+	 * @param user name of the logged in user, or null if nobody is logged in
+	 * @return the lease, or null if someone else (another user, or the same user on another client) has the record open
+	 * @throws GatewayException
+	 */
+	public Lease acquire(String table, long rowId, String user) throws GatewayException {
+		if(rowId == 0)
+			return new Lease(null, table, rowId);
+		String holder = holderFor(user);
+		String key = table + "/" + rowId;
+		synchronized(this) {
+			Held h = held.get(key);
+			//already open here: share the lease (unless the heartbeat found it taken over)
+			if(h != null && h.holder.equals(holder) && !h.lost) {
+				h.count++;
+				return new Lease(key, table, rowId);
+			}
+		}
+		synchronized(acquireLock) {
+			long token;
+			synchronized(this) {
+				Held h = held.get(key);
+				//opened here while this thread waited for acquireLock
+				if(h != null && h.holder.equals(holder) && !h.lost) {
+					h.count++;
+					return new Lease(key, table, rowId);
+				}
+				token = ++lastToken;
+			}
+			if(!gateway.acquireLease(table, rowId, holder, token, ttlSeconds))
+				return null;
+			synchronized(this) {
+				//views still open on a lost lease keep their count, so the new lease starts from it
+				Held old = held.get(key);
+				Held h = new Held(table, rowId, holder, token);
+				if(old != null && old.holder.equals(holder))
+					h.count = old.count;
+				held.put(key, h);
+				h.count++;
+				holders.add(holder);
+				return new Lease(key, table, rowId);
+			}
+		}
+	}
+
+	/**
+	 * @param user name of the logged in user, or null if nobody is logged in
+	 * @return who the user's leases are held as in the db: user@client id
+	 */
+	String holderFor(String user) {
+		return (user == null ? "guest" : user) + "@" + clientId;
+	}
+
+	private void release(String key) {
+		Held h;
+		synchronized(this) {
+			h = held.get(key);
+			if(h == null || --h.count > 0)
+				return;
+			held.remove(key);
+		}
+		//the view is closing; don't make it wait for the db (an unreleased lease just runs out)
+		final Held gone = h;
+		try {
+			AsyncExecutor.getInstance().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws GatewayException {
+					gateway.releaseLease(gone.table, gone.rowId, gone.holder, gone.token);
+					return null;
+				}
+			});
+		} catch (GatewayException e) {
+			System.err.println("Could not release edit lease: " + e.getMessage());
+		}
+	}
+
+	private synchronized boolean isLost(String key) {
+		Held h = held.get(key);
+		return h != null && h.lost;
+	}
+
+	/**
+	 * @return number of records this client has leased
+	 */
+	public synchronized int size() {
+		return held.size();
+	}
+
+	/**
+	 * renews every lease this client holds: one statement per holder, plus one per lease of a holder
+	 * whose count came up short (a lease ran out and was swept or taken over, e.g., after the db was unreachable)
+	 * @throws GatewayException
+	 */
+	public void heartbeat() throws GatewayException {
+		HashMap<String, List<Held>> byHolder = new HashMap<String, List<Held>>();
+		synchronized(this) {
+			for(Held h : held.values()) {
+				if(h.lost)
+					continue;
+				List<Held> l = byHolder.get(h.holder);
+				if(l == null) {
+					l = new ArrayList<Held>();
+					byHolder.put(h.holder, l);
+				}
+				l.add(h);
+			}
+		}
+		for(Map.Entry<String, List<Held>> e : byHolder.entrySet()) {
+			if(gateway.renewLeases(e.getKey(), ttlSeconds) >= e.getValue().size())
+				continue;
+			for(Held h : e.getValue()) {
+				synchronized(acquireLock) {
+					synchronized(this) {
+						//released, or taken again with a new token, since the heartbeat started
+						if(held.get(h.table + "/" + h.rowId) != h)
+							continue;
+					}
+					if(!gateway.acquireLease(h.table, h.rowId, h.holder, h.token, ttlSeconds)) {
+						synchronized(this) {
+							h.lost = true;
+						}
+						System.err.println("Edit lease on " + h.table + " " + h.rowId + " was taken over by another user");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * deletes expired leases (from any client) in batches of LEASE_SWEEP_BATCH, at most MAX_SWEEP_BATCHES batches
+	 * @return number deleted
+	 * @throws GatewayException
+	 */
+	public int sweep() throws GatewayException {
+		int total = 0;
+		for(int i = 0; i < MAX_SWEEP_BATCHES; i++) {
+			int n = gateway.expireLeases(sweepBatch);
+			total += n;
+			if(n < sweepBatch)
+				break;
+		}
+		return total;
+	}
+}
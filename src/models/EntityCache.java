@@ -0,0 +1,113 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Size-bounded, least-recently-used set of the records a lazy list holds in full, with hit/miss counts
+ *
+ * The list adds each record it holds in full with put() (again on each use, to mark it most recently used);
+ * put() returns the least recently used records pushed out to stay within the capacity, whose details the list
+ * then drops (see PartList.hydrateAll). The list also counts each request: a hit was already held in full,
+ * a miss had to be fetched.
+ * Thread safe.
+ * @author Justin Wilson
+ *
+ * @param <T> model type of the records
+ */
+public class EntityCache<T> {
+	/**
+	 * records held in full, least recently used first
+	 */
+	private LinkedHashMap<Long, T> rows;
+
+	private int capacity;
+
+	private long hits, misses, evictions;
+
+	/**
+	 * @param capacity most records held in full (at least 1)
+	 */
+	public EntityCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		rows = new LinkedHashMap<Long, T>(16, 0.75f, true);
+	}
+
+	/**
+	 * counts requests for records
+	 * @param hit records that were already held in full
+	 * @param missed records that had to be fetched
+	 */
+	public synchronized void count(int hit, int missed) {
+		hits += hit;
+		misses += missed;
+	}
+
+	/**
+	 * adds (or marks most recently used) a record held in full
+	 * @return records pushed out to stay within the capacity, least recently used first (empty if none)
+	 */
+	public synchronized List<T> put(long id, T row) {
+		rows.put(id, row);
+		if(rows.size() <= capacity)
+			return new ArrayList<T>(0);
+		ArrayList<T> evicted = new ArrayList<T>(rows.size() - capacity);
+		Iterator<T> it = rows.values().iterator();
+		while(rows.size() > capacity) {
+			evicted.add(it.next());
+			it.remove();
+		}
+		evictions += evicted.size();
+		return evicted;
+	}
+
+	/**
+	 * forgets a record (e.g., removed from the list); not counted as an eviction
+	 */
+	public synchronized void remove(long id) {
+		rows.remove(id);
+	}
+
+	public synchronized void clear() {
+		rows.clear();
+	}
+
+	public synchronized boolean contains(long id) {
+		return rows.containsKey(id);
+	}
+
+	public synchronized int size() {
+		return rows.size();
+	}
+
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return hits / (hits + misses), or 0 before any request
+	 */
+	public synchronized double getHitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d/%d held, %d hits, %d misses (%.0f%% hit), %d evicted", rows.size(), capacity, hits, misses, getHitRate() * 100, evictions);
+	}
+}
@@ -3,6 +3,7 @@ package models;
 import java.util.Observable;
 
 import controller.MDIParent;
+import database.ConflictException;
 import database.InventoryTableGateway;
 import database.GatewayException;
 
@@ -31,6 +32,11 @@ public class Inventory extends Observable {
 	private Long part_id, warehouse_id;
 	private double quantity;
 	
+	/**
+	 * version of the record this copy was read at (INVENTORY.version); a save only succeeds if the db still has this version
+	 */
+	private long version;
+	
 	/**
 	 * Database connection for the Inventory (same gateway used by PersonInventory) 
 	 */
@@ -64,10 +70,19 @@ public class Inventory extends Observable {
 	/**
 	 * Tells the model that update has finished so it can finish the update
 	 * E.g., notify observers
+	 * While a WriteBehindQueue is running, a saved record is only queued and this returns right away
+	 * (a failed save is then rolled back and reported to the queue's failure listener instead of thrown)
+	 * @throws ConflictException if someone else saved (or deleted) the record since this copy was read;
+	 * the model then holds the record as it is now in the db (observers are notified, so a detail view can merge its edits)
 	 */
 	public void finishUpdate() throws GatewayException {
-		Inventory orig = null;
-
+		//write-behind: queue the save and return right away (see WriteBehindQueue)
+		WriteBehindQueue queue = WriteBehindQueue.getActive();
+		if(queue != null && this.getId() != 0) {
+			queue.enqueue(this);
+			notifyObservers();
+			return;
+		}
 		try {
 			//if id is 0 then this is a new Inventory to insert, else its an update
 			if(this.getId() == 0) {
@@ -75,26 +90,44 @@ public class Inventory extends Observable {
 				this.setId(gateway.insertInventory(this));
 				
 			} else {
-				//fetch inventory from db table in case this fails
-			
-				orig = gateway.fetchInventory(this.getId());
-				
-				//try to save to the database
+				//try to save to the database (only if nobody else saved it since it was read)
 				gateway.saveInventory(this);
 			}
 			
 			//if gateway ok then notify observers
 			notifyObservers();
 			
+		} catch(ConflictException e) {
+			//show what is in the db now
+			if(e.getCurrentRow() != null)
+				refreshFrom((Inventory) e.getCurrentRow());
+			throw e;
 		} catch(GatewayException e) {
 			//if fails then try to refetch model fields from the database
-			if(orig != null) {
-				this.setQuantity(orig.getQuantity());
+			if(this.getId() != 0) {
+				try {
+					refreshFrom(gateway.fetchInventory(this.getId()));
+				} catch(GatewayException e1) {
+					//keep the unsaved values
+				}
 			}
 			throw new GatewayException("Error trying to save the Inventory object!");
 		}
 	}
 
+	/**
+	 * Adds delta to this record's quantity in the db as quantity = quantity + delta (checked in the db against
+	 * the stock and the warehouse's storage capacity, see InventoryTableGateway.adjustQuantity), so a concurrent
+	 * change to the record is never overwritten; then takes the new quantity and version the gateway returns
+	 * @param delta amount to add (below 0 to take away)
+	 * @throws GatewayException if the change is refused (nothing is changed)
+	 */
+	public void adjustQuantity(double delta) throws GatewayException {
+		if(this.getId() == 0)
+			throw new GatewayException("Inventory record must be saved before its quantity can be adjusted");
+		refreshFrom(gateway.adjustQuantity(this.getId(), delta));
+	}
+
 	/**
 	 * delete this object through the gateway (i.e., db)
 	 */
@@ -102,6 +135,9 @@ public class Inventory extends Observable {
 		//if id is 0 then nothing to do in the gateway (record has not been saved yet)
 		if(this.getId() == 0) 
 			return;
+		WriteBehindQueue queue = WriteBehindQueue.getActive();
+		if(queue != null)
+			queue.discard(this);
 			try {
 				gateway.deleteInventory(this.getId());
 			} catch (GatewayException e) {
@@ -109,6 +145,26 @@ public class Inventory extends Observable {
 			}
 	}
 
+	/**
+	 * Copies the fields of a freshly fetched copy of this record into this object (e.g., during a list sync)
+	 * and notifies observers if anything changed so open views show the new values
+	 * @param fresh same record read from the db
+	 */
+	public void refreshFrom(Inventory fresh) {
+		//a copy read before our last save (e.g., by a sync that was already running) is out of date
+		if(fresh.getVersion() < version)
+			return;
+		version = fresh.getVersion();
+		if(part_id.longValue() == fresh.getPartId() && warehouse_id.longValue() == fresh.getWarehouseId()
+				&& quantity == fresh.getQuantity())
+			return;
+		part_id = fresh.getPartId();
+		warehouse_id = fresh.getWarehouseId();
+		quantity = fresh.getQuantity();
+		setChanged();
+		notifyObservers();
+	}
+
 	public WarehouseList getWarehouseList(MDIParent m){
 		return m.getWarehouseList();
 	}
@@ -124,6 +180,19 @@ public class Inventory extends Observable {
 	public void setId(long id) {
 		this.id = id;
 	}
+	
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the version of the record this copy holds
+	 * Should only be called by the gateway (when fetching the record or after saving it)
+	 * @param version
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
 
 	/**
 	 * Returns PartId of Inventory
@@ -0,0 +1,224 @@
+package models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Secondary indexes of the records in an InventoryList:
+ * warehouse id -> records, part id -> records and (warehouse id, part id) -> records
+ *
+ * Each record is filed under the warehouse and part it had when it was last (re)indexed.
+ * A record edited in a detail view only notifies its observers in finishUpdate(), so until then
+ * it can still be filed under its old key; lookups check each record's current ids for that reason.
+ * Every method is synchronized (like WarehouseUtilization), so the InventoryList's checks can run on the EDT
+ * without the list's writeLock while a worker thread merges rows into the list.
+ * @author Justin Wilson
+ *
+ */
+class InventoryIndex {
+	/**
+	 * (warehouse id, part id) pair a record is filed under
+	 */
+	private static final class Key {
+		final long warehouseId;
+		final long partId;
+
+		Key(long warehouseId, long partId) {
+			this.warehouseId = warehouseId;
+			this.partId = partId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return k.warehouseId == warehouseId && k.partId == partId;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(warehouseId) * 31 + Long.hashCode(partId);
+		}
+	}
+
+	/**
+	 * each key maps to its one record, or to a Set of records once it has more than one
+	 * (most parts and warehouse/part pairs have a single record, so no Set is allocated for them)
+	 */
+	private LongObjectMap<Object> byWarehouse;
+	private LongObjectMap<Object> byPart;
+	private HashMap<Key, Object> byWarehousePart;
+
+	/**
+	 * record -> key it is filed under (records are compared by identity, like the list itself)
+	 */
+	private IdentityHashMap<Inventory, Key> filedUnder;
+
+	InventoryIndex() {
+		byWarehouse = new LongObjectMap<Object>();
+		byPart = new LongObjectMap<Object>();
+		byWarehousePart = new HashMap<Key, Object>();
+		filedUnder = new IdentityHashMap<Inventory, Key>();
+	}
+
+	synchronized void add(Inventory invt) {
+		Key key = new Key(invt.getWarehouseId(), invt.getPartId());
+		if(filedUnder.put(invt, key) != null)
+			return;
+		byWarehouse.put(key.warehouseId, file(byWarehouse.get(key.warehouseId), invt));
+		byPart.put(key.partId, file(byPart.get(key.partId), invt));
+		byWarehousePart.put(key, file(byWarehousePart.get(key), invt));
+	}
+
+	synchronized void remove(Inventory invt) {
+		Key key = filedUnder.remove(invt);
+		if(key == null)
+			return;
+		Object rows = unfile(byWarehouse.get(key.warehouseId), invt);
+		if(rows == null)
+			byWarehouse.remove(key.warehouseId);
+		else
+			byWarehouse.put(key.warehouseId, rows);
+		rows = unfile(byPart.get(key.partId), invt);
+		if(rows == null)
+			byPart.remove(key.partId);
+		else
+			byPart.put(key.partId, rows);
+		rows = unfile(byWarehousePart.get(key), invt);
+		if(rows == null)
+			byWarehousePart.remove(key);
+		else
+			byWarehousePart.put(key, rows);
+	}
+
+	/**
+	 * files a record under its current warehouse and part if either changed (no-op for records not in the index)
+	 * @param invt
+	 */
+	synchronized void update(Inventory invt) {
+		Key key = filedUnder.get(invt);
+		if(key == null || (key.warehouseId == invt.getWarehouseId() && key.partId == invt.getPartId()))
+			return;
+		remove(invt);
+		add(invt);
+	}
+
+	synchronized void clear() {
+		byWarehouse.clear();
+		byPart.clear();
+		byWarehousePart.clear();
+		filedUnder.clear();
+	}
+
+	/**
+	 * @return copy of the records filed under the warehouse (empty if none)
+	 */
+	synchronized Set<Inventory> getWarehouse(long warehouseId) {
+		return copy(byWarehouse.get(warehouseId));
+	}
+
+	/**
+	 * @return copy of the records filed under the part (empty if none)
+	 */
+	synchronized Set<Inventory> getPart(long partId) {
+		return copy(byPart.get(partId));
+	}
+
+	/**
+	 * @return copy of the records filed under the warehouse and part (normally at most one)
+	 */
+	synchronized Set<Inventory> getWarehousePart(long warehouseId, long partId) {
+		return copy(byWarehousePart.get(new Key(warehouseId, partId)));
+	}
+
+	/**
+	 * @return true if a record other than except (compared by id) is in the warehouse and has the part
+	 */
+	synchronized boolean containsOther(long warehouseId, long partId, Inventory except) {
+		for(Inventory invt : asSet(byWarehousePart.get(new Key(warehouseId, partId)))) {
+			if(invt.getWarehouseId() == warehouseId && invt.getPartId() == partId && invt.getId() != except.getId())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if any record is in the warehouse
+	 */
+	synchronized boolean containsWarehouse(long warehouseId) {
+		for(Inventory invt : asSet(byWarehouse.get(warehouseId))) {
+			if(invt.getWarehouseId() == warehouseId)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if any record has the part
+	 */
+	synchronized boolean containsPart(long partId) {
+		for(Inventory invt : asSet(byPart.get(partId))) {
+			if(invt.getPartId() == partId)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param rows what a key maps to (null, a record or a Set of records)
+	 * @param invt
+	 * @return what the key maps to with invt added
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object file(Object rows, Inventory invt) {
+		if(rows == null || rows == invt)
+			return invt;
+		if(rows instanceof Inventory) {
+			Set<Inventory> set = Collections.newSetFromMap(new IdentityHashMap<Inventory, Boolean>());
+			set.add((Inventory) rows);
+			set.add(invt);
+			return set;
+		}
+		((Set<Inventory>) rows).add(invt);
+		return rows;
+	}
+
+	/**
+	 * @param rows what a key maps to (null, a record or a Set of records)
+	 * @param invt
+	 * @return what the key maps to with invt removed (null if nothing is left)
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object unfile(Object rows, Inventory invt) {
+		if(rows == null || rows == invt)
+			return null;
+		if(rows instanceof Inventory)
+			return rows;
+		Set<Inventory> set = (Set<Inventory>) rows;
+		set.remove(invt);
+		if(set.isEmpty())
+			return null;
+		//back to a single record
+		if(set.size() == 1)
+			return set.iterator().next();
+		return set;
+	}
+
+	private static Set<Inventory> copy(Object rows) {
+		Set<Inventory> set = Collections.newSetFromMap(new IdentityHashMap<Inventory, Boolean>());
+		set.addAll(asSet(rows));
+		return set;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<Inventory> asSet(Object rows) {
+		if(rows == null)
+			return Collections.emptySet();
+		if(rows instanceof Inventory)
+			return Collections.singleton((Inventory) rows);
+		return (Set<Inventory>) rows;
+	}
+}
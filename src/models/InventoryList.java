@@ -1,72 +1,656 @@
 package models;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
-import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.TreeMap;
 
+import database.AsyncExecutor;
 import database.InventoryTableGateway;
+import database.ChangeSet;
 import database.GatewayException;
+import database.RowHandler;
+import database.InventoryTableGatewayAsync;
+import database.InventoryTransfer;
+import database.QuantityAdjustment;
 
 /**
  * A model that is a collection of Inventory models
  * @author Justin Wilson
  *
  */
-public class InventoryList extends Observable implements Observer {
+public class InventoryList extends ReconcilingList<Inventory> {
 	/**
-	 * Collection of Inventory objects that this list holds
+	 * Database connection for the InventoryList 
 	 */
-	private List<Inventory> myList;
+	private InventoryTableGateway gateway;
 	
 	/**
-	 * Identity map for determining if Inventory is already in this list
+	 * rows fetched per db round trip when streaming the table in loadFromGateway
 	 */
-	private HashMap<Long, Inventory> myIdMap;
+	public static final int STREAM_FETCH_SIZE = 500;
 	
 	/**
-	 * Collection of newly added records to know when to update key in Identity map
+	 * while streaming, observers are notified each time this many new rows have been added
 	 */
-	private ArrayList<Inventory> newRecords;
+	public static final int STREAM_NOTIFY_ROWS = 2000;
 	
 	/**
-	 * Database connection for the InventoryList 
+	 * db time of the last sync in loadFromGateway (null until the first full load)
 	 */
-	private InventoryTableGateway gateway;
+	private volatile Timestamp lastSync;
+	
+	/**
+	 * gateway calls made off the EDT by loadFromGatewayAsync
+	 */
+	private InventoryTableGatewayAsync asyncGateway;
+	
+	/**
+	 * load started by loadFromGatewayAsync (null if none yet)
+	 */
+	private CompletableFuture<Void> pendingLoad;
+	
+	/**
+	 * warehouse, part and (warehouse, part) lookups over the records in myList
+	 */
+	private InventoryIndex index;
+	
+	/**
+	 * per-warehouse quantity and remaining capacity of the records in myList, kept up to date as they change
+	 */
+	private WarehouseUtilization utilization;
+	
+	/**
+	 * paged mode: records per page (0 = not paged, the whole table is loaded into myList)
+	 */
+	private int pageSize;
+	
+	/**
+	 * paged mode: most pages kept in memory at once
+	 */
+	private int maxResidentPages;
+	
+	/**
+	 * guards the paged mode state below, so getSize() and getElementAt() (called by views on the EDT while painting)
+	 * never wait for writeLock; taken after writeLock when both are needed
+	 */
+	private final Object pageLock = new Object();
+	
+	/**
+	 * paged mode: pages in memory by page number, least recently used first
+	 */
+	private LinkedHashMap<Integer, List<Inventory>> residentPages;
+	
+	/**
+	 * paged mode: known page boundaries (page number -> id of the last record before that page)
+	 */
+	private TreeMap<Integer, Long> pageStarts;
+	
+	/**
+	 * paged mode: pages being fetched on a worker thread, by page number
+	 */
+	private HashMap<Integer, CompletableFuture<Void>> loadingPages;
+	
+	/**
+	 * paged mode: number of records in the db as of the last count
+	 */
+	private long pagedSize;
+	
+	/**
+	 * paged mode: pagedSize needs to be counted again
+	 */
+	private boolean sizeStale;
+	
+	/**
+	 * paged mode: count running on a worker thread (null if none yet)
+	 */
+	private CompletableFuture<Void> pendingCount;
 	
 	/**
-	 * for multiple object inserts and deletes, set to true to notifyObservers at very end (in loadFromGateway)
-	 * be sure to set it back to false when done so that addToList and removeFromList will notify after setChanged
+	 * paged mode: pagedSize when a short page last asked for a recount, so an unchanged count doesn't ask forever
 	 */
-	private boolean dontNotify;
+	private long shortPageSize;
+	
+	/**
+	 * paged mode: bumped by refreshPages() so pages and counts fetched before it are thrown away when they arrive
+	 */
+	private int pageGeneration;
+	
+	/**
+	 * paged mode: warehouse being paged through, or null for all inventory
+	 */
+	private Long pagedWarehouseId;
+	
+	/**
+	 * true while a page is being loaded or evicted so those adds and removes don't invalidate the pages
+	 */
+	private boolean paging;
+	
+	/**
+	 * paged mode: shown for rows whose page hasn't arrived yet (see isPlaceholder)
+	 */
+	private static final Inventory PLACEHOLDER = new Inventory();
 	
 	public InventoryList() {
-		myList = new ArrayList<Inventory>();
-		myIdMap = new HashMap<Long, Inventory>();
-		dontNotify = false;
-		newRecords = new ArrayList<Inventory>();
+		index = new InventoryIndex();
+		utilization = new WarehouseUtilization();
+		pageSize = 0;
+		paging = false;
 	}
 	
 	/**
-	 * Replaces list contents with new Inventory objects fetched from Gateway
-	 * Insert objects that are not already in list
+	 * Switches this list to paged mode: instead of loading the whole table, pages of pageSize records
+	 * are fetched by keyset (id > last id of the page before) on a worker thread as getElementAt() asks for them
+	 * and at most maxResidentPages pages are kept in memory
 	 * 
-	 * TODO: refresh stale object contents already in list (use a timestamp)
-	 * OR only do this when opening ListView is the only Inventory view open 
+	 * NOTE: in paged mode getList() only holds the resident records (plus any unsaved new one),
+	 * so checks over the whole table (duplicate, existWarehousePart, getTotalQuantityWarehouseExceptCurrent) ask the gateway
+	 * @param pageSize records per page
+	 * @param maxResidentPages pages kept in memory (at least 3 so the page in view and both its neighbours fit)
+	 * @param wId warehouse to page through, or null for all inventory
 	 */
-	public void loadFromGateway() {
-		//fetch list of objects from the database
-		List<Inventory> inventorys = null;
+	public void setPaged(int pageSize, int maxResidentPages, Long wId) {
+		writeLock.lock();
 		try {
-			inventorys = gateway.fetchInventorys();
+			synchronized(pageLock) {
+				this.pageSize = pageSize;
+				this.maxResidentPages = Math.max(3, maxResidentPages);
+				this.pagedWarehouseId = wId;
+				residentPages = new LinkedHashMap<Integer, List<Inventory>>(16, 0.75f, true);
+				pageStarts = new TreeMap<Integer, Long>();
+				loadingPages = new HashMap<Integer, CompletableFuture<Void>>();
+				pagedSize = 0;
+			}
+			refreshPages();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	public boolean isPaged() {
+		return pageSize > 0;
+	}
+	
+	/**
+	 * @return true if row is what getElementAt() returns while the row's page is loading
+	 * (views show it as loading and don't open or delete it)
+	 */
+	public static boolean isPlaceholder(Inventory row) {
+		return row == PLACEHOLDER;
+	}
+	
+	/**
+	 * paged mode: drops all resident pages and recounts on a worker thread; views keep showing the old count until
+	 * the new one arrives, then are told to redraw everything and getElementAt() fetches the pages they show again
+	 * Called when records are added to or removed from the db
+	 */
+	public void refreshPages() {
+		writeLock.lock();
+		try {
+			if(!isPaged())
+				return;
+			synchronized(pageLock) {
+				pageGeneration++;
+				loadingPages.clear();
+				pageStarts.clear();
+				pageStarts.put(0, 0L);
+				boolean wasDontNotify = dontNotify;
+				dontNotify = true;
+				while(!residentPages.isEmpty())
+					evictEldestPage();
+				dontNotify = wasDontNotify;
+				sizeStale = true;
+				shortPageSize = -1;
+				countPages();
+			}
+			recordReset();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return number of records to show: every record in the db as of the last count in paged mode
+	 * (a stale count is redone on a worker thread), otherwise the size of getList()
+	 */
+	public int getSize() {
+		if(!isPaged())
+			return getSnapshot().size();
+		synchronized(pageLock) {
+			if(sizeStale)
+				countPages();
+			return (int) Math.min(pagedSize, Integer.MAX_VALUE);
+		}
+	}
+	
+	/**
+	 * Returns the record at index (paged mode: doesn't touch the db or wait for writeLock)
+	 * 
+	 * If the record's page isn't resident, returns a placeholder (see isPlaceholder) and fetches the page
+	 * and then its neighbours on a worker thread; observers are told which rows to redraw when it arrives.
+	 * Near either end of a resident page the page next to it is fetched ahead of the scrolling.
+	 * @param index
+	 * @return
+	 */
+	public Inventory getElementAt(int index) {
+		if(!isPaged())
+			return getSnapshot().get(index);
+		
+		synchronized(pageLock) {
+			int page = index / pageSize;
+			List<Inventory> rows = residentPages.get(page);
+			if(rows == null) {
+				requestPage(page, true);
+				return PLACEHOLDER;
+			}
+			int offset = index % pageSize;
+			if(offset >= rows.size()) {
+				//records were deleted since the count: recount (once per count) and show a placeholder for now
+				if(shortPageSize != pagedSize) {
+					shortPageSize = pagedSize;
+					sizeStale = true;
+					countPages();
+				}
+				return PLACEHOLDER;
+			}
 			
-		} catch (GatewayException e) {
-			e.printStackTrace();
+			int margin = Math.max(1, pageSize / 4);
+			if(offset >= pageSize - margin)
+				requestPage(page + 1, false);
+			else if(offset < margin)
+				requestPage(page - 1, false);
+			return rows.get(offset);
+		}
+	}
+	
+	/**
+	 * @return completes when the page fetches and count running now have been merged into the list
+	 * (the neighbours of a page are requested before its fetch completes)
+	 */
+	public CompletableFuture<Void> getPageLoads() {
+		synchronized(pageLock) {
+			ArrayList<CompletableFuture<Void>> loads = new ArrayList<CompletableFuture<Void>>();
+			if(loadingPages != null)
+				loads.addAll(loadingPages.values());
+			if(pendingCount != null)
+				loads.add(pendingCount);
+			return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[loads.size()]));
+		}
+	}
+	
+	/**
+	 * counts the records in the db on a worker thread, unless a count is already running
+	 * (one started before a refreshPages() is redone when it finishes); then observers are told to redraw everything
+	 * Caller holds pageLock
+	 */
+	private void countPages() {
+		if(pendingCount != null && !pendingCount.isDone())
 			return;
+		sizeStale = false;
+		final int generation = pageGeneration;
+		//handled asynchronously so it never runs on this thread, which holds pageLock and mustn't take writeLock
+		pendingCount = asyncGateway.countInventorysAsync(pagedWarehouseId).handleAsync(new BiFunction<Long, Throwable, Void>() {
+			@Override
+			public Void apply(Long count, Throwable error) {
+				boolean counted = false;
+				synchronized(pageLock) {
+					if(error != null)
+						System.err.println("Error counting inventory: " + AsyncExecutor.describe(error));
+					else if(generation == pageGeneration) {
+						pagedSize = count;
+						counted = true;
+					}
+				}
+				if(counted) {
+					writeLock.lock();
+					try {
+						fireReset();
+					} finally {
+						writeLock.unlock();
+					}
+				}
+				synchronized(pageLock) {
+					//refreshPages() was called while counting
+					if(sizeStale)
+						countPages();
+				}
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * fetches a page on a worker thread (see mergePage) unless it is resident, already being fetched or past the end
+	 * Caller holds pageLock
+	 * @param page
+	 * @param neighbours true to fetch the pages before and after it once it arrives
+	 */
+	private void requestPage(final int page, final boolean neighbours) {
+		if(page < 0 || (long) page * pageSize >= pagedSize || residentPages.containsKey(page) || loadingPages.containsKey(page))
+			return;
+		final int generation = pageGeneration;
+		CompletableFuture<Void> load = findPageStart(page, generation).thenCompose(new Function<Long, CompletionStage<List<Inventory>>>() {
+			@Override
+			public CompletionStage<List<Inventory>> apply(Long afterId) {
+				if(afterId == null)
+					return CompletableFuture.completedFuture((List<Inventory>) new ArrayList<Inventory>());
+				if(pagedWarehouseId == null)
+					return asyncGateway.fetchInventorysAsync(afterId, pageSize);
+				return asyncGateway.fetchWarehouseInventorysAsync(pagedWarehouseId, afterId, pageSize);
+			}
+		}).handleAsync(new BiFunction<List<Inventory>, Throwable, Void>() {
+			//(asynchronously for the same reason as in countPages)
+			@Override
+			public Void apply(List<Inventory> rows, Throwable error) {
+				if(error != null) {
+					System.err.println("Error loading inventory page " + page + ": " + AsyncExecutor.describe(error));
+					synchronized(pageLock) {
+						if(generation == pageGeneration)
+							loadingPages.remove(page);
+					}
+				} else
+					mergePage(page, generation, rows, neighbours);
+				return null;
+			}
+		});
+		loadingPages.put(page, load);
+	}
+	
+	/**
+	 * finds the id the page starts after, jumping from the nearest known boundary through the id index
+	 * so scrolling straight to the end doesn't fetch every page in between
+	 * Caller holds pageLock
+	 * @param page
+	 * @param generation pageGeneration of the request
+	 * @return the id (0 for the first page), or null if the table doesn't reach that page
+	 */
+	private CompletableFuture<Long> findPageStart(final int page, final int generation) {
+		Map.Entry<Integer, Long> known = pageStarts.floorEntry(page);
+		if(known.getKey() == page)
+			return CompletableFuture.completedFuture(known.getValue());
+		int skip = (page - known.getKey()) * pageSize - 1;
+		return asyncGateway.fetchInventoryIdAfterAsync(pagedWarehouseId, known.getValue(), skip).thenApply(new Function<Long, Long>() {
+			@Override
+			public Long apply(Long afterId) {
+				if(afterId == Inventory.INVALID_ID)
+					return null;
+				synchronized(pageLock) {
+					if(generation == pageGeneration)
+						pageStarts.put(page, afterId);
+				}
+				return afterId;
+			}
+		});
+	}
+	
+	/**
+	 * registers a fetched page's records in the list and identity map (evicting pages over the limit first),
+	 * then tells observers which rows to redraw; a page fetched before a refreshPages() is thrown away
+	 * Runs on the worker thread that fetched the page
+	 * @param page
+	 * @param generation pageGeneration of the request
+	 * @param rows records of the page (empty if the page is past the end of the table)
+	 * @param neighbours true to fetch the pages before and after it
+	 */
+	private void mergePage(int page, int generation, List<Inventory> rows, boolean neighbours) {
+		writeLock.lock();
+		try {
+			int first, last;
+			synchronized(pageLock) {
+				if(generation != pageGeneration)
+					return;
+				loadingPages.remove(page);
+				
+				//a full page tells us where the next one starts
+				if(rows.size() == pageSize)
+					pageStarts.put(page + 1, rows.get(rows.size() - 1).getId());
+				
+				//make room first so a record shared with the evicted page isn't dropped after being reused
+				boolean wasDontNotify = dontNotify;
+				dontNotify = true;
+				while(residentPages.size() >= maxResidentPages)
+					evictEldestPage();
+				
+				//use the objects already in the identity map (e.g., open in a detail view) instead of the fetched copies
+				paging = true;
+				for(int i = 0; i < rows.size(); i++) {
+					Inventory existing = myIdMap.get(rows.get(i).getId());
+					if(existing != null)
+						rows.set(i, existing);
+					else
+						addInventoryToList(rows.get(i));
+				}
+				residentPages.put(page, rows);
+				paging = false;
+				dontNotify = wasDontNotify;
+				
+				if(neighbours) {
+					requestPage(page + 1, false);
+					requestPage(page - 1, false);
+				}
+				first = page * pageSize;
+				last = (int) Math.min((long) first + pageSize, pagedSize) - 1;
+			}
+			
+			//myList's indexes are not the views' indexes in paged mode, so this bypasses publishChanges
+			publishChanges();
+			if(last >= first) {
+				setChanged();
+				notifyObservers(ListChangeEvent.updated(first, last, rows));
+			}
+		} finally {
+			writeLock.unlock();
 		}
+	}
+	
+	/**
+	 * takes the least recently used page out of memory
+	 * records still observed by something other than this list (e.g., an open detail view) stay in the identity map
+	 * Caller holds writeLock and pageLock
+	 */
+	private void evictEldestPage() {
+		Iterator<List<Inventory>> it = residentPages.values().iterator();
+		List<Inventory> rows = it.next();
+		it.remove();
+		HashSet<Long> evicted = new HashSet<Long>();
+		for(Inventory invt : rows) {
+			if(invt.countObservers() <= 1)
+				evicted.add(invt.getId());
+		}
+		paging = true;
+		removeIds(evicted);
+		paging = false;
+	}
+	
+	/**
+	 * Syncs list contents with the db through the gateway (Identity Map keeps one object per record)
+	 * 
+	 * The first load fetches every row; after that only rows inserted, updated or deleted since the
+	 * previous sync are fetched (see ChangeSet). Changed rows already in the list are refreshed in place
+	 * so views showing them update; new rows are added and deleted rows removed.
+	 * 
+	 * Rows are streamed from the gateway so the whole table is never held in a second List,
+	 * and observers are notified every STREAM_NOTIFY_ROWS new rows so views fill in while loading
+	 */
+	public void loadFromGateway() {
+		writeLock.lock();
+		try {
+			//on a full load: ids of every object in the db, used afterwards to drop objects that were deleted from the db
+			final HashSet<Long> fetchedIds = new HashSet<Long>();
+			final boolean full = lastSync == null;
 		
-		loadInventory(inventorys);
+			//since this method does a lot of adding and removing
+			//don't notify observers until all done (except every STREAM_NOTIFY_ROWS new rows)
+			dontNotify = true;
+		
+			//for each object streamed from the db, see if it is in the hashmap
+			//if not, add it to the list, else refresh the object already in the list
+			ChangeSet<Inventory> changes = null;
+			try {
+				changes = gateway.fetchInventorysChangedSince(lastSync, new RowHandler<Inventory>() {
+					private int added = 0;
+				
+					@Override
+					public void handleRow(Inventory d) {
+						if(full)
+							fetchedIds.add(d.getId());
+						if(mergeRow(d) && ++added % STREAM_NOTIFY_ROWS == 0)
+							publishChanges();
+					}
+				}, STREAM_FETCH_SIZE);
+			
+			} catch (GatewayException e) {
+				e.printStackTrace();
+				//show whatever was loaded before the failure (lastSync is unchanged so the next sync retries these rows)
+				publishChanges();
+				dontNotify = false;
+				return;
+			}
+		
+			finishSync(changes, fetchedIds);
+		
+			//tell all observers of this list what changed
+			publishChanges();
+
+			//turn this off
+			dontNotify = false;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Syncs list contents with the db without blocking the caller: the changed rows are streamed on
+	 * the AsyncExecutor and merged into the list there in chunks (see ReconcilingList.BackgroundMerge),
+	 * while views keep showing their snapshot. A full load has no time limit unless ASYNC_LOAD_TIMEOUT_MS sets one.
+	 * Calling this again while a load is still running returns the running load
+	 * @return future that completes once the changes are in the list (fails if the fetch failed or timed out;
+	 * 		the rows merged before that stay in the list and lastSync is unchanged, so the next sync fetches them again)
+	 */
+	public CompletableFuture<Void> loadFromGatewayAsync() {
+		if(pendingLoad != null && !pendingLoad.isDone())
+			return pendingLoad;
+		final BackgroundMerge merge = new BackgroundMerge(lastSync == null);
+		pendingLoad = asyncGateway.fetchInventorysChangedSinceAsync(lastSync, merge, STREAM_FETCH_SIZE).thenCompose(new Function<ChangeSet<Inventory>, CompletionStage<Void>>() {
+			@Override
+			public CompletionStage<Void> apply(ChangeSet<Inventory> changes) {
+				CompletableFuture<Void> refreshed = merge.finish(changes.getDeletedIds());
+				lastSync = changes.getSyncTime();
+				return refreshed;
+			}
+		});
+		return pendingLoad;
+	}
+	
+	/**
+	 * applies a ChangeSet fetched with the rows collected in it (same rules as loadFromGateway)
+	 * must be called on the thread that owns the list (the EDT)
+	 * @param changes
+	 */
+	public void applyChanges(ChangeSet<Inventory> changes) {
+		writeLock.lock();
+		try {
+			reconcile(changes.getChanged(), changes.isFull(), changes.getDeletedIds());
+			lastSync = changes.getSyncTime();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * applies a ChangeSet on the thread that fetched it: new and deleted rows are added and removed right away,
+	 * rows already in the list are refreshed on the EDT (see ReconcilingList.reconcileInBackground)
+	 * @param changes
+	 * @return future that completes once every change is in the list
+	 */
+	public CompletableFuture<Void> applyChangesInBackground(ChangeSet<Inventory> changes) {
+		writeLock.lock();
+		try {
+			CompletableFuture<Void> refreshed = reconcileInBackground(changes.getChanged(), changes.isFull(), changes.getDeletedIds());
+			lastSync = changes.getSyncTime();
+			return refreshed;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * removes the objects whose records are gone from the db and remembers the sync time
+	 * @param changes
+	 * @param fetchedIds on a full load: ids of every row fetched
+	 */
+	private void finishSync(ChangeSet<Inventory> changes, HashSet<Long> fetchedIds) {
+		if(changes.isFull()) {
+			//any object in our list that is NOT in the db needs to be removed from our list
+			removeMissing(fetchedIds);
+		} else {
+			//remove the objects whose rows were deleted since the last sync
+			removeIds(changes.getDeletedIds());
+		}
+		lastSync = changes.getSyncTime();
+	}
+	
+	@Override
+	protected long getRowId(Inventory row) {
+		return row.getId();
+	}
+	
+	@Override
+	protected void addRow(Inventory row) {
+		addInventoryToList(row);
+	}
+	
+	/**
+	 * changed rows are copied into the object already in the list so views showing it update
+	 */
+	@Override
+	protected void refreshRow(Inventory existing, Inventory fresh) {
+		existing.refreshFrom(fresh);
+	}
+	
+	/**
+	 * loading or evicting a page doesn't change what views show, and in paged mode myList only holds
+	 * the resident pages so its indexes are not the views' indexes: views are told to redraw everything instead
+	 */
+	@Override
+	protected void recordChange(ListChangeEvent<Inventory> change) {
+		if(paging)
+			return;
+		if(isPaged())
+			recordReset();
+		else
+			super.recordChange(change);
+	}
+	
+	@Override
+	protected void fireUpdated(Inventory row) {
+		if(isPaged())
+			fireReset();
+		else
+			super.fireUpdated(row);
+	}
+	
+	/**
+	 * drops removed records from the secondary indexes and warehouse totals; a deleted record also shifts the pages
+	 */
+	@Override
+	protected void rowsRemoved(List<Inventory> removed) {
+		for(Inventory invt : removed) {
+			index.remove(invt);
+			utilization.remove(invt);
+		}
+		if(isPaged() && !paging)
+			refreshPages();
 	}
 	
 	// load inventory of warehouse
@@ -84,93 +668,41 @@ public class InventoryList extends Observable implements Observer {
 		
 	}
 			
+	/**
+	 * makes the list hold exactly the given records (e.g., one warehouse's inventory), plus any unsaved new record
+	 * @param inventorys
+	 */
 	public void loadInventory( List<Inventory> inventorys){
-	
-	
-		//since this method does a lot of adding and removing
-		//don't notify observers until all done
-		dontNotify = true;
-		
-		//any inventory in our list that is NOT in the db needs to be removed from our list
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			Inventory invt = myList.get(i);
-			boolean removeRecord = true;
-			//don't remove a recently Added record that hasn't been saved yet
-			if(invt.getId() == Inventory.INVALID_ID) {
-				removeRecord = false;
-			} else {
-				for(Inventory dCheck : inventorys) {
-					if(dCheck.getId() == invt.getId()) {
-						removeRecord = false;
-						break;
-					}
-				}
-			}
-			//p not found in db people array so delete it
-			if(removeRecord)
-				removeInventoryFromList(invt);
-			//TODO: any detail view with p in it either needs to close or should have a lock to prevent this deletion
-			//TODO: may also need to unregister all open views as observers of p
-		}
+		writeLock.lock();
+		try {
+			//list no longer mirrors the whole table so the next loadFromGateway has to be a full load
+			lastSync = null;
 		
-		//for each object in fetched list, see if it is in the hashmap
-		//if not, add it to the list
-		for(Inventory invt : inventorys) {
-			if(!myIdMap.containsKey(invt.getId())) {
-				addInventoryToList(invt);
-			}
+			reconcile(inventorys, true, null);
+		} finally {
+			writeLock.unlock();
 		}
-		
-		//tell all observers of this list to update
-		this.notifyObservers();
-
-		//turn this off
-		dontNotify = false;
 	}
 	
 	// check has over one record have same warehouse ID and part ID
-	
-	public boolean duplicate(Inventory inventory){
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			Inventory invt = myList.get(i);
-			if( ( 	invt.getWarehouseId() == inventory.getWarehouseId()) &&
-					invt.getPartId() == inventory.getPartId() &&
-					invt.getId() != inventory.getId() )
+	// (paged: the db is asked, since the other record may not be resident)
+	public boolean duplicate(Inventory inventory) throws GatewayException {
+		if(isPaged()) {
+			long id = gateway.fetchInventoryIdAt(inventory.getWarehouseId(), inventory.getPartId());
+			if(id != Inventory.INVALID_ID && id != inventory.getId())
 				return true;
 		}
-		
-		return false;
+		//the index is read without writeLock, so this doesn't wait for a background merge
+		return index.containsOther(inventory.getWarehouseId(), inventory.getPartId(), inventory);
 	}
 	
 	// exist of warehouse or part
-	public boolean existWarehousePart(Long wId, Long pId){
-		
-		if( wId > 0 ){
-			// for warehouse
-			for(int i = myList.size() - 1; i >= 0; i--) {
-				Inventory invt = myList.get(i);
-				if( invt.getWarehouseId() == wId )
-					return true;
-			}	
-			
-		}else{
-			// for part
-			for(int i = myList.size() - 1; i >= 0; i--) {
-				Inventory invt = myList.get(i);
-				if( invt.getPartId() == pId )
-					return true;
-			}
-			
-		}
-		
-		return false;
-	}
-	
-	public Inventory findById(long id) {
-		//check the identity map
-		if(myIdMap.containsKey(new Long(id)))
-			return myIdMap.get(new Long(id));
-		return null;
+	// (paged: the db is asked, since the records may not be resident)
+	public boolean existWarehousePart(Long wId, Long pId) throws GatewayException {
+		if(isPaged())
+			return wId > 0 ? gateway.countInventorys(wId) > 0 : gateway.countPartInventorys(pId) > 0;
+		// for warehouse, else for part
+		return wId > 0 ? index.containsWarehouse(wId) : index.containsPart(pId);
 	}
 	
 	/**
@@ -179,17 +711,26 @@ public class InventoryList extends Observable implements Observer {
 	 * @param p Person instance to add to the collection
 	 */
 	public void addInventoryToList(Inventory invt) {
-		myList.add(invt);
-		invt.setGateway(this.gateway);
-		invt.addObserver(this);
+		writeLock.lock();
+		try {
+			myList.add(invt);
+			invt.setGateway(this.gateway);
+			invt.addObserver(this);
 
-		//add to identity map
-		myIdMap.put(invt.getId(), invt);
+			//add to identity map, secondary indexes and warehouse totals
+			myIdMap.put(invt.getId(), invt);
+			index.add(invt);
+			utilization.add(invt);
+		
+			//a record saved to the db elsewhere shifts the pages
+			if(isPaged() && !paging && invt.getId() != Inventory.INVALID_ID)
+				refreshPages();
 
-		//tell all observers of this list to update
-		this.setChanged();
-		if(!dontNotify)
-			this.notifyObservers();
+			//tell all observers of this list which row was added
+			fireAdded(myList.size() - 1, invt);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	/**
@@ -197,38 +738,164 @@ public class InventoryList extends Observable implements Observer {
 	 * @return Person p if found in list, otherwise null
 	 */
 	public Inventory removeInventoryFromList(Inventory invt) {
-		if(myList.contains(invt)) {
-			myList.remove(invt);
-			//also remove from hash map
-			myIdMap.remove(invt.getId());
+		writeLock.lock();
+		try {
+			int position = myList.indexOf(invt);
+			if(position >= 0) {
+				myList.remove(position);
+				//also remove from hash map, secondary indexes and warehouse totals
+				myIdMap.remove(invt.getId());
+				index.remove(invt);
+				utilization.remove(invt);
+			
+				//a deleted record shifts the pages
+				if(isPaged() && !paging)
+					refreshPages();
 
-			//tell all observers of this list to update
-			this.setChanged();
-			if(!dontNotify)
-				this.notifyObservers();
+				//tell all observers of this list which row was removed
+				fireRemoved(position, invt);
 
-			return invt;
+				return invt;
+			}
+			return null;
+		} finally {
+			writeLock.unlock();
 		}
-		return null;
 	}
 	
-	// get Total Quality of a warehouse
-	public double getTotalQuantityWarehouseExceptCurrent(Inventory inventory){
-		double lTotalquality = 0L;
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			Inventory in = myList.get(i);
-			if( 	in.getWarehouseId() == inventory.getWarehouseId() &&
-					in.getId() != inventory.getId() )
-			{
-				lTotalquality += in.getQuantity();
+	/**
+	 * Inserts many new Inventory records through the gateway in a single batch and adds them to the list
+	 * Observers of the list are notified once at the end
+	 * @param inventorys new records (not yet saved)
+	 * @throws GatewayException if the batch fails (nothing is inserted or added to the list)
+	 */
+	public void insertInventorys(List<Inventory> inventorys) throws GatewayException {
+		long[] ids = gateway.insertInventorys(inventorys);
+		
+		writeLock.lock();
+		try {
+			dontNotify = true;
+			for(int i = 0; i < inventorys.size(); i++) {
+				Inventory invt = inventorys.get(i);
+				invt.setId(ids[i]);
+				addInventoryToList(invt);
 			}
-		}	
+			dontNotify = false;
+			
+			//tell all observers of this list what changed
+			publishChanges();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Saves many changed Inventory records through the gateway in a single batch
+	 * Each record's own observers (e.g., detail views) are told it changed, list observers are notified once
+	 * @param inventorys records already in this list
+	 * @throws GatewayException if the batch fails (nothing is saved)
+	 */
+	public void saveInventorys(List<Inventory> inventorys) throws GatewayException {
+		gateway.saveInventorys(inventorys);
+		
+		writeLock.lock();
+		try {
+			dontNotify = true;
+			for(Inventory invt : inventorys)
+				invt.notifyObservers();
+			dontNotify = false;
+			
+			//tell all observers of this list which rows changed
+			publishChanges();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Deletes many Inventory records through the gateway in a single batch and removes them from the list
+	 * Observers of the list are notified once at the end
+	 * @param inventorys records in this list
+	 * @throws GatewayException if the batch fails (nothing is deleted or removed from the list)
+	 */
+	public void deleteInventorys(List<Inventory> inventorys) throws GatewayException {
+		//records that were never saved only need to come out of the list
+		ArrayList<Long> ids = new ArrayList<Long>();
+		for(Inventory invt : inventorys) {
+			if(invt.getId() != Inventory.INVALID_ID)
+				ids.add(invt.getId());
+		}
+		long[] idArray = new long[ids.size()];
+		for(int i = 0; i < idArray.length; i++)
+			idArray[i] = ids.get(i);
+		gateway.deleteInventorys(idArray);
 		
-		return lTotalquality;
+		writeLock.lock();
+		try {
+			dontNotify = true;
+			removeIds(ids);
+			for(Inventory invt : inventorys) {
+				if(invt.getId() == Inventory.INVALID_ID)
+					removeInventoryFromList(invt);
+			}
+			dontNotify = false;
+			
+			//tell all observers of this list what changed
+			publishChanges();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Moves qty of a part from one warehouse to another in the db (one transaction, checked against the stock
+	 * and storage capacity in the db, see InventoryTableGateway.transferInventory) and updates the list
+	 * from the records the gateway returns, so nothing has to be fetched or reloaded first
+	 * @throws GatewayException if the transfer is refused (nothing is changed)
+	 */
+	public void transferInventory(long partId, long fromWarehouseId, long toWarehouseId, double qty) throws GatewayException {
+		reconcile(gateway.transferInventory(partId, fromWarehouseId, toWarehouseId, qty), false, null);
+	}
+	
+	/**
+	 * Makes many transfers in a single transaction (see InventoryTableGateway.transferInventorys) and updates the list
+	 * from the changed records; observers of the list are notified once at the end
+	 * @throws GatewayException if any transfer is refused (nothing is changed; a BatchException names the transfers at fault)
+	 */
+	public void transferInventorys(List<InventoryTransfer> transfers) throws GatewayException {
+		reconcile(gateway.transferInventorys(transfers), false, null);
+	}
+	
+	/**
+	 * Makes many quantity changes in a single transaction (see InventoryTableGateway.adjustQuantities) and updates
+	 * the list from the records the gateway returns; observers of the list are notified once at the end
+	 * @throws GatewayException if any change is refused (nothing is changed; a BatchException names the adjustments at fault)
+	 */
+	public void adjustQuantities(List<QuantityAdjustment> adjustments) throws GatewayException {
+		List<Inventory> rows = new ArrayList<Inventory>();
+		for(Inventory row : gateway.adjustQuantities(adjustments)) {
+			if(row != null)
+				rows.add(row);
+		}
+		reconcile(rows, false, null);
+	}
+	
+	// get Total Quality of a warehouse
+	// (paged: summed in the db, since the per-warehouse totals only cover resident records)
+	public double getTotalQuantityWarehouseExceptCurrent(Inventory inventory) throws GatewayException {
+		if(isPaged())
+			return gateway.sumWarehouseQuantity(inventory.getWarehouseId(), inventory.getId());
+		//the list's own object for the record may have been counted under its old warehouse/quantity
+		//if it is being edited (totals catch up in finishUpdate), so take off what it was counted with
+		//(neither the identity map nor the totals need writeLock, so this doesn't wait for a background merge)
+		Inventory counted = inventory.getId() != Inventory.INVALID_ID ? findById(inventory.getId()) : inventory;
+		if(counted == null)
+			counted = inventory;
+		return utilization.getTotalQuantityExcept(inventory.getWarehouseId(), counted);
 	}
 	
 	// get capacity remaining of specific warehouse
-	public double remainCapacityInWarehouse(double capacity, Inventory inventory){
+	public double remainCapacityInWarehouse(double capacity, Inventory inventory) throws GatewayException {
 		
 		return capacity  - (getTotalQuantityWarehouseExceptCurrent(inventory)+ inventory.getQuantity() );
 
@@ -237,31 +904,46 @@ public class InventoryList extends Observable implements Observer {
 	 * Accessors
 	 * @return
 	 */
-	public List<Inventory> getList() {
-		return myList;
+	public InventoryTableGateway getGateway() {
+		return gateway;
 	}
 
-	public void setList(List<Inventory> myList) {
-		this.myList = myList;
+	public InventoryTableGatewayAsync getAsyncGateway() {
+		return asyncGateway;
 	}
 
-	public InventoryTableGateway getGateway() {
-		return gateway;
+	public WarehouseUtilization getUtilization() {
+		return utilization;
+	}
+
+	/**
+	 * replaces the records and rebuilds the secondary indexes and warehouse totals
+	 */
+	@Override
+	public void setList(List<Inventory> myList) {
+		writeLock.lock();
+		try {
+			super.setList(myList);
+			index.clear();
+			utilization.clear();
+			for(Inventory invt : myList) {
+				index.add(invt);
+				utilization.add(invt);
+			}
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	public void setGateway(InventoryTableGateway gateway) {
 		this.gateway = gateway;
+		try {
+			asyncGateway = new InventoryTableGatewayAsync(gateway);
+		} catch (GatewayException e) {
+			e.printStackTrace();
+		}
 	}
 
-	/**
-	 * adds new Inventory with invalid id to list of new records
-	 * during update, if Inventory updating is a new record then will re-add it to the identity map
-	 * @param invt
-	 */
-	public void addToNewRecords(Inventory invt) {
-		newRecords.add(invt);
-	}
-	
 	/**
 	 * Notify list observers that an object has changed
 	 * if Observed record is a new object and its Id has changed, re-add it to the hashmap
@@ -270,17 +952,28 @@ public class InventoryList extends Observable implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		//System.out.println("DEBUG: PersonList update");
-		//if o is in the newRecords list, remove it from identity map
-		//and add it back with new id
-		Inventory invt = (Inventory) o;
-		if(newRecords.contains(invt)) {
-			myIdMap.remove(Inventory.INVALID_ID);
-			myIdMap.put(invt.getId(), invt);
-			newRecords.remove(invt);
-		}
+		writeLock.lock();
+		try {
+			//System.out.println("DEBUG: PersonList update");
+			//if o is in the newRecords list, remove it from identity map
+			//and add it back with new id
+			Inventory invt = (Inventory) o;
+			//warehouse, part or quantity may have been changed
+			index.update(invt);
+			utilization.update(invt);
+			if(newRecords.contains(invt)) {
+				myIdMap.remove(Inventory.INVALID_ID);
+				myIdMap.put(invt.getId(), invt);
+				newRecords.remove(invt);
+			
+				//the new record is in the db now so the pages need to include it
+				refreshPages();
+			}
 		
-		this.setChanged();
-		notifyObservers();
+			//tell all observers of this list which row changed
+			fireUpdated(invt);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 }
\ No newline at end of file
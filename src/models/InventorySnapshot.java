@@ -0,0 +1,314 @@
+package models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import database.GatewayException;
+import database.InventoryTableGateway;
+import database.RowHandler;
+
+/**
+ * Immutable, column-oriented copy of inventory records for reports and dashboards
+ *
+ * Records are held as parallel primitive arrays (id, warehouse id, part id, quantity) instead of
+ * Inventory objects, so a scan walks contiguous memory, allocates nothing per record and gives the JIT
+ * plain loops it can unroll and vectorize. The arrays are never changed after the snapshot is built,
+ * so a snapshot can be scanned on any thread while the InventoryList it was taken from keeps being edited.
+ *
+ * Build one from an InventoryList (from its lock-free snapshot of rows, so on any thread)
+ * or stream one straight from an InventoryTableGateway without hydrating the whole table into the list.
+ * @author Justin Wilson
+ *
+ */
+public final class InventorySnapshot {
+	private final long[] ids;
+	private final long[] warehouseIds;
+	private final long[] partIds;
+	private final double[] quantities;
+	private final int size;
+
+	private InventorySnapshot(long[] ids, long[] warehouseIds, long[] partIds, double[] quantities, int size) {
+		this.ids = ids;
+		this.warehouseIds = warehouseIds;
+		this.partIds = partIds;
+		this.quantities = quantities;
+		this.size = size;
+	}
+
+	/**
+	 * snapshot of the records in list (in paged mode only the resident ones; unsaved records are included with id INVALID_ID)
+	 * @param list
+	 * @return
+	 */
+	public static InventorySnapshot of(InventoryList list) {
+		return of(list.getList());
+	}
+
+	public static InventorySnapshot of(List<Inventory> inventorys) {
+		Builder b = new Builder(inventorys.size());
+		for(Inventory invt : inventorys)
+			b.add(invt);
+		return b.build();
+	}
+
+	/**
+	 * snapshot of the whole INVENTORY table, streamed from the db so only one row is hydrated at a time
+	 * (blocks: call it off the Event Dispatch Thread, e.g. through InventoryTableGatewayAsync.fetchSnapshotAsync)
+	 * @param gateway
+	 * @param fetchSize rows per round trip
+	 * @return
+	 * @throws GatewayException
+	 */
+	public static InventorySnapshot fetch(InventoryTableGateway gateway, int fetchSize) throws GatewayException {
+		Builder b = new Builder(1024);
+		gateway.fetchInventorys(b, fetchSize);
+		return b.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getId(int row) {
+		checkRow(row);
+		return ids[row];
+	}
+
+	public long getWarehouseId(int row) {
+		checkRow(row);
+		return warehouseIds[row];
+	}
+
+	public long getPartId(int row) {
+		checkRow(row);
+		return partIds[row];
+	}
+
+	public double getQuantity(int row) {
+		checkRow(row);
+		return quantities[row];
+	}
+
+	/**
+	 * @return total quantity of every record
+	 */
+	public double sumQuantity() {
+		double sum = 0;
+		for(int i = 0; i < size; i++)
+			sum += quantities[i];
+		return sum;
+	}
+
+	/**
+	 * @return total quantity stored in one warehouse
+	 */
+	public double sumWarehouse(long warehouseId) {
+		double sum = 0;
+		for(int i = 0; i < size; i++) {
+			//branch-free so the loop stays a straight run over both columns
+			sum += warehouseIds[i] == warehouseId ? quantities[i] : 0;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return warehouse id -> total quantity stored in it, in order of first appearance
+	 */
+	public LinkedHashMap<Long, Double> sumByWarehouse() {
+		//accumulate into one slot per warehouse, boxing only once per warehouse at the end
+		LongObjectMap<double[]> sums = new LongObjectMap<double[]>();
+		long[] order = new long[16];
+		int warehouses = 0;
+		for(int i = 0; i < size; i++) {
+			double[] sum = sums.get(warehouseIds[i]);
+			if(sum == null) {
+				sum = new double[1];
+				sums.put(warehouseIds[i], sum);
+				if(warehouses == order.length)
+					order = Arrays.copyOf(order, warehouses * 2);
+				order[warehouses++] = warehouseIds[i];
+			}
+			sum[0] += quantities[i];
+		}
+		LinkedHashMap<Long, Double> ret = new LinkedHashMap<Long, Double>();
+		for(int w = 0; w < warehouses; w++)
+			ret.put(order[w], sums.get(order[w])[0]);
+		return ret;
+	}
+
+	/**
+	 * @return snapshot of the records of one part, in this snapshot's order
+	 */
+	public InventorySnapshot filterByPart(long partId) {
+		int count = 0;
+		for(int i = 0; i < size; i++) {
+			if(partIds[i] == partId)
+				count++;
+		}
+		Builder b = new Builder(count);
+		for(int i = 0; i < size && b.size < count; i++) {
+			if(partIds[i] == partId)
+				b.add(ids[i], warehouseIds[i], partIds[i], quantities[i]);
+		}
+		return b.build();
+	}
+
+	/**
+	 * @return snapshot of the records of one warehouse, in this snapshot's order
+	 */
+	public InventorySnapshot filterByWarehouse(long warehouseId) {
+		int count = 0;
+		for(int i = 0; i < size; i++) {
+			if(warehouseIds[i] == warehouseId)
+				count++;
+		}
+		Builder b = new Builder(count);
+		for(int i = 0; i < size && b.size < count; i++) {
+			if(warehouseIds[i] == warehouseId)
+				b.add(ids[i], warehouseIds[i], partIds[i], quantities[i]);
+		}
+		return b.build();
+	}
+
+	/**
+	 * @param n
+	 * @return snapshot of the n records with the largest quantities, largest first (ties by lower id)
+	 */
+	public InventorySnapshot topN(int n) {
+		n = Math.max(0, Math.min(n, size));
+		//min-heap of row numbers: the root is the smallest of the best n seen so far
+		int[] heap = new int[n];
+		int count = 0;
+		for(int i = 0; i < size && n > 0; i++) {
+			if(count < n) {
+				heap[count] = i;
+				siftUp(heap, count++);
+			} else if(before(i, heap[0])) {
+				heap[0] = i;
+				siftDown(heap, 0, count);
+			}
+		}
+		//pop smallest first into the back of the result
+		int[] rows = new int[count];
+		for(int k = count - 1; k >= 0; k--) {
+			rows[k] = heap[0];
+			heap[0] = heap[k];
+			siftDown(heap, 0, k);
+		}
+		Builder b = new Builder(count);
+		for(int row : rows)
+			b.add(ids[row], warehouseIds[row], partIds[row], quantities[row]);
+		return b.build();
+	}
+
+	/**
+	 * @return true if row a ranks above row b in topN
+	 */
+	private boolean before(int a, int b) {
+		if(quantities[a] != quantities[b])
+			return quantities[a] > quantities[b];
+		return ids[a] < ids[b];
+	}
+
+	private void siftUp(int[] heap, int k) {
+		while(k > 0) {
+			int parent = (k - 1) / 2;
+			if(!before(heap[parent], heap[k]))
+				return;
+			swap(heap, parent, k);
+			k = parent;
+		}
+	}
+
+	private void siftDown(int[] heap, int k, int count) {
+		while(true) {
+			int child = 2 * k + 1;
+			if(child >= count)
+				return;
+			if(child + 1 < count && before(heap[child], heap[child + 1]))
+				child++;
+			if(!before(heap[k], heap[child]))
+				return;
+			swap(heap, k, child);
+			k = child;
+		}
+	}
+
+	private static void swap(int[] heap, int a, int b) {
+		int t = heap[a];
+		heap[a] = heap[b];
+		heap[b] = t;
+	}
+
+	private void checkRow(int row) {
+		if(row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("Row " + row + " of a snapshot of " + size + " records");
+	}
+
+	/**
+	 * Collects records column by column; also a RowHandler so a gateway can stream into it
+	 * build() hands the columns to the snapshot, so a builder is used once
+	 */
+	public static class Builder implements RowHandler<Inventory> {
+		private long[] ids;
+		private long[] warehouseIds;
+		private long[] partIds;
+		private double[] quantities;
+		private int size;
+
+		public Builder(int expectedSize) {
+			int capacity = Math.max(16, expectedSize);
+			ids = new long[capacity];
+			warehouseIds = new long[capacity];
+			partIds = new long[capacity];
+			quantities = new double[capacity];
+			size = 0;
+		}
+
+		public Builder add(Inventory invt) {
+			return add(invt.getId(), invt.getWarehouseId(), invt.getPartId(), invt.getQuantity());
+		}
+
+		public Builder add(long id, long warehouseId, long partId, double quantity) {
+			if(ids == null)
+				throw new IllegalStateException("Snapshot was already built");
+			if(size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				warehouseIds = Arrays.copyOf(warehouseIds, capacity);
+				partIds = Arrays.copyOf(partIds, capacity);
+				quantities = Arrays.copyOf(quantities, capacity);
+			}
+			ids[size] = id;
+			warehouseIds[size] = warehouseId;
+			partIds[size] = partId;
+			quantities[size] = quantity;
+			size++;
+			return this;
+		}
+
+		@Override
+		public void handleRow(Inventory row) {
+			add(row);
+		}
+
+		public InventorySnapshot build() {
+			if(ids == null)
+				throw new IllegalStateException("Snapshot was already built");
+			//trim if much of the capacity is unused (e.g. after streaming) so the snapshot holds no slack
+			if(ids.length - size > 1024 && ids.length - size > size / 4) {
+				ids = Arrays.copyOf(ids, size);
+				warehouseIds = Arrays.copyOf(warehouseIds, size);
+				partIds = Arrays.copyOf(partIds, size);
+				quantities = Arrays.copyOf(quantities, size);
+			}
+			InventorySnapshot snapshot = new InventorySnapshot(ids, warehouseIds, partIds, quantities, size);
+			ids = null;
+			warehouseIds = null;
+			partIds = null;
+			quantities = null;
+			return snapshot;
+		}
+	}
+}
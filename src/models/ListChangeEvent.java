@@ -0,0 +1,147 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What changed in a list model; passed as the arg of notifyObservers so list controllers can tell
+ * their JList about only the affected rows instead of the whole list
+ *
+ * 		ADDED 		rows firstIndex..lastIndex were inserted (indexes after the insert)
+ * 		REMOVED 	rows firstIndex..lastIndex were removed (indexes before the removal)
+ * 		UPDATED 	rows within firstIndex..lastIndex changed in place; items are the changed rows only
+ * 		RESET 		anything may have changed (too many changes to list, or rows are not at known indexes)
+ *
+ * Events are in the order the changes were made, so indexes are relative to the list as the earlier events left it
+ * (as with javax.swing.event.ListDataEvent).
+ * A published event also carries a snapshot of the whole list as of the change (as of the last of the changes published
+ * together with it; see ReconcilingList.getSnapshot), so a view that gets the event later, on another thread, can show rows matching the indexes it was told about.
+ * @author Justin Wilson
+ *
+ * @param <T> model type held by the list
+ */
+public class ListChangeEvent<T> {
+	public enum Type { ADDED, REMOVED, UPDATED, RESET }
+
+	private final Type type;
+	private final int firstIndex;
+	private final int lastIndex;
+	private final List<T> items;
+	private final List<T> snapshot;
+
+	private ListChangeEvent(Type type, int firstIndex, int lastIndex, List<T> items) {
+		this(type, firstIndex, lastIndex, items, null);
+	}
+
+	private ListChangeEvent(Type type, int firstIndex, int lastIndex, List<T> items, List<T> snapshot) {
+		this.type = type;
+		this.firstIndex = firstIndex;
+		this.lastIndex = lastIndex;
+		this.items = items;
+		this.snapshot = snapshot;
+	}
+
+	public static <T> ListChangeEvent<T> added(int index, T row) {
+		return new ListChangeEvent<T>(Type.ADDED, index, index, single(row));
+	}
+
+	public static <T> ListChangeEvent<T> removed(int index, T row) {
+		return new ListChangeEvent<T>(Type.REMOVED, index, index, single(row));
+	}
+
+	public static <T> ListChangeEvent<T> updated(int firstIndex, int lastIndex, List<T> rows) {
+		return new ListChangeEvent<T>(Type.UPDATED, firstIndex, lastIndex, rows);
+	}
+
+	public static <T> ListChangeEvent<T> reset() {
+		return new ListChangeEvent<T>(Type.RESET, -1, -1, Collections.<T>emptyList());
+	}
+
+	/**
+	 * @return this and next as one event, or null if they can't be described by one
+	 */
+	ListChangeEvent<T> mergeWith(ListChangeEvent<T> next) {
+		if(type != next.type)
+			return null;
+		switch(type) {
+		case ADDED:
+			//next inserted right after (or right before) these rows
+			if(next.firstIndex == lastIndex + 1)
+				return new ListChangeEvent<T>(type, firstIndex, next.lastIndex, concat(items, next.items));
+			if(next.lastIndex + 1 == firstIndex)
+				return new ListChangeEvent<T>(type, next.firstIndex, lastIndex, concat(next.items, items));
+			return null;
+		case REMOVED:
+			//next removed the rows that moved into these rows' place (or the rows just before them)
+			if(next.firstIndex == firstIndex)
+				return new ListChangeEvent<T>(type, firstIndex, lastIndex + next.size(), concat(items, next.items));
+			if(next.lastIndex + 1 == firstIndex)
+				return new ListChangeEvent<T>(type, next.firstIndex, lastIndex, concat(next.items, items));
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getFirstIndex() {
+		return firstIndex;
+	}
+
+	public int getLastIndex() {
+		return lastIndex;
+	}
+
+	/**
+	 * @return the rows added, removed or updated (empty for RESET); do not modify
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return immutable copy of the whole list right after this change (null if the event was not published by a list)
+	 */
+	public List<T> getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the same change carrying snapshot as the list it left behind
+	 */
+	public ListChangeEvent<T> withSnapshot(List<T> snapshot) {
+		if(snapshot == this.snapshot)
+			return this;
+		return new ListChangeEvent<T>(type, firstIndex, lastIndex, items, snapshot);
+	}
+
+	/**
+	 * @return number of rows in the range
+	 */
+	private int size() {
+		return lastIndex - firstIndex + 1;
+	}
+
+	private static <T> List<T> single(T row) {
+		ArrayList<T> items = new ArrayList<T>(1);
+		items.add(row);
+		return items;
+	}
+
+	/**
+	 * only events still being collected (not yet published) are merged, so their lists can be reused
+	 */
+	private static <T> List<T> concat(List<T> a, List<T> b) {
+		a.addAll(b);
+		return a;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + firstIndex + ".." + lastIndex;
+	}
+}
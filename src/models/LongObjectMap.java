@@ -0,0 +1,240 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Map from long ids to objects, used as the Identity Map of the list models
+ *
+ * Keys are kept in a long[] and values in a parallel Object[] with open addressing (linear probing),
+ * so unlike HashMap<Long, V> a lookup allocates nothing and an entry costs no Long or HashMap$Node object.
+ * Any long is a valid key (including INVALID_ID); null values are not allowed (an empty slot has a null value).
+ * Thread safe: changes are made one at a time, and get/containsKey are optimistic reads that never wait for
+ * a change except while the table is being grown, so a list's readers don't wait for the thread loading it.
+ * @author Justin Wilson
+ *
+ * @param <V> type of the values
+ */
+public class LongObjectMap<V> {
+	private static final int MIN_CAPACITY = 16;
+
+	/**
+	 * the table is grown once it is more than this full
+	 */
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys;
+	private Object[] values;
+	private int size;
+
+	/**
+	 * held in write mode by each change; get validates against it instead of locking
+	 */
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * number of entries at which the table is doubled
+	 */
+	private int resizeAt;
+
+	public LongObjectMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of entries the map can hold before it first has to grow
+	 */
+	public LongObjectMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while(capacity * LOAD_FACTOR < expectedSize)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * @return the value for key, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		long stamp = lock.tryOptimisticRead();
+		if(stamp != 0) {
+			Object found = find(keys, values, key);
+			if(lock.validate(stamp))
+				return (V) found;
+		}
+		//a change was under way: read again once it is done
+		stamp = lock.readLock();
+		try {
+			return (V) find(keys, values, key);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * probes for key; may be called while the table is changing (the caller then discards the result),
+	 * so it stays within the arrays and stops after one lap of the table
+	 * @return the value, or null
+	 */
+	private static Object find(long[] keys, Object[] values, long key) {
+		if(keys == null || values == null || keys.length != values.length)
+			return null;
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for(int probes = 0; probes < keys.length && values[i] != null; probes++, i = (i + 1) & mask) {
+			if(keys[i] == key)
+				return values[i];
+		}
+		return null;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * @param key
+	 * @param value must not be null
+	 * @return the value key had before, or null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if(value == null)
+			throw new NullPointerException("LongObjectMap does not hold null values");
+		long stamp = lock.writeLock();
+		try {
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			for(; values[i] != null; i = (i + 1) & mask) {
+				if(keys[i] == key) {
+					V old = (V) values[i];
+					values[i] = value;
+					return old;
+				}
+			}
+			keys[i] = key;
+			values[i] = value;
+			if(++size > resizeAt)
+				allocate(keys.length << 1);
+			return null;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @return the value key had, or null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		long stamp = lock.writeLock();
+		try {
+			int mask = keys.length - 1;
+			for(int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+				if(keys[i] == key) {
+					V old = (V) values[i];
+					closeGap(i, mask);
+					size--;
+					return old;
+				}
+			}
+			return null;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public void clear() {
+		long stamp = lock.writeLock();
+		try {
+			Arrays.fill(values, null);
+			size = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @return a copy of the values, in no particular order
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		long stamp = lock.readLock();
+		try {
+			ArrayList<V> ret = new ArrayList<V>(size);
+			for(Object v : values) {
+				if(v != null)
+					ret.add((V) v);
+			}
+			return ret;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * empties slot i and moves later entries of the same probe run back so lookups still find them
+	 * (no tombstones, so removals never slow down later lookups)
+	 */
+	private void closeGap(int i, int mask) {
+		int gap = i;
+		for(int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+			int home = slot(keys[j], mask);
+			//entry j can move to the gap only if the gap is between its home slot and j (cyclically)
+			if(((j - home) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+		}
+		values[gap] = null;
+	}
+
+	/**
+	 * allocates a table of capacity slots (a power of 2) and re-inserts the current entries
+	 */
+	private void allocate(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+		if(oldValues == null)
+			return;
+		int mask = capacity - 1;
+		for(int j = 0; j < oldValues.length; j++) {
+			if(oldValues[j] == null)
+				continue;
+			int i = slot(oldKeys[j], mask);
+			while(values[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+
+	/**
+	 * home slot of a key: ids are mostly sequential, so they are spread over the table
+	 * (multiplied by 2^64 / golden ratio) to keep runs of ids from forming long probe runs
+	 */
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return (int) h & mask;
+	}
+}
@@ -0,0 +1,262 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+/**
+ * Cached two-way lookup between the ids and display names of a list's records (e.g., warehouse names, part numbers),
+ * with the names in sorted order for pickers
+ *
+ * The lookup follows the ListChangeEvents of its list and changes one entry per row added, removed or renamed,
+ * so a view that needs the names (e.g., InventoryDetailView's combo boxes) reads what is already here
+ * instead of rebuilding maps from the whole list. Only a RESET of the list rebuilds the lookup.
+ * Unsaved records (id INVALID_ID) are left out until they are saved.
+ * Records with the same name share one entry in getNames(); getId() returns the one that had the name first.
+ *
+ * Thread safe (the list may be changed on a worker thread); getNames() returns an immutable copy
+ * that is only rebuilt after names were added or removed.
+ * Observers are notified (arg null) after each change to the names.
+ * @author Justin Wilson
+ *
+ * @param <T> model type held by the list
+ */
+public abstract class NameLookup<T> extends Observable implements Observer {
+	/**
+	 * order of getNames(): case-insensitive, then case-sensitive so the order is total
+	 */
+	public static final Comparator<String> ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			int c = String.CASE_INSENSITIVE_ORDER.compare(a, b);
+			return c != 0 ? c : a.compareTo(b);
+		}
+	};
+
+	/**
+	 * a record's id and the name it is filed under
+	 */
+	private static class Named {
+		final long id;
+		final String name;
+
+		Named(long id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+
+	private ReconcilingList<T> list;
+
+	private LongObjectMap<Named> byId;
+
+	/**
+	 * name -> id of the record getId returns for it
+	 */
+	private HashMap<String, Long> byName;
+
+	/**
+	 * name -> number of records filed under it, only for names shared by more than one record
+	 */
+	private HashMap<String, Integer> shared;
+
+	/**
+	 * distinct names in ORDER, and the immutable copy handed out by getNames (null once names change)
+	 */
+	private ArrayList<String> names;
+	private List<String> namesCopy;
+
+	/**
+	 * builds the lookup from list's records and follows its changes
+	 * @param list
+	 */
+	public NameLookup(ReconcilingList<T> list) {
+		this.list = list;
+		byId = new LongObjectMap<Named>();
+		byName = new HashMap<String, Long>();
+		shared = new HashMap<String, Integer>();
+		names = new ArrayList<String>();
+		//follow first so no change made while building is missed
+		list.addObserver(this);
+		synchronized(this) {
+			rebuild(list.getSnapshot());
+		}
+	}
+
+	/**
+	 * @return id of the record
+	 */
+	protected abstract long getRowId(T row);
+
+	/**
+	 * @return name the record is shown as
+	 */
+	protected abstract String getRowName(T row);
+
+	/**
+	 * @return id of the record with that name, or INVALID_ID (0) if there is none
+	 */
+	public synchronized long getId(String name) {
+		Long id = name != null ? byName.get(name) : null;
+		return id != null ? id : 0;
+	}
+
+	/**
+	 * @return name of the record, or null if there is no saved record with that id
+	 */
+	public synchronized String getName(long id) {
+		Named n = byId.get(id);
+		return n != null ? n.name : null;
+	}
+
+	public synchronized boolean containsName(String name) {
+		return byName.containsKey(name);
+	}
+
+	/**
+	 * @return the distinct names in ORDER; immutable, so safe to keep and read on any thread
+	 */
+	public synchronized List<String> getNames() {
+		if(namesCopy == null)
+			namesCopy = Collections.unmodifiableList(new ArrayList<String>(names));
+		return namesCopy;
+	}
+
+	/**
+	 * @return number of records in the lookup
+	 */
+	public synchronized int size() {
+		return byId.size();
+	}
+
+	/**
+	 * stops following the list
+	 */
+	public void dispose() {
+		list.deleteObserver(this);
+	}
+
+	/**
+	 * list changed: file the added, removed or updated rows (everything on a RESET)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void update(Observable o, Object arg) {
+		boolean changed = false;
+		synchronized(this) {
+			if(!(arg instanceof ListChangeEvent)) {
+				rebuild(list.getSnapshot());
+				changed = true;
+			} else {
+				ListChangeEvent<T> change = (ListChangeEvent<T>) arg;
+				switch(change.getType()) {
+				case ADDED:
+				case UPDATED:
+					for(T row : change.getItems())
+						changed |= file(getRowId(row), getRowName(row));
+					break;
+				case REMOVED:
+					for(T row : change.getItems()) {
+						//the record may be back in the list already (removed and re-added in the same batch of changes)
+						Named n = byId.get(getRowId(row));
+						if(n != null && list.findById(n.id) == null) {
+							unfile(n);
+							changed = true;
+						}
+					}
+					break;
+				default:
+					List<T> rows = change.getSnapshot();
+					rebuild(rows != null ? rows : list.getSnapshot());
+					changed = true;
+				}
+			}
+		}
+		if(changed) {
+			setChanged();
+			notifyObservers();
+		}
+	}
+
+	private void rebuild(List<T> rows) {
+		byId = new LongObjectMap<Named>(rows.size());
+		byName.clear();
+		shared.clear();
+		names.clear();
+		namesCopy = null;
+		for(T row : rows) {
+			long id = getRowId(row);
+			String name = getRowName(row);
+			if(id == 0 || name == null || byId.containsKey(id))
+				continue;
+			byId.put(id, new Named(id, name));
+			if(byName.containsKey(name))
+				share(name);
+			else
+				byName.put(name, id);
+		}
+		//one sort instead of an insert per record
+		names.addAll(byName.keySet());
+		Collections.sort(names, ORDER);
+	}
+
+	/**
+	 * files a saved record under its current name (moving it if it was filed under another one)
+	 * @return true if the lookup changed
+	 */
+	private boolean file(long id, String name) {
+		if(id == 0 || name == null)
+			return false;
+		Named old = byId.get(id);
+		if(old != null) {
+			if(old.name.equals(name))
+				return false;
+			unfile(old);
+		}
+		byId.put(id, new Named(id, name));
+		if(byName.containsKey(name)) {
+			share(name);
+		} else {
+			byName.put(name, id);
+			int at = Collections.binarySearch(names, name, ORDER);
+			names.add(-at - 1, name);
+			namesCopy = null;
+		}
+		return true;
+	}
+
+	private void unfile(Named n) {
+		byId.remove(n.id);
+		Integer count = shared.get(n.name);
+		if(count == null) {
+			byName.remove(n.name);
+			int at = Collections.binarySearch(names, n.name, ORDER);
+			if(at >= 0)
+				names.remove(at);
+			namesCopy = null;
+			return;
+		}
+		if(count > 2)
+			shared.put(n.name, count - 1);
+		else
+			shared.remove(n.name);
+		//the name stays; if it pointed at this record, point it at another record with the name (rare: a scan)
+		if(byName.get(n.name) == n.id) {
+			for(Named other : byId.values()) {
+				if(other.name.equals(n.name)) {
+					byName.put(n.name, other.id);
+					break;
+				}
+			}
+		}
+	}
+
+	private void share(String name) {
+		Integer count = shared.get(name);
+		shared.put(name, count == null ? 2 : count + 1);
+	}
+}
@@ -3,6 +3,7 @@ package models;
 import java.sql.Timestamp;
 import java.util.Observable;
 
+import database.ConflictException;
 import database.PartTableGateway;
 import database.GatewayException;
 
@@ -44,6 +45,16 @@ public class Part extends Observable {
 	private String user_access;
 	private Timestamp datetime;
 	
+	/**
+	 * false for a keys-only copy (see keysOnly): only id and part number are set, the rest is fetched when needed
+	 */
+	private boolean hydrated;
+	
+	/**
+	 * version of the record this copy was read at (PART.version); a save only succeeds if the db still has this version
+	 */
+	private long version;
+	
 	/**
 	 * Database connection for the Part (same gateway used by PersonPart) 
 	 */
@@ -56,6 +67,22 @@ public class Part extends Observable {
 		unit_of_qty = "";
 		vendor_part_id = "";
 		vendor_name = "";
+		hydrated = true;
+	}
+	
+	/**
+	 * Keys-only Part for a lazy PartList: holds what lists and pickers show (id and part number)
+	 * The other fields stay empty until the list hydrates the record from the db (PartList.hydrate)
+	 * @param id
+	 * @param pnum
+	 * @return
+	 */
+	public static Part keysOnly(long id, String pnum) {
+		Part p = new Part();
+		p.id = id;
+		p.part_number = pnum;
+		p.hydrated = false;
+		return p;
 	}
 
 	public Part(String pnum, String pname, String un_of_qty, String VendorId, String vend) {
@@ -113,6 +140,19 @@ public class Part extends Observable {
 		this.id = id;
 	}
 	
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the version of the record this copy holds
+	 * Should only be called by the gateway (when fetching the record or after saving it)
+	 * @param version
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
+	
 	public String getPartNumber() {
 		return part_number;
 	}
@@ -328,9 +368,22 @@ public class Part extends Observable {
 	/**
 	 * Tells the model that update has finished so it can finish the update
 	 * E.g., notify observers
+	 * While a WriteBehindQueue is running, a saved record is only queued and this returns right away
+	 * (a failed save is then rolled back and reported to the queue's failure listener instead of thrown)
+	 * @throws ConflictException if someone else saved (or deleted) the record since this copy was read;
+	 * the model then holds the record as it is now in the db (observers are notified, so a detail view can merge its edits)
 	 */
 	public void finishUpdate() throws GatewayException {
-		Part orig = null;
+		//saving a keys-only copy would blank the record's other columns
+		if(!hydrated)
+			throw new GatewayException("Part " + id + " was not loaded in full, reopen it and try again");
+		//write-behind: queue the save and return right away (see WriteBehindQueue)
+		WriteBehindQueue queue = WriteBehindQueue.getActive();
+		if(queue != null && this.getId() != 0) {
+			queue.enqueue(this);
+			notifyObservers();
+			return;
+		}
 
 		try {
 			//if id is 0 then this is a new Part to insert, else its an update
@@ -339,11 +392,7 @@ public class Part extends Observable {
 				this.setId(gateway.insertPart(this));
 				
 			} else {
-				//fetch dog from db table in case this fails
-			
-				orig = gateway.fetchPart(this.getId());
-		
-				//try to save to the database
+				//try to save to the database (only if nobody else saved it since it was read)
 				gateway.savePart(this);
 
 			}
@@ -352,14 +401,19 @@ public class Part extends Observable {
 			//System.out.println("DEBUG: Part notify");
 			notifyObservers();
 			
+		} catch(ConflictException e) {
+			//show what is in the db now
+			if(e.getCurrentRow() != null)
+				refreshFrom((Part) e.getCurrentRow());
+			throw e;
 		} catch(GatewayException e) {
 			//if fails then try to refetch model fields from the database
-			if(orig != null) {
-				this.setPartNumber(orig.getPartNumber());
-				this.setPartName(orig.getPartName());
-				this.setVendor(orig.getVendor());
-				this.setUnitOfQuantity(orig.getUnitOfQuantity());
-				this.setVendorsPartNumber(orig.getVendorsPartNumber());
+			if(this.getId() != 0) {
+				try {
+					refreshFrom(gateway.fetchPart(this.getId()));
+				} catch(GatewayException e1) {
+					//keep the unsaved values
+				}
 			}
 			throw new GatewayException("Error trying to save the Part object!");
 		}
@@ -372,6 +426,9 @@ public class Part extends Observable {
 		//if id is 0 then nothing to do in the gateway (record has not been saved yet)
 		if(this.getId() == 0) 
 			return;
+		WriteBehindQueue queue = WriteBehindQueue.getActive();
+		if(queue != null)
+			queue.discard(this);
 			try {
 				gateway.deletePart(this.getId());
 			} catch (GatewayException e) {
@@ -379,6 +436,57 @@ public class Part extends Observable {
 			}
 	}
 
+	/**
+	 * Copies the fields of a freshly fetched copy of this record into this object (e.g., during a list sync)
+	 * and notifies observers if anything changed so open views show the new values
+	 * @param fresh same record read from the db
+	 */
+	public void refreshFrom(Part fresh) {
+		//a keys-only copy only tells us the keys
+		if(!fresh.isHydrated()) {
+			if(part_number.equals(fresh.getPartNumber()))
+				return;
+			part_number = fresh.getPartNumber();
+			setChanged();
+			notifyObservers();
+			return;
+		}
+		//a copy read before our last save (e.g., by a sync that was already running) is out of date
+		if(fresh.getVersion() < version)
+			return;
+		version = fresh.getVersion();
+		hydrated = true;
+		if(part_number.equals(fresh.getPartNumber()) && part_name.equals(fresh.getPartName())
+				&& unit_of_qty.equals(fresh.getUnitOfQuantity()) && vendor_part_id.equals(fresh.getVendorsPartNumber())
+				&& vendor_name.equals(fresh.getVendor()))
+			return;
+		part_number = fresh.getPartNumber();
+		part_name = fresh.getPartName();
+		unit_of_qty = fresh.getUnitOfQuantity();
+		vendor_part_id = fresh.getVendorsPartNumber();
+		vendor_name = fresh.getVendor();
+		setChanged();
+		notifyObservers();
+	}
+
+
+	/**
+	 * @return false if only the keys of this record are loaded (see keysOnly)
+	 */
+	public boolean isHydrated() {
+		return hydrated;
+	}
+	
+	/**
+	 * drops everything but the keys to free memory (a lazy PartList evicting the record); observers are not notified
+	 */
+	void dropDetails() {
+		part_name = "";
+		unit_of_qty = "";
+		vendor_part_id = "";
+		vendor_name = "";
+		hydrated = false;
+	}
 
 	public PartTableGateway getGateway() {
 		return gateway;
@@ -0,0 +1,590 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+import database.AsyncExecutor;
+import database.RowHandler;
+
+/**
+ * Base of the list models (WarehouseList, PartList, InventoryList, UserList):
+ * the list of model objects, its Identity Map, and reconciling them with rows fetched from a gateway
+ *
+ * Reconciling is done with id hash lookups in one pass over the fetched rows and one pass over the list:
+ * fetched rows not in the Identity Map are added, rows already there are refreshed in place, and rows
+ * gone from the db are removed together in a single compaction of the list.
+ * Records added in the app but not saved yet (id INVALID_ID) are never removed.
+ *
+ * Threads: every change to the list holds writeLock, so a worker thread can apply a refresh
+ * (see reconcileInBackground) while the EDT keeps using the list. Readers never take writeLock:
+ * getList()/getSnapshot() return an immutable copy of the rows that is only rebuilt after rows were added or removed,
+ * and each ListChangeEvent carries the copy matching it for list views; findById reads the Identity Map,
+ * which is safe to read while it changes (see LongObjectMap).
+ * Observers are notified on the thread that made the change: views should observe through NotificationDispatcher.
+ * @author Justin Wilson
+ *
+ * @param <T> model type held by the list
+ */
+public abstract class ReconcilingList<T> extends Observable implements Observer {
+	/**
+	 * id of a record that has not been saved to the db yet (same value as each model's INVALID_ID)
+	 */
+	public static final long INVALID_ID = 0;
+
+	/**
+	 * Collection of model objects that this list holds
+	 */
+	protected List<T> myList;
+
+	/**
+	 * Identity map for determining if a record is already in this list
+	 */
+	protected LongObjectMap<T> myIdMap;
+
+	/**
+	 * Collection of newly added records to know when to update key in Identity map
+	 * (an identity set, so update() checks it without a linear search)
+	 */
+	protected Set<T> newRecords;
+
+	/**
+	 * for multiple object inserts and deletes, set to true to notifyObservers at very end (in loadFromGateway)
+	 * be sure to set it back to false when done so that addToList and removeFromList will notify after setChanged
+	 */
+	protected boolean dontNotify;
+
+	/**
+	 * rows a background load (see BackgroundMerge) collects before merging them into the list together
+	 */
+	public static final int BACKGROUND_CHUNK_ROWS = 2000;
+
+	/**
+	 * most ADDED/REMOVED events collected between notifications before observers get one RESET instead
+	 */
+	public static final int MAX_PENDING_CHANGES = 64;
+
+	/**
+	 * rows added or removed since observers were last notified, oldest first (contiguous ones are merged)
+	 */
+	private ArrayList<ListChangeEvent<T>> pendingChanges;
+
+	/**
+	 * rows changed in place since observers were last notified; their indexes are found in one pass when notifying
+	 */
+	private Set<T> pendingUpdates;
+
+	/**
+	 * true if the changes since observers were last notified can only be described as RESET
+	 */
+	private boolean pendingReset;
+
+	/**
+	 * row -> its index in myList, so a single changed row is found without a pass over the list
+	 * (built when first needed; dropped when rows are removed, since that shifts the rows after them)
+	 */
+	private IdentityHashMap<T, Integer> positions;
+
+	/**
+	 * held by whichever thread is changing the list (or reading more than a snapshot of it); reentrant
+	 */
+	protected final ReentrantLock writeLock;
+
+	/**
+	 * immutable copy of myList for lock-free readers, and whether rows were added or removed since it was made
+	 */
+	private volatile List<T> snapshot;
+	private volatile boolean snapshotStale;
+
+	/**
+	 * during reconcileInBackground: rows already in the list and their fetched copies, to refresh on the EDT
+	 * (refreshing notifies the row's own observers, e.g. detail views, which must happen on the EDT)
+	 */
+	private ArrayList<T> deferredExisting, deferredFresh;
+
+	public ReconcilingList() {
+		myList = new ArrayList<T>();
+		myIdMap = new LongObjectMap<T>();
+		dontNotify = false;
+		newRecords = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		pendingChanges = new ArrayList<ListChangeEvent<T>>();
+		pendingUpdates = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+		pendingReset = false;
+		writeLock = new ReentrantLock();
+		snapshot = Collections.emptyList();
+		snapshotStale = false;
+	}
+
+	/**
+	 * @return the record's id (INVALID_ID if not saved yet)
+	 */
+	protected abstract long getRowId(T row);
+
+	/**
+	 * adds a row fetched from the db to the list (the subclass's add...ToList)
+	 */
+	protected abstract void addRow(T row);
+
+	/**
+	 * copies a freshly fetched row into the object already in the list for that record
+	 * (does nothing by default: the object in the list is kept as is)
+	 * @param existing object in the list
+	 * @param fresh row just fetched
+	 */
+	protected void refreshRow(T existing, T fresh) {
+	}
+
+	/**
+	 * called once after rows were removed by a reconcile (not by the subclass's remove...FromList)
+	 * @param removed
+	 */
+	protected void rowsRemoved(List<T> removed) {
+	}
+
+	/**
+	 * Makes the list match rows fetched from the db and notifies observers once at the end
+	 * @param fetched rows fetched from the gateway
+	 * @param full true if fetched is every row in the db (rows not in it are removed),
+	 * 			false if it is only the rows changed since the last sync
+	 * @param deletedIds when not full: ids of the rows deleted since the last sync (may be null)
+	 */
+	public void reconcile(Iterable<T> fetched, boolean full, Collection<Long> deletedIds) {
+		writeLock.lock();
+		try {
+			boolean wasNotifying = !dontNotify;
+			dontNotify = true;
+
+			HashSet<Long> fetchedIds = full ? new HashSet<Long>() : null;
+			for(T row : fetched) {
+				if(full)
+					fetchedIds.add(getRowId(row));
+				mergeRow(row);
+			}
+			if(full)
+				removeMissing(fetchedIds);
+			else if(deletedIds != null)
+				removeIds(deletedIds);
+
+			dontNotify = !wasNotifying;
+			//tell all observers of this list what changed
+			if(wasNotifying)
+				publishChanges();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Same as reconcile, but may be called on a worker thread: rows are added and removed right away
+	 * (holding writeLock, so the EDT only waits for that part), while rows already in the list are refreshed
+	 * on the EDT afterwards because refreshing notifies their own observers (e.g., open detail views)
+	 * @return future that completes once the refreshed rows are updated on the EDT
+	 */
+	public CompletableFuture<Void> reconcileInBackground(Iterable<T> fetched, boolean full, Collection<Long> deletedIds) {
+		final ArrayList<T> existing = new ArrayList<T>();
+		final ArrayList<T> fresh = new ArrayList<T>();
+		writeLock.lock();
+		try {
+			deferredExisting = existing;
+			deferredFresh = fresh;
+			reconcile(fetched, full, deletedIds);
+		} finally {
+			deferredExisting = null;
+			deferredFresh = null;
+			writeLock.unlock();
+		}
+		if(existing.isEmpty())
+			return CompletableFuture.completedFuture(null);
+		return CompletableFuture.runAsync(new Runnable() {
+			@Override
+			public void run() {
+				writeLock.lock();
+				try {
+					boolean wasNotifying = !dontNotify;
+					dontNotify = true;
+					for(int i = 0; i < existing.size(); i++) {
+						//skip rows removed from the list in the meantime
+						if(myIdMap.get(getRowId(existing.get(i))) == existing.get(i))
+							refreshRow(existing.get(i), fresh.get(i));
+					}
+					dontNotify = !wasNotifying;
+					if(wasNotifying)
+						publishChanges();
+				} finally {
+					writeLock.unlock();
+				}
+			}
+		}, AsyncExecutor.EDT);
+	}
+
+	/**
+	 * RowHandler for rows streamed from the db on a worker thread: merges them into the list BACKGROUND_CHUNK_ROWS
+	 * at a time (see reconcileInBackground), so a load never holds the whole table in a second List
+	 * and views fill in while it runs. Call finish once the stream has ended.
+	 */
+	protected class BackgroundMerge implements RowHandler<T> {
+		/**
+		 * true if every row in the db is streamed (records not streamed are removed at the end)
+		 */
+		private final boolean full;
+
+		/**
+		 * on a full load: ids of every row streamed
+		 */
+		private final HashSet<Long> fetchedIds;
+
+		private ArrayList<T> chunk;
+
+		/**
+		 * EDT refreshes of the rows already in the list, one per chunk
+		 */
+		private final ArrayList<CompletableFuture<Void>> refreshes;
+
+		public BackgroundMerge(boolean full) {
+			this.full = full;
+			fetchedIds = full ? new HashSet<Long>() : null;
+			chunk = new ArrayList<T>();
+			refreshes = new ArrayList<CompletableFuture<Void>>();
+		}
+
+		@Override
+		public void handleRow(T row) {
+			if(full)
+				fetchedIds.add(getRowId(row));
+			chunk.add(row);
+			if(chunk.size() >= BACKGROUND_CHUNK_ROWS)
+				mergeChunk();
+		}
+
+		private void mergeChunk() {
+			if(chunk.isEmpty())
+				return;
+			CompletableFuture<Void> refreshed = reconcileInBackground(chunk, false, null);
+			if(!refreshed.isDone())
+				refreshes.add(refreshed);
+			chunk = new ArrayList<T>();
+		}
+
+		/**
+		 * merges the rows still collected, then removes the records gone from the db
+		 * @param deletedIds when not full: ids of the rows deleted since the last sync (may be null)
+		 * @return future that completes once the rows already in the list are refreshed on the EDT
+		 */
+		public CompletableFuture<Void> finish(Collection<Long> deletedIds) {
+			mergeChunk();
+			if(full)
+				removeMissing(fetchedIds);
+			else if(deletedIds != null)
+				removeIds(deletedIds);
+			return CompletableFuture.allOf(refreshes.toArray(new CompletableFuture<?>[refreshes.size()]));
+		}
+	}
+
+	/**
+	 * adds a fetched row to the list, or refreshes the object already in the list for that record
+	 * @param row
+	 * @return true if row was added
+	 */
+	protected boolean mergeRow(T row) {
+		T existing = myIdMap.get(getRowId(row));
+		if(existing == null) {
+			addRow(row);
+			return true;
+		}
+		if(deferredExisting != null) {
+			deferredExisting.add(existing);
+			deferredFresh.add(row);
+		} else {
+			refreshRow(existing, row);
+		}
+		return false;
+	}
+
+	/**
+	 * removes every saved record whose id is not in keepIds (i.e., was not in a full fetch)
+	 * @param keepIds
+	 * @return number of records removed
+	 */
+	protected int removeMissing(Set<Long> keepIds) {
+		return removeRows(keepIds, false);
+	}
+
+	/**
+	 * removes the records with the given ids
+	 * @param ids
+	 * @return number of records removed
+	 */
+	protected int removeIds(Collection<Long> ids) {
+		if(ids.isEmpty())
+			return 0;
+		return removeRows(ids instanceof Set ? (Set<Long>) ids : new HashSet<Long>(ids), true);
+	}
+
+	/**
+	 * removes saved records in one pass: survivors are moved down in place and the tail cut off,
+	 * instead of a linear contains/remove per record
+	 * @param ids
+	 * @param inIds true to remove the records whose ids are in ids, false to remove the ones that are not
+	 * @return number of records removed
+	 */
+	private int removeRows(Set<Long> ids, boolean inIds) {
+		writeLock.lock();
+		try {
+			ArrayList<T> removed = new ArrayList<T>();
+			int kept = 0;
+			for(int i = 0; i < myList.size(); i++) {
+				T row = myList.get(i);
+				long id = getRowId(row);
+				//don't remove a recently Added record that hasn't been saved yet
+				if(id != INVALID_ID && ids.contains(id) == inIds) {
+					//index once the rows removed before it are gone
+					recordChange(ListChangeEvent.removed(i - removed.size(), row));
+					removed.add(row);
+				} else {
+					if(kept != i)
+						myList.set(kept, row);
+					kept++;
+				}
+			}
+			if(removed.isEmpty())
+				return 0;
+			myList.subList(kept, myList.size()).clear();
+			positions = null;
+			snapshotStale = true;
+			for(T row : removed) {
+				//also remove from hash map
+				myIdMap.remove(getRowId(row));
+			}
+			//TODO: any detail view with p in it either needs to close or should have a lock to prevent this deletion
+			//TODO: may also need to unregister all open views as observers of p
+			rowsRemoved(removed);
+
+			//tell all observers of this list which rows went
+			if(!dontNotify)
+				publishChanges();
+			return removed.size();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * tells observers that row was added at index (or records it for publishChanges while dontNotify is set)
+	 */
+	protected void fireAdded(int index, T row) {
+		if(positions != null && index == myList.size() - 1)
+			positions.put(row, index);
+		else
+			positions = null;
+		snapshotStale = true;
+		recordChange(ListChangeEvent.added(index, row));
+		if(!dontNotify)
+			publishChanges();
+	}
+
+	/**
+	 * tells observers that row was removed from index (or records it for publishChanges while dontNotify is set)
+	 */
+	protected void fireRemoved(int index, T row) {
+		positions = null;
+		snapshotStale = true;
+		recordChange(ListChangeEvent.removed(index, row));
+		if(!dontNotify)
+			publishChanges();
+	}
+
+	/**
+	 * tells observers that row changed in place (or records it for publishChanges while dontNotify is set)
+	 */
+	protected void fireUpdated(T row) {
+		setChanged();
+		if(countObservers() > 0 && !pendingReset)
+			pendingUpdates.add(row);
+		if(!dontNotify)
+			publishChanges();
+	}
+
+	/**
+	 * tells observers that anything may have changed (or records it for publishChanges while dontNotify is set)
+	 */
+	protected void fireReset() {
+		recordReset();
+		if(!dontNotify)
+			publishChanges();
+	}
+
+	/**
+	 * makes the next publishChanges a single RESET
+	 */
+	protected void recordReset() {
+		setChanged();
+		pendingReset = true;
+		pendingChanges.clear();
+		pendingUpdates.clear();
+	}
+
+	/**
+	 * adds an ADDED or REMOVED event to the ones observers have not been told about yet
+	 */
+	protected void recordChange(ListChangeEvent<T> change) {
+		setChanged();
+		//nothing to collect if no one is listening (e.g., the first load, before any list view is open) or it's a RESET anyway
+		if(countObservers() == 0 || pendingReset)
+			return;
+		if(!pendingChanges.isEmpty()) {
+			ListChangeEvent<T> merged = pendingChanges.get(pendingChanges.size() - 1).mergeWith(change);
+			if(merged != null) {
+				pendingChanges.set(pendingChanges.size() - 1, merged);
+				return;
+			}
+		}
+		if(pendingChanges.size() >= MAX_PENDING_CHANGES) {
+			//so many scattered changes that redrawing everything once is cheaper
+			recordReset();
+			return;
+		}
+		pendingChanges.add(change);
+	}
+
+	/**
+	 * notifies observers of the changes collected since they were last notified: each ListChangeEvent in order,
+	 * then one UPDATED event covering the rows changed in place (at their indexes now)
+	 * If there were too many changes, or the list was only flagged with setChanged(), observers get one RESET instead.
+	 */
+	protected void publishChanges() {
+		writeLock.lock();
+		try {
+			if(!hasChanged())
+				return;
+			ArrayList<ListChangeEvent<T>> events = new ArrayList<ListChangeEvent<T>>();
+			if(pendingReset || (pendingChanges.isEmpty() && pendingUpdates.isEmpty())) {
+				events.add(ListChangeEvent.<T>reset());
+			} else {
+				events.addAll(pendingChanges);
+				if(!pendingUpdates.isEmpty()) {
+					int first = -1, last = -1;
+					ArrayList<T> updated = new ArrayList<T>();
+					if(pendingUpdates.size() * 8 < myList.size()) {
+						//a few rows (e.g., one saved in a detail view): look each one up
+						for(T row : pendingUpdates) {
+							int i = positionOf(row);
+							if(i < 0)
+								continue;
+							first = first < 0 ? i : Math.min(first, i);
+							last = Math.max(last, i);
+							updated.add(row);
+						}
+					} else {
+						for(int i = 0; i < myList.size(); i++) {
+							if(pendingUpdates.contains(myList.get(i))) {
+								if(first < 0)
+									first = i;
+								last = i;
+								updated.add(myList.get(i));
+							}
+						}
+					}
+					//rows that were removed again after changing are not reported
+					if(first >= 0)
+						events.add(ListChangeEvent.updated(first, last, updated));
+				}
+			}
+			pendingReset = false;
+			pendingChanges.clear();
+			pendingUpdates.clear();
+			//views show the rows as of these changes (they may be delivered later, while the list keeps changing)
+			List<T> rows = countObservers() > 0 ? getSnapshot() : null;
+			for(ListChangeEvent<T> event : events) {
+				setChanged();
+				notifyObservers(event.withSnapshot(rows));
+			}
+			clearChanged();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return index of row in myList, or -1 if it is not in the list
+	 */
+	private int positionOf(T row) {
+		Integer i = positions == null ? null : positions.get(row);
+		if(i != null && i < myList.size() && myList.get(i) == row)
+			return i;
+		if(positions != null && i == null)
+			return -1;
+		//not built yet, or myList was changed without a fire... call
+		positions = new IdentityHashMap<T, Integer>(myList.size() * 2);
+		for(int k = 0; k < myList.size(); k++)
+			positions.put(myList.get(k), k);
+		i = positions.get(row);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * @return the object in the list for that record, or null if it is not in the list
+	 */
+	public T findById(long id) {
+		//the identity map can be read without writeLock, so this doesn't wait for a background merge
+		return myIdMap.get(id);
+	}
+
+	/**
+	 * Accessors
+	 * @return
+	 */
+	public List<T> getList() {
+		return getSnapshot();
+	}
+
+	/**
+	 * @return immutable copy of the rows, safe to read on any thread without locking
+	 * (if another thread is in the middle of changing the list, the copy from before that change)
+	 */
+	public List<T> getSnapshot() {
+		if(snapshotStale && writeLock.tryLock()) {
+			try {
+				if(snapshotStale) {
+					snapshotStale = false;
+					snapshot = Collections.unmodifiableList(new ArrayList<T>(myList));
+				}
+			} finally {
+				writeLock.unlock();
+			}
+		}
+		return snapshot;
+	}
+
+	public void setList(List<T> myList) {
+		writeLock.lock();
+		try {
+			this.myList = myList;
+			positions = null;
+			snapshotStale = true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * adds new record with invalid id to list of new records
+	 * during update, if record updating is a new record then will re-add it to the identity map
+	 * @param d
+	 */
+	public void addToNewRecords(T d) {
+		writeLock.lock();
+		try {
+			newRecords.add(d);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package models;
 
+import java.util.Objects;
 import java.util.Observable;
 
 import controller.MDIParent;
+import database.ConflictException;
 import database.UserTableGateway;
 import database.GatewayException;
 
@@ -33,6 +35,11 @@ public class User extends Observable {
 	private String user, password, fullName;
 	private String add, edit, delete;
 	
+	/**
+	 * version of the record this copy was read at (USER.version); a save only succeeds if the db still has this version
+	 */
+	private long version;
+	
 	/**
 	 * Database connection for the User (same gateway used by PersonUser) 
 	 */
@@ -66,10 +73,10 @@ public class User extends Observable {
 	/**
 	 * Tells the model that update has finished so it can finish the update
 	 * E.g., notify observers
+	 * @throws ConflictException if someone else saved (or deleted) the record since this copy was read;
+	 * the model then holds the record as it is now in the db (observers are notified, so a detail view can merge its edits)
 	 */
 	public void finishUpdate() throws GatewayException {
-		User orig = null;
-
 		try {
 			//if id is 0 then this is a new User to insert, else its an update
 			if(this.getId() == 0) {
@@ -77,11 +84,7 @@ public class User extends Observable {
 				this.setId(gateway.insertUser(this));
 				
 			} else {
-				//fetch dog from db table in case this fails
-			
-				orig = gateway.fetchUser(this.getId());
-				
-				//try to save to the database
+				//try to save to the database (only if nobody else saved it since it was read)
 				gateway.saveUser(this);
 				
 			}
@@ -90,10 +93,19 @@ public class User extends Observable {
 			//System.out.println("DEBUG: User notify");
 			notifyObservers();
 			
+		} catch(ConflictException e) {
+			//show what is in the db now
+			if(e.getCurrentRow() != null)
+				refreshFrom((User) e.getCurrentRow());
+			throw e;
 		} catch(GatewayException e) {
 			//if fails then try to refetch model fields from the database
-			if(orig != null) {
-				
+			if(this.getId() != 0) {
+				try {
+					refreshFrom(gateway.fetchUser(this.getId()));
+				} catch(GatewayException e1) {
+					//keep the unsaved values
+				}
 			}
 			throw new GatewayException("Error trying to save the User object!");
 		}
@@ -128,6 +140,19 @@ public class User extends Observable {
 	public void setId(long id) {
 		this.id = id;
 	}
+	
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the version of the record this copy holds
+	 * Should only be called by the gateway (when fetching the record or after saving it)
+	 * @param version
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
 
 	/**
 	 * for user
@@ -294,6 +319,30 @@ public class User extends Observable {
 			return false;	
 	}
 	
+	/**
+	 * Copies the fields of a freshly fetched copy of this record into this object (e.g., during a list sync)
+	 * and notifies observers if anything changed so open views show the new values
+	 * @param fresh same record read from the db
+	 */
+	public void refreshFrom(User fresh) {
+		//a copy read before our last save (e.g., by a sync that was already running) is out of date
+		if(fresh.getVersion() < version)
+			return;
+		version = fresh.getVersion();
+		if(Objects.equals(user, fresh.getUser()) && Objects.equals(password, fresh.getPassword())
+				&& Objects.equals(fullName, fresh.getFullname()) && Objects.equals(add, fresh.getAdd())
+				&& Objects.equals(edit, fresh.getEdit()) && Objects.equals(delete, fresh.getDelete()))
+			return;
+		user = fresh.getUser();
+		password = fresh.getPassword();
+		fullName = fresh.getFullname();
+		add = fresh.getAdd();
+		edit = fresh.getEdit();
+		delete = fresh.getDelete();
+		setChanged();
+		notifyObservers();
+	}
+	
 	public UserTableGateway getGateway() {
 		return gateway;
 	}
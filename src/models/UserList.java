@@ -1,51 +1,49 @@
 package models;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Observable;
-import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
 import database.UserTableGateway;
+import database.UserTableGatewayAsync;
 import database.GatewayException;
+import database.RowHandler;
 
 /**
  * A model that is a collection of User models
  * @author Justin Wilson
  *
  */
-public class UserList extends Observable implements Observer {
+public class UserList extends ReconcilingList<User> {
 	/**
-	 * Collection of User objects that this list holds
+	 * Database connection for the UserList 
 	 */
-	private List<User> myList;
+	private UserTableGateway gateway;
 	
 	/**
-	 * Identity map for determining if User is already in this list
+	 * rows fetched per db round trip when streaming the table in loadFromGateway
 	 */
-	private HashMap<Long, User> myIdMap;
+	public static final int STREAM_FETCH_SIZE = 500;
 	
 	/**
-	 * Collection of newly added records to know when to update key in Identity map
+	 * while streaming, observers are notified each time this many new rows have been added
 	 */
-	private ArrayList<User> newRecords;
+	public static final int STREAM_NOTIFY_ROWS = 2000;
 	
 	/**
-	 * Database connection for the UserList 
+	 * gateway calls made off the EDT by loadFromGatewayAsync
 	 */
-	private UserTableGateway gateway;
+	private UserTableGatewayAsync asyncGateway;
 	
 	/**
-	 * for multiple object inserts and deletes, set to true to notifyObservers at very end (in loadFromGateway)
-	 * be sure to set it back to false when done so that addToList and removeFromList will notify after setChanged
+	 * load started by loadFromGatewayAsync (null if none yet)
 	 */
-	private boolean dontNotify;
+	private CompletableFuture<Void> pendingLoad;
 	
 	public UserList() {
-		myList = new ArrayList<User>();
-		myIdMap = new HashMap<Long, User>();
-		dontNotify = false;
-		newRecords = new ArrayList<User>();
 	}
 	
 	/**
@@ -54,64 +52,102 @@ public class UserList extends Observable implements Observer {
 	 * 
 	 * TODO: refresh stale object contents already in list (use a timestamp)
 	 * OR only do this when opening ListView is the only User view open 
+	 * 
+	 * Rows are streamed from the gateway so the whole table is never held in a second List,
+	 * and observers are notified every STREAM_NOTIFY_ROWS new rows so views fill in while loading
 	 */
 	public void loadFromGateway() {
-		//fetch list of objects from the database
-		List<User> users = null;
+		writeLock.lock();
 		try {
-			users = gateway.fetchUsers();
-			
-		} catch (GatewayException e) {
-			e.printStackTrace();
-			return;
-		}
+			//ids of every object in the db, used afterwards to drop objects that were deleted from the db
+			final HashSet<Long> fetchedIds = new HashSet<Long>();
 		
-		//since this method does a lot of adding and removing
-		//don't notify observers until all done
-		dontNotify = true;
+			//since this method does a lot of adding and removing
+			//don't notify observers until all done (except every STREAM_NOTIFY_ROWS new rows)
+			dontNotify = true;
 		
-		//any person in our list that is NOT in the db needs to be removed from our list
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			User d = myList.get(i);
-			boolean removeRecord = true;
-			//don't remove a recently Added record that hasn't been saved yet
-			if(d.getId() == User.INVALID_ID) {
-				removeRecord = false;
-			} else {
-				for(User dCheck : users) {
-					if(dCheck.getId() == d.getId()) {
-						removeRecord = false;
-						break;
+			//for each object streamed from the db, see if it is in the hashmap
+			//if not, add it to the list
+			try {
+				gateway.fetchUsers(new RowHandler<User>() {
+					private int added = 0;
+				
+					@Override
+					public void handleRow(User d) {
+						fetchedIds.add(d.getId());
+						if(mergeRow(d) && ++added % STREAM_NOTIFY_ROWS == 0)
+							publishChanges();
 					}
-				}
+				}, STREAM_FETCH_SIZE);
+			
+			} catch (GatewayException e) {
+				e.printStackTrace();
+				//show whatever was loaded before the failure
+				publishChanges();
+				dontNotify = false;
+				return;
 			}
-			//p not found in db people array so delete it
-			if(removeRecord)
-				removeUserFromList(d);
-			//TODO: any detail view with p in it either needs to close or should have a lock to prevent this deletion
-			//TODO: may also need to unregister all open views as observers of p
-		}
 		
-		//for each object in fetched list, see if it is in the hashmap using Person.id
-		//if not, add it to the list
-		for(User d : users) {
-			if(!myIdMap.containsKey(d.getId())) {
-				addUserToList(d);
-			}
-		}
+			//any object in our list that is NOT in the db needs to be removed from our list
+			removeMissing(fetchedIds);
 		
-		//tell all observers of this list to update
-		this.notifyObservers();
+			//tell all observers of this list what changed
+			publishChanges();
 
-		//turn this off
-		dontNotify = false;
+			//turn this off
+			dontNotify = false;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Same as loadFromGateway but without blocking the caller: the users are streamed on
+	 * the AsyncExecutor and merged into the list there in chunks, while views keep showing their snapshot
+	 * (users already in the list are refreshed on the EDT, see ReconcilingList.BackgroundMerge)
+	 * Calling this again while a load is still running returns the running load
+	 * @return future that completes once the list is updated (fails if the fetch failed or timed out)
+	 */
+	public CompletableFuture<Void> loadFromGatewayAsync() {
+		if(pendingLoad != null && !pendingLoad.isDone())
+			return pendingLoad;
+		final BackgroundMerge merge = new BackgroundMerge(true);
+		pendingLoad = asyncGateway.fetchUsersAsync(merge, STREAM_FETCH_SIZE).thenCompose(new Function<Void, CompletionStage<Void>>() {
+			@Override
+			public CompletionStage<Void> apply(Void done) {
+				return merge.finish(null);
+			}
+		});
+		return pendingLoad;
+	}
+	
+	/**
+	 * makes the list match a full fetch of the USER table (same rules as loadFromGateway)
+	 * must be called on the thread that owns the list (the EDT)
+	 * @param users
+	 */
+	public void applyUsers(List<User> users) {
+		writeLock.lock();
+		try {
+			reconcile(users, true, null);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	@Override
+	protected long getRowId(User row) {
+		return row.getId();
 	}
 	
-	public User findById(long id) {
-		//check the identity map
-		if(myIdMap.containsKey(new Long(id)))
-			return myIdMap.get(new Long(id));
-		return null;
+	@Override
+	protected void refreshRow(User existing, User fresh) {
+		existing.refreshFrom(fresh);
+	}
+	
+	@Override
+	protected void addRow(User row) {
+		addUserToList(row);
 	}
 	
 	/**
@@ -120,17 +156,20 @@ public class UserList extends Observable implements Observer {
 	 * @param p Person instance to add to the collection
 	 */
 	public void addUserToList(User d) {
-		myList.add(d);
-		d.setGateway(this.gateway);
-		d.addObserver(this);
+		writeLock.lock();
+		try {
+			myList.add(d);
+			d.setGateway(this.gateway);
+			d.addObserver(this);
 
-		//add to identity map
-		myIdMap.put(d.getId(), d);
+			//add to identity map
+			myIdMap.put(d.getId(), d);
 
-		//tell all observers of this list to update
-		this.setChanged();
-		if(!dontNotify)
-			this.notifyObservers();
+			//tell all observers of this list which row was added
+			fireAdded(myList.size() - 1, d);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	/**
@@ -138,50 +177,46 @@ public class UserList extends Observable implements Observer {
 	 * @return Person p if found in list, otherwise null
 	 */
 	public User removeUserFromList(User d) {
-		if(myList.contains(d)) {
-			myList.remove(d);
-			//also remove from hash map
-			myIdMap.remove(d.getId());
+		writeLock.lock();
+		try {
+			int index = myList.indexOf(d);
+			if(index >= 0) {
+				myList.remove(index);
+				//also remove from hash map
+				myIdMap.remove(d.getId());
 
-			//tell all observers of this list to update
-			this.setChanged();
-			if(!dontNotify)
-				this.notifyObservers();
+				//tell all observers of this list which row was removed
+				fireRemoved(index, d);
 
-			return d;
+				return d;
+			}
+			return null;
+		} finally {
+			writeLock.unlock();
 		}
-		return null;
 	}
 	
 	/**
 	 * Accessors
 	 * @return
 	 */
-	public List<User> getList() {
-		return myList;
-	}
-
-	public void setList(List<User> myList) {
-		this.myList = myList;
-	}
-
 	public UserTableGateway getGateway() {
 		return gateway;
 	}
 
+	public UserTableGatewayAsync getAsyncGateway() {
+		return asyncGateway;
+	}
+
 	public void setGateway(UserTableGateway gateway) {
 		this.gateway = gateway;
+		try {
+			asyncGateway = new UserTableGatewayAsync(gateway);
+		} catch (GatewayException e) {
+			e.printStackTrace();
+		}
 	}
 
-	/**
-	 * adds new User with invalid id to list of new records
-	 * during update, if User updating is a new record then will re-add it to the identity map
-	 * @param d
-	 */
-	public void addToNewRecords(User d) {
-		newRecords.add(d);
-	}
-	
 	/**
 	 * Notify list observers that an object has changed
 	 * if Observed record is a new object and its Id has changed, re-add it to the hashmap
@@ -190,17 +225,22 @@ public class UserList extends Observable implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		//System.out.println("DEBUG: PersonList update");
-		//if o is in the newRecords list, remove it from identity map
-		//and add it back with new id
-		User d = (User) o;
-		if(newRecords.contains(d)) {
-			myIdMap.remove(User.INVALID_ID);
-			myIdMap.put(d.getId(), d);
-			newRecords.remove(d);
-		}
+		writeLock.lock();
+		try {
+			//System.out.println("DEBUG: PersonList update");
+			//if o is in the newRecords list, remove it from identity map
+			//and add it back with new id
+			User d = (User) o;
+			if(newRecords.contains(d)) {
+				myIdMap.remove(User.INVALID_ID);
+				myIdMap.put(d.getId(), d);
+				newRecords.remove(d);
+			}
 		
-		this.setChanged();
-		notifyObservers();
+			//tell all observers of this list which row changed
+			fireUpdated(d);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 }
\ No newline at end of file
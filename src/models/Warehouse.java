@@ -2,6 +2,7 @@ package models;
 
 import java.util.Observable;
 
+import database.ConflictException;
 import database.WarehouseTableGateway;
 import database.GatewayException;
 
@@ -68,6 +69,16 @@ public class Warehouse extends Observable {
 	 * Database connection for the Warehouse (same gateway used by PersonWarehouse) 
 	 */
 	private WarehouseTableGateway gateway;
+	
+	/**
+	 * false for a keys-only copy (see keysOnly): only id, name and storage capacity are set, the rest is fetched when needed
+	 */
+	private boolean hydrated;
+	
+	/**
+	 * version of the record this copy was read at (WAREHOUSE.version); a save only succeeds if the db still has this version
+	 */
+	private long version;
 
 	public Warehouse() {
 		id = INVALID_ID;
@@ -77,6 +88,24 @@ public class Warehouse extends Observable {
 		state = "";
 		zip = "";
 		storage_cap = 0;
+		hydrated = true;
+	}
+	
+	/**
+	 * Keys-only Warehouse for a lazy WarehouseList: holds what lists, pickers and capacity checks use
+	 * (id, name and storage capacity). The address stays empty until the list hydrates the record (WarehouseList.hydrate)
+	 * @param id
+	 * @param wn
+	 * @param stor
+	 * @return
+	 */
+	public static Warehouse keysOnly(long id, String wn, long stor) {
+		Warehouse w = new Warehouse();
+		w.id = id;
+		w.warehouse_name = wn;
+		w.storage_cap = stor;
+		w.hydrated = false;
+		return w;
 	}
 
 	/**
@@ -142,6 +171,19 @@ public class Warehouse extends Observable {
 		this.id = id;
 	}
 	
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the version of the record this copy holds
+	 * Should only be called by the gateway (when fetching the record or after saving it)
+	 * @param version
+	 */
+	public void setVersion(long version) {
+		this.version = version;
+	}
+	
 	/**
 	 * Returns the warehouse name
 	 * @return
@@ -377,15 +419,28 @@ public class Warehouse extends Observable {
 	/**
 	 * Tells the model that update has finished so it can finish the update
 	 * E.g., notify observers
+	 * While a WriteBehindQueue is running, a saved record is only queued and this returns right away
+	 * (a failed save is then rolled back and reported to the queue's failure listener instead of thrown)
+	 * @throws ConflictException if someone else saved (or deleted) the record since this copy was read;
+	 * the model then holds the record as it is now in the db (observers are notified, so a detail view can merge its edits)
 	 */
 	public void finishUpdate() throws GatewayException {
-		Warehouse orig = null;
+		//saving a keys-only copy would blank the record's address
+		if(!hydrated)
+			throw new GatewayException("Warehouse " + id + " was not loaded in full, reopen it and try again");
 		//if insert, check if this warehouse's name already exists in the database
 		//if so then cancel update 
 		if(this.getId() == 0) {
 			if(gateway.warehouseAlreadyExists(0, this.getWareHouseName()))
 				throw new GatewayException(this.getWareHouseName() + " is already in the database");
 		}
+		//write-behind: queue the save and return right away (see WriteBehindQueue)
+		WriteBehindQueue queue = WriteBehindQueue.getActive();
+		if(queue != null && this.getId() != 0) {
+			queue.enqueue(this);
+			notifyObservers();
+			return;
+		}
 		try {
 			//if id is 0 then this is a new Warehouse to insert, else its an update
 			if(this.getId() == 0) {
@@ -393,29 +448,29 @@ public class Warehouse extends Observable {
 				this.setId(gateway.insertWarehouse(this));
 				
 			} else {
-				//fetch warehouse from db table in case this fails
-			
-				orig = gateway.fetchWarehouse(this.getId());
-		
-				//try to save to the database
+				//try to save to the database (only if nobody else saved it since it was read)
 				gateway.saveWarehouse(this);
 
 			}
 			//if gateway ok then notify observers
 			notifyObservers();
 			
+		} catch(ConflictException e) {
+			//show what is in the db now
+			if(e.getCurrentRow() != null)
+				refreshFrom((Warehouse) e.getCurrentRow());
+			throw e;
 		} catch(GatewayException e) {
 			
 			System.out.println(e.getMessage());
 			
 			//if fails then try to refetch model fields from the database
-			if(orig != null) {
-				this.setWareHouseName(orig.getWareHouseName());
-				this.setAddress(orig.getAddress());
-				this.setCity(orig.getCity());
-				this.setState(orig.getState());
-				this.setZip(orig.getZip());
-				this.setStorageCapacity(orig.getStorageCapacity());
+			if(this.getId() != 0) {
+				try {
+					refreshFrom(gateway.fetchWarehouse(this.getId()));
+				} catch(GatewayException e1) {
+					//keep the unsaved values
+				}
 			}
 			throw new GatewayException("Error trying to save the Warehouse object!");
 		}
@@ -428,6 +483,9 @@ public class Warehouse extends Observable {
 		//if id is 0 then nothing to do in the gateway (record has not been saved yet
 		if(this.getId() == 0) 
 			return;
+		WriteBehindQueue queue = WriteBehindQueue.getActive();
+		if(queue != null)
+			queue.discard(this);
 			try {
 				gateway.deleteWarehouse(this.getId());
 			} catch (GatewayException e) {
@@ -435,6 +493,59 @@ public class Warehouse extends Observable {
 			}
 	}
 
+	/**
+	 * Copies the fields of a freshly fetched copy of this record into this object (e.g., during a list sync)
+	 * and notifies observers if anything changed so open views show the new values
+	 * @param fresh same record read from the db
+	 */
+	public void refreshFrom(Warehouse fresh) {
+		//a keys-only copy only tells us the keys
+		if(!fresh.isHydrated()) {
+			if(warehouse_name.equals(fresh.getWareHouseName()) && storage_cap == fresh.getStorageCapacity())
+				return;
+			warehouse_name = fresh.getWareHouseName();
+			storage_cap = fresh.getStorageCapacity();
+			setChanged();
+			notifyObservers();
+			return;
+		}
+		//a copy read before our last save (e.g., by a sync that was already running) is out of date
+		if(fresh.getVersion() < version)
+			return;
+		version = fresh.getVersion();
+		hydrated = true;
+		if(warehouse_name.equals(fresh.getWareHouseName()) && address.equals(fresh.getAddress())
+				&& city.equals(fresh.getCity()) && state.equals(fresh.getState()) && zip.equals(fresh.getZip())
+				&& storage_cap == fresh.getStorageCapacity())
+			return;
+		warehouse_name = fresh.getWareHouseName();
+		address = fresh.getAddress();
+		city = fresh.getCity();
+		state = fresh.getState();
+		zip = fresh.getZip();
+		storage_cap = fresh.getStorageCapacity();
+		setChanged();
+		notifyObservers();
+	}
+
+	/**
+	 * @return false if only the keys of this record are loaded (see keysOnly)
+	 */
+	public boolean isHydrated() {
+		return hydrated;
+	}
+	
+	/**
+	 * drops everything but the keys to free memory (a lazy WarehouseList evicting the record); observers are not notified
+	 */
+	void dropDetails() {
+		address = "";
+		city = "";
+		state = "";
+		zip = "";
+		hydrated = false;
+	}
+
 	/**
 	 * Accessors for gateway
 	 * @return
@@ -1,139 +1,418 @@
 package models;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Observable;
-import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
 import database.WarehouseTableGateway;
+import database.AsyncExecutor;
+import database.ChangeSet;
 import database.GatewayException;
+import database.RowHandler;
+import database.WarehouseTableGatewayAsync;
 
 /**
  * A model that is a collection of Warehouse models
  * @author Justin Wilson
  *
  */
-public class WarehouseList extends Observable implements Observer {
+public class WarehouseList extends ReconcilingList<Warehouse> {
 	/**
-	 * Collection of Warehouse objects that this list holds
+	 * Database connection for the WarehouseList 
 	 */
-	private List<Warehouse> myList;
+	private WarehouseTableGateway gateway;
 	
 	/**
-	 * Identity map for determining if Warehouse is already in this list
+	 * rows fetched per db round trip when streaming the table in loadFromGateway
 	 */
-	private HashMap<Long, Warehouse> myIdMap;
+	public static final int STREAM_FETCH_SIZE = 500;
 	
 	/**
-	 * Collection of newly added records to know when to update key in Identity map
+	 * while streaming, observers are notified each time this many new rows have been added
 	 */
-	private ArrayList<Warehouse> newRecords;
+	public static final int STREAM_NOTIFY_ROWS = 2000;
 	
 	/**
-	 * Database connection for the WarehouseList 
+	 * db time of the last sync in loadFromGateway (null until the first full load)
 	 */
-	private WarehouseTableGateway gateway;
+	private volatile Timestamp lastSync;
+	
+	/**
+	 * gateway calls made off the EDT by loadFromGatewayAsync
+	 */
+	private WarehouseTableGatewayAsync asyncGateway;
+	
+	/**
+	 * load started by loadFromGatewayAsync (null if none yet)
+	 */
+	private CompletableFuture<Void> pendingLoad;
 	
 	/**
-	 * for multiple object inserts and deletes, set to true to notifyObservers at very end (in loadFromGateway)
-	 * be sure to set it back to false when done so that addToList and removeFromList will notify after setChanged
+	 * id <-> warehouse names lookup shared by every view that picks a warehouse (built on first use)
 	 */
-	private boolean dontNotify;
+	private NameLookup<Warehouse> nameLookup;
+	
+	/**
+	 * lazy mode (see setLazy): the records held in full, least recently used first (null when not lazy)
+	 */
+	private EntityCache<Warehouse> details;
 	
 	public WarehouseList() {
-		myList = new ArrayList<Warehouse>();
-		myIdMap = new HashMap<Long, Warehouse>();
-		dontNotify = false;
-		newRecords = new ArrayList<Warehouse>();
 	}
 	
 	/**
-	 * Replaces list contents with new Warehouse objects fetched from Gateway
-	 * Insert objects that are not already in list
-	 * 
-	 * TODO: refresh stale object contents already in list (use a timestamp)
-	 * OR only do this when opening ListView is the only Warehouse view open 
+	 * Switches this list to lazy mode (call before the first load): the list holds every record but only its keys
+	 * (id, name and storage capacity, see Warehouse.keysOnly); a record's other fields are fetched when it is needed
+	 * (hydrate/hydrateAll, e.g. before opening its detail view). At most cacheSize records are held in full:
+	 * the least recently used ones go back to keys only, unless a detail view is showing them.
+	 * @param cacheSize most records held in full
 	 */
-	public void loadFromGateway() {
-		//fetch list of objects from the database
-		List<Warehouse> warehouses = null;
+	public void setLazy(int cacheSize) {
+		writeLock.lock();
 		try {
-			warehouses = gateway.fetchWarehouses();
-			
-		} catch (GatewayException e) {
-			e.printStackTrace();
-			return;
+			details = new EntityCache<Warehouse>(cacheSize);
+			for(Warehouse row : myList)
+				remember(row);
+		} finally {
+			writeLock.unlock();
 		}
+	}
+	
+	public boolean isLazy() {
+		return details != null;
+	}
+	
+	/**
+	 * @return lazy mode's cache of full records (hit/miss counts), or null when not lazy
+	 */
+	public EntityCache<Warehouse> getCache() {
+		return details;
+	}
+	
+	/**
+	 * makes sure the record's fields are all loaded (lazy mode; otherwise they always are)
+	 * @param row record in this list
+	 * @return row
+	 * @throws GatewayException if the fetch failed or the record is no longer in the db
+	 */
+	public Warehouse hydrate(Warehouse row) throws GatewayException {
+		hydrateAll(Collections.singletonList(row));
+		if(!row.isHydrated())
+			throw new GatewayException("Warehouse " + row.getId() + " is no longer in the database");
+		return row;
+	}
+	
+	/**
+	 * makes sure the records' fields are all loaded (lazy mode), fetching the missing ones in as few queries as possible
+	 * the fetched fields are copied into the list's objects (one object per record), so views showing them update
+	 * @param rows records in this list
+	 * @throws GatewayException if the fetch failed
+	 */
+	public void hydrateAll(Collection<Warehouse> rows) throws GatewayException {
+		long[] ids = missingDetails(rows);
+		if(ids.length == 0)
+			return;
 		
-		//since this method does a lot of adding and removing
-		//don't notify observers until all done
-		dontNotify = true;
-		
-		//any person in our list that is NOT in the db needs to be removed from our list
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			Warehouse d = myList.get(i);
-			boolean removeRecord = true;
-			//don't remove a recently Added record that hasn't been saved yet
-			if(d.getId() == Warehouse.INVALID_ID) {
-				removeRecord = false;
-			} else {
-				for(Warehouse dCheck : warehouses) {
-					if(dCheck.getId() == d.getId()) {
-						removeRecord = false;
-						break;
-					}
+		//fetch without holding the lock so a background sync isn't held up by the round trip
+		applyDetails(gateway.fetchWarehouses(ids));
+	}
+	
+	/**
+	 * same as hydrate without blocking the caller: the record is fetched on the AsyncExecutor
+	 * and its fields are copied into row on the EDT
+	 * must be called on the EDT
+	 * @param row record in this list
+	 * @return future that completes on the EDT with row once it is loaded (fails if the fetch failed or the record is no longer in the db)
+	 */
+	public CompletableFuture<Warehouse> hydrateAsync(final Warehouse row) {
+		long[] ids = missingDetails(Collections.singletonList(row));
+		if(ids.length == 0)
+			return CompletableFuture.completedFuture(row);
+		return asyncGateway.fetchWarehousesAsync(ids).thenApplyAsync(new Function<List<Warehouse>, Warehouse>() {
+			@Override
+			public Warehouse apply(List<Warehouse> fetched) {
+				applyDetails(fetched);
+				if(!row.isHydrated())
+					throw new CompletionException(new GatewayException("Warehouse " + row.getId() + " is no longer in the database"));
+				return row;
+			}
+		}, AsyncExecutor.EDT);
+	}
+	
+	/**
+	 * lazy mode: counts the records already held in full as cache hits and the others as misses
+	 * @param rows records in this list
+	 * @return ids of the records that need fetching (none when not lazy)
+	 */
+	private long[] missingDetails(Collection<Warehouse> rows) {
+		if(details == null)
+			return new long[0];
+		writeLock.lock();
+		try {
+			ArrayList<Long> missing = new ArrayList<Long>();
+			int hits = 0;
+			for(Warehouse row : rows) {
+				if(row.getId() == Warehouse.INVALID_ID)
+					continue;
+				if(row.isHydrated()) {
+					hits++;
+					remember(row);
+				} else {
+					missing.add(row.getId());
 				}
 			}
-			//p not found in db people array so delete it
-			if(removeRecord)
-				removeWarehouseFromList(d);
-			//TODO: any detail view with p in it either needs to close or should have a lock to prevent this deletion
-			//TODO: may also need to unregister all open views as observers of p
+			details.count(hits, missing.size());
+			long[] ids = new long[missing.size()];
+			for(int i = 0; i < ids.length; i++)
+				ids[i] = missing.get(i);
+			return ids;
+		} finally {
+			writeLock.unlock();
 		}
-		
-		//for each object in fetched list, see if it is in the hashmap using Person.id
-		//if not, add it to the list
-		for(Warehouse d : warehouses) {
-			if(!myIdMap.containsKey(d.getId())) {
-				addWarehouseToList(d);
+	}
+	
+	/**
+	 * copies fetched records' fields into the list's objects, so views showing them update
+	 * @param fetched
+	 */
+	private void applyDetails(List<Warehouse> fetched) {
+		writeLock.lock();
+		try {
+			boolean wasNotifying = !dontNotify;
+			dontNotify = true;
+			for(Warehouse fresh : fetched) {
+				Warehouse existing = myIdMap.get(fresh.getId());
+				if(existing != null)
+					refreshRow(existing, fresh);
 			}
+			dontNotify = !wasNotifying;
+			if(wasNotifying)
+				publishChanges();
+		} finally {
+			writeLock.unlock();
 		}
+	}
+	
+	/**
+	 * lazy mode: marks a record held in full as most recently used, and drops the details of the
+	 * least recently used records over the cache size (except those a detail view is showing)
+	 * @param row
+	 */
+	private void remember(Warehouse row) {
+		if(details == null || !row.isHydrated() || row.getId() == Warehouse.INVALID_ID)
+			return;
+		for(Warehouse evicted : details.put(row.getId(), row)) {
+			//the list itself is one observer; anything more is a view
+			if(evicted.countObservers() <= 1)
+				evicted.dropDetails();
+		}
+	}
+	
+	/**
+	 * forgets removed records in lazy mode's cache
+	 */
+	@Override
+	protected void rowsRemoved(List<Warehouse> removed) {
+		if(details == null)
+			return;
+		for(Warehouse row : removed)
+			details.remove(row.getId());
+	}
+	
+	/**
+	 * Syncs list contents with the db through the gateway (Identity Map keeps one object per record)
+	 * 
+	 * The first load fetches every row; after that only rows inserted, updated or deleted since the
+	 * previous sync are fetched (see ChangeSet). Changed rows already in the list are refreshed in place
+	 * so views showing them update; new rows are added and deleted rows removed.
+	 * 
+	 * Rows are streamed from the gateway so the whole table is never held in a second List,
+	 * and observers are notified every STREAM_NOTIFY_ROWS new rows so views fill in while loading
+	 */
+	public void loadFromGateway() {
+		writeLock.lock();
+		try {
+			//on a full load: ids of every object in the db, used afterwards to drop objects that were deleted from the db
+			final HashSet<Long> fetchedIds = new HashSet<Long>();
+			final boolean full = lastSync == null;
+		
+			//since this method does a lot of adding and removing
+			//don't notify observers until all done (except every STREAM_NOTIFY_ROWS new rows)
+			dontNotify = true;
+		
+			//for each object streamed from the db, see if it is in the hashmap
+			//if not, add it to the list, else refresh the object already in the list
+			ChangeSet<Warehouse> changes = null;
+			try {
+				RowHandler<Warehouse> handler = new RowHandler<Warehouse>() {
+					private int added = 0;
+				
+					@Override
+					public void handleRow(Warehouse d) {
+						if(full)
+							fetchedIds.add(d.getId());
+						if(mergeRow(d) && ++added % STREAM_NOTIFY_ROWS == 0)
+							publishChanges();
+					}
+				};
+				//lazy mode lists every record by its keys only
+				if(full && details != null)
+					changes = gateway.fetchWarehouseKeys(handler, STREAM_FETCH_SIZE);
+				else
+					changes = gateway.fetchWarehousesChangedSince(lastSync, handler, STREAM_FETCH_SIZE);
+			
+			} catch (GatewayException e) {
+				e.printStackTrace();
+				//show whatever was loaded before the failure (lastSync is unchanged so the next sync retries these rows)
+				publishChanges();
+				dontNotify = false;
+				return;
+			}
+		
+			finishSync(changes, fetchedIds);
 		
-		//tell all observers of this list to update
-		this.notifyObservers();
+			//tell all observers of this list what changed
+			publishChanges();
 
-		//turn this off
-		dontNotify = false;
+			//turn this off
+			dontNotify = false;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Syncs list contents with the db without blocking the caller: the changed rows are streamed on
+	 * the AsyncExecutor and merged into the list there in chunks (see ReconcilingList.BackgroundMerge),
+	 * while views keep showing their snapshot. A full load has no time limit unless ASYNC_LOAD_TIMEOUT_MS sets one.
+	 * Calling this again while a load is still running returns the running load
+	 * @return future that completes once the changes are in the list (fails if the fetch failed or timed out;
+	 * 		the rows merged before that stay in the list and lastSync is unchanged, so the next sync fetches them again)
+	 */
+	public CompletableFuture<Void> loadFromGatewayAsync() {
+		if(pendingLoad != null && !pendingLoad.isDone())
+			return pendingLoad;
+		final BackgroundMerge merge = new BackgroundMerge(lastSync == null);
+		//lazy mode lists every record by its keys only
+		CompletableFuture<ChangeSet<Warehouse>> fetch = lastSync == null && details != null
+				? asyncGateway.fetchWarehouseKeysAsync(merge, STREAM_FETCH_SIZE) : asyncGateway.fetchWarehousesChangedSinceAsync(lastSync, merge, STREAM_FETCH_SIZE);
+		pendingLoad = fetch.thenCompose(new Function<ChangeSet<Warehouse>, CompletionStage<Void>>() {
+			@Override
+			public CompletionStage<Void> apply(ChangeSet<Warehouse> changes) {
+				CompletableFuture<Void> refreshed = merge.finish(changes.getDeletedIds());
+				lastSync = changes.getSyncTime();
+				return refreshed;
+			}
+		});
+		return pendingLoad;
+	}
+	
+	/**
+	 * applies a ChangeSet fetched with the rows collected in it (same rules as loadFromGateway)
+	 * must be called on the thread that owns the list (the EDT)
+	 * @param changes
+	 */
+	public void applyChanges(ChangeSet<Warehouse> changes) {
+		writeLock.lock();
+		try {
+			reconcile(changes.getChanged(), changes.isFull(), changes.getDeletedIds());
+			lastSync = changes.getSyncTime();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * applies a ChangeSet on the thread that fetched it: new and deleted rows are added and removed right away,
+	 * rows already in the list are refreshed on the EDT (see ReconcilingList.reconcileInBackground)
+	 * @param changes
+	 * @return future that completes once every change is in the list
+	 */
+	public CompletableFuture<Void> applyChangesInBackground(ChangeSet<Warehouse> changes) {
+		writeLock.lock();
+		try {
+			CompletableFuture<Void> refreshed = reconcileInBackground(changes.getChanged(), changes.isFull(), changes.getDeletedIds());
+			lastSync = changes.getSyncTime();
+			return refreshed;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * removes the objects whose records are gone from the db and remembers the sync time
+	 * @param changes
+	 * @param fetchedIds on a full load: ids of every row fetched
+	 */
+	private void finishSync(ChangeSet<Warehouse> changes, HashSet<Long> fetchedIds) {
+		if(changes.isFull()) {
+			//any object in our list that is NOT in the db needs to be removed from our list
+			removeMissing(fetchedIds);
+		} else {
+			//remove the objects whose rows were deleted since the last sync
+			removeIds(changes.getDeletedIds());
+		}
+		lastSync = changes.getSyncTime();
+	}
+	
+	@Override
+	protected long getRowId(Warehouse row) {
+		return row.getId();
+	}
+	
+	@Override
+	protected void addRow(Warehouse row) {
+		addWarehouseToList(row);
+	}
+	
+	/**
+	 * changed rows are copied into the object already in the list so views showing it update
+	 */
+	@Override
+	protected void refreshRow(Warehouse existing, Warehouse fresh) {
+		existing.refreshFrom(fresh);
+		remember(existing);
 	}
 	
 	public HashMap< Long, String> getWList(){
-		HashMap< Long, String> nameList = new HashMap< Long, String>();
+		writeLock.lock();
+		try {
+			HashMap< Long, String> nameList = new HashMap< Long, String>();
 		
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			Warehouse w = myList.get(i);
-			nameList.put(w.getId(), w.getWareHouseName());
-		}	
+			for(int i = myList.size() - 1; i >= 0; i--) {
+				Warehouse w = myList.get(i);
+				nameList.put(w.getId(), w.getWareHouseName());
+			}	
 		
-		return nameList;
+			return nameList;
+		} finally {
+			writeLock.unlock();
+		}
 	}
 	
 	public HashMap< Long, Long> getWCapacityList(){
-		HashMap< Long, Long> nameList = new HashMap< Long, Long>();
+		writeLock.lock();
+		try {
+			HashMap< Long, Long> nameList = new HashMap< Long, Long>();
 		
-		for(int i = myList.size() - 1; i >= 0; i--) {
-			Warehouse w = myList.get(i);
-			nameList.put(w.getId(), w.getStorageCapacity());
-		}	
+			for(int i = myList.size() - 1; i >= 0; i--) {
+				Warehouse w = myList.get(i);
+				nameList.put(w.getId(), w.getStorageCapacity());
+			}	
 		
-		return nameList;
-	}
-	
-	public Warehouse findById(long id) {
-		//check the identity map
-		if(myIdMap.containsKey(new Long(id)))
-			return myIdMap.get(new Long(id));
-		return null;
+			return nameList;
+		} finally {
+			writeLock.unlock();
+		}
 	}
 	
 	/**
@@ -142,17 +421,21 @@ public class WarehouseList extends Observable implements Observer {
 	 * @param p Person instance to add to the collection
 	 */
 	public void addWarehouseToList(Warehouse d) {
-		myList.add(d);
-		d.setGateway(this.gateway);
-		d.addObserver(this);
+		writeLock.lock();
+		try {
+			myList.add(d);
+			d.setGateway(this.gateway);
+			d.addObserver(this);
 
-		//add to identity map
-		myIdMap.put(d.getId(), d);
+			//add to identity map
+			myIdMap.put(d.getId(), d);
+			remember(d);
 
-		//tell all observers of this list to update
-		this.setChanged();
-		if(!dontNotify)
-			this.notifyObservers();
+			//tell all observers of this list which row was added
+			fireAdded(myList.size() - 1, d);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	/**
@@ -160,50 +443,68 @@ public class WarehouseList extends Observable implements Observer {
 	 * @return Person p if found in list, otherwise null
 	 */
 	public Warehouse removeWarehouseFromList(Warehouse d) {
-		if(myList.contains(d)) {
-			myList.remove(d);
-			//also remove from hash map
-			myIdMap.remove(d.getId());
+		writeLock.lock();
+		try {
+			int index = myList.indexOf(d);
+			if(index >= 0) {
+				myList.remove(index);
+				//also remove from hash map
+				myIdMap.remove(d.getId());
+				if(details != null)
+					details.remove(d.getId());
 
-			//tell all observers of this list to update
-			this.setChanged();
-			if(!dontNotify)
-				this.notifyObservers();
+				//tell all observers of this list which row was removed
+				fireRemoved(index, d);
 
-			return d;
+				return d;
+			}
+			return null;
+		} finally {
+			writeLock.unlock();
 		}
-		return null;
 	}
 	
 	/**
-	 * Accessors
-	 * @return
+	 * @return lookup between ids and warehouse names, kept up to date as this list changes
 	 */
-	public List<Warehouse> getList() {
-		return myList;
-	}
+	public synchronized NameLookup<Warehouse> getNameLookup() {
+		if(nameLookup == null) {
+			nameLookup = new NameLookup<Warehouse>(this) {
+				@Override
+				protected long getRowId(Warehouse row) {
+					return row.getId();
+				}
 
-	public void setList(List<Warehouse> myList) {
-		this.myList = myList;
+				@Override
+				protected String getRowName(Warehouse row) {
+					return row.getWareHouseName();
+				}
+			};
+		}
+		return nameLookup;
 	}
-
+	
+	/**
+	 * Accessors
+	 * @return
+	 */
 	public WarehouseTableGateway getGateway() {
 		return gateway;
 	}
 
+	public WarehouseTableGatewayAsync getAsyncGateway() {
+		return asyncGateway;
+	}
+
 	public void setGateway(WarehouseTableGateway gateway) {
 		this.gateway = gateway;
+		try {
+			asyncGateway = new WarehouseTableGatewayAsync(gateway);
+		} catch (GatewayException e) {
+			e.printStackTrace();
+		}
 	}
 
-	/**
-	 * adds new warehouse with invalid id to list of new records
-	 * during update, if warehouse updating is a new record then will re-add it to the identity map
-	 * @param d
-	 */
-	public void addToNewRecords(Warehouse d) {
-		newRecords.add(d);
-	}
-	
 	/**
 	 * Notify list observers that an object has changed
 	 * if Observed record is a new object and its Id has changed, re-add it to the hashmap
@@ -212,17 +513,24 @@ public class WarehouseList extends Observable implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		//System.out.println("DEBUG: PersonList update");
-		//if o is in the newRecords list, remove it from identity map
-		//and add it back with new id
-		Warehouse d = (Warehouse) o;
-		if(newRecords.contains(d)) {
-			myIdMap.remove(Warehouse.INVALID_ID);
-			myIdMap.put(d.getId(), d);
-			newRecords.remove(d);
-		}
+		writeLock.lock();
+		try {
+			//System.out.println("DEBUG: PersonList update");
+			//if o is in the newRecords list, remove it from identity map
+			//and add it back with new id
+			Warehouse d = (Warehouse) o;
+			if(newRecords.contains(d)) {
+				myIdMap.remove(Warehouse.INVALID_ID);
+				myIdMap.put(d.getId(), d);
+				newRecords.remove(d);
+				//saved: lazy mode's cache holds it from now on
+				remember(d);
+			}
 		
-		this.setChanged();
-		notifyObservers();
+			//tell all observers of this list which row changed
+			fireUpdated(d);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 }
\ No newline at end of file
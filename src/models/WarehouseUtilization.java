@@ -0,0 +1,306 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.TreeSet;
+
+/**
+ * Running totals of an InventoryList per warehouse: quantity stored and capacity left
+ *
+ * The InventoryList applies each add, remove, quantity edit and warehouse move as a delta, and
+ * capacities follow the WarehouseList given to trackCapacities, so queries never scan the inventory.
+ * Warehouses are also kept ordered by free capacity for getWarehousesWithFree.
+ *
+ * A warehouse is near full once it uses at least the near-full threshold (a fraction of its capacity).
+ * Observers are notified with the warehouse id (a Long) each time a warehouse becomes near full or stops being near full.
+ * Every method is synchronized: the InventoryList and WarehouseList may be changed on a worker thread
+ * (see ReconcilingList.reconcileInBackground) while the EDT queries the totals. Observers are notified on that thread.
+ * In paged mode the totals only cover the InventoryList's resident records (the same records its other checks see).
+ * @author Justin Wilson
+ *
+ */
+public class WarehouseUtilization extends Observable implements Observer {
+	/**
+	 * default near-full threshold: 90% of capacity used
+	 */
+	public static final double DEFAULT_NEAR_FULL = 0.9;
+
+	/**
+	 * totals of one warehouse
+	 */
+	private static class Totals {
+		final long warehouseId;
+		double quantity;
+		/**
+		 * -1 until the warehouse's capacity is known (e.g., not in the tracked WarehouseList)
+		 */
+		long capacity = -1;
+		boolean nearFull;
+
+		Totals(long warehouseId) {
+			this.warehouseId = warehouseId;
+		}
+
+		double getFree() {
+			return capacity - quantity;
+		}
+	}
+
+	/**
+	 * warehouse and quantity a record was last counted with
+	 */
+	private static class Contribution {
+		long warehouseId;
+		double quantity;
+
+		Contribution(long warehouseId, double quantity) {
+			this.warehouseId = warehouseId;
+			this.quantity = quantity;
+		}
+	}
+
+	private HashMap<Long, Totals> totals;
+
+	/**
+	 * record -> what it currently adds to the totals (records are compared by identity, like the list itself)
+	 */
+	private IdentityHashMap<Inventory, Contribution> contributions;
+
+	/**
+	 * warehouses with a known capacity, least free capacity first
+	 */
+	private TreeSet<Totals> byFree;
+
+	private double nearFullThreshold;
+
+	/**
+	 * where capacities come from (null until trackCapacities)
+	 */
+	private WarehouseList warehouses;
+
+	public WarehouseUtilization() {
+		totals = new HashMap<Long, Totals>();
+		contributions = new IdentityHashMap<Inventory, Contribution>();
+		byFree = new TreeSet<Totals>(new Comparator<Totals>() {
+			@Override
+			public int compare(Totals a, Totals b) {
+				int c = Double.compare(a.getFree(), b.getFree());
+				return c != 0 ? c : Long.compare(a.warehouseId, b.warehouseId);
+			}
+		});
+		nearFullThreshold = DEFAULT_NEAR_FULL;
+	}
+
+	/**
+	 * takes warehouse capacities from list and follows its changes (edited capacities, added or deleted warehouses)
+	 * @param list
+	 */
+	public synchronized void trackCapacities(WarehouseList list) {
+		if(warehouses != null)
+			warehouses.deleteObserver(this);
+		warehouses = list;
+		warehouses.addObserver(this);
+		syncCapacities();
+	}
+
+	/**
+	 * WarehouseList changed: pick up any capacity that is different (one pass over the warehouses, not the inventory)
+	 */
+	@Override
+	public synchronized void update(Observable o, Object arg) {
+		syncCapacities();
+	}
+
+	private void syncCapacities() {
+		HashSet<Long> seen = new HashSet<Long>();
+		for(Warehouse w : warehouses.getList()) {
+			if(w.getId() == Warehouse.INVALID_ID)
+				continue;
+			seen.add(w.getId());
+			Totals t = getTotals(w.getId());
+			if(t.capacity != w.getStorageCapacity())
+				change(t, 0, w.getStorageCapacity());
+		}
+		//warehouses no longer in the list have no known capacity
+		for(Totals t : new ArrayList<Totals>(totals.values())) {
+			if(t.capacity >= 0 && !seen.contains(t.warehouseId))
+				change(t, 0, -1L);
+		}
+	}
+
+	/**
+	 * counts a record that was added to the InventoryList
+	 */
+	synchronized void add(Inventory invt) {
+		if(contributions.containsKey(invt))
+			return;
+		contributions.put(invt, new Contribution(invt.getWarehouseId(), invt.getQuantity()));
+		change(getTotals(invt.getWarehouseId()), invt.getQuantity(), null);
+	}
+
+	/**
+	 * stops counting a record that was removed from the InventoryList
+	 */
+	synchronized void remove(Inventory invt) {
+		Contribution c = contributions.remove(invt);
+		if(c != null)
+			change(getTotals(c.warehouseId), -c.quantity, null);
+	}
+
+	/**
+	 * applies a record's change of quantity and/or warehouse as deltas
+	 */
+	synchronized void update(Inventory invt) {
+		Contribution c = contributions.get(invt);
+		if(c == null || (c.warehouseId == invt.getWarehouseId() && c.quantity == invt.getQuantity()))
+			return;
+		//same warehouse: one delta, so a warehouse that stays near full is not reported as crossing twice
+		if(c.warehouseId == invt.getWarehouseId()) {
+			change(getTotals(c.warehouseId), invt.getQuantity() - c.quantity, null);
+			c.quantity = invt.getQuantity();
+			return;
+		}
+		change(getTotals(c.warehouseId), -c.quantity, null);
+		c.warehouseId = invt.getWarehouseId();
+		c.quantity = invt.getQuantity();
+		change(getTotals(c.warehouseId), c.quantity, null);
+	}
+
+	/**
+	 * forgets every record (capacities are kept)
+	 */
+	synchronized void clear() {
+		contributions.clear();
+		for(Totals t : new ArrayList<Totals>(totals.values()))
+			change(t, -t.quantity, null);
+	}
+
+	/**
+	 * @return quantity a record adds to the warehouse's total (0 if it is counted under another warehouse or not at all)
+	 */
+	synchronized double getContribution(Inventory invt, long warehouseId) {
+		Contribution c = contributions.get(invt);
+		return c != null && c.warehouseId == warehouseId ? c.quantity : 0;
+	}
+
+	/**
+	 * @return total quantity stored in the warehouse
+	 */
+	public synchronized double getTotalQuantity(long warehouseId) {
+		Totals t = totals.get(warehouseId);
+		return t == null ? 0 : t.quantity;
+	}
+
+	/**
+	 * @return total quantity stored in the warehouse, less what counted (a record) adds to it, read together
+	 */
+	synchronized double getTotalQuantityExcept(long warehouseId, Inventory counted) {
+		return getTotalQuantity(warehouseId) - getContribution(counted, warehouseId);
+	}
+
+	/**
+	 * @return storage capacity of the warehouse, or -1 if not known
+	 */
+	public synchronized long getCapacity(long warehouseId) {
+		Totals t = totals.get(warehouseId);
+		return t == null ? -1 : t.capacity;
+	}
+
+	/**
+	 * @return capacity left in the warehouse (negative if over capacity), or 0 if its capacity is not known
+	 */
+	public synchronized double getRemainingCapacity(long warehouseId) {
+		Totals t = totals.get(warehouseId);
+		return t == null || t.capacity < 0 ? 0 : t.getFree();
+	}
+
+	/**
+	 * @param free
+	 * @return ids of the warehouses with at least that much capacity left, least free first
+	 */
+	public synchronized List<Long> getWarehousesWithFree(double free) {
+		ArrayList<Long> ret = new ArrayList<Long>();
+		//probe sorts before every warehouse with exactly that much free
+		Totals probe = new Totals(Long.MIN_VALUE);
+		probe.capacity = 0;
+		probe.quantity = -free;
+		for(Totals t : byFree.tailSet(probe, true))
+			ret.add(t.warehouseId);
+		return ret;
+	}
+
+	/**
+	 * @return fraction of capacity used at which a warehouse is near full
+	 */
+	public synchronized double getNearFullThreshold() {
+		return nearFullThreshold;
+	}
+
+	/**
+	 * changes the near-full threshold; observers are notified of every warehouse that crosses it as a result
+	 * @param fraction of capacity used, e.g. 0.9
+	 */
+	public synchronized void setNearFullThreshold(double fraction) {
+		nearFullThreshold = fraction;
+		for(Totals t : totals.values())
+			checkNearFull(t);
+	}
+
+	public synchronized boolean isNearFull(long warehouseId) {
+		Totals t = totals.get(warehouseId);
+		return t != null && t.nearFull;
+	}
+
+	/**
+	 * @return ids of the near-full warehouses, fullest first
+	 */
+	public synchronized List<Long> getNearFullWarehouses() {
+		ArrayList<Long> ret = new ArrayList<Long>();
+		for(Totals t : byFree) {
+			if(t.nearFull)
+				ret.add(t.warehouseId);
+		}
+		return ret;
+	}
+
+	private Totals getTotals(long warehouseId) {
+		Totals t = totals.get(warehouseId);
+		if(t == null) {
+			t = new Totals(warehouseId);
+			totals.put(warehouseId, t);
+		}
+		return t;
+	}
+
+	/**
+	 * changes a warehouse's totals, keeping byFree in order
+	 * @param t
+	 * @param quantityDelta
+	 * @param capacity new capacity (-1 = unknown), or null to keep it
+	 */
+	private void change(Totals t, double quantityDelta, Long capacity) {
+		if(t.capacity >= 0)
+			byFree.remove(t);
+		t.quantity += quantityDelta;
+		if(capacity != null)
+			t.capacity = capacity;
+		if(t.capacity >= 0)
+			byFree.add(t);
+		checkNearFull(t);
+	}
+
+	private void checkNearFull(Totals t) {
+		boolean nearFull = t.capacity > 0 && t.quantity >= t.capacity * nearFullThreshold;
+		if(nearFull == t.nearFull)
+			return;
+		t.nearFull = nearFull;
+		setChanged();
+		notifyObservers(t.warehouseId);
+	}
+}
@@ -0,0 +1,564 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+
+import database.AsyncExecutor;
+import database.ConflictException;
+import database.DatabaseConfig;
+import database.GatewayException;
+import database.InventoryTableGateway;
+import database.PartTableGateway;
+import database.WarehouseTableGateway;
+
+/**
+ * Optional write-behind saving of edited records: while a queue is running (see start), finishUpdate of a saved
+ * Warehouse, Part or Inventory record does not wait for the db. It queues a copy of the record and returns right away.
+ *
+ * The queue keeps only the latest copy of each record, so a record saved several times between flushes is written once.
+ * A flush writes the queued records of each table in one batch transaction (saveWarehouses, saveParts, saveInventorys);
+ * if a batch fails, its records are saved one at a time so only the ones at fault fail. A record that could not be saved
+ * is rolled back to what is in the db (observers are notified, so open views show it) and the failure listener
+ * is told why (MDIParent shows the message). Flushes run every WRITE_BEHIND_INTERVAL_MS, and as soon as
+ * WRITE_BEHIND_BATCH records are queued. New records are still inserted right away, since they need their ids.
+ *
+ * Settings are optional entries in db.properties:
+ * 		WRITE_BEHIND 				true to queue saves (default false: each save is written before finishUpdate returns)
+ * 		WRITE_BEHIND_BATCH 			queued records that trigger a flush (default 100)
+ * 		WRITE_BEHIND_INTERVAL_MS 	most time a save waits in the queue (default 1000)
+ * Thread safe.
+ * @author Justin Wilson
+ *
+ */
+public class WriteBehindQueue {
+	/**
+	 * told about queued saves that failed
+	 */
+	public interface FailureListener {
+		/**
+		 * called on the Swing Event Dispatch Thread once the record has been rolled back
+		 * @param message which record could not be saved, and why
+		 */
+		void saveFailed(String message);
+	}
+
+	/**
+	 * the running queue, or null if saves are written right away
+	 */
+	private static volatile WriteBehindQueue active;
+
+	/**
+	 * a record's queued save
+	 */
+	private static class Entry<T> {
+		/**
+		 * the model the views edit (rolled back if the save fails)
+		 */
+		final T model;
+		/**
+		 * what is written: the model as it was when it was saved
+		 */
+		final T copy;
+
+		Entry(T model, T copy) {
+			this.model = model;
+			this.copy = copy;
+		}
+	}
+
+	/**
+	 * the queued saves of one table, and how its records are copied, written and rolled back
+	 */
+	private abstract class Table<T> {
+		final String name;
+
+		/**
+		 * id -> latest queued save, in the order the records were first queued
+		 */
+		final LinkedHashMap<Long, Entry<T>> pending;
+
+		/**
+		 * id -> save being written by the running flush
+		 */
+		final HashMap<Long, Entry<T>> inFlight;
+
+		/**
+		 * id -> version a flush gave the record, until its model has caught up (a copy queued before then must be written at it)
+		 */
+		final HashMap<Long, Long> written;
+
+		Table(String name) {
+			this.name = name;
+			pending = new LinkedHashMap<Long, Entry<T>>();
+			inFlight = new HashMap<Long, Entry<T>>();
+			written = new HashMap<Long, Long>();
+		}
+
+		abstract long getId(T row);
+		abstract long getVersion(T row);
+		abstract void setVersion(T row, long version);
+		abstract T copy(T row);
+		abstract void saveAll(List<T> rows) throws GatewayException;
+		abstract void save(T row) throws GatewayException;
+		abstract T fetch(long id) throws GatewayException;
+		abstract void refresh(T model, T fresh);
+
+		void enqueue(T model) {
+			T copy = copy(model);
+			long id = getId(model);
+			boolean full;
+			synchronized(WriteBehindQueue.this) {
+				Long version = written.get(id);
+				if(version != null && version > getVersion(copy))
+					setVersion(copy, version);
+				if(pending.put(id, new Entry<T>(model, copy)) != null)
+					coalesced++;
+				queued++;
+				full = size() >= batchSize;
+			}
+			if(full)
+				flushSoon();
+		}
+
+		void discard(long id) {
+			synchronized(WriteBehindQueue.this) {
+				pending.remove(id);
+			}
+		}
+
+		/**
+		 * writes the queued saves (caller holds flushLock)
+		 */
+		void flush() {
+			ArrayList<Entry<T>> batch;
+			synchronized(WriteBehindQueue.this) {
+				if(pending.isEmpty())
+					return;
+				batch = new ArrayList<Entry<T>>(pending.values());
+				pending.clear();
+				for(Entry<T> e : batch)
+					inFlight.put(getId(e.copy), e);
+			}
+			ArrayList<T> rows = new ArrayList<T>(batch.size());
+			long[] before = new long[batch.size()];
+			for(int i = 0; i < before.length; i++) {
+				rows.add(batch.get(i).copy);
+				before[i] = getVersion(batch.get(i).copy);
+			}
+			try {
+				saveAll(rows);
+				for(int i = 0; i < before.length; i++)
+					saved(batch.get(i), before[i]);
+			} catch(GatewayException e) {
+				//nothing was saved: save one at a time so only the records at fault fail
+				for(int i = 0; i < before.length; i++) {
+					try {
+						save(batch.get(i).copy);
+						saved(batch.get(i), before[i]);
+					} catch(GatewayException e1) {
+						failed(batch.get(i), e1);
+					}
+				}
+			}
+		}
+
+		private void saved(final Entry<T> e, long oldVersion) {
+			final long id = getId(e.copy);
+			final long version = getVersion(e.copy);
+			synchronized(WriteBehindQueue.this) {
+				inFlight.remove(id);
+				//a copy queued while this one was written was based on the version it replaced
+				Entry<T> newer = pending.get(id);
+				if(newer != null && getVersion(newer.copy) == oldVersion)
+					setVersion(newer.copy, version);
+				written.put(id, version);
+				writes++;
+			}
+			AsyncExecutor.EDT.execute(new Runnable() {
+				@Override
+				public void run() {
+					boolean newerQueued;
+					synchronized(WriteBehindQueue.this) {
+						newerQueued = pending.containsKey(id) || inFlight.containsKey(id);
+						Long w = written.get(id);
+						if(w != null && w == version)
+							written.remove(id);
+					}
+					//take the saved copy's version (and its values, in case a list sync showed older ones meanwhile),
+					//unless a later save is still queued: the model already shows that one
+					if(newerQueued) {
+						if(getVersion(e.model) < version)
+							setVersion(e.model, version);
+					} else {
+						refresh(e.model, e.copy);
+					}
+				}
+			});
+		}
+
+		@SuppressWarnings("unchecked")
+		private void failed(final Entry<T> e, GatewayException error) {
+			final long id = getId(e.copy);
+			synchronized(WriteBehindQueue.this) {
+				inFlight.remove(id);
+				//a later copy is based on the same version and would fail too
+				pending.remove(id);
+				failures++;
+			}
+			T current = null;
+			String reason;
+			if(error instanceof ConflictException) {
+				current = (T) ((ConflictException) error).getCurrentRow();
+				reason = ((ConflictException) error).isDeleted() ? "it was deleted by another user" : "it was changed by another user";
+			} else {
+				reason = error.getMessage();
+				try {
+					current = fetch(id);
+				} catch(GatewayException e1) {
+					//keep the unsaved values
+				}
+			}
+			final T fresh = current;
+			final String message = name + " " + id + " could not be saved (" + reason + ")";
+			AsyncExecutor.EDT.execute(new Runnable() {
+				@Override
+				public void run() {
+					//show what is in the db now
+					if(fresh != null)
+						refresh(e.model, fresh);
+					FailureListener l = listener;
+					if(l != null)
+						l.saveFailed(message);
+					else
+						System.err.println(message);
+				}
+			});
+		}
+	}
+
+	private Table<Warehouse> warehouses;
+	private Table<Part> parts;
+	private Table<Inventory> inventorys;
+
+	private int batchSize;
+	private long flushIntervalMs;
+
+	private volatile FailureListener listener;
+
+	/**
+	 * one flush at a time
+	 */
+	private final Object flushLock = new Object();
+
+	/**
+	 * true while a flush for a full queue is submitted but has not started yet
+	 */
+	private boolean flushRequested;
+
+	private AsyncExecutor executor;
+	private ScheduledFuture<?> flusher;
+
+	/**
+	 * saves queued, saves replaced by a later save of the same record before being written, records written, saves failed
+	 */
+	private long queued, coalesced, writes, failures;
+
+	/**
+	 * @return true if WRITE_BEHIND in db.properties turns write-behind saving on
+	 * @throws GatewayException if db.properties cannot be read
+	 */
+	public static boolean isEnabled() throws GatewayException {
+		return DatabaseConfig.getInstance().getString("WRITE_BEHIND", "false").equalsIgnoreCase("true");
+	}
+
+	/**
+	 * @return the running queue, or null if saves are written right away
+	 */
+	public static WriteBehindQueue getActive() {
+		return active;
+	}
+
+	/**
+	 * Constructor: settings from db.properties
+	 * @throws GatewayException if db.properties cannot be read
+	 */
+	public WriteBehindQueue(WarehouseTableGateway wtg, PartTableGateway ptg, InventoryTableGateway itg) throws GatewayException {
+		this(wtg, ptg, itg, DatabaseConfig.getInstance().getInt("WRITE_BEHIND_BATCH", 100),
+				DatabaseConfig.getInstance().getLong("WRITE_BEHIND_INTERVAL_MS", 1000));
+	}
+
+	/**
+	 * @param batchSize queued records that trigger a flush
+	 * @param flushIntervalMs time between flushes
+	 */
+	public WriteBehindQueue(final WarehouseTableGateway wtg, final PartTableGateway ptg, final InventoryTableGateway itg, int batchSize, long flushIntervalMs) {
+		this.batchSize = Math.max(1, batchSize);
+		this.flushIntervalMs = Math.max(10, flushIntervalMs);
+		warehouses = new Table<Warehouse>("Warehouse") {
+			@Override
+			long getId(Warehouse row) {
+				return row.getId();
+			}
+
+			@Override
+			long getVersion(Warehouse row) {
+				return row.getVersion();
+			}
+
+			@Override
+			void setVersion(Warehouse row, long version) {
+				row.setVersion(version);
+			}
+
+			@Override
+			Warehouse copy(Warehouse row) {
+				Warehouse w = new Warehouse();
+				w.setId(row.getId());
+				w.refreshFrom(row);
+				return w;
+			}
+
+			@Override
+			void saveAll(List<Warehouse> rows) throws GatewayException {
+				wtg.saveWarehouses(rows);
+			}
+
+			@Override
+			void save(Warehouse row) throws GatewayException {
+				wtg.saveWarehouse(row);
+			}
+
+			@Override
+			Warehouse fetch(long id) throws GatewayException {
+				return wtg.fetchWarehouse(id);
+			}
+
+			@Override
+			void refresh(Warehouse model, Warehouse fresh) {
+				model.refreshFrom(fresh);
+			}
+		};
+		parts = new Table<Part>("Part") {
+			@Override
+			long getId(Part row) {
+				return row.getId();
+			}
+
+			@Override
+			long getVersion(Part row) {
+				return row.getVersion();
+			}
+
+			@Override
+			void setVersion(Part row, long version) {
+				row.setVersion(version);
+			}
+
+			@Override
+			Part copy(Part row) {
+				Part p = new Part();
+				p.setId(row.getId());
+				p.refreshFrom(row);
+				return p;
+			}
+
+			@Override
+			void saveAll(List<Part> rows) throws GatewayException {
+				ptg.saveParts(rows);
+			}
+
+			@Override
+			void save(Part row) throws GatewayException {
+				ptg.savePart(row);
+			}
+
+			@Override
+			Part fetch(long id) throws GatewayException {
+				return ptg.fetchPart(id);
+			}
+
+			@Override
+			void refresh(Part model, Part fresh) {
+				model.refreshFrom(fresh);
+			}
+		};
+		inventorys = new Table<Inventory>("Inventory record") {
+			@Override
+			long getId(Inventory row) {
+				return row.getId();
+			}
+
+			@Override
+			long getVersion(Inventory row) {
+				return row.getVersion();
+			}
+
+			@Override
+			void setVersion(Inventory row, long version) {
+				row.setVersion(version);
+			}
+
+			@Override
+			Inventory copy(Inventory row) {
+				Inventory i = new Inventory();
+				i.setId(row.getId());
+				i.refreshFrom(row);
+				return i;
+			}
+
+			@Override
+			void saveAll(List<Inventory> rows) throws GatewayException {
+				itg.saveInventorys(rows);
+			}
+
+			@Override
+			void save(Inventory row) throws GatewayException {
+				itg.saveInventory(row);
+			}
+
+			@Override
+			Inventory fetch(long id) throws GatewayException {
+				return itg.fetchInventory(id);
+			}
+
+			@Override
+			void refresh(Inventory model, Inventory fresh) {
+				model.refreshFrom(fresh);
+			}
+		};
+	}
+
+	/**
+	 * starts flushing on the executor's timer and makes this the active queue (models' finishUpdate queue their saves)
+	 * @param executor
+	 */
+	public synchronized void start(AsyncExecutor executor) {
+		if(flusher != null)
+			return;
+		this.executor = executor;
+		flusher = executor.scheduleRepeating(new Callable<Void>() {
+			@Override
+			public Void call() {
+				flush();
+				return null;
+			}
+		}, flushIntervalMs);
+		active = this;
+	}
+
+	/**
+	 * stops queueing (later saves are written right away) and writes what is still queued, on the calling thread
+	 */
+	public void shutdown() {
+		synchronized(this) {
+			if(active == this)
+				active = null;
+			if(flusher != null) {
+				flusher.cancel(false);
+				flusher = null;
+			}
+		}
+		flush();
+	}
+
+	public void setFailureListener(FailureListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * queues a save of the record (replacing any save of it still queued)
+	 * @param w a saved record (id not 0)
+	 */
+	public void enqueue(Warehouse w) {
+		warehouses.enqueue(w);
+	}
+
+	public void enqueue(Part p) {
+		parts.enqueue(p);
+	}
+
+	public void enqueue(Inventory i) {
+		inventorys.enqueue(i);
+	}
+
+	/**
+	 * drops a queued save of the record (e.g., it is being deleted); a save already being written is not stopped
+	 */
+	public void discard(Warehouse w) {
+		warehouses.discard(w.getId());
+	}
+
+	public void discard(Part p) {
+		parts.discard(p.getId());
+	}
+
+	public void discard(Inventory i) {
+		inventorys.discard(i.getId());
+	}
+
+	/**
+	 * writes everything queued (one batch transaction per table); failures are reported to the failure listener
+	 */
+	public void flush() {
+		synchronized(flushLock) {
+			synchronized(this) {
+				flushRequested = false;
+			}
+			warehouses.flush();
+			parts.flush();
+			inventorys.flush();
+		}
+	}
+
+	private void flushSoon() {
+		AsyncExecutor ex;
+		synchronized(this) {
+			if(flushRequested || executor == null)
+				return;
+			flushRequested = true;
+			ex = executor;
+		}
+		ex.submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				flush();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return number of saves queued and not yet being written
+	 */
+	public synchronized int size() {
+		return warehouses.pending.size() + parts.pending.size() + inventorys.pending.size();
+	}
+
+	public synchronized long getQueued() {
+		return queued;
+	}
+
+	/**
+	 * @return saves replaced by a later save of the same record before they were written
+	 */
+	public synchronized long getCoalesced() {
+		return coalesced;
+	}
+
+	public synchronized long getWrites() {
+		return writes;
+	}
+
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d queued, %d coalesced, %d written, %d failed, %d waiting", queued, coalesced, writes, failures, size());
+	}
+}
@@ -1,7 +1,5 @@
 package reports;
 
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -9,43 +7,23 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Properties;
-
-import javax.sql.DataSource;
-
-import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
 
+import database.ConnectionPool;
 import database.GatewayException;
 
-public class ReportGatewayMySQL implements ReportGateway {
+public class ReportGatewayJDBC implements ReportGateway {
 
 	/**
-	 * external DB connection
+	 * shared pool that db connections are borrowed from for each call
 	 */
-	private Connection conn = null;
+	private ConnectionPool pool;
 
 	/**
-	 * Constructor: creates database connection
+	 * Constructor: uses the shared connection pool
 	 * @throws GatewayException
 	 */
-	public ReportGatewayMySQL() throws GatewayException {
-		//read the properties file to establish the db connection
-		DataSource ds = null;
-		try {
-			ds = getDataSource();
-		} catch (RuntimeException | IOException e1) {
-			throw new GatewayException(e1.getMessage());
-		}
-		if(ds == null) {
-        	throw new GatewayException("Datasource is null!");
-        }
-		try {
-        	conn = ds.getConnection();
-			//default isolation level of allow Phantom Reads is ok for this application
-			//conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE); //prevent even phantom reads
-		} catch (SQLException e) {
-			throw new GatewayException("SQL Error: " + e.getMessage());
-		}
+	public ReportGatewayJDBC() throws GatewayException {
+		pool = ConnectionPool.getInstance();
 	}
 	
 	
@@ -53,9 +31,11 @@ public class ReportGatewayMySQL implements ReportGateway {
 		
 		List< HashMap<String, String> > warehousePart = new ArrayList< HashMap<String, String> >();
 		HashMap<String, String> record = null;
+		Connection conn = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		try {
+			conn = pool.getConnection();
 			
 			st = conn.prepareStatement("SELECT wh.warehouse_name as warehouse_name, par.part_number as part_number, par.part_name as part_name, inv.quantity as quantity, par.unit_of_qty as unit_of_qty "
 					+ "FROM INVENTORY inv "
@@ -86,6 +66,8 @@ public class ReportGatewayMySQL implements ReportGateway {
 					rs.close();
 				if(st != null)
 					st.close();
+				if(conn != null)
+					conn.close();
 			} catch (SQLException e) {
 				throw new GatewayException("SQL Error: " + e.getMessage());
 			}
@@ -93,37 +75,14 @@ public class ReportGatewayMySQL implements ReportGateway {
 		return warehousePart;
 	}
 	
-	/**
-	 * create a MySQL datasource with credentials and DB URL in db.properties file
-	 * @return
-	 * @throws RuntimeException
-	 * @throws IOException
-	 */
-	private DataSource getDataSource() throws RuntimeException, IOException {
-		//read db credentials from properties file
-		Properties props = new Properties();
-		FileInputStream fis = null;
-        fis = new FileInputStream("db.properties");
-        props.load(fis);
-        fis.close();
-        
-        //create the datasource
-        MysqlDataSource mysqlDS = new MysqlDataSource();
-        mysqlDS.setURL(props.getProperty("MYSQL_DB_URL"));
-        mysqlDS.setUser(props.getProperty("MYSQL_DB_USERNAME"));
-        mysqlDS.setPassword(props.getProperty("MYSQL_DB_PASSWORD"));
-        return mysqlDS;
-	}
 
 
+	/**
+	 * connections are borrowed per call and go back to the shared pool, so there is nothing to close here
+	 * (the pool itself is closed by ConnectionPool.shutdown() when the app quits)
+	 */
 	@Override
 	public void close() {
-		try {
-			conn.close();
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
-		
 	}
 
 }
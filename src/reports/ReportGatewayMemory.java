@@ -0,0 +1,92 @@
+package reports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import database.GatewayException;
+import database.InventoryTableGatewayMemory;
+import database.PartTableGatewayMemory;
+import database.RowHandler;
+import database.WarehouseTableGatewayMemory;
+import models.Inventory;
+import models.Part;
+import models.Warehouse;
+
+/**
+ * In-memory implementation of ReportGateway (see database.MemoryDatabase)
+ * Produces the same records as the INVENTORY/WAREHOUSE/PART join in ReportGatewayJDBC
+ */
+public class ReportGatewayMemory implements ReportGateway {
+	private WarehouseTableGatewayMemory warehouseGateway;
+	private PartTableGatewayMemory partGateway;
+	private InventoryTableGatewayMemory inventoryGateway;
+
+	public ReportGatewayMemory() {
+		warehouseGateway = new WarehouseTableGatewayMemory();
+		partGateway = new PartTableGatewayMemory();
+		inventoryGateway = new InventoryTableGatewayMemory();
+	}
+	
+	/**
+	 * inventory with quantity > 0 joined to its warehouse and part, ordered by warehouse name then part name
+	 * (inventory whose warehouse or part no longer exists is left out, as with an inner join)
+	 */
+	public List< HashMap<String, String> > fetchInventory() throws GatewayException {
+		//hash join: the warehouse and part tables are small next to inventory
+		final HashMap<Long, Warehouse> warehouses = new HashMap<Long, Warehouse>();
+		for(Warehouse w : warehouseGateway.fetchWarehouses())
+			warehouses.put(w.getId(), w);
+		final HashMap<Long, Part> parts = new HashMap<Long, Part>();
+		for(Part p : partGateway.fetchParts())
+			parts.put(p.getId(), p);
+		
+		final List< HashMap<String, String> > warehousePart = new ArrayList< HashMap<String, String> >();
+		inventoryGateway.fetchInventorys(new RowHandler<Inventory>() {
+			@Override
+			public void handleRow(Inventory inv) {
+				Warehouse wh = warehouses.get(inv.getWarehouseId());
+				Part par = parts.get(inv.getPartId());
+				if(inv.getQuantity() <= 0 || wh == null || par == null)
+					return;
+				HashMap<String, String> record = new HashMap<String, String>();
+				record.put("warehouse_name", wh.getWareHouseName());
+				record.put("part_number", par.getPartNumber());
+				record.put("part_name", par.getPartName());
+				record.put("quantity", formatQuantity(inv.getQuantity()));
+				record.put("unit_of_qty", par.getUnitOfQuantity());
+				warehousePart.add(record);
+			}
+		}, 0);
+		
+		//MySQL orders strings case-insensitively
+		Collections.sort(warehousePart, new Comparator< HashMap<String, String> >() {
+			@Override
+			public int compare(HashMap<String, String> a, HashMap<String, String> b) {
+				int c = String.CASE_INSENSITIVE_ORDER.compare(a.get("warehouse_name"), b.get("warehouse_name"));
+				if(c != 0)
+					return c;
+				return String.CASE_INSENSITIVE_ORDER.compare(a.get("part_name"), b.get("part_name"));
+			}
+		});
+		return warehousePart;
+	}
+	
+	/**
+	 * whole quantities are shown without a decimal point, as MySQL returns them
+	 */
+	private static String formatQuantity(double quantity) {
+		if(quantity == Math.rint(quantity))
+			return Long.toString((long) quantity);
+		return Double.toString(quantity);
+	}
+
+	/**
+	 * nothing to release
+	 */
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,118 @@
+package testing;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import database.ConnectionPool;
+import database.PartRowMapper;
+import models.Part;
+
+/**
+ * Benchmark of Part hydration: select * with name-based column lookups (the old gateway code)
+ * vs. the projected column list and positional reads of PartRowMapper
+ *
+ * Builds a synthetic temporary table shaped like PART (including the unused user_access/datetime columns)
+ * in the db named in db.properties, so it needs a running MySQL server but leaves no tables behind
+ *
+ * Usage: HydrationBench [rows] [runs]	(defaults 200000 rows, 5 runs)
+ * @author Justin Wilson
+ *
+ */
+public class HydrationBench {
+	private static final int INSERT_BATCH = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		ConnectionPool pool = ConnectionPool.getInstance();
+		//temporary tables belong to one connection so keep the same one for the whole run
+		Connection conn = pool.getConnection();
+		try {
+			createTable(conn, rows);
+
+			//first run of each warms up the statement cache, JIT and server buffers
+			for(int run = 0; run <= runs; run++) {
+				long byName = timeByName(conn);
+				long byPosition = timeByPosition(conn);
+				if(run > 0)
+					System.out.println(String.format("run %d: select * / by name %,.0f rows/s   projected / by position %,.0f rows/s",
+							run, rows * 1e9 / byName, rows * 1e9 / byPosition));
+			}
+		} finally {
+			conn.close();
+			ConnectionPool.shutdown();
+		}
+	}
+
+	private static void createTable(Connection conn, int rows) throws SQLException {
+		Statement ddl = conn.createStatement();
+		ddl.executeUpdate("create temporary table BENCH_PART (id bigint primary key, part_number varchar(20), part_name varchar(255), "
+				+ "vendor_name varchar(255), unit_of_qty varchar(20), vendor_part_id varchar(255), user_access varchar(255), datetime timestamp null, "
+				+ "version bigint not null default 0)");
+		ddl.close();
+
+		PreparedStatement st = conn.prepareStatement("insert into BENCH_PART (id, part_number, part_name, vendor_name, unit_of_qty, vendor_part_id, user_access, datetime) "
+				+ " values (?, ?, ?, ?, ?, ?, ?, now())");
+		for(int i = 1; i <= rows; i++) {
+			st.setLong(1, i);
+			st.setString(2, "P" + i);
+			st.setString(3, "Synthetic part number " + i);
+			st.setString(4, "Vendor " + (i % 100));
+			st.setString(5, i % 2 == 0 ? "Pieces" : "Linear Ft.");
+			st.setString(6, "V-" + i);
+			st.setString(7, "user" + (i % 10));
+			st.addBatch();
+			if(i % INSERT_BATCH == 0)
+				st.executeBatch();
+		}
+		st.executeBatch();
+		st.close();
+	}
+
+	/**
+	 * the gateways' row hydration before PartRowMapper
+	 * @return elapsed nanoseconds
+	 */
+	private static long timeByName(Connection conn) throws SQLException {
+		long start = System.nanoTime();
+		PreparedStatement st = conn.prepareStatement("select * from BENCH_PART");
+		ResultSet rs = st.executeQuery();
+		long check = 0;
+		while(rs.next()) {
+			Part p = new Part( rs.getLong("id"), rs.getString("part_number"), rs.getString("part_name"), rs.getString("unit_of_qty"), rs.getString("vendor_part_id"), rs.getString("vendor_name") );
+			check += p.getId();
+		}
+		rs.close();
+		st.close();
+		long elapsed = System.nanoTime() - start;
+		if(check == 0)
+			System.out.println("no rows read");
+		return elapsed;
+	}
+
+	/**
+	 * the gateways' row hydration with PartRowMapper
+	 * @return elapsed nanoseconds
+	 */
+	private static long timeByPosition(Connection conn) throws SQLException {
+		PartRowMapper mapper = new PartRowMapper();
+		long start = System.nanoTime();
+		PreparedStatement st = conn.prepareStatement("select " + PartRowMapper.COLUMNS + " from BENCH_PART");
+		ResultSet rs = st.executeQuery();
+		long check = 0;
+		while(rs.next()) {
+			Part p = mapper.mapRow(rs);
+			check += p.getId();
+		}
+		rs.close();
+		st.close();
+		long elapsed = System.nanoTime() - start;
+		if(check == 0)
+			System.out.println("no rows read");
+		return elapsed;
+	}
+}
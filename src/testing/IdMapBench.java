@@ -0,0 +1,137 @@
+package testing;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import models.Inventory;
+import models.LongObjectMap;
+
+/**
+ * Benchmark of the list models' Identity Map: HashMap<Long, Inventory> (the old myIdMap) vs. LongObjectMap
+ *
+ * Times building the map from sequential ids (as a full load does), random findById lookups
+ * and removing/re-adding a share of the records (as a sync does), and estimates the heap each map holds.
+ * Run with a fixed heap (e.g. -Xms1g -Xmx1g) so the heap estimates are steadier.
+ *
+ * Usage: IdMapBench [records] [runs]	(defaults 1000000 records, 5 runs)
+ * @author Justin Wilson
+ *
+ */
+public class IdMapBench {
+	private static final int LOOKUPS = 5000000;
+
+	public static void main(String[] args) {
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Inventory[] rows = new Inventory[records];
+		for(int i = 0; i < records; i++) {
+			rows[i] = new Inventory(1, i + 1, i);
+			rows[i].setId(i + 1);
+		}
+		long[] probes = new long[LOOKUPS];
+		Random random = new Random(4743);
+		for(int i = 0; i < LOOKUPS; i++)
+			probes[i] = 1 + random.nextInt(records);
+
+		System.out.println("records: " + records + ", lookups per run: " + LOOKUPS);
+		System.out.printf("heap held: HashMap %.1f MB, LongObjectMap %.1f MB%n", heldByBoxed(rows) / 1e6, heldByPrimitive(rows) / 1e6);
+
+		//first run of each warms up the JIT
+		for(int run = 0; run <= runs; run++) {
+			long[] boxed = timeBoxed(rows, probes);
+			long[] primitive = timePrimitive(rows, probes);
+			if(run == 0)
+				continue;
+			System.out.printf("run %d  build/lookup/churn ms: HashMap %d/%d/%d, LongObjectMap %d/%d/%d%n", run,
+					boxed[0] / 1000000, boxed[1] / 1000000, boxed[2] / 1000000,
+					primitive[0] / 1000000, primitive[1] / 1000000, primitive[2] / 1000000);
+		}
+	}
+
+	/**
+	 * @return nanoseconds to build, to look up every probe and to remove and re-add every 10th record
+	 */
+	private static long[] timeBoxed(Inventory[] rows, long[] probes) {
+		long[] times = new long[3];
+		long start = System.nanoTime();
+		HashMap<Long, Inventory> map = new HashMap<Long, Inventory>();
+		for(Inventory row : rows)
+			map.put(row.getId(), row);
+		times[0] = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long found = 0;
+		for(long id : probes)
+			found += map.get(id).getPartId();
+		times[1] = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int i = 0; i < rows.length; i += 10)
+			map.remove(rows[i].getId());
+		for(int i = 0; i < rows.length; i += 10)
+			map.put(rows[i].getId(), rows[i]);
+		times[2] = System.nanoTime() - start;
+		check(found, map.size(), rows.length);
+		return times;
+	}
+
+	private static long[] timePrimitive(Inventory[] rows, long[] probes) {
+		long[] times = new long[3];
+		long start = System.nanoTime();
+		LongObjectMap<Inventory> map = new LongObjectMap<Inventory>();
+		for(Inventory row : rows)
+			map.put(row.getId(), row);
+		times[0] = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long found = 0;
+		for(long id : probes)
+			found += map.get(id).getPartId();
+		times[1] = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int i = 0; i < rows.length; i += 10)
+			map.remove(rows[i].getId());
+		for(int i = 0; i < rows.length; i += 10)
+			map.put(rows[i].getId(), rows[i]);
+		times[2] = System.nanoTime() - start;
+		check(found, map.size(), rows.length);
+		return times;
+	}
+
+	private static long heldByBoxed(Inventory[] rows) {
+		long before = usedHeap();
+		HashMap<Long, Inventory> map = new HashMap<Long, Inventory>();
+		for(Inventory row : rows)
+			map.put(row.getId(), row);
+		long held = usedHeap() - before;
+		check(0, map.size(), rows.length);
+		return held;
+	}
+
+	private static long heldByPrimitive(Inventory[] rows) {
+		long before = usedHeap();
+		LongObjectMap<Inventory> map = new LongObjectMap<Inventory>();
+		for(Inventory row : rows)
+			map.put(row.getId(), row);
+		long held = usedHeap() - before;
+		check(0, map.size(), rows.length);
+		return held;
+	}
+
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	/**
+	 * uses the results so the JIT can't drop the work, and catches a map that lost records
+	 */
+	private static void check(long found, int size, int expected) {
+		if(found < 0 || size != expected)
+			throw new IllegalStateException("map has " + size + " records, expected " + expected);
+	}
+}
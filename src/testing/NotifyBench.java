@@ -0,0 +1,89 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+
+import controller.InventoryListController;
+import controller.NotificationDispatcher;
+import models.Inventory;
+import models.InventoryList;
+
+/**
+ * Benchmark of list view notifications during a burst of edits: every notification delivered right away
+ * (NotificationDispatcher interval 0, the same work as observing the list directly) vs. coalesced per frame
+ *
+ * Changes the quantity of every record in an InventoryList shown in a JList (the way finishUpdate notifies)
+ * and measures the time spent on the Event Dispatch Thread for the burst plus the delivery of its notifications.
+ * Needs no db; runs headless (the JList is never shown, so this measures event handling and layout, not painting).
+ *
+ * Usage: NotifyBench [records] [runs]	(defaults 10000 records, 5 runs)
+ * @author Justin Wilson
+ *
+ */
+public class NotifyBench {
+	public static void main(String[] args) throws Exception {
+		final int records = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		final InventoryList list = new InventoryList();
+		List<Inventory> rows = new ArrayList<Inventory>();
+		for(int i = 0; i < records; i++) {
+			Inventory invt = new Inventory(1 + i % 50, 1 + i, i % 1000);
+			invt.setId(i + 1);
+			rows.add(invt);
+		}
+		list.loadInventory(rows);
+
+		final NotificationDispatcher dispatcher = NotificationDispatcher.getInstance();
+		final InventoryListController[] controller = new InventoryListController[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				controller[0] = new InventoryListController(list);
+				JList<Inventory> view = new JList<Inventory>(controller[0]);
+				view.setPrototypeCellValue(new Inventory());
+				new JScrollPane(view).setSize(200, 400);
+			}
+		});
+
+		System.out.println("records changed per burst: " + records);
+		//first run of each warms up the JIT
+		for(int run = 0; run <= runs; run++) {
+			long[] direct = timeBurst(list, dispatcher, 0);
+			long[] coalesced = timeBurst(list, dispatcher, NotificationDispatcher.DEFAULT_INTERVAL_MS);
+			if(run == 0)
+				continue;
+			System.out.printf("run %d  EDT ms / notifications delivered: every change %.1f / %d, coalesced %.1f / %d%n", run,
+					direct[0] / 1e6, direct[1], coalesced[0] / 1e6, coalesced[1]);
+		}
+	}
+
+	/**
+	 * @return EDT nanoseconds for the burst and the deliveries it caused, and the number of notifications delivered
+	 */
+	private static long[] timeBurst(final InventoryList list, final NotificationDispatcher dispatcher, int intervalMs) throws Exception {
+		dispatcher.setInterval(intervalMs);
+		final long deliveredBefore = dispatcher.getDeliveredCount();
+		final long[] result = new long[2];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				for(Inventory invt : list.getList()) {
+					invt.setQuantity((invt.getQuantity() + 1) % 1000);
+					//what finishUpdate does once the record is saved
+					invt.notifyObservers();
+				}
+				//deliver what the timer would deliver at the end of the frame
+				dispatcher.flush();
+				result[0] = System.nanoTime() - start;
+				result[1] = dispatcher.getDeliveredCount() - deliveredBefore;
+			}
+		});
+		return result;
+	}
+}
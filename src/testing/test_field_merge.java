@@ -0,0 +1,154 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import javax.swing.JTextField;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.NameComboModel;
+import database.MemoryDatabase;
+import database.WarehouseTableGatewayMemory;
+import models.Warehouse;
+import models.WarehouseList;
+import views.FieldMerge;
+
+
+public class test_field_merge {
+
+	private FieldMerge merge;
+	private JTextField field;
+
+	private NameComboModel combo;
+	private long w1, w2, w3;
+
+	@Before
+	public void setUp() throws Exception {
+		merge = new FieldMerge();
+		field = new JTextField();
+
+		MemoryDatabase.reset();
+		WarehouseTableGatewayMemory gateway = new WarehouseTableGatewayMemory();
+		w1 = gateway.insertWarehouse(new Warehouse("Merge W1", "1 Main St", "San Antonio", "TX", "78249", 100));
+		w2 = gateway.insertWarehouse(new Warehouse("Merge W2", "2 Main St", "San Antonio", "TX", "78249", 100));
+		w3 = gateway.insertWarehouse(new Warehouse("Merge W3", "3 Main St", "San Antonio", "TX", "78249", 100));
+		WarehouseList list = new WarehouseList();
+		list.setGateway(gateway);
+		list.loadFromGateway();
+		combo = new NameComboModel(list.getNameLookup(), "--UnKnown--");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		combo.unregisterAsObserver();
+	}
+
+	//1
+	@Test
+	public void testLoadIsNotAnEdit() {
+		merge.load(field, "Bolt");
+		merge.load(combo, w1);
+		assertEquals("Bolt", field.getText());
+		assertEquals(w1, combo.getSelectedId());
+		assertFalse(merge.isEdited());
+	}
+
+	//2
+	@Test
+	public void testLoadNullShowsBlank() {
+		merge.load(field, null);
+		assertEquals("", field.getText());
+		assertFalse(merge.isEdited());
+	}
+
+	//3
+	@Test
+	public void testEditedText() {
+		merge.load(field, "Bolt");
+		field.setText("Nut");
+		assertTrue(merge.isEdited());
+		//views save trimmed text
+		field.setText(" Bolt ");
+		assertFalse(merge.isEdited());
+	}
+
+	//4
+	@Test
+	public void testEditedCombo() {
+		merge.load(combo, w1);
+		combo.setSelectedId(w2);
+		assertTrue(merge.isEdited());
+	}
+
+	//5
+	@Test
+	public void testMergeUneditedTakesNewValue() {
+		merge.load(field, "Bolt");
+		merge.load(combo, w1);
+		merge.merge(field, "Nut");
+		merge.merge(combo, w2);
+		assertEquals("Nut", field.getText());
+		assertEquals(w2, combo.getSelectedId());
+		assertFalse(merge.isEdited());
+		assertEquals(0, merge.takeConflicts());
+	}
+
+	//6
+	@Test
+	public void testMergeKeepsEditWhenUnchanged() {
+		merge.load(field, "Bolt");
+		field.setText("Screw");
+		merge.merge(field, "Bolt");
+		assertEquals("Screw", field.getText());
+		assertTrue(merge.isEdited());
+		assertEquals(0, merge.takeConflicts());
+	}
+
+	//7
+	@Test
+	public void testMergeKeepsEditOverConflict() {
+		merge.load(field, "Bolt");
+		merge.load(combo, w1);
+		field.setText("Screw");
+		combo.setSelectedId(w2);
+		merge.merge(field, "Nut");
+		merge.merge(combo, w3);
+		assertEquals("Screw", field.getText());
+		assertEquals(w2, combo.getSelectedId());
+		assertTrue(merge.isEdited());
+		assertEquals(2, merge.takeConflicts());
+		//counted once
+		assertEquals(0, merge.takeConflicts());
+	}
+
+	//8
+	@Test
+	public void testMergeSameAsEditIsNotEdited() {
+		merge.load(field, "Bolt");
+		field.setText("Nut");
+		merge.merge(field, "Nut");
+		assertEquals("Nut", field.getText());
+		assertFalse(merge.isEdited());
+		assertEquals(0, merge.takeConflicts());
+	}
+
+	//9
+	@Test
+	public void testMergeUnloadedFieldTakesValue() {
+		field.setText("Typed");
+		merge.merge(field, "Bolt");
+		assertEquals("Bolt", field.getText());
+		assertFalse(merge.isEdited());
+	}
+
+	//10
+	@Test
+	public void testEditAfterMergeComparesToMergedValue() {
+		merge.load(field, "Bolt");
+		merge.merge(field, "Nut");
+		field.setText("Bolt");
+		assertTrue(merge.isEdited());
+	}
+}
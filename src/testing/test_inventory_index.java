@@ -0,0 +1,160 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import database.InventoryTableGatewayMemory;
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import database.WarehouseTableGatewayMemory;
+import models.Inventory;
+import models.InventoryList;
+import models.Part;
+import models.Warehouse;
+
+
+public class test_inventory_index {
+
+	private InventoryTableGatewayMemory inventorys;
+	private InventoryList list;
+
+	private long w1, w2, w3, p1, p2, p3;
+	private Inventory w1p1, w2p1, w2p2;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		WarehouseTableGatewayMemory warehouses = new WarehouseTableGatewayMemory();
+		PartTableGatewayMemory parts = new PartTableGatewayMemory();
+		inventorys = new InventoryTableGatewayMemory();
+		w1 = warehouses.insertWarehouse(new Warehouse("Index W1", "1 Main St", "San Antonio", "TX", "78249", 100));
+		w2 = warehouses.insertWarehouse(new Warehouse("Index W2", "2 Main St", "San Antonio", "TX", "78249", 100));
+		w3 = warehouses.insertWarehouse(new Warehouse("Index W3", "3 Main St", "San Antonio", "TX", "78249", 100));
+		p1 = parts.insertPart(new Part("I1", "Bolt", "Pieces", "V1", "Acme"));
+		p2 = parts.insertPart(new Part("I2", "Nut", "Pieces", "V2", "Acme"));
+		p3 = parts.insertPart(new Part("I3", "Washer", "Pieces", "V3", "Acme"));
+		long id1 = inventorys.insertInventory(new Inventory(w1, p1, 10));
+		long id2 = inventorys.insertInventory(new Inventory(w2, p1, 20));
+		long id3 = inventorys.insertInventory(new Inventory(w2, p2, 30));
+
+		list = new InventoryList();
+		list.setGateway(inventorys);
+		list.loadFromGateway();
+		w1p1 = list.findById(id1);
+		w2p1 = list.findById(id2);
+		w2p2 = list.findById(id3);
+	}
+
+	private boolean hasWarehouse(long wId) throws Exception {
+		return list.existWarehousePart(wId, 0L);
+	}
+
+	private boolean hasPart(long pId) throws Exception {
+		return list.existWarehousePart(0L, pId);
+	}
+
+	/**
+	 * @return true if a record other than the new one would be in the warehouse with the part
+	 */
+	private boolean taken(long wId, long pId) throws Exception {
+		return list.duplicate(new Inventory(wId, pId, 1));
+	}
+
+	//1
+	@Test
+	public void testLoaded() throws Exception {
+		assertTrue(hasWarehouse(w1));
+		assertTrue(hasWarehouse(w2));
+		assertFalse(hasWarehouse(w3));
+		assertTrue(hasPart(p1));
+		assertTrue(hasPart(p2));
+		assertFalse(hasPart(p3));
+		assertTrue(taken(w2, p1));
+		assertFalse(taken(w1, p2));
+		//a record is not a duplicate of itself
+		assertFalse(list.duplicate(w1p1));
+	}
+
+	//2
+	@Test
+	public void testUpdateRefilesWarehouse() throws Exception {
+		w1p1.setWarehouseId(w3);
+		w1p1.finishUpdate();
+		assertFalse(hasWarehouse(w1));
+		assertTrue(hasWarehouse(w3));
+		assertFalse(taken(w1, p1));
+		assertTrue(taken(w3, p1));
+		//still one of the two records with p1
+		assertTrue(hasPart(p1));
+	}
+
+	//3
+	@Test
+	public void testUpdateRefilesPart() throws Exception {
+		w2p2.setPartId(p3);
+		w2p2.finishUpdate();
+		assertFalse(hasPart(p2));
+		assertTrue(hasPart(p3));
+		assertFalse(taken(w2, p2));
+		assertTrue(taken(w2, p3));
+		assertTrue(hasWarehouse(w2));
+	}
+
+	//4
+	@Test
+	public void testRemoveRowsCompaction() throws Exception {
+		//a full reconcile with only w2p1 left in the db removes the first and last records in one pass
+		list.loadInventory(new ArrayList<Inventory>(Arrays.asList(inventorys.fetchInventory(w2p1.getId()))));
+		assertEquals(Arrays.asList(w2p1), list.getList());
+		assertNull(list.findById(w1p1.getId()));
+		assertNull(list.findById(w2p2.getId()));
+		assertFalse(hasWarehouse(w1));
+		assertFalse(hasPart(p2));
+		assertFalse(taken(w2, p2));
+		assertTrue(taken(w2, p1));
+
+		//removed by id
+		list.reconcile(new ArrayList<Inventory>(), false, Arrays.asList(w2p1.getId()));
+		assertTrue(list.getList().isEmpty());
+		assertFalse(hasWarehouse(w2));
+		assertFalse(hasPart(p1));
+	}
+
+	//5
+	@Test
+	public void testSetBackToSingleRecord() throws Exception {
+		//w2 and p1 each have two records
+		list.removeInventoryFromList(w2p2);
+		assertTrue(hasWarehouse(w2));
+		assertTrue(taken(w2, p1));
+		list.removeInventoryFromList(w2p1);
+		assertFalse(hasWarehouse(w2));
+		assertFalse(taken(w2, p1));
+		//p1 is left with w1p1
+		assertTrue(hasPart(p1));
+		list.removeInventoryFromList(w1p1);
+		assertFalse(hasPart(p1));
+	}
+
+	//6
+	@Test
+	public void testSingleRecordToSet() throws Exception {
+		//an unsaved record for the same warehouse and part turns w1/p1 into a set of two
+		Inventory added = new Inventory(w1, p1, 5);
+		list.addInventoryToList(added);
+		assertTrue(list.duplicate(added));
+		assertTrue(list.duplicate(w1p1));
+
+		//and back: removing the saved one leaves the new one filed
+		list.removeInventoryFromList(w1p1);
+		assertFalse(list.duplicate(added));
+		assertTrue(hasWarehouse(w1));
+		list.removeInventoryFromList(added);
+		assertFalse(hasWarehouse(w1));
+	}
+}
@@ -0,0 +1,197 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import database.BatchException;
+import database.GatewayException;
+import database.InventoryTableGatewayMemory;
+import database.InventoryTransfer;
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import database.WarehouseTableGatewayMemory;
+import models.Inventory;
+import models.Part;
+import models.Warehouse;
+
+
+public class test_inventory_transfer {
+
+	private InventoryTableGatewayMemory gateway;
+
+	//warehouse 1 holds 30 of part 1 and 20 of part 2 (capacity 100), warehouse 2 holds 10 of part 1 (capacity 50)
+	private long w1, w2, p1, p2;
+	private long w1p1, w1p2, w2p1;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		WarehouseTableGatewayMemory warehouses = new WarehouseTableGatewayMemory();
+		PartTableGatewayMemory parts = new PartTableGatewayMemory();
+		gateway = new InventoryTableGatewayMemory();
+		w1 = warehouses.insertWarehouse(new Warehouse("Transfer W1", "1 Main St", "San Antonio", "TX", "78249", 100));
+		w2 = warehouses.insertWarehouse(new Warehouse("Transfer W2", "2 Main St", "San Antonio", "TX", "78249", 50));
+		p1 = parts.insertPart(new Part("T1", "Bolt", "Pieces", "V1", "Acme"));
+		p2 = parts.insertPart(new Part("T2", "Nut", "Pieces", "V2", "Acme"));
+		w1p1 = gateway.insertInventory(new Inventory(w1, p1, 30));
+		w1p2 = gateway.insertInventory(new Inventory(w1, p2, 20));
+		w2p1 = gateway.insertInventory(new Inventory(w2, p1, 10));
+	}
+
+	private double quantity(long id) throws GatewayException {
+		return gateway.fetchInventory(id).getQuantity();
+	}
+
+	//1
+	@Test
+	public void testTransferMovesQuantity() throws Exception {
+		List<Inventory> changed = gateway.transferInventory(p1, w1, w2, 5);
+		assertEquals(2, changed.size());
+		assertEquals(25, quantity(w1p1), 0);
+		assertEquals(15, quantity(w2p1), 0);
+	}
+
+	//2
+	@Test
+	public void testTransferBumpsVersions() throws Exception {
+		long before = gateway.fetchInventory(w1p1).getVersion();
+		gateway.transferInventory(p1, w1, w2, 5);
+		assertEquals(before + 1, gateway.fetchInventory(w1p1).getVersion());
+	}
+
+	//3
+	@Test
+	public void testTransferCreatesMissingPair() throws Exception {
+		gateway.transferInventory(p2, w1, w2, 5);
+		List<Inventory> rows = gateway.fetchWarehouseInventorys(w2);
+		double moved = 0;
+		for(Inventory i : rows) {
+			if(i.getPartId() == p2)
+				moved = i.getQuantity();
+		}
+		assertEquals(2, rows.size());
+		assertEquals(5, moved, 0);
+		assertEquals(15, quantity(w1p2), 0);
+	}
+
+	//4
+	@Test
+	public void testTransferBelowZeroChangesNothing() throws Exception {
+		try {
+			gateway.transferInventory(p1, w1, w2, 31);
+			fail("transfer of more than the warehouse has should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(10, quantity(w2p1), 0);
+	}
+
+	//5
+	@Test
+	public void testTransferOverCapacityChangesNothing() throws Exception {
+		//warehouse 2 then holds 30 of its 50
+		gateway.transferInventory(p2, w1, w2, 20);
+		try {
+			gateway.transferInventory(p1, w1, w2, 21);
+			fail("transfer over the destination's capacity should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(10, quantity(w2p1), 0);
+	}
+
+	//6
+	@Test
+	public void testTransferToSameWarehouseInvalid() throws Exception {
+		try {
+			gateway.transferInventory(p1, w1, w1, 1);
+			fail("transfer to the same warehouse should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+	}
+
+	//7
+	@Test
+	public void testTransferToMissingWarehouse() throws Exception {
+		try {
+			gateway.transferInventory(p1, w1, 424242, 1);
+			fail("transfer to a warehouse that does not exist should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+	}
+
+	//8
+	@Test
+	public void testBatchNetsOpposingTransfers() throws Exception {
+		long before = gateway.fetchInventory(w1p1).getVersion();
+		List<InventoryTransfer> batch = new ArrayList<InventoryTransfer>();
+		batch.add(new InventoryTransfer(p1, w1, w2, 5));
+		batch.add(new InventoryTransfer(p1, w2, w1, 5));
+		assertTrue(gateway.transferInventorys(batch).isEmpty());
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(before, gateway.fetchInventory(w1p1).getVersion());
+	}
+
+	//9
+	@Test
+	public void testBatchNetsAgainstCapacity() throws Exception {
+		//45 in and 10 back out of warehouse 2 nets to 35 more: within its capacity of 50
+		List<InventoryTransfer> batch = new ArrayList<InventoryTransfer>();
+		batch.add(new InventoryTransfer(p1, w1, w2, 25));
+		batch.add(new InventoryTransfer(p2, w1, w2, 20));
+		batch.add(new InventoryTransfer(p1, w2, w1, 10));
+		gateway.transferInventorys(batch);
+		assertEquals(15, quantity(w1p1), 0);
+		assertEquals(0, quantity(w1p2), 0);
+		assertEquals(25, quantity(w2p1), 0);
+	}
+
+	//10
+	@Test
+	public void testBatchFailedRows() throws Exception {
+		List<InventoryTransfer> batch = new ArrayList<InventoryTransfer>();
+		batch.add(new InventoryTransfer(p1, w1, w2, 5));
+		batch.add(new InventoryTransfer(p2, w1, w2, 21));
+		batch.add(new InventoryTransfer(p1, w1, w1, 1));
+		try {
+			gateway.transferInventorys(batch);
+			fail("batch with bad transfers should fail");
+		} catch(BatchException e) {
+			assertEquals(Arrays.asList(2), e.getFailedRows());
+		}
+		batch.remove(2);
+		try {
+			gateway.transferInventorys(batch);
+			fail("batch with a transfer of more than the warehouse has should fail");
+		} catch(BatchException e) {
+			assertEquals(Arrays.asList(1), e.getFailedRows());
+		}
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(10, quantity(w2p1), 0);
+	}
+
+	//11
+	@Test
+	public void testBatchOverCapacityBlamesIncoming() throws Exception {
+		List<InventoryTransfer> batch = new ArrayList<InventoryTransfer>();
+		batch.add(new InventoryTransfer(p1, w1, w2, 25));
+		batch.add(new InventoryTransfer(p2, w1, w2, 20));
+		try {
+			gateway.transferInventorys(batch);
+			fail("batch over the destination's capacity should fail");
+		} catch(BatchException e) {
+			assertEquals(Arrays.asList(0, 1), e.getFailedRows());
+		}
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(20, quantity(w1p2), 0);
+		assertEquals(1, gateway.fetchWarehouseInventorys(w2).size());
+	}
+}
@@ -0,0 +1,198 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import models.LongObjectMap;
+
+
+public class test_long_object_map {
+
+	private LongObjectMap<String> map;
+
+	@Before
+	public void setUp() throws Exception {
+		map = new LongObjectMap<String>();
+	}
+
+	/**
+	 * @return count keys whose home slot in a new map's table of 16 is slot (same spreading as LongObjectMap),
+	 * so they collide; a run starting at slot 15 wraps around the end of the table
+	 */
+	private static long[] collidingKeys(int slot, int count) {
+		long[] ret = new long[count];
+		int found = 0;
+		for(long key = 1; found < count; key++) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 32;
+			if(((int) h & 15) == slot)
+				ret[found++] = key;
+		}
+		return ret;
+	}
+
+	//1
+	@Test
+	public void testPutGetRemove() {
+		assertNull(map.put(5, "five"));
+		assertEquals("five", map.get(5));
+		assertEquals("five", map.put(5, "FIVE"));
+		assertEquals("FIVE", map.get(5));
+		assertEquals(1, map.size());
+		assertTrue(map.containsKey(5));
+		assertEquals("FIVE", map.remove(5));
+		assertNull(map.get(5));
+		assertNull(map.remove(5));
+		assertTrue(map.isEmpty());
+	}
+
+	//2
+	@Test
+	public void testAnyKeyIsValid() {
+		map.put(0, "zero");
+		map.put(-1, "minus one");
+		map.put(Long.MIN_VALUE, "min");
+		map.put(Long.MAX_VALUE, "max");
+		assertEquals("zero", map.get(0));
+		assertEquals("minus one", map.get(-1));
+		assertEquals("min", map.get(Long.MIN_VALUE));
+		assertEquals("max", map.get(Long.MAX_VALUE));
+		assertEquals(4, map.size());
+	}
+
+	//3
+	@Test
+	public void testNullValueRejected() {
+		try {
+			map.put(1, null);
+			fail("null values should be rejected");
+		} catch(NullPointerException e) {
+		}
+		assertTrue(map.isEmpty());
+	}
+
+	//4
+	@Test
+	public void testResizeKeepsEntries() {
+		for(long i = 1; i <= 1000; i++)
+			map.put(i, "v" + i);
+		assertEquals(1000, map.size());
+		for(long i = 1; i <= 1000; i++)
+			assertEquals("v" + i, map.get(i));
+		assertNull(map.get(1001));
+		assertEquals(1000, map.values().size());
+	}
+
+	//5
+	@Test
+	public void testExpectedSize() {
+		LongObjectMap<String> sized = new LongObjectMap<String>(100);
+		for(long i = 0; i < 100; i++)
+			sized.put(i * 7919, "v" + i);
+		for(long i = 0; i < 100; i++)
+			assertEquals("v" + i, sized.get(i * 7919));
+	}
+
+	//6
+	@Test
+	public void testCollisions() {
+		long[] keys = collidingKeys(3, 5);
+		for(int i = 0; i < keys.length; i++)
+			map.put(keys[i], "v" + i);
+		for(int i = 0; i < keys.length; i++)
+			assertEquals("v" + i, map.get(keys[i]));
+		assertEquals("v2", map.put(keys[2], "w2"));
+		assertEquals("w2", map.get(keys[2]));
+		assertEquals(keys.length, map.size());
+	}
+
+	//7
+	@Test
+	public void testRemoveDuringProbeRun() {
+		long[] keys = collidingKeys(3, 5);
+		for(int i = 0; i < keys.length; i++)
+			map.put(keys[i], "v" + i);
+		//removing from the front and middle of the run must not cut off the entries after it
+		assertEquals("v0", map.remove(keys[0]));
+		assertEquals("v2", map.remove(keys[2]));
+		assertNull(map.get(keys[0]));
+		assertNull(map.get(keys[2]));
+		assertEquals("v1", map.get(keys[1]));
+		assertEquals("v3", map.get(keys[3]));
+		assertEquals("v4", map.get(keys[4]));
+		assertEquals(3, map.size());
+		//and the freed slots are used again
+		map.put(keys[0], "w0");
+		assertEquals("w0", map.get(keys[0]));
+		assertEquals(4, map.size());
+	}
+
+	//8
+	@Test
+	public void testRemoveInRunWrappingTableEnd() {
+		//home slot 15 is the last of 16, so the run continues at slot 0
+		long[] keys = collidingKeys(15, 3);
+		long[] atZero = collidingKeys(0, 1);
+		for(int i = 0; i < keys.length; i++)
+			map.put(keys[i], "v" + i);
+		map.put(atZero[0], "zero");
+		assertEquals("v0", map.remove(keys[0]));
+		assertEquals("v1", map.get(keys[1]));
+		assertEquals("v2", map.get(keys[2]));
+		assertEquals("zero", map.get(atZero[0]));
+		assertEquals("v1", map.remove(keys[1]));
+		assertEquals("v2", map.get(keys[2]));
+		assertEquals("zero", map.get(atZero[0]));
+	}
+
+	//9
+	@Test
+	public void testClear() {
+		for(long i = 0; i < 50; i++)
+			map.put(i, "v" + i);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(10));
+		map.put(10, "again");
+		assertEquals("again", map.get(10));
+		assertEquals(1, map.size());
+	}
+
+	//10
+	@Test
+	public void testMatchesHashMap() {
+		Random random = new Random(42);
+		HashMap<Long, String> expected = new HashMap<Long, String>();
+		for(int op = 0; op < 200000; op++) {
+			//small key range so keys are often hit again; sometimes a large or negative one
+			long key = random.nextInt(10) == 0 ? random.nextLong() : random.nextInt(3000) - 100;
+			switch(random.nextInt(3)) {
+				case 0:
+					String value = "v" + op;
+					assertEquals(expected.put(key, value), map.put(key, value));
+					break;
+				case 1:
+					assertEquals(expected.remove(key), map.remove(key));
+					break;
+				default:
+					assertEquals(expected.get(key), map.get(key));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		for(Long key : expected.keySet())
+			assertEquals(expected.get(key), map.get(key));
+		List<String> values = map.values();
+		List<String> expectedValues = new ArrayList<String>(expected.values());
+		Collections.sort(values);
+		Collections.sort(expectedValues);
+		assertEquals(expectedValues, values);
+	}
+}
@@ -0,0 +1,195 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import database.GatewayException;
+import database.InventoryTableGatewayMemory;
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import models.Inventory;
+import models.InventoryList;
+import models.Part;
+
+
+public class test_paged_inventory_list {
+
+	/**
+	 * memory gateway that records the keyset fetches and id jumps the list makes
+	 */
+	private static class CountingGateway extends InventoryTableGatewayMemory {
+		List<Long> fetchedAfter = new ArrayList<Long>();
+		int jumps = 0;
+
+		public CountingGateway() throws GatewayException {
+			super();
+		}
+
+		@Override
+		public List<Inventory> fetchInventorys(long afterId, int limit) throws GatewayException {
+			synchronized(this) {
+				fetchedAfter.add(afterId);
+			}
+			return super.fetchInventorys(afterId, limit);
+		}
+
+		@Override
+		public long fetchInventoryIdAfter(Long wId, long afterId, int offset) throws GatewayException {
+			synchronized(this) {
+				jumps++;
+			}
+			return super.fetchInventoryIdAfter(wId, afterId, offset);
+		}
+	}
+
+	private static final int PAGE_SIZE = 10;
+	private static final int ROWS = 100;
+
+	private CountingGateway gateway;
+	private InventoryList list;
+
+	//ids of the rows in id order
+	private List<Long> ids;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		MemoryDatabase.getInstance().populate(2, ROWS / 2, ROWS);
+		gateway = new CountingGateway();
+		ids = new ArrayList<Long>();
+		for(Inventory i : gateway.fetchInventorys(0, ROWS))
+			ids.add(i.getId());
+		gateway.fetchedAfter.clear();
+
+		list = new InventoryList();
+		list.setGateway(gateway);
+		list.setPaged(PAGE_SIZE, 3, null);
+		awaitPages();
+	}
+
+	/**
+	 * waits for the page fetches and counts the list started, including the ones they start
+	 */
+	private void awaitPages() throws Exception {
+		CompletableFuture<Void> loads;
+		while(!(loads = list.getPageLoads()).isDone())
+			loads.get(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @return the row at index once its page has been loaded
+	 */
+	private Inventory loadedAt(int index) throws Exception {
+		Inventory row = list.getElementAt(index);
+		if(InventoryList.isPlaceholder(row)) {
+			awaitPages();
+			row = list.getElementAt(index);
+		}
+		assertFalse("row " + index + " should be loaded", InventoryList.isPlaceholder(row));
+		return row;
+	}
+
+	//1
+	@Test
+	public void testCountedOffTheCaller() throws Exception {
+		assertEquals(ROWS, list.getSize());
+		//nothing is fetched until a row is asked for
+		assertTrue(gateway.fetchedAfter.isEmpty());
+		assertTrue(list.getList().isEmpty());
+	}
+
+	//2
+	@Test
+	public void testPlaceholderUntilPageArrives() throws Exception {
+		Inventory row = list.getElementAt(3);
+		assertTrue(InventoryList.isPlaceholder(row));
+		awaitPages();
+		assertEquals((long) ids.get(3), list.getElementAt(3).getId());
+		//the page's neighbour was fetched too (there is no page before the first one)
+		assertEquals(2 * PAGE_SIZE, list.getList().size());
+		assertEquals((long) ids.get(PAGE_SIZE + 5), list.getElementAt(PAGE_SIZE + 5).getId());
+	}
+
+	//3
+	@Test
+	public void testFindPageStartJumps() throws Exception {
+		assertEquals((long) ids.get(95), loadedAt(95).getId());
+		//the last page and the one before it, without fetching the pages in between
+		assertEquals(2, gateway.fetchedAfter.size());
+		assertTrue(gateway.fetchedAfter.contains(ids.get(89)));
+		assertTrue(gateway.fetchedAfter.contains(ids.get(79)));
+		assertTrue(gateway.jumps >= 1);
+		assertEquals((long) ids.get(80), list.getElementAt(80).getId());
+	}
+
+	//4
+	@Test
+	public void testPrefetchNearPageEnd() throws Exception {
+		loadedAt(45);
+		gateway.fetchedAfter.clear();
+		//last quarter of page 4: page 5 is already resident from the neighbour fetch, page 6 is not asked for
+		assertFalse(InventoryList.isPlaceholder(list.getElementAt(PAGE_SIZE * 5 + 9)));
+		awaitPages();
+		assertTrue(gateway.fetchedAfter.contains(ids.get(PAGE_SIZE * 6 - 1)));
+		assertFalse(InventoryList.isPlaceholder(list.getElementAt(PAGE_SIZE * 6)));
+	}
+
+	//5
+	@Test
+	public void testEvictEldestPageKeepsObservedRecords() throws Exception {
+		Inventory observed = loadedAt(0);
+		Inventory unobserved = list.getElementAt(PAGE_SIZE + 1);
+		observed.addObserver(new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+			}
+		});
+		//pages 4-6 push pages 0 and 1 out (3 resident at most)
+		loadedAt(55);
+		assertEquals(3 * PAGE_SIZE + 1, list.getList().size());
+		assertSame(observed, list.findById(observed.getId()));
+		assertNull(list.findById(unobserved.getId()));
+
+		//the page comes back with the object that was kept
+		assertSame(observed, loadedAt(0));
+	}
+
+	//6
+	@Test
+	public void testShortPageAfterDeletes() throws Exception {
+		//another user deletes the last 5 rows after the count
+		for(int i = ROWS - 5; i < ROWS; i++)
+			gateway.deleteInventory(ids.get(i));
+		assertEquals(ROWS, list.getSize());
+		loadedAt(ROWS - 10);
+		assertTrue(InventoryList.isPlaceholder(list.getElementAt(ROWS - 1)));
+		awaitPages();
+		assertEquals(ROWS - 5, list.getSize());
+		assertEquals((long) ids.get(ROWS - 6), list.getElementAt(ROWS - 6).getId());
+	}
+
+	//7
+	@Test
+	public void testRefreshPages() throws Exception {
+		loadedAt(5);
+		long p = new PartTableGatewayMemory().insertPart(new Part("PAGED", "Washer", "Pieces", "V0", "Acme"));
+		long added = gateway.insertInventory(new Inventory(loadedAt(0).getWarehouseId(), p, 5));
+		list.refreshPages();
+		//the old count is shown until the new one arrives, and the pages are fetched again
+		assertEquals(ROWS, list.getSize());
+		assertTrue(list.getList().isEmpty());
+		awaitPages();
+		assertEquals(ROWS + 1, list.getSize());
+		assertTrue(InventoryList.isPlaceholder(list.getElementAt(ROWS)));
+		assertEquals(added, loadedAt(ROWS).getId());
+	}
+}
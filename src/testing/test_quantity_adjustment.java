@@ -0,0 +1,199 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import database.BatchException;
+import database.GatewayException;
+import database.InventoryTableGatewayMemory;
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import database.QuantityAdjustment;
+import database.WarehouseTableGatewayMemory;
+import models.Inventory;
+import models.Part;
+import models.Warehouse;
+
+
+public class test_quantity_adjustment {
+
+	private InventoryTableGatewayMemory gateway;
+
+	//warehouse 1 holds 30 of part 1 (capacity 50), warehouse 2 holds nothing (capacity 10)
+	private long w1, w2, p1, p2;
+	private long w1p1;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		WarehouseTableGatewayMemory warehouses = new WarehouseTableGatewayMemory();
+		PartTableGatewayMemory parts = new PartTableGatewayMemory();
+		gateway = new InventoryTableGatewayMemory();
+		w1 = warehouses.insertWarehouse(new Warehouse("Adjust W1", "1 Main St", "San Antonio", "TX", "78249", 50));
+		w2 = warehouses.insertWarehouse(new Warehouse("Adjust W2", "2 Main St", "San Antonio", "TX", "78249", 10));
+		p1 = parts.insertPart(new Part("A1", "Bolt", "Pieces", "V1", "Acme"));
+		p2 = parts.insertPart(new Part("A2", "Nut", "Pieces", "V2", "Acme"));
+		w1p1 = gateway.insertInventory(new Inventory(w1, p1, 30));
+	}
+
+	private double quantity(long id) throws GatewayException {
+		return gateway.fetchInventory(id).getQuantity();
+	}
+
+	//1
+	@Test
+	public void testAdjustById() throws Exception {
+		long before = gateway.fetchInventory(w1p1).getVersion();
+		Inventory row = gateway.adjustQuantity(w1p1, -5);
+		assertEquals(25, row.getQuantity(), 0);
+		assertEquals(before + 1, row.getVersion());
+		assertEquals(25, quantity(w1p1), 0);
+	}
+
+	//2
+	@Test
+	public void testAdjustByPair() throws Exception {
+		Inventory row = gateway.adjustQuantity(w1, p1, 5);
+		assertEquals(w1p1, row.getId());
+		assertEquals(35, quantity(w1p1), 0);
+	}
+
+	//3
+	@Test
+	public void testAdjustIgnoresStaleCopy() throws Exception {
+		//both changes count even though neither caller read the other's
+		gateway.adjustQuantity(w1p1, -5);
+		gateway.adjustQuantity(w1p1, -5);
+		assertEquals(20, quantity(w1p1), 0);
+	}
+
+	//4
+	@Test
+	public void testAdjustBelowZeroChangesNothing() throws Exception {
+		try {
+			gateway.adjustQuantity(w1p1, -31);
+			fail("taking more than the record has should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+	}
+
+	//5
+	@Test
+	public void testAdjustMissingPairBelowZero() throws Exception {
+		try {
+			gateway.adjustQuantity(w2, p1, -1);
+			fail("taking from a record that does not exist should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(0, gateway.fetchWarehouseInventorys(w2).size());
+	}
+
+	//6
+	@Test
+	public void testAdjustOverCapacityChangesNothing() throws Exception {
+		try {
+			gateway.adjustQuantity(w1p1, 21);
+			fail("adding over the warehouse's capacity should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+	}
+
+	//7
+	@Test
+	public void testAdjustCreatesMissingPair() throws Exception {
+		Inventory row = gateway.adjustQuantity(w2, p2, 4);
+		assertTrue(row.getId() > 0);
+		assertEquals(4, row.getQuantity(), 0);
+		assertEquals(4, quantity(row.getId()), 0);
+	}
+
+	//8
+	@Test
+	public void testAdjustMissingId() throws Exception {
+		try {
+			gateway.adjustQuantity(424242, 1);
+			fail("adjusting a record that does not exist should fail");
+		} catch(GatewayException e) {
+		}
+	}
+
+	//9
+	@Test
+	public void testAdjustInvalidQuantity() throws Exception {
+		try {
+			gateway.adjustQuantity(w1p1, Double.NaN);
+			fail("NaN change should fail");
+		} catch(GatewayException e) {
+		}
+		assertEquals(30, quantity(w1p1), 0);
+	}
+
+	//10
+	@Test
+	public void testBatchNetsChangesToOneRecord() throws Exception {
+		long before = gateway.fetchInventory(w1p1).getVersion();
+		List<QuantityAdjustment> batch = new ArrayList<QuantityAdjustment>();
+		batch.add(new QuantityAdjustment(w1p1, 15));
+		batch.add(new QuantityAdjustment(w1, p1, -10));
+		batch.add(new QuantityAdjustment(w1p1, 10));
+		//30 + 25 would be over capacity at any point but the net is 45
+		List<Inventory> rows = gateway.adjustQuantities(batch);
+		assertEquals(3, rows.size());
+		assertEquals(45, rows.get(0).getQuantity(), 0);
+		assertSame(rows.get(0), rows.get(1));
+		assertEquals(45, quantity(w1p1), 0);
+		//written once
+		assertEquals(before + 1, gateway.fetchInventory(w1p1).getVersion());
+	}
+
+	//11
+	@Test
+	public void testBatchFailedRows() throws Exception {
+		List<QuantityAdjustment> batch = new ArrayList<QuantityAdjustment>();
+		batch.add(new QuantityAdjustment(w2, p2, 4));
+		batch.add(new QuantityAdjustment(w1p1, -20));
+		batch.add(new QuantityAdjustment(w1, p1, -20));
+		batch.add(new QuantityAdjustment(424242, 1));
+		try {
+			gateway.adjustQuantities(batch);
+			fail("batch with a missing record should fail");
+		} catch(BatchException e) {
+			assertEquals(Arrays.asList(3), e.getFailedRows());
+		}
+		batch.remove(3);
+		try {
+			gateway.adjustQuantities(batch);
+			fail("batch taking more than the record has should fail");
+		} catch(BatchException e) {
+			//both takers of the record are at fault
+			assertEquals(Arrays.asList(1, 2), e.getFailedRows());
+		}
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(0, gateway.fetchWarehouseInventorys(w2).size());
+	}
+
+	//12
+	@Test
+	public void testBatchOverCapacityRollsBack() throws Exception {
+		List<QuantityAdjustment> batch = new ArrayList<QuantityAdjustment>();
+		batch.add(new QuantityAdjustment(w1p1, -10));
+		batch.add(new QuantityAdjustment(w2, p1, 6));
+		batch.add(new QuantityAdjustment(w2, p2, 6));
+		try {
+			gateway.adjustQuantities(batch);
+			fail("batch over warehouse 2's capacity should fail");
+		} catch(BatchException e) {
+			assertEquals(Arrays.asList(1, 2), e.getFailedRows());
+		}
+		assertEquals(30, quantity(w1p1), 0);
+		assertEquals(0, gateway.fetchWarehouseInventorys(w2).size());
+	}
+}
@@ -0,0 +1,154 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import models.ListChangeEvent;
+import models.Part;
+import models.PartList;
+
+
+public class test_reconciling_list {
+
+	private static final int ROWS = 6;
+
+	private PartTableGatewayMemory gateway;
+	private PartList list;
+
+	//ListChangeEvents the list's observers were sent
+	private List<ListChangeEvent<?>> events;
+
+	//ids of the rows in list order
+	private List<Long> ids;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		gateway = new PartTableGatewayMemory();
+		for(int i = 0; i < ROWS; i++)
+			gateway.insertPart(new Part("R" + i, "Part " + i, "Pieces", "V" + i, "Acme"));
+		list = new PartList();
+		list.setGateway(gateway);
+		list.loadFromGateway();
+		ids = new ArrayList<Long>();
+		for(Part p : list.getList())
+			ids.add(p.getId());
+
+		events = new ArrayList<ListChangeEvent<?>>();
+		list.addObserver(new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				events.add((ListChangeEvent<?>) arg);
+			}
+		});
+	}
+
+	/**
+	 * @return the rows now in the db except the ones with the given ids
+	 */
+	private List<Part> fetchedWithout(Long... gone) throws Exception {
+		List<Part> ret = new ArrayList<Part>();
+		for(Part p : gateway.fetchParts()) {
+			if(!Arrays.asList(gone).contains(p.getId()))
+				ret.add(p);
+		}
+		return ret;
+	}
+
+	//1
+	@Test
+	public void testFullReconcileKeepsUnsavedRecord() throws Exception {
+		Part unsaved = new Part("NEW", "New part", "Pieces", "V9", "Acme");
+		list.addPartToList(unsaved);
+		events.clear();
+
+		//every saved row was deleted from the db
+		list.reconcile(new ArrayList<Part>(), true, null);
+		assertEquals(Arrays.asList(unsaved), list.getList());
+		assertSame(unsaved, list.findById(Part.INVALID_ID));
+		assertEquals(1, events.size());
+		assertEquals(ListChangeEvent.Type.REMOVED, events.get(0).getType());
+		assertEquals(ROWS, events.get(0).getItems().size());
+	}
+
+	//2
+	@Test
+	public void testRemoveIdsKeepsUnsavedRecord() throws Exception {
+		Part unsaved = new Part("NEW", "New part", "Pieces", "V9", "Acme");
+		list.addPartToList(unsaved);
+		//an INVALID_ID among the deleted ids must not take the unsaved record with it
+		list.reconcile(new ArrayList<Part>(), false, Arrays.asList(ids.get(0), (long) Part.INVALID_ID));
+		assertEquals(ROWS, list.getList().size());
+		assertSame(unsaved, list.getList().get(ROWS - 1));
+		assertNull(list.findById(ids.get(0)));
+	}
+
+	//3
+	@Test
+	public void testBulkRemoveIsOneNotification() throws Exception {
+		//a run in the middle: survivors move down in place
+		list.reconcile(fetchedWithout(ids.get(1), ids.get(2), ids.get(3)), true, null);
+		assertEquals(1, events.size());
+		ListChangeEvent<?> removed = events.get(0);
+		assertEquals(ListChangeEvent.Type.REMOVED, removed.getType());
+		assertEquals(1, removed.getFirstIndex());
+		assertEquals(3, removed.getLastIndex());
+		assertEquals(ROWS - 3, list.getList().size());
+		assertEquals((long) ids.get(0), list.getList().get(0).getId());
+		assertEquals((long) ids.get(4), list.getList().get(1).getId());
+		assertEquals((long) ids.get(5), list.getList().get(2).getId());
+	}
+
+	//4
+	@Test
+	public void testBulkAddIsOneNotification() throws Exception {
+		List<Part> added = new ArrayList<Part>();
+		for(int i = 0; i < 3; i++) {
+			long id = gateway.insertPart(new Part("A" + i, "Added " + i, "Pieces", "VA" + i, "Acme"));
+			added.add(gateway.fetchPart(id));
+		}
+		list.reconcile(added, false, null);
+		assertEquals(1, events.size());
+		assertEquals(ListChangeEvent.Type.ADDED, events.get(0).getType());
+		assertEquals(ROWS, events.get(0).getFirstIndex());
+		assertEquals(3, events.get(0).getItems().size());
+	}
+
+	//5
+	@Test
+	public void testBulkRefreshIsOneNotification() throws Exception {
+		List<Part> changed = new ArrayList<Part>();
+		for(int i : new int[] {0, 2, 4}) {
+			Part p = gateway.fetchPart(ids.get(i));
+			p.setPartName("Renamed " + i);
+			gateway.savePart(p);
+			changed.add(gateway.fetchPart(ids.get(i)));
+		}
+		list.reconcile(changed, false, null);
+		assertEquals(1, events.size());
+		ListChangeEvent<?> updated = events.get(0);
+		assertEquals(ListChangeEvent.Type.UPDATED, updated.getType());
+		assertEquals(0, updated.getFirstIndex());
+		assertEquals(4, updated.getLastIndex());
+		assertEquals(3, updated.getItems().size());
+		assertEquals("Renamed 2", list.findById(ids.get(2)).getPartName());
+	}
+
+	//6
+	@Test
+	public void testUnchangedReconcileDoesNotNotify() throws Exception {
+		list.reconcile(gateway.fetchParts(), true, null);
+		assertTrue(events.isEmpty());
+		assertEquals(ROWS, list.getList().size());
+	}
+}
@@ -0,0 +1,192 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import database.InventoryTableGatewayMemory;
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import database.WarehouseTableGatewayMemory;
+import models.Inventory;
+import models.InventoryList;
+import models.Part;
+import models.Warehouse;
+import models.WarehouseList;
+import models.WarehouseUtilization;
+
+
+public class test_warehouse_utilization {
+
+	private WarehouseList warehouseList;
+	private InventoryList inventoryList;
+	private WarehouseUtilization utilization;
+
+	//warehouse ids each near-full notification was for
+	private List<Long> crossings;
+
+	private long w1, w2, w1p1, w1p2, w2p1;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		WarehouseTableGatewayMemory warehouses = new WarehouseTableGatewayMemory();
+		PartTableGatewayMemory parts = new PartTableGatewayMemory();
+		InventoryTableGatewayMemory inventorys = new InventoryTableGatewayMemory();
+		w1 = warehouses.insertWarehouse(new Warehouse("Util W1", "1 Main St", "San Antonio", "TX", "78249", 100));
+		w2 = warehouses.insertWarehouse(new Warehouse("Util W2", "2 Main St", "San Antonio", "TX", "78249", 50));
+		long p1 = parts.insertPart(new Part("U1", "Bolt", "Pieces", "V1", "Acme"));
+		long p2 = parts.insertPart(new Part("U2", "Nut", "Pieces", "V2", "Acme"));
+		w1p1 = inventorys.insertInventory(new Inventory(w1, p1, 40));
+		w1p2 = inventorys.insertInventory(new Inventory(w1, p2, 30));
+		w2p1 = inventorys.insertInventory(new Inventory(w2, p1, 10));
+
+		warehouseList = new WarehouseList();
+		warehouseList.setGateway(warehouses);
+		warehouseList.loadFromGateway();
+		inventoryList = new InventoryList();
+		inventoryList.setGateway(inventorys);
+		inventoryList.loadFromGateway();
+
+		utilization = inventoryList.getUtilization();
+		utilization.trackCapacities(warehouseList);
+		crossings = new ArrayList<Long>();
+		utilization.addObserver(new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				crossings.add((Long) arg);
+			}
+		});
+	}
+
+	private void setQuantity(long inventoryId, double qty) throws Exception {
+		Inventory invt = inventoryList.findById(inventoryId);
+		invt.setQuantity(qty);
+		invt.finishUpdate();
+	}
+
+	//1
+	@Test
+	public void testTotalsFromLoad() {
+		assertEquals(70, utilization.getTotalQuantity(w1), 0);
+		assertEquals(10, utilization.getTotalQuantity(w2), 0);
+		assertEquals(100, utilization.getCapacity(w1));
+		assertEquals(30, utilization.getRemainingCapacity(w1), 0);
+		assertEquals(40, utilization.getRemainingCapacity(w2), 0);
+		assertTrue(crossings.isEmpty());
+	}
+
+	//2
+	@Test
+	public void testQuantityEdit() throws Exception {
+		setQuantity(w1p1, 55);
+		assertEquals(85, utilization.getTotalQuantity(w1), 0);
+		assertEquals(15, utilization.getRemainingCapacity(w1), 0);
+		assertEquals(10, utilization.getTotalQuantity(w2), 0);
+	}
+
+	//3
+	@Test
+	public void testWarehouseMove() throws Exception {
+		Inventory invt = inventoryList.findById(w1p2);
+		invt.setWarehouseId(w2);
+		invt.finishUpdate();
+		assertEquals(40, utilization.getTotalQuantity(w1), 0);
+		assertEquals(40, utilization.getTotalQuantity(w2), 0);
+		assertEquals(10, utilization.getRemainingCapacity(w2), 0);
+
+		//quantity and warehouse changed together
+		invt.setWarehouseId(w1);
+		invt.setQuantity(5);
+		invt.finishUpdate();
+		assertEquals(45, utilization.getTotalQuantity(w1), 0);
+		assertEquals(10, utilization.getTotalQuantity(w2), 0);
+	}
+
+	//4
+	@Test
+	public void testClearKeepsCapacities() {
+		Inventory kept = inventoryList.findById(w2p1);
+		inventoryList.setList(new ArrayList<Inventory>());
+		assertEquals(0, utilization.getTotalQuantity(w1), 0);
+		assertEquals(0, utilization.getTotalQuantity(w2), 0);
+		assertEquals(100, utilization.getCapacity(w1));
+		assertEquals(100, utilization.getRemainingCapacity(w1), 0);
+
+		inventoryList.setList(new ArrayList<Inventory>(Arrays.asList(kept)));
+		assertEquals(0, utilization.getTotalQuantity(w1), 0);
+		assertEquals(10, utilization.getTotalQuantity(w2), 0);
+	}
+
+	//5
+	@Test
+	public void testWarehousesWithFreeBoundary() {
+		//w1 has 30 free, w2 has 40
+		assertEquals(Arrays.asList(w1, w2), utilization.getWarehousesWithFree(30));
+		assertEquals(Arrays.asList(w1, w2), utilization.getWarehousesWithFree(0));
+		assertEquals(Arrays.asList(w2), utilization.getWarehousesWithFree(30.5));
+		assertEquals(Arrays.asList(w2), utilization.getWarehousesWithFree(40));
+		assertEquals(Collections.<Long>emptyList(), utilization.getWarehousesWithFree(40.5));
+	}
+
+	//6
+	@Test
+	public void testNearFullCrossings() throws Exception {
+		//70 -> 89 of 100: still under 90%
+		setQuantity(w1p1, 59);
+		assertTrue(crossings.isEmpty());
+		//exactly 90% is near full
+		setQuantity(w1p1, 60);
+		assertEquals(Arrays.asList(w1), crossings);
+		assertTrue(utilization.isNearFull(w1));
+		assertEquals(Arrays.asList(w1), utilization.getNearFullWarehouses());
+		//staying near full is not a crossing
+		setQuantity(w1p1, 65);
+		assertEquals(1, crossings.size());
+		setQuantity(w1p1, 40);
+		assertEquals(Arrays.asList(w1, w1), crossings);
+		assertFalse(utilization.isNearFull(w1));
+
+		//lowering the threshold makes w1 (70%) near full, not w2 (20%)
+		utilization.setNearFullThreshold(0.7);
+		assertEquals(Arrays.asList(w1, w1, w1), crossings);
+		assertFalse(utilization.isNearFull(w2));
+	}
+
+	//7
+	@Test
+	public void testCapacityEdit() throws Exception {
+		Warehouse w = warehouseList.findById(w2);
+		w.setStorageCapacity(20);
+		w.finishUpdate();
+		assertEquals(20, utilization.getCapacity(w2));
+		assertEquals(10, utilization.getRemainingCapacity(w2), 0);
+		//w2 now has less free than w1
+		assertEquals(Arrays.asList(w2, w1), utilization.getWarehousesWithFree(0));
+		assertTrue(crossings.isEmpty());
+
+		w.setStorageCapacity(11);
+		w.finishUpdate();
+		assertEquals(Arrays.asList(w2), crossings);
+		assertTrue(utilization.isNearFull(w2));
+	}
+
+	//8
+	@Test
+	public void testWarehouseDelete() {
+		warehouseList.removeWarehouseFromList(warehouseList.findById(w2));
+		assertEquals(-1, utilization.getCapacity(w2));
+		assertEquals(0, utilization.getRemainingCapacity(w2), 0);
+		assertEquals(Arrays.asList(w1), utilization.getWarehousesWithFree(0));
+		//its records are still counted
+		assertEquals(10, utilization.getTotalQuantity(w2), 0);
+	}
+}
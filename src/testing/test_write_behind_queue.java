@@ -0,0 +1,185 @@
+package testing;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import database.AsyncExecutor;
+import database.InventoryTableGatewayMemory;
+import database.MemoryDatabase;
+import database.PartTableGatewayMemory;
+import database.WarehouseTableGatewayMemory;
+import models.Inventory;
+import models.Part;
+import models.Warehouse;
+import models.WriteBehindQueue;
+
+
+public class test_write_behind_queue {
+
+	private PartTableGatewayMemory parts;
+	private InventoryTableGatewayMemory inventorys;
+	private WriteBehindQueue queue;
+
+	//failure listener messages
+	private List<String> failures;
+
+	private long w1, p1, w1p1, w1p2;
+
+	@Before
+	public void setUp() throws Exception {
+		MemoryDatabase.reset();
+		WarehouseTableGatewayMemory warehouses = new WarehouseTableGatewayMemory();
+		parts = new PartTableGatewayMemory();
+		inventorys = new InventoryTableGatewayMemory();
+		w1 = warehouses.insertWarehouse(new Warehouse("Queue W1", "1 Main St", "San Antonio", "TX", "78249", 100));
+		p1 = parts.insertPart(new Part("Q1", "Bolt", "Pieces", "V1", "Acme"));
+		long p2 = parts.insertPart(new Part("Q2", "Nut", "Pieces", "V2", "Acme"));
+		w1p1 = inventorys.insertInventory(new Inventory(w1, p1, 10));
+		w1p2 = inventorys.insertInventory(new Inventory(w1, p2, 20));
+
+		//flushed only when a test calls flush
+		queue = new WriteBehindQueue(warehouses, parts, inventorys, 100, 1000000);
+		failures = new ArrayList<String>();
+		queue.setFailureListener(new WriteBehindQueue.FailureListener() {
+			@Override
+			public void saveFailed(String message) {
+				failures.add(message);
+			}
+		});
+		queue.start(AsyncExecutor.getInstance());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		queue.shutdown();
+	}
+
+	/**
+	 * waits for the model updates the queue sent to the Event Dispatch Thread
+	 */
+	private void drainEDT() throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+			}
+		});
+	}
+
+	private Part editablePart(long id) throws Exception {
+		Part p = parts.fetchPart(id);
+		p.setGateway(parts);
+		return p;
+	}
+
+	private Inventory editableInventory(long id) throws Exception {
+		Inventory i = inventorys.fetchInventory(id);
+		i.setGateway(inventorys);
+		return i;
+	}
+
+	//1
+	@Test
+	public void testSavesCoalesceUntilFlush() throws Exception {
+		Part p = editablePart(p1);
+		long before = p.getVersion();
+		p.setPartName("First");
+		p.finishUpdate();
+		p.setPartName("Second");
+		p.finishUpdate();
+		assertEquals(1, queue.size());
+		assertEquals(1, queue.getCoalesced());
+		assertEquals("Bolt", parts.fetchPart(p1).getPartName());
+
+		queue.flush();
+		drainEDT();
+		assertEquals("Second", parts.fetchPart(p1).getPartName());
+		assertEquals(before + 1, parts.fetchPart(p1).getVersion());
+		assertEquals(before + 1, p.getVersion());
+		assertEquals(1, queue.getWrites());
+	}
+
+	//2
+	@Test
+	public void testSaveQueuedDuringFlushDoesNotConflict() throws Exception {
+		Part p = editablePart(p1);
+		long before = p.getVersion();
+		p.setPartName("Third");
+		p.finishUpdate();
+		queue.flush();
+		//queued before the model has taken the version the flush gave the record
+		p.setPartName("Fourth");
+		p.finishUpdate();
+		queue.flush();
+		drainEDT();
+		assertTrue(failures.toString(), failures.isEmpty());
+		assertEquals("Fourth", parts.fetchPart(p1).getPartName());
+		assertEquals(before + 2, parts.fetchPart(p1).getVersion());
+		assertEquals(before + 2, p.getVersion());
+	}
+
+	//3
+	@Test
+	public void testFailingBatchFallsBackToSingleSaves() throws Exception {
+		Inventory good = editableInventory(w1p1);
+		Inventory stale = editableInventory(w1p2);
+		//another user saves the second record first
+		Inventory theirs = inventorys.fetchInventory(w1p2);
+		theirs.setQuantity(7);
+		inventorys.saveInventory(theirs);
+
+		good.setQuantity(11);
+		good.finishUpdate();
+		stale.setQuantity(12);
+		stale.finishUpdate();
+		queue.flush();
+		drainEDT();
+		assertEquals(11, inventorys.fetchInventory(w1p1).getQuantity(), 0);
+		assertEquals(7, inventorys.fetchInventory(w1p2).getQuantity(), 0);
+		assertEquals(1, queue.getWrites());
+		assertEquals(1, queue.getFailures());
+		assertEquals(1, failures.size());
+	}
+
+	//4
+	@Test
+	public void testFailedSaveRollsBackModel() throws Exception {
+		Part p = editablePart(p1);
+		Part theirs = parts.fetchPart(p1);
+		theirs.setPartName("Theirs");
+		parts.savePart(theirs);
+
+		p.setPartName("Mine");
+		p.finishUpdate();
+		queue.flush();
+		drainEDT();
+		assertEquals("Theirs", p.getPartName());
+		assertEquals(parts.fetchPart(p1).getVersion(), p.getVersion());
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0), failures.get(0).contains("Part " + p1));
+	}
+
+	//5
+	@Test
+	public void testShutdownWritesQueuedSaves() throws Exception {
+		Part p = editablePart(p1);
+		p.setPartName("Queued");
+		p.finishUpdate();
+		queue.shutdown();
+		assertNull(WriteBehindQueue.getActive());
+		assertEquals("Queued", parts.fetchPart(p1).getPartName());
+
+		//later saves are written right away
+		drainEDT();
+		p.setPartName("Direct");
+		p.finishUpdate();
+		assertEquals("Direct", parts.fetchPart(p1).getPartName());
+	}
+}
@@ -0,0 +1,108 @@
+package views;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.JTextField;
+
+import controller.NameComboModel;
+
+/**
+ * Merges a record's new values into a detail view's fields without losing what the user has typed
+ *
+ * Remembers the value each field was last loaded with. On a merge, a field still showing that value
+ * takes the record's new value, while a field the user has edited keeps the user's value.
+ * Detail views merge whenever their record changes while they are open: a list sync brought in
+ * someone else's save, or a save lost the optimistic concurrency check (ConflictException) and the model
+ * now holds the record as it is in the db, so the user can save their edits on top of it.
+ * @author Justin Wilson
+ *
+ */
+public class FieldMerge {
+	/**
+	 * field -> value it was last loaded with
+	 */
+	private HashMap<Object, Object> loaded;
+
+	/**
+	 * fields where an edit was kept over a different new value, since the last takeConflicts()
+	 */
+	private int conflicts;
+
+	public FieldMerge() {
+		loaded = new HashMap<Object, Object>();
+	}
+
+	/**
+	 * shows value (null shows as blank) in the field, discarding any edit
+	 */
+	public void load(JTextField field, String value) {
+		if(value == null)
+			value = "";
+		field.setText(value);
+		loaded.put(field, value);
+	}
+
+	/**
+	 * picks the record with that id in the combo box, discarding any edit
+	 */
+	public void load(NameComboModel field, long id) {
+		field.setSelectedId(id);
+		loaded.put(field, id);
+	}
+
+	/**
+	 * shows value in the field unless the user has edited it
+	 */
+	public void merge(JTextField field, String value) {
+		if(value == null)
+			value = "";
+		Object was = loaded.put(field, value);
+		//views save trimmed text
+		String shown = field.getText().trim();
+		if(was == null || shown.equals(was) || shown.equals(value)) {
+			field.setText(value);
+			return;
+		}
+		if(!value.equals(was))
+			conflicts++;
+	}
+
+	/**
+	 * picks the record with that id unless the user has picked another one
+	 */
+	public void merge(NameComboModel field, long id) {
+		Object was = loaded.put(field, id);
+		long shown = field.getSelectedId();
+		if(was == null || shown == (Long) was || shown == id) {
+			field.setSelectedId(id);
+			return;
+		}
+		if(id != (Long) was)
+			conflicts++;
+	}
+
+	/**
+	 * @return true if any field shows something other than what it was last loaded (or merged) with
+	 */
+	public boolean isEdited() {
+		for(Map.Entry<Object, Object> e : loaded.entrySet()) {
+			if(e.getKey() instanceof JTextField) {
+				if(!((JTextField) e.getKey()).getText().trim().equals(e.getValue()))
+					return true;
+			} else if(((NameComboModel) e.getKey()).getSelectedId() != (Long) e.getValue()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return number of fields where the user's edit was kept over someone else's different change, since the last call
+	 */
+	public int takeConflicts() {
+		int ret = conflicts;
+		conflicts = 0;
+		return ret;
+	}
+}
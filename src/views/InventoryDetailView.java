@@ -8,7 +8,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.HashMap;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -22,9 +21,12 @@ import javax.swing.JTextField;
 
 import controller.MDIChild;
 import controller.MDIParent;
+import controller.NameComboModel;
+import database.ConflictException;
 import database.GatewayException;
 import models.Inventory;
 import models.InventoryList;
+import models.Part;
 import models.Warehouse;
 
 
@@ -45,9 +47,17 @@ public class InventoryDetailView extends MDIChild implements Observer {
 	 */
 	private JLabel fldId;
 	private JTextField fldQuantity;
-	private JComboBox comBoxWarehouseId, comBoxPartId;
+	private JComboBox<String> comBoxWarehouseId, comBoxPartId;
 		
-	private HashMap< Long, String> warehouseList, partList;
+	/**
+	 * combo box contents, read from the warehouse and part name lookups shared by every inventory view
+	 */
+	private NameComboModel warehouseNames, partNames;
+	
+	/**
+	 * what the fields were loaded with, to merge changes saved by others into them (see update)
+	 */
+	private FieldMerge fields = new FieldMerge();
 	
 	private MDIParent mdiparent;
 	
@@ -79,44 +89,18 @@ public class InventoryDetailView extends MDIChild implements Observer {
 		
 	// warehouse	
 		panel.add(new JLabel("Warehouse"));
-		// get warehouse list
-		warehouseList = myInventory.getWarehouseList(m).getWList();
-		
-		
-	// get size of warehouse List
-		int size = warehouseList.size();
-		String [] wNameList = new String[size+1];
-		
-		
-		int i =0;
-		wNameList[0] = DEFAULT_VALUE;
-		
-		for ( Long key : warehouseList.keySet() ) {
-	 	    	wNameList[++i] = warehouseList.get(key);
-	    }
-
-	    comBoxWarehouseId = new JComboBox(wNameList);
+		// warehouse names, sorted
+		warehouseNames = new NameComboModel(myInventory.getWarehouseList(m).getNameLookup(), DEFAULT_VALUE);
+	    comBoxWarehouseId = new JComboBox<String>(warehouseNames);
 
 		panel.add(comBoxWarehouseId);
 		
 		
 		panel.add(new JLabel("Part"));	
-		partList = myInventory.getPartList(m).getPList();
-
-		size = partList.size();
-		String [] pNameList = new String[size+1];
-		
-		i =0;
-		pNameList[0] = DEFAULT_VALUE;
-		
-		for ( Long key : partList.keySet() ) {
-	 	    	pNameList[++i] = partList.get(key);
-	    }
-		
-		comBoxPartId = new JComboBox(pNameList);
-	    if( partList.containsKey(myInventory.getPartId()) ){
-	    	comBoxPartId.getModel().setSelectedItem(partList.get(myInventory.getPartId()));
-	    }
+		// part numbers, sorted
+		partNames = new NameComboModel(myInventory.getPartList(m).getNameLookup(), DEFAULT_VALUE);
+		comBoxPartId = new JComboBox<String>(partNames);
+		partNames.setSelectedId(myInventory.getPartId());
 	    
 		panel.add(comBoxPartId);
 	
@@ -139,6 +123,16 @@ public class InventoryDetailView extends MDIChild implements Observer {
 			}
 		});
 		panel.add(button);
+		
+		//Reload discards unsaved edits and shows the record as it is in the db
+		button = new JButton("Reload");
+		button.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				reloadModel();
+			}
+		});
+		panel.add(button);
 		 
 		this.add(panel, BorderLayout.SOUTH);
 
@@ -151,33 +145,60 @@ public class InventoryDetailView extends MDIChild implements Observer {
 	}
 	
 	/**
-	 * Reload fields with model data
-	 * Used when model notifies view of change
+	 * Reload fields with model data (unsaved edits are discarded)
 	 */
 	public void refreshFields() {
 		fldId.setText("" + myInventory.getId());
 		if( myInventory.getId() >0 ){
 			
 			// for warehouse
-			if( warehouseList.containsKey(myInventory.getWarehouseId()) ){
-		    	comBoxWarehouseId.getModel().setSelectedItem(warehouseList.get(myInventory.getWarehouseId()));
-		    }
+			fields.load(warehouseNames, myInventory.getWarehouseId());
 			
 			// for part
-			if( partList.containsKey(myInventory.getPartId()) ){
-		    	comBoxPartId.getModel().setSelectedItem(partList.get(myInventory.getPartId()));
-		    }
+			fields.load(partNames, myInventory.getPartId());
 		}else{
-			comBoxWarehouseId.getModel().setSelectedItem(DEFAULT_VALUE);
-			comBoxPartId.getModel().setSelectedItem(DEFAULT_VALUE);
+			//placeholders
+			fields.load(warehouseNames, Warehouse.INVALID_ID);
+			fields.load(partNames, Part.INVALID_ID);
 		}
 
-		fldQuantity.setText(""+myInventory.getQuantity());
+		fields.load(fldQuantity, ""+myInventory.getQuantity());
 		//update window title
 		this.setTitle("Inventory " +myInventory.getId());
 		//flag as unchanged
 		setChanged(false);
 	}
+	
+	/**
+	 * Merge model data into the fields, keeping the user's unsaved edits
+	 * Used when model notifies view of change
+	 */
+	public void mergeFields() {
+		fldId.setText("" + myInventory.getId());
+		if( myInventory.getId() >0 ){
+			fields.merge(warehouseNames, myInventory.getWarehouseId());
+			fields.merge(partNames, myInventory.getPartId());
+		}
+		fields.merge(fldQuantity, ""+myInventory.getQuantity());
+		//update window title
+		this.setTitle("Inventory " +myInventory.getId());
+		setChanged(fields.isEdited());
+		if(fields.takeConflicts() > 0)
+			parent.displayChildMessage("Inventory " + myInventory.getId() + " was changed by another user; your unsaved changes were kept (Reload to see theirs)");
+	}
+	
+	/**
+	 * discards unsaved edits and shows the record as it is now in the db
+	 */
+	public void reloadModel() {
+		try {
+			if(myInventory.getId() != Inventory.INVALID_ID)
+				myInventory.refreshFrom(myInventory.getGateway().fetchInventory(myInventory.getId()));
+		} catch (GatewayException e) {
+			parent.displayChildMessage(e.getMessage());
+		}
+		refreshFields();
+	}
 
 	/**
 	 * saves changes to the view's Inventory model 
@@ -187,15 +208,20 @@ public class InventoryDetailView extends MDIChild implements Observer {
 	//this is called rollback
 	@Override
 	public boolean saveModel() {
+		//someone else has the record open since this view's lease was lost
+		if(!checkEditLease())
+			return false;
+
 		//display any error message if field data are invalid
 		
-		if ( comBoxWarehouseId.getSelectedItem().equals(DEFAULT_VALUE) ){
+		//placeholder, or a name whose record was deleted since it was picked
+		if ( warehouseNames.getSelectedId() == Warehouse.INVALID_ID ){
 			parent.displayChildMessage("Invalid Warehouse Id!");
 			refreshFields();
 			return false;
 		}
 		
-		if ( comBoxPartId.getSelectedItem().equals(DEFAULT_VALUE) ){
+		if ( partNames.getSelectedId() == Part.INVALID_ID ){
 			parent.displayChildMessage("Invalid Part Id!");
 			refreshFields();
 			return false;
@@ -220,19 +246,9 @@ public class InventoryDetailView extends MDIChild implements Observer {
 		//fields are valid so save to model
 		try {
 			
-			for ( Long key : warehouseList.keySet() ) {
-	 	    	if( warehouseList.get(key).equals(comBoxWarehouseId.getSelectedItem()) ){
-	 	    		myInventory.setWarehouseId( key );
-	 	    		break;
-	 	    	}
-			}
-			
-			for ( Long key : partList.keySet() ) {
-	 	    	if( partList.get(key).equals(comBoxPartId.getSelectedItem()) ){
-	 	    		myInventory.setPartId( key);
-	 	    		break;
-	 	    	}
-			}
+			// names picked -> ids
+			myInventory.setWarehouseId(warehouseNames.getSelectedId());
+			myInventory.setPartId(partNames.getSelectedId());
 			
 			if( inventoryList.duplicate(myInventory)){
 				parent.displayChildMessage("Could not have more than one record which has the same Warehouse and Part !");
@@ -267,6 +283,14 @@ public class InventoryDetailView extends MDIChild implements Observer {
 			myInventory.finishUpdate();
 			setChanged(false);
 			
+		} catch (ConflictException e) {
+			//the model now holds the other user's save, merged into the fields under the user's edits (see update)
+			if(e.isDeleted())
+				parent.displayChildMessage("Inventory " + myInventory.getId() + " was deleted by another user");
+			else
+				parent.displayChildMessage("Inventory " + myInventory.getId() + " was changed by another user: check the merged values and Save again, or Reload to discard your changes");
+			setChanged(true);
+			return false;
 		} catch (GatewayException e) {
 			//e.printStackTrace();
 			//reset fields to db copy of inventory if save fails
@@ -289,6 +313,8 @@ public class InventoryDetailView extends MDIChild implements Observer {
 				
 		//unregister from observable
 		myInventory.deleteObserver(this);
+		warehouseNames.unregisterAsObserver();
+		partNames.unregisterAsObserver();
 	}
 
 	/**
@@ -296,7 +322,7 @@ public class InventoryDetailView extends MDIChild implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		refreshFields();
+		mergeFields();
 	}
 
 	public Inventory getMyInventory() {
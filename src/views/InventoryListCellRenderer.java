@@ -8,6 +8,7 @@ import javax.swing.JList;
 import javax.swing.ListCellRenderer;
 
 import models.Inventory;
+import models.InventoryList;
 
 /**
  * Customizes row info in JList
@@ -24,7 +25,9 @@ public class InventoryListCellRenderer implements ListCellRenderer<Inventory> {
 	@Override
 	public Component getListCellRendererComponent(JList<? extends Inventory> list, Inventory value, int index,
 			boolean isSelected, boolean cellHasFocus) {
-		JLabel renderer = (JLabel) DEFAULT_RENDERER.getListCellRendererComponent(list, value.getId(), index, isSelected, cellHasFocus);
+		//a paged list's row whose page hasn't arrived yet
+		Object shown = InventoryList.isPlaceholder(value) ? "Loading..." : value.getId();
+		JLabel renderer = (JLabel) DEFAULT_RENDERER.getListCellRendererComponent(list, shown, index, isSelected, cellHasFocus);
 		return renderer;
 	}
 
@@ -29,6 +29,7 @@ import controller.MDIChild;
 import controller.MDIParent;
 import controller.MenuCommands;
 import models.Inventory;
+import models.InventoryList;
 import models.TransferableInventory;
 
 /**
@@ -72,7 +73,10 @@ public class InventoryListView extends MDIChild {
 		
 		//use our custom cell renderer instead of default (don't want to use Inventory.toString())
 		listInventorys.setCellRenderer(new InventoryListCellRenderer());
-		listInventorys.setPreferredSize(new Dimension(200, 200));
+		//fixed row size lets the JList lay out without asking the model for every row
+		//(a paged InventoryList would otherwise fetch every page) and lets the list scroll
+		listInventorys.setPrototypeCellValue(new Inventory());
+		listInventorys.setFixedCellWidth(200);
 		
 		//add event handler for double click
 		listInventorys.addMouseListener(new MouseAdapter() {
@@ -80,8 +84,11 @@ public class InventoryListView extends MDIChild {
 				//if double-click then get index and open new detail view with record at that index
 		        if(evt.getClickCount() == 2) {
 		        	int index = listInventorys.locationToIndex(evt.getPoint());
-		        	//get the Inventory at that index
-		        	selectedModel = myList.getElementAt(index);
+		        	//get the Inventory at that index (nothing to open while its page is still loading)
+		        	Inventory clicked = myList.getElementAt(index);
+		        	if(InventoryList.isPlaceholder(clicked))
+		        		return;
+		        	selectedModel = clicked;
 		        	
 		        	//open a new detail view
 		        	openDetailView();
@@ -122,7 +129,7 @@ public class InventoryListView extends MDIChild {
 		if(idx >= myList.getSize())
 			return;
 		Inventory d = myList.getElementAt(idx);
-		if(d == null)
+		if(d == null || InventoryList.isPlaceholder(d))
 			return;
 		selectedModel = d;
 		
@@ -211,7 +218,11 @@ public class InventoryListView extends MDIChild {
 	        if (index < 0 || index >= myList.getSize()) {
 	            return null;
 	        }
-	        return new TransferableInventory( (Inventory) listInventorys.getSelectedValue());
+	        Inventory selected = listInventorys.getSelectedValue();
+	        if (InventoryList.isPlaceholder(selected)) {
+	            return null;
+	        }
+	        return new TransferableInventory(selected);
 	    }
 	    
 	    public void exportDone(JComponent comp, Transferable trans, int action) {
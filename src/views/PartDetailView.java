@@ -20,6 +20,7 @@ import javax.swing.JTextField;
 
 import controller.MDIChild;
 import controller.MDIParent;
+import database.ConflictException;
 import database.GatewayException;
 import models.Part;
 
@@ -41,6 +42,11 @@ public class PartDetailView extends MDIChild implements Observer {
 	 */
 	private JLabel fldId;
 	private JTextField fldPartId, fldPartName, fldPartVendor, fldPartUnit, fldPartVendorId;
+	
+	/**
+	 * what the fields were loaded with, to merge changes saved by others into them (see update)
+	 */
+	private FieldMerge fields = new FieldMerge();
 		
 	/**
 	 * Constructor
@@ -105,6 +111,16 @@ public class PartDetailView extends MDIChild implements Observer {
 		});
 		panel.add(button);
 		
+		//Reload discards unsaved edits and shows the record as it is in the db
+		button = new JButton("Reload");
+		button.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				reloadModel();
+			}
+		});
+		panel.add(button);
+		
 		this.add(panel, BorderLayout.SOUTH);
 
 		//load fields with model data
@@ -116,21 +132,51 @@ public class PartDetailView extends MDIChild implements Observer {
 	}
 	
 	/**
-	 * Reload fields with model data
-	 * Used when model notifies view of change
+	 * Reload fields with model data (unsaved edits are discarded)
 	 */
 	public void refreshFields() {
 		fldId.setText("" + myPart.getId());
-		fldPartId.setText(myPart.getPartNumber());
-		fldPartName.setText(myPart.getPartName());
-		fldPartVendor.setText("" + myPart.getVendor());
-		fldPartUnit.setText("" + myPart.getUnitOfQuantity());
-		fldPartVendorId.setText("" + myPart.getVendorsPartNumber());
+		fields.load(fldPartId, myPart.getPartNumber());
+		fields.load(fldPartName, myPart.getPartName());
+		fields.load(fldPartVendor, "" + myPart.getVendor());
+		fields.load(fldPartUnit, "" + myPart.getUnitOfQuantity());
+		fields.load(fldPartVendorId, "" + myPart.getVendorsPartNumber());
 		//update window title
 		this.setTitle(myPart.getPartName());
 		//flag as unchanged
 		setChanged(false);
 	}
+	
+	/**
+	 * Merge model data into the fields, keeping the user's unsaved edits
+	 * Used when model notifies view of change
+	 */
+	public void mergeFields() {
+		fldId.setText("" + myPart.getId());
+		fields.merge(fldPartId, myPart.getPartNumber());
+		fields.merge(fldPartName, myPart.getPartName());
+		fields.merge(fldPartVendor, "" + myPart.getVendor());
+		fields.merge(fldPartUnit, "" + myPart.getUnitOfQuantity());
+		fields.merge(fldPartVendorId, "" + myPart.getVendorsPartNumber());
+		//update window title
+		this.setTitle(myPart.getPartName());
+		setChanged(fields.isEdited());
+		if(fields.takeConflicts() > 0)
+			parent.displayChildMessage("Part " + myPart.getId() + " was changed by another user; your unsaved changes were kept (Reload to see theirs)");
+	}
+	
+	/**
+	 * discards unsaved edits and shows the record as it is now in the db
+	 */
+	public void reloadModel() {
+		try {
+			if(myPart.getId() != Part.INVALID_ID)
+				myPart.refreshFrom(myPart.getGateway().fetchPart(myPart.getId()));
+		} catch (GatewayException e) {
+			parent.displayChildMessage(e.getMessage());
+		}
+		refreshFields();
+	}
 
 	/**
 	 * saves changes to the view's Part model 
@@ -140,6 +186,10 @@ public class PartDetailView extends MDIChild implements Observer {
 	//this is called rollback
 	@Override
 	public boolean saveModel() {
+		//someone else has the record open since this view's lease was lost
+		if(!checkEditLease())
+			return false;
+
 		//display any error message if field data are invalid
 		String testPartId = fldPartId.getText().trim();
 		if(!myPart.validPartNumber(testPartId)) {
@@ -191,6 +241,14 @@ public class PartDetailView extends MDIChild implements Observer {
 			myPart.finishUpdate();
 			setChanged(false);
 			
+		} catch (ConflictException e) {
+			//the model now holds the other user's save, merged into the fields under the user's edits (see update)
+			if(e.isDeleted())
+				parent.displayChildMessage("Part " + myPart.getId() + " was deleted by another user");
+			else
+				parent.displayChildMessage("Part " + myPart.getId() + " was changed by another user: check the merged values and Save again, or Reload to discard your changes");
+			setChanged(true);
+			return false;
 		} catch (GatewayException e) {
 			//e.printStackTrace();
 			//reset fields to db copy of part if save fails
@@ -211,14 +269,6 @@ public class PartDetailView extends MDIChild implements Observer {
 		//let superclass do its thing
 		super.cleanup();
 		
-		// clear user access
-		try {
-			myPart.getGateway().blockPart( myPart.getId() , null);
-		} catch (GatewayException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-				
 		//unregister from observable
 		myPart.deleteObserver(this);
 	}
@@ -228,7 +278,7 @@ public class PartDetailView extends MDIChild implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		refreshFields();
+		mergeFields();
 	}
 
 	public Part getMyPart() {
@@ -25,10 +25,10 @@ import javax.swing.SwingUtilities;
 import javax.swing.TransferHandler;
 
 import controller.PartListController;
-import database.GatewayException;
 import controller.MDIChild;
 import controller.MDIParent;
 import controller.MenuCommands;
+import database.GatewayException;
 import models.InventoryList;
 import models.Part;
 import models.TransferablePart;
@@ -96,18 +96,7 @@ public class PartListView extends MDIChild {
 			        	//get the Part at that index
 			        	selectedModel = myList.getElementAt(index);
 			        	
-			        	// check lock element
-			        	try {
-							if(selectedModel.getGateway().blockPart( selectedModel.getId() , m.getUserSessionID())){
-								m.displayChildMessage("Sorry !! This Part is blocked because another user is editing it");
-								return;
-							}
-						} catch (GatewayException e) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
-			        	
-			        	//open a new detail view
+			        	//open a new detail view (MDIParent turns it away if another user is editing the part)
 			        	openDetailView();
 		    		}
 		        }
@@ -152,11 +141,17 @@ public class PartListView extends MDIChild {
 		selectedModel = d;
 		
 		// check exist in inventory
-		if( myInventoryList.existWarehousePart( 0l, d.getId()) ){
-			
-			parent.displayChildMessage("Can not delete this part because it exists in Inventory table");
+		try {
+			if( myInventoryList.existWarehousePart( 0l, d.getId()) ){
+				
+				parent.displayChildMessage("Can not delete this part because it exists in Inventory table");
+				return;
+				
+			}
+		} catch (GatewayException e) {
+			//can't tell if it is in use: don't delete
+			parent.displayChildMessage(e.getMessage());
 			return;
-			
 		}
 		
 		//ask user to confirm deletion
@@ -18,6 +18,7 @@ import javax.swing.JTextField;
 
 import controller.MDIChild;
 import controller.MDIParent;
+import database.ConflictException;
 import database.GatewayException;
 import models.User;
 import utilities.Utility;
@@ -41,6 +42,11 @@ public class UserDetailView extends MDIChild implements Observer {
 	private JLabel fldId;
 	private JTextField fldUserName, fldPassword, fldFullName;
 	private JTextField fldAdd, fldEdit, fldDelete;
+	
+	/**
+	 * what the fields were loaded with, to merge changes saved by others into them (see update)
+	 */
+	private FieldMerge fields = new FieldMerge();
 		
 	/**
 	 * Constructor
@@ -119,6 +125,16 @@ public class UserDetailView extends MDIChild implements Observer {
 		});
 		panel.add(button);
 		
+		//Reload discards unsaved edits and shows the record as it is in the db
+		button = new JButton("Reload");
+		button.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				reloadModel();
+			}
+		});
+		panel.add(button);
+		
 		this.add(panel, BorderLayout.SOUTH);
 
 		//load fields with model data
@@ -130,22 +146,52 @@ public class UserDetailView extends MDIChild implements Observer {
 	}
 	
 	/**
-	 * Reload fields with model data
-	 * Used when model notifies view of change
+	 * Reload fields with model data (unsaved edits are discarded)
 	 */
 	public void refreshFields() {
 		fldId.setText("" + myUser.getId());
-		fldUserName.setText( myUser.getUser());
+		fields.load(fldUserName, myUser.getUser());
 //		fldPassword.setText( myUser.getPassword());
-		fldFullName.setText( myUser.getFullname());
-		fldAdd.setText( "" + myUser.getAdd());
-		fldEdit.setText( "" + myUser.getEdit());
-		fldDelete.setText( myUser.getDelete());
+		fields.load(fldFullName, myUser.getFullname());
+		fields.load(fldAdd, "" + myUser.getAdd());
+		fields.load(fldEdit, "" + myUser.getEdit());
+		fields.load(fldDelete, myUser.getDelete());
 		
 		this.setTitle(myUser.getFullname());
 		//flag as unchanged
 		setChanged(false);
 	}
+	
+	/**
+	 * Merge model data into the fields, keeping the user's unsaved edits
+	 * Used when model notifies view of change
+	 */
+	public void mergeFields() {
+		fldId.setText("" + myUser.getId());
+		fields.merge(fldUserName, myUser.getUser());
+		fields.merge(fldFullName, myUser.getFullname());
+		fields.merge(fldAdd, "" + myUser.getAdd());
+		fields.merge(fldEdit, "" + myUser.getEdit());
+		fields.merge(fldDelete, myUser.getDelete());
+		
+		this.setTitle(myUser.getFullname());
+		setChanged(fields.isEdited());
+		if(fields.takeConflicts() > 0)
+			parent.displayChildMessage("User " + myUser.getId() + " was changed by another user; your unsaved changes were kept (Reload to see theirs)");
+	}
+	
+	/**
+	 * discards unsaved edits and shows the record as it is now in the db
+	 */
+	public void reloadModel() {
+		try {
+			if(myUser.getId() != User.INVALID_ID)
+				myUser.refreshFrom(myUser.getGateway().fetchUser(myUser.getId()));
+		} catch (GatewayException e) {
+			parent.displayChildMessage(e.getMessage());
+		}
+		refreshFields();
+	}
 
 	/**
 	 * saves changes to the view's User model 
@@ -155,6 +201,10 @@ public class UserDetailView extends MDIChild implements Observer {
 	//this is called rollback
 	@Override
 	public boolean saveModel() {
+		//someone else has the record open since this view's lease was lost
+		if(!checkEditLease())
+			return false;
+
 		//display any error message if field data are invalid
 				String testName = fldUserName.getText().trim();
 				if(!myUser.validUser(testName)) {
@@ -238,6 +288,14 @@ public class UserDetailView extends MDIChild implements Observer {
 			myUser.finishUpdate();
 			setChanged(false);
 			
+		} catch (ConflictException e) {
+			//the model now holds the other user's save, merged into the fields under the user's edits (see update)
+			if(e.isDeleted())
+				parent.displayChildMessage("User " + myUser.getId() + " was deleted by another user");
+			else
+				parent.displayChildMessage("User " + myUser.getId() + " was changed by another user: check the merged values and Save again, or Reload to discard your changes");
+			setChanged(true);
+			return false;
 		} catch (GatewayException e) {
 			e.printStackTrace();
 			//reset fields to db copy of user if save fails
@@ -267,7 +325,7 @@ public class UserDetailView extends MDIChild implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		refreshFields();
+		mergeFields();
 	}
 
 	public User getMyUser() {
@@ -19,6 +19,7 @@ import javax.swing.JTextField;
 
 import controller.MDIChild;
 import controller.MDIParent;
+import database.ConflictException;
 import database.GatewayException;
 import models.Warehouse;
 
@@ -39,6 +40,11 @@ public class WarehouseDetailView extends MDIChild implements Observer {
 	private JLabel fldId;
 	private JTextField fldName, fldAdd, fldCity, fldState;
 	private JTextField fldZip, fldStoreCap;
+	
+	/**
+	 * what the fields were loaded with, to merge changes saved by others into them (see update)
+	 */
+	private FieldMerge fields = new FieldMerge();
 		
 	/**
 	 * Constructor
@@ -107,6 +113,16 @@ public class WarehouseDetailView extends MDIChild implements Observer {
 		});
 		panel.add(button);
 		
+		//Reload discards unsaved edits and shows the record as it is in the db
+		button = new JButton("Reload");
+		button.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				reloadModel();
+			}
+		});
+		panel.add(button);
+		
 		this.add(panel, BorderLayout.SOUTH);
 
 		//load fields with model data
@@ -118,22 +134,53 @@ public class WarehouseDetailView extends MDIChild implements Observer {
 	}
 	
 	/**
-	 * Reload fields with model data
-	 * Used when model notifies view of change
+	 * Reload fields with model data (unsaved edits are discarded)
 	 */
 	public void refreshFields() {
 		fldId.setText("" + myWarehouse.getId());
-		fldName.setText( myWarehouse.getWareHouseName());
-		fldAdd.setText( myWarehouse.getAddress());
-		fldZip.setText( "" + myWarehouse.getZip());
-		fldStoreCap.setText( "" + myWarehouse.getStorageCapacity());
-		fldCity.setText( myWarehouse.getCity());
-		fldState.setText( myWarehouse.getState());
+		fields.load(fldName, myWarehouse.getWareHouseName());
+		fields.load(fldAdd, myWarehouse.getAddress());
+		fields.load(fldZip, "" + myWarehouse.getZip());
+		fields.load(fldStoreCap, "" + myWarehouse.getStorageCapacity());
+		fields.load(fldCity, myWarehouse.getCity());
+		fields.load(fldState, myWarehouse.getState());
 		//update window title
 		this.setTitle(myWarehouse.getWareHouseName());
 		//flag as unchanged
 		setChanged(false);
 	}
+	
+	/**
+	 * Merge model data into the fields, keeping the user's unsaved edits
+	 * Used when model notifies view of change
+	 */
+	public void mergeFields() {
+		fldId.setText("" + myWarehouse.getId());
+		fields.merge(fldName, myWarehouse.getWareHouseName());
+		fields.merge(fldAdd, myWarehouse.getAddress());
+		fields.merge(fldZip, "" + myWarehouse.getZip());
+		fields.merge(fldStoreCap, "" + myWarehouse.getStorageCapacity());
+		fields.merge(fldCity, myWarehouse.getCity());
+		fields.merge(fldState, myWarehouse.getState());
+		//update window title
+		this.setTitle(myWarehouse.getWareHouseName());
+		setChanged(fields.isEdited());
+		if(fields.takeConflicts() > 0)
+			parent.displayChildMessage("Warehouse " + myWarehouse.getId() + " was changed by another user; your unsaved changes were kept (Reload to see theirs)");
+	}
+	
+	/**
+	 * discards unsaved edits and shows the record as it is now in the db
+	 */
+	public void reloadModel() {
+		try {
+			if(myWarehouse.getId() != Warehouse.INVALID_ID)
+				myWarehouse.refreshFrom(myWarehouse.getGateway().fetchWarehouse(myWarehouse.getId()));
+		} catch (GatewayException e) {
+			parent.displayChildMessage(e.getMessage());
+		}
+		refreshFields();
+	}
 
 	/**
 	 * saves changes to the view's Warehouse model 
@@ -143,6 +190,10 @@ public class WarehouseDetailView extends MDIChild implements Observer {
 	//this is called rollback
 	@Override
 	public boolean saveModel() {
+		//someone else has the record open since this view's lease was lost
+		if(!checkEditLease())
+			return false;
+
 		//display any error message if field data are invalid
 				String testName = fldName.getText().trim();
 				if(!myWarehouse.validWareHouseName(testName)) {
@@ -209,6 +260,14 @@ public class WarehouseDetailView extends MDIChild implements Observer {
 			myWarehouse.finishUpdate();
 			setChanged(false);
 			
+		} catch (ConflictException e) {
+			//the model now holds the other user's save, merged into the fields under the user's edits (see update)
+			if(e.isDeleted())
+				parent.displayChildMessage("Warehouse " + myWarehouse.getId() + " was deleted by another user");
+			else
+				parent.displayChildMessage("Warehouse " + myWarehouse.getId() + " was changed by another user: check the merged values and Save again, or Reload to discard your changes");
+			setChanged(true);
+			return false;
 		} catch (GatewayException e) {
 			//e.printStackTrace();
 			//reset fields to db copy of warehouse if save fails
@@ -238,7 +297,7 @@ public class WarehouseDetailView extends MDIChild implements Observer {
 	 */
 	@Override
 	public void update(Observable o, Object arg) {
-		refreshFields();
+		mergeFields();
 	}
 
 	public Warehouse getMyWarehouse() {
@@ -28,6 +28,7 @@ import controller.WarehouseListController;
 import controller.MDIChild;
 import controller.MDIParent;
 import controller.MenuCommands;
+import database.GatewayException;
 import models.Warehouse;
 import models.InventoryList;
 import models.TransferableWarehouse;
@@ -132,11 +133,17 @@ public class WarehouseListView extends MDIChild {
 		selectedModel = d;
 		
 		// check exist in inventory
-		if( myInventoryList.existWarehousePart( d.getId(), 0l) ){
-			
-			parent.displayChildMessage("Can not delete this warehouse because it exists in Inventory table");
+		try {
+			if( myInventoryList.existWarehousePart( d.getId(), 0l) ){
+				
+				parent.displayChildMessage("Can not delete this warehouse because it exists in Inventory table");
+				return;
+				
+			}
+		} catch (GatewayException e) {
+			//can't tell if it is in use: don't delete
+			parent.displayChildMessage(e.getMessage());
 			return;
-			
 		}
 		
 		//ask user to confirm deletion